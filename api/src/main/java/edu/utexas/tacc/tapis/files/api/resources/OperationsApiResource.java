@@ -94,6 +94,10 @@ public class OperationsApiResource
    * @param recurse - flag indicating a recursive listing should be provided (up to depth of 10)
    * @param pattern - wildcard (glob) pattern or regex used to filter results.  Regex must be prefixed with "regex:".
    *                Only results with file names that match the regex will be returned
+   * @param startAfter - only return items with names after this one. Pass the name of the last item of a page
+   *                   to get the next page.
+   * @param hierarchical - for S3 systems, list one level with key prefixes shown as directories. By default all
+   *                     objects with keys starting with the path are listed. Ignored for recursive listings.
    * @param impersonationId - use provided Tapis username instead of oboUser when checking auth, getSystem (effUserId)
    * @param sharedCtx - Grantor for the case of a shared context.
    * @param securityContext - user identity
@@ -108,6 +112,8 @@ public class OperationsApiResource
                             @QueryParam("offset") @DefaultValue("0") @Min(0) long offset,
                             @QueryParam("recurse") @DefaultValue("false") boolean recurse,
                             @QueryParam("pattern") @DefaultValue("") String pattern,
+                            @QueryParam("startAfter") String startAfter,
+                            @QueryParam("hierarchical") @DefaultValue("false") boolean hierarchical,
                             @QueryParam("impersonationId") String impersonationId,
                             @QueryParam("sharedCtx") String sharedCtx,
                             @Context SecurityContext securityContext)
@@ -117,7 +123,9 @@ public class OperationsApiResource
             .setPageSize(limit)
             .setItemOffset(offset)
             .setRecurse(recurse)
-            .setPattern(pattern);
+            .setPattern(pattern)
+            .setStartAfter(startAfter)
+            .setHierarchical(hierarchical && !recurse);
     return getListing(opName, systemId, path, listOptsBuilder.build(), impersonationId, sharedCtx, securityContext);
   }
 
@@ -129,6 +137,8 @@ public class OperationsApiResource
                                 @QueryParam("offset") @DefaultValue("0") @Min(0) long offset,
                                 @QueryParam("recurse") @DefaultValue("false") boolean recurse,
                                 @QueryParam("pattern") @DefaultValue("") String pattern,
+                                @QueryParam("startAfter") String startAfter,
+                                @QueryParam("hierarchical") @DefaultValue("false") boolean hierarchical,
                                 @QueryParam("impersonationId") String impersonationId,
                                 @QueryParam("sharedCtx") String sharedCtx,
                                 @Context SecurityContext securityContext)
@@ -138,7 +148,9 @@ public class OperationsApiResource
             .setPageSize(limit)
             .setItemOffset(offset)
             .setRecurse(recurse)
-            .setPattern(pattern);
+            .setPattern(pattern)
+            .setStartAfter(startAfter)
+            .setHierarchical(hierarchical && !recurse);
     return getListing(opName, systemId, "", listOptsBuilder.build(), impersonationId, sharedCtx, securityContext);
   }
 
@@ -188,11 +188,14 @@ public class  TransfersApiResource
 
   /**
    * Fetch detailed information given transfer task UUID
-   * Include list of parents and children.
+   * Include list of parents and children, ordered by child id. If a limit is given only one page of children is
+   *   included, otherwise at most the first 10000.
    * Support impersonation.
    *
    * @param taskUuid Id of transfer task.
    * @param impersonationId - use provided Tapis username instead of oboUser when checking auth, getSystem (effUserId)
+   * @param limit - maximum number of children to include, up to 10000 if not given
+   * @param afterId - only include children with an id greater than this. Use the last child id to get the next page.
    * @param securityContext - user identity
    * @return response containing all transfer task details.
    */
@@ -201,6 +204,8 @@ public class  TransfersApiResource
   @Produces(MediaType.APPLICATION_JSON)
   public Response getTransferTaskDetails(@PathParam("transferTaskId") @ValidUUID String taskUuid,
                                          @QueryParam("impersonationId") String impersonationId,
+                                         @QueryParam("limit") @Min(0) @Max(1000) Integer limit,
+                                         @QueryParam("afterId") @DefaultValue("0") @Min(0) int afterId,
                                          @Context SecurityContext securityContext)
   {
     String opName = "getTransferTaskDetails";
@@ -217,12 +222,12 @@ public class  TransfersApiResource
     // Trace this request.
     if (log.isTraceEnabled())
       ApiUtils.logRequest(rUser, className, opName, _request.getRequestURL().toString(), "transferTaskId="+taskUuid,
-                          "impersonationId="+impersonationId);
+                          "impersonationId="+impersonationId, "limit="+limit, "afterId="+afterId);
 
     TransferTask task;
     try
     {
-      task = transfersService.getTransferTaskDetails(rUser, taskUuid, impersonationId);
+      task = transfersService.getTransferTaskDetails(rUser, taskUuid, impersonationId, limit, afterId);
     }
     catch (ServiceException ex)
     {
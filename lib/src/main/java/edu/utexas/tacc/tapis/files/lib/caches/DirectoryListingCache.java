@@ -0,0 +1,158 @@
+package edu.utexas.tacc.tapis.files.lib.caches;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.commons.lang3.StringUtils;
+
+import edu.utexas.tacc.tapis.files.lib.models.FileInfo;
+import edu.utexas.tacc.tapis.files.lib.services.FileListingOpts;
+
+/*
+ * Cache of directory listings.
+ * A cached listing is only served if the modification time of the listed path is unchanged. Callers stat the path
+ *   and pass in the modification time on each lookup. Listings are only stored if the path was last modified at
+ *   least a second before the listing was made, since modification times may have a resolution of one second.
+ * Changes made through FileOpsService invalidate affected entries. Changes to the contents of existing files
+ *   made outside the service do not change the directory modification time, so entries also expire after a
+ *   fixed time.
+ * Disabled when maxEntries is 0.
+ * Cache key is: (tenantId, systemId, effectiveUserId, path, listing options)
+ */
+public class DirectoryListingCache
+{
+  private final Cache<ListingCacheKey, CachedListing> cache;
+
+  public DirectoryListingCache(long maxEntries, long ttlSeconds)
+  {
+    cache = (maxEntries <= 0) ? null :
+            CacheBuilder.newBuilder().maximumSize(maxEntries).expireAfterWrite(Duration.ofSeconds(ttlSeconds)).build();
+  }
+
+  public boolean isEnabled() { return cache != null; }
+
+  /**
+   * Get a cached listing
+   * @param key cache key
+   * @param lastModified current modification time of the listed path
+   * @return copy of the cached listing or null if not cached or out of date
+   */
+  public List<FileInfo> get(ListingCacheKey key, Instant lastModified)
+  {
+    if (cache == null || lastModified == null) return null;
+    CachedListing cached = cache.getIfPresent(key);
+    if (cached == null) return null;
+    if (!lastModified.equals(cached.lastModified))
+    {
+      cache.invalidate(key);
+      return null;
+    }
+    return new ArrayList<>(cached.listing);
+  }
+
+  /**
+   * Store a listing
+   * @param key cache key
+   * @param lastModified modification time of the listed path, from a stat done before listing
+   * @param listedAt time at which the stat was done
+   * @param listing listing to store
+   */
+  public void put(ListingCacheKey key, Instant lastModified, Instant listedAt, List<FileInfo> listing)
+  {
+    if (cache == null || lastModified == null) return;
+    // A change in the same second as the listing would not change the modification time
+    if (lastModified.plusSeconds(1).isAfter(listedAt)) return;
+    cache.put(key, new CachedListing(lastModified, Collections.unmodifiableList(new ArrayList<>(listing))));
+  }
+
+  /**
+   * Invalidate all listings of a system that a change to path could affect: listings of the path itself,
+   *   of any directory above it and of anything below it.
+   * @param tenantId tenant
+   * @param systemId system
+   * @param path normalized path relative to system rootDir
+   */
+  public void invalidatePath(String tenantId, String systemId, String path)
+  {
+    if (cache == null) return;
+    String changedPath = normalize(path);
+    Set<ListingCacheKey> keysToInvalidate = cache.asMap().keySet().stream()
+            .filter(key -> StringUtils.equals(tenantId, key.tenantId) && StringUtils.equals(systemId, key.systemId))
+            .filter(key -> isSameOrAncestor(key.path, changedPath) || isSameOrAncestor(changedPath, key.path))
+            .collect(Collectors.toSet());
+    cache.invalidateAll(keysToInvalidate);
+  }
+
+  private static boolean isSameOrAncestor(String ancestor, String path)
+  {
+    return ancestor.isEmpty() || path.equals(ancestor) || path.startsWith(ancestor + "/");
+  }
+
+  private static String normalize(String path)
+  {
+    return StringUtils.strip(StringUtils.defaultString(path), "/");
+  }
+
+  private static class CachedListing
+  {
+    final Instant lastModified;
+    final List<FileInfo> listing;
+
+    CachedListing(Instant lastModified, List<FileInfo> listing)
+    {
+      this.lastModified = lastModified;
+      this.listing = listing;
+    }
+  }
+
+  public static class ListingCacheKey
+  {
+    private final String tenantId;
+    private final String systemId;
+    private final String effectiveUserId;
+    private final String path;
+    private final int pageSize;
+    private final long itemOffset;
+    private final String pattern;
+    private final String startAfter;
+
+    public ListingCacheKey(String tenantId, String systemId, String effectiveUserId, String path,
+                           FileListingOpts opts)
+    {
+      this.tenantId = tenantId;
+      this.systemId = systemId;
+      this.effectiveUserId = effectiveUserId;
+      this.path = normalize(path);
+      this.pageSize = opts.getPageSize();
+      this.itemOffset = opts.getItemOffset();
+      this.pattern = opts.getPattern();
+      this.startAfter = opts.getStartAfter();
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      ListingCacheKey that = (ListingCacheKey) o;
+      return pageSize == that.pageSize && itemOffset == that.itemOffset && Objects.equals(tenantId, that.tenantId) &&
+             Objects.equals(systemId, that.systemId) && Objects.equals(effectiveUserId, that.effectiveUserId) &&
+             Objects.equals(path, that.path) && Objects.equals(pattern, that.pattern) &&
+             Objects.equals(startAfter, that.startAfter);
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return Objects.hash(tenantId, systemId, effectiveUserId, path, pageSize, itemOffset, pattern, startAfter);
+    }
+  }
+}
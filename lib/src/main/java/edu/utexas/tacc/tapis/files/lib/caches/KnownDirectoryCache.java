@@ -0,0 +1,132 @@
+package edu.utexas.tacc.tapis.files.lib.caches;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+
+/*
+ * Cache of directories known to exist on a server.
+ * Used to skip the stat and mkdir requests otherwise needed before every file written, which dominate the cost
+ *   of transferring many small files into the same few directories.
+ * Entries are added when a directory has been created or seen to exist. A data client creates missing
+ *   directories again if a write fails because the directory is gone, so a stale entry costs a retry rather than
+ *   an error. An explicit mkdir only uses entries for the parents of the directory, and walks the path again if
+ *   one of them is gone. Changes made through the data clients of this process invalidate affected entries.
+ *   Directories removed by other means are only forgotten when the entry expires.
+ * Disabled when maxEntries is 0.
+ * Cache key is: (host, effectiveUserId, absolutePath), where host identifies the server including its port. Keys
+ *   are also indexed by host and path so that invalidating a path only visits the entries at or below it.
+ */
+public class KnownDirectoryCache
+{
+  // Orders the keys of one host by path, so that a path and everything below it form two contiguous ranges
+  private static final Comparator<KnownDirectoryKey> PATH_ORDER =
+          Comparator.comparing((KnownDirectoryKey key) -> key.absolutePath)
+                    .thenComparing(key -> key.effectiveUserId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+  private final Cache<KnownDirectoryKey, Boolean> cache;
+  // Keys of each host ordered by path. May briefly hold keys no longer in the cache, never the reverse.
+  private final ConcurrentMap<String, NavigableSet<KnownDirectoryKey>> keysByHost = new ConcurrentHashMap<>();
+
+  public KnownDirectoryCache(long maxEntries, long ttlSeconds)
+  {
+    cache = (maxEntries <= 0) ? null :
+            CacheBuilder.newBuilder().maximumSize(maxEntries).expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                        .<KnownDirectoryKey, Boolean>removalListener(this::onRemoval).build();
+  }
+
+  public boolean isKnown(String host, String effectiveUserId, String absolutePath)
+  {
+    if (cache == null) return false;
+    return cache.getIfPresent(new KnownDirectoryKey(host, effectiveUserId, absolutePath)) != null;
+  }
+
+  public void add(String host, String effectiveUserId, String absolutePath)
+  {
+    if (cache == null) return;
+    KnownDirectoryKey key = new KnownDirectoryKey(host, effectiveUserId, absolutePath);
+    // Index first, so a concurrent invalidatePath cannot miss the entry
+    getHostKeys(host).add(key);
+    cache.put(key, Boolean.TRUE);
+  }
+
+  /**
+   * Forget the path and everything below it, for all users of the host.
+   * @param host host
+   * @param absolutePath normalized absolute path
+   */
+  public void invalidatePath(String host, String absolutePath)
+  {
+    if (cache == null) return;
+    NavigableSet<KnownDirectoryKey> hostKeys = getHostKeys(host);
+    String prefix = absolutePath.endsWith("/") ? absolutePath : absolutePath + "/";
+    // Paths starting with prefix sort from prefix up to, but not including, prefix with the last '/' replaced by
+    //   the next character
+    String prefixEnd = prefix.substring(0, prefix.length() - 1) + (char) ('/' + 1);
+    List<KnownDirectoryKey> keysToInvalidate = new ArrayList<>();
+    keysToInvalidate.addAll(hostKeys.subSet(new KnownDirectoryKey(host, null, absolutePath), true,
+                                            new KnownDirectoryKey(host, null, absolutePath + '\0'), false));
+    keysToInvalidate.addAll(hostKeys.subSet(new KnownDirectoryKey(host, null, prefix), true,
+                                            new KnownDirectoryKey(host, null, prefixEnd), false));
+    // Out of the index before the cache, so an entry added again meanwhile is at worst left in the index
+    hostKeys.removeAll(keysToInvalidate);
+    cache.invalidateAll(keysToInvalidate);
+  }
+
+  private NavigableSet<KnownDirectoryKey> getHostKeys(String host)
+  {
+    return keysByHost.computeIfAbsent(Objects.toString(host, ""), h -> new ConcurrentSkipListSet<>(PATH_ORDER));
+  }
+
+  /*
+   * Keep the index in step with evictions and expiry. A replaced value leaves the key in the cache, and the key
+   *   may have been added again since it was removed.
+   */
+  private void onRemoval(RemovalNotification<KnownDirectoryKey, Boolean> notification)
+  {
+    KnownDirectoryKey key = notification.getKey();
+    if (key == null || notification.getCause() == RemovalCause.REPLACED) return;
+    if (cache.getIfPresent(key) == null) getHostKeys(key.host).remove(key);
+  }
+
+  private static class KnownDirectoryKey
+  {
+    private final String host;
+    private final String effectiveUserId;
+    private final String absolutePath;
+
+    KnownDirectoryKey(String host, String effectiveUserId, String absolutePath)
+    {
+      this.host = host;
+      this.effectiveUserId = effectiveUserId;
+      this.absolutePath = absolutePath;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      KnownDirectoryKey that = (KnownDirectoryKey) o;
+      return Objects.equals(host, that.host) && Objects.equals(effectiveUserId, that.effectiveUserId) &&
+             Objects.equals(absolutePath, that.absolutePath);
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return Objects.hash(host, effectiveUserId, absolutePath);
+    }
+  }
+}
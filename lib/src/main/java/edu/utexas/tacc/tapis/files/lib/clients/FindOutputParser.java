@@ -0,0 +1,158 @@
+package edu.utexas.tacc.tapis.files.lib.clients;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.utexas.tacc.tapis.files.lib.models.FileInfo;
+import edu.utexas.tacc.tapis.files.lib.models.FileStatInfo;
+import edu.utexas.tacc.tapis.files.lib.utils.MimeTypes;
+
+/*
+ * Parses the output of a find based listing as it is written, passing FileInfo objects to the consumer
+ *   in batches. Each record is "type size mtime perms uid gid path" terminated by NUL, as produced by
+ *   find -printf '%y %s %T@ %m %U %G %p\0'. Since records are NUL terminated, paths may contain spaces
+ *   and newlines.
+ * Records that cannot be parsed are skipped and counted. Callers should treat a listing with skipped records
+ *   as incomplete.
+ */
+class FindOutputParser extends OutputStream
+{
+  private static final Logger log = LoggerFactory.getLogger(FindOutputParser.class);
+
+  private final Path rootDirPath;
+  private final String systemId;
+  private final int batchSize;
+  private final Consumer<List<FileInfo>> consumer;
+  private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+  private List<FileInfo> batch = new ArrayList<>();
+  private long entryCount = 0;
+  private long malformedCount = 0;
+
+  /**
+   * @param rootDir - system rootDir, paths in the listing are made relative to it
+   * @param systemId - system id, for log messages
+   * @param batchSize - number of entries passed to the consumer at a time
+   * @param consumer - receives batches of FileInfo objects
+   */
+  FindOutputParser(String rootDir, String systemId, int batchSize, Consumer<List<FileInfo>> consumer)
+  {
+    this.rootDirPath = Paths.get(rootDir);
+    this.systemId = systemId;
+    this.batchSize = batchSize;
+    this.consumer = consumer;
+  }
+
+  // Number of entries parsed
+  long getEntryCount() { return entryCount; }
+
+  // Number of records that could not be parsed
+  long getMalformedCount() { return malformedCount; }
+
+  @Override
+  public void write(int b)
+  {
+    if (b == 0) endRecord(); else record.write(b);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len)
+  {
+    int start = off;
+    for (int i = off; i < off + len; i++)
+    {
+      if (b[i] == 0)
+      {
+        record.write(b, start, i - start);
+        endRecord();
+        start = i + 1;
+      }
+    }
+    record.write(b, start, off + len - start);
+  }
+
+  /*
+   * Parse anything left and pass the last batch to the consumer. A trailing record without a terminator is
+   *   usually cut short, so it only counts if it parses.
+   */
+  @Override
+  public void close()
+  {
+    if (record.size() > 0) endRecord();
+    if (!batch.isEmpty()) consumer.accept(batch);
+    batch = new ArrayList<>();
+  }
+
+  private void endRecord()
+  {
+    String line = record.toString(StandardCharsets.UTF_8);
+    record.reset();
+    FileInfo fileInfo = parseRecord(line);
+    if (fileInfo == null)
+    {
+      malformedCount++;
+      log.warn("Unable to parse find output. System: " + systemId + " Line: " + line);
+      return;
+    }
+    entryCount++;
+    batch.add(fileInfo);
+    if (batch.size() >= batchSize)
+    {
+      consumer.accept(batch);
+      batch = new ArrayList<>();
+    }
+  }
+
+  private FileInfo parseRecord(String line)
+  {
+    // Six space separated fields, then the path which may itself contain spaces
+    String[] fields = new String[6];
+    int start = 0;
+    for (int i = 0; i < fields.length; i++)
+    {
+      int end = line.indexOf(' ', start);
+      if (end < 0) return null;
+      fields[i] = line.substring(start, end);
+      start = end + 1;
+    }
+    String absPathStr = line.substring(start);
+    if (fields[0].isEmpty() || absPathStr.isEmpty()) return null;
+    try
+    {
+      FileInfo fileInfo = new FileInfo();
+      switch (fields[0].charAt(0))
+      {
+        case 'f' -> fileInfo.setType(FileInfo.FileType.FILE);
+        case 'd' -> fileInfo.setType(FileInfo.FileType.DIR);
+        case 'l' -> fileInfo.setType(FileInfo.FileType.SYMBOLIC_LINK);
+        default -> fileInfo.setType(FileInfo.FileType.OTHER);
+      }
+      fileInfo.setSize(Long.parseLong(fields[1]));
+      // Seconds with a fractional part. Keep whole seconds, which is what SFTP reports.
+      String mtime = fields[2];
+      int dot = mtime.indexOf('.');
+      fileInfo.setLastModified(Instant.ofEpochSecond(Long.parseLong(dot < 0 ? mtime : mtime.substring(0, dot))));
+      fileInfo.setNativePermissions(FileStatInfo.getPermsFromInt(Integer.parseInt(fields[3], 8)));
+      fileInfo.setOwner(fields[4]);
+      fileInfo.setGroup(fields[5]);
+      Path absPath = Paths.get(absPathStr);
+      fileInfo.setName(absPath.getFileName().toString());
+      fileInfo.setPath(rootDirPath.relativize(absPath).toString());
+      fileInfo.setMimeType(MimeTypes.getMimeType(fileInfo.getName()));
+      return fileInfo;
+    }
+    catch (RuntimeException e)
+    {
+      return null;
+    }
+  }
+}
@@ -2,16 +2,24 @@ package edu.utexas.tacc.tapis.files.lib.clients;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import javax.ws.rs.NotFoundException;
+import okhttp3.ConnectionPool;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.Response;
 import org.jetbrains.annotations.NotNull;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.lang3.NotImplementedException;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import edu.utexas.tacc.tapis.files.lib.config.RuntimeSettings;
 import edu.utexas.tacc.tapis.files.lib.models.FileInfo;
 import edu.utexas.tacc.tapis.files.lib.utils.LibUtils;
 import edu.utexas.tacc.tapis.systems.client.gen.model.TapisSystem;
@@ -20,6 +28,27 @@ import edu.utexas.tacc.tapis.systems.client.gen.model.SystemTypeEnum;
 public class HTTPClient implements IRemoteDataClient
 {
   private static final Logger log = LoggerFactory.getLogger(HTTPClient.class);
+  private static final int HTTP_PARTIAL_CONTENT = 206;
+  private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+  private static final int HTTP_NOT_FOUND = 404;
+  // Part sizes used by getStreamParallel. Part buffers come out of the shared TAPIS_READ_AHEAD_BUFFER_MB budget.
+  private static final int PARALLEL_MIN_PART_SIZE = 8 * 1024 * 1024;
+  private static final int PARALLEL_MAX_PART_SIZE = 16 * 1024 * 1024;
+  // Times a download is resumed with a ranged GET after the connection fails part way through
+  private static final int MAX_RESUMES = 3;
+
+  // Shared by all instances so connections, TLS sessions and HTTP/2 connections are reused across transfers.
+  // Each call is made on the calling thread, the dispatcher is not used.
+  private static final OkHttpClient sharedClient = new OkHttpClient.Builder()
+          .connectionPool(new ConnectionPool(RuntimeSettings.get().getHttpMaxIdleConnections(), 5, TimeUnit.MINUTES))
+          .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+          .connectTimeout(Duration.ofSeconds(RuntimeSettings.get().getHttpConnectTimeoutSeconds()))
+          .readTimeout(Duration.ofSeconds(RuntimeSettings.get().getHttpReadTimeoutSeconds()))
+          .build();
+  // Used for HEAD requests, which only wait on headers. Shares the connection pool of sharedClient.
+  private static final OkHttpClient headClient = sharedClient.newBuilder()
+          .callTimeout(Duration.ofSeconds(RuntimeSettings.get().getHttpHeadTimeoutSeconds()))
+          .build();
 
   @Override
   public String getOboTenant() { return oboTenant; }
@@ -79,29 +108,263 @@ public class HTTPClient implements IRemoteDataClient
         throw new NotImplementedException(LibUtils.getMsg("FILES_CLIENT_HTTP_NOT_IMPL", oboTenant, oboUser, "delete") );
     }
 
+  /**
+   * Get info for a URL using a HEAD request. The size is -1 if the server does not give a Content-Length.
+   *
+   * @param path full URL
+   * @param followLinks ignored, redirects are always followed
+   * @return info for the URL, or null if the server responds with 404
+   * @throws IOException on error
+   */
   @Override
-  public FileInfo getFileInfo(@NotNull String path, boolean followLinks) throws NotFoundException
+  public FileInfo getFileInfo(@NotNull String path, boolean followLinks) throws IOException
   {
-    throw new NotImplementedException(LibUtils.getMsg("FILES_CLIENT_HTTP_NOT_IMPL", oboTenant, oboUser, "getFileInfo") );
+    try (Response response = head(path))
+    {
+      if (response == null) return null;
+      FileInfo fileInfo = new FileInfo();
+      String[] segments = response.request().url().pathSegments().toArray(new String[0]);
+      fileInfo.setName(segments.length > 0 ? segments[segments.length - 1] : "");
+      fileInfo.setPath(path);
+      fileInfo.setType(FileInfo.FileType.FILE);
+      fileInfo.setSize(contentLength(response));
+      return fileInfo;
+    }
   }
 
+  /**
+   * Get the contents of a URL. If the server supports ranges and the connection fails part way through, the
+   *   download is resumed from where it stopped with a ranged GET, as long as the content has not changed.
+   *
+   * @param path full URL
+   * @return stream of the contents
+   * @throws IOException on error
+   */
   @Override
   public InputStream getStream(@NotNull String path) throws IOException
   {
-    OkHttpClient client = new OkHttpClient.Builder().build();
     Request request = new Request.Builder().url(path).build();
-    Response response = client.newCall(request).execute();
-    if (!response.isSuccessful())
+    return new ResumingInputStream(path, execute(request, path));
+  }
+
+  /**
+   * Get the contents of a URL using up to the given number of connections at once. A HEAD request is made first,
+   *   and if the server accepts byte ranges, gives the length and gives an ETag or Last-Modified, the contents are
+   *   fetched as ranged GETs running in parallel and handed over in order. Each range is sent with If-Range, so if
+   *   the content changes part way through the download fails rather than mixing old and new content.
+   * Otherwise, when the HEAD request fails (some servers and presigned URLs only allow GET) or the length is below
+   *   minLength, this is the same as getStream.
+   *
+   * @param path full URL
+   * @param connections max connections used at once
+   * @param minLength smallest length fetched in parallel
+   * @return stream of the contents
+   * @throws IOException on error
+   */
+  public InputStream getStreamParallel(@NotNull String path, int connections, long minLength) throws IOException
+  {
+    if (connections <= 1) return getStream(path);
+    long length;
+    String validator;
+    Request request = new Request.Builder().url(path).head().build();
+    try (Response response = headClient.newCall(request).execute())
+    {
+      // Let getStream report a missing URL or any other error
+      if (!response.isSuccessful()) return getStream(path);
+      length = contentLength(response);
+      validator = rangeValidator(response);
+    }
+    catch (IOException e)
     {
-      String msg = LibUtils.getMsg("FILES_CLIENT_HTTP_ERR", oboTenant, oboUser, srcDstURIs, path, response);
-      log.error(msg);
-      throw new IOException(msg);
+      log.warn(LibUtils.getMsg("FILES_CLIENT_HTTP_HEAD_ERR", oboTenant, oboUser, path, e.getMessage()));
+      return getStream(path);
     }
-    return response.body().byteStream();
+    if (validator == null || length < Math.max(minLength, PARALLEL_MIN_PART_SIZE)) return getStream(path);
+    int partSize = ParallelRangeInputStream.choosePartSize(length, connections, PARALLEL_MIN_PART_SIZE,
+                                                           PARALLEL_MAX_PART_SIZE);
+    return new ParallelRangeInputStream((offset, buffer, bufferOffset, count) ->
+                                                readRange(path, validator, offset, buffer, bufferOffset, count),
+                                        0, length, partSize, connections);
   }
 
-   @Override
-    public InputStream getBytesByRange(@NotNull String path, long startByte, long count) throws IOException {
-        throw new NotImplementedException(LibUtils.getMsg("FILES_CLIENT_HTTP_NOT_IMPL", oboTenant, oboUser, "") );
+  /**
+   * Get a range of the contents of a URL. If the server ignores the range the bytes before it are skipped.
+   *   A range starting past the end gives an empty stream.
+   *
+   * @param path full URL
+   * @param startByte position of first byte to return
+   * @param count Number of bytes returned
+   * @return stream of the range
+   * @throws IOException on error
+   */
+  @Override
+  public InputStream getBytesByRange(@NotNull String path, long startByte, long count) throws IOException
+  {
+    startByte = Math.max(startByte, 0);
+    if (count <= 0) return InputStream.nullInputStream();
+    Request request = new Request.Builder().url(path)
+            .header("Range", String.format("bytes=%d-%d", startByte, startByte + count - 1)).build();
+    Response response = sharedClient.newCall(request).execute();
+    if (response.code() == HTTP_RANGE_NOT_SATISFIABLE)
+    {
+      response.close();
+      return InputStream.nullInputStream();
     }
+    checkResponse(response, path);
+    InputStream body = response.body().byteStream();
+    if (response.code() != HTTP_PARTIAL_CONTENT)
+    {
+      try { IOUtils.skip(body, startByte); }
+      catch (IOException e) { response.close(); throw e; }
+    }
+    return new BoundedInputStream(body, count);
+  }
+
+  /*
+   * Read count bytes at offset into buffer at bufferOffset for getStreamParallel. Fails if the server does not
+   *   return the range, which with If-Range means the content has changed.
+   */
+  private int readRange(String path, String validator, long offset, byte[] buffer, int bufferOffset, int count)
+          throws IOException
+  {
+    Request request = new Request.Builder().url(path)
+            .header("Range", String.format("bytes=%d-%d", offset, offset + count - 1))
+            .header("If-Range", validator).build();
+    try (Response response = execute(request, path))
+    {
+      if (response.code() != HTTP_PARTIAL_CONTENT)
+      {
+        throw new IOException(LibUtils.getMsg("FILES_CLIENT_HTTP_CHANGED", oboTenant, oboUser, path, offset, response));
+      }
+      // Throws EOFException if the body is short
+      IOUtils.readFully(response.body().byteStream(), buffer, bufferOffset, count);
+      return count;
+    }
+  }
+
+  /*
+   * Make a HEAD request. Returns null if the server responds with 404.
+   */
+  private Response head(String path) throws IOException
+  {
+    Request request = new Request.Builder().url(path).head().build();
+    Response response = headClient.newCall(request).execute();
+    if (response.code() == HTTP_NOT_FOUND)
+    {
+      response.close();
+      return null;
+    }
+    checkResponse(response, path);
+    return response;
+  }
+
+  private static long contentLength(Response response)
+  {
+    return NumberUtils.toLong(response.header("Content-Length"), -1);
+  }
+
+  /*
+   * Value to send as If-Range when requesting ranges of the content in a response, a strong ETag or else
+   *   Last-Modified. Null if the server does not accept byte ranges or gave neither.
+   */
+  private static String rangeValidator(Response response)
+  {
+    if (!"bytes".equalsIgnoreCase(response.header("Accept-Ranges"))) return null;
+    String etag = response.header("ETag");
+    return (etag != null && !etag.startsWith("W/")) ? etag : response.header("Last-Modified");
+  }
+
+  /*
+   * Run a request, failing unless the response is successful.
+   */
+  private Response execute(Request request, String path) throws IOException
+  {
+    Response response = sharedClient.newCall(request).execute();
+    checkResponse(response, path);
+    return response;
+  }
+
+  private void checkResponse(Response response, String path) throws IOException
+  {
+    if (response.isSuccessful()) return;
+    response.close();
+    String msg = LibUtils.getMsg("FILES_CLIENT_HTTP_ERR", oboTenant, oboUser, srcDstURIs, path, response);
+    log.error(msg);
+    throw new IOException(msg);
+  }
+
+  /*
+   * Body of a GET that is resumed after a failed read with a ranged GET from the position reached. Only done when the
+   *   server accepts byte ranges and gave an ETag or Last-Modified, which is sent as If-Range so a changed file is
+   *   sent whole (status 200) and the resume fails rather than mixing old and new content.
+   */
+  private class ResumingInputStream extends InputStream
+  {
+    private final String url;
+    private final String validator;
+    private Response response;
+    private InputStream body;
+    private long position = 0;
+    private int resumes = 0;
+
+    ResumingInputStream(String url, Response response)
+    {
+      this.url = url;
+      this.response = response;
+      this.body = response.body().byteStream();
+      validator = rangeValidator(response);
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+      byte[] b = new byte[1];
+      int n = read(b, 0, 1);
+      return (n == -1) ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+      while (true)
+      {
+        try
+        {
+          int n = body.read(b, off, len);
+          if (n > 0) position += n;
+          return n;
+        }
+        catch (IOException e)
+        {
+          if (validator == null || resumes >= MAX_RESUMES) throw e;
+          resumes++;
+          log.warn(LibUtils.getMsg("FILES_CLIENT_HTTP_RESUME", oboTenant, oboUser, url, position, resumes,
+                                   e.getMessage()));
+          resume(e);
+        }
+      }
+    }
+
+    @Override
+    public void close()
+    {
+      response.close();
+    }
+
+    private void resume(IOException cause) throws IOException
+    {
+      response.close();
+      Request request = new Request.Builder().url(url)
+              .header("Range", String.format("bytes=%d-", position))
+              .header("If-Range", validator).build();
+      response = execute(request, url);
+      if (response.code() != HTTP_PARTIAL_CONTENT)
+      {
+        // Content changed since the download started
+        response.close();
+        throw cause;
+      }
+      body = response.body().byteStream();
+    }
+  }
 }
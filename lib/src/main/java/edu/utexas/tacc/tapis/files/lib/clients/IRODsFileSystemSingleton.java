@@ -1,5 +1,6 @@
 package edu.utexas.tacc.tapis.files.lib.clients;
 
+import edu.utexas.tacc.tapis.files.lib.config.RuntimeSettings;
 import edu.utexas.tacc.tapis.files.lib.utils.LibUtils;
 import org.irods.jargon.core.exception.JargonException;
 import org.irods.jargon.core.pub.IRODSFileSystem;
@@ -27,7 +28,12 @@ public class IRODsFileSystemSingleton {
     public static synchronized IRODSFileSystem getInstance() throws IOException {
         if (instance == null) {
             try {
-                return IRODSFileSystem.instance();
+                // Connections are kept by the protocol manager and reused across operations, see IrodsProtocolPool
+                IrodsProtocolPool protocolPool =
+                        new IrodsProtocolPool(RuntimeSettings.get().getIrodsPoolMaxIdlePerKey(),
+                                              RuntimeSettings.get().getIrodsPoolIdleSeconds(),
+                                              RuntimeSettings.get().getIrodsPoolMaxLifetimeSeconds());
+                instance = new IRODSFileSystem(protocolPool);
             } catch (JargonException ex) {
                 String msg = LibUtils.getMsg("FILES_IRODS_SESSION_ERROR");
                 throw new IOException(msg, ex);
@@ -2,12 +2,20 @@ package edu.utexas.tacc.tapis.files.lib.clients;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import javax.ws.rs.BadRequestException;
 import javax.ws.rs.NotFoundException;
 import javax.ws.rs.NotSupportedException;
 
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.NotNull;
+import org.slf4j.LoggerFactory;
 import edu.utexas.tacc.tapis.files.lib.models.FileInfo;
 import edu.utexas.tacc.tapis.systems.client.gen.model.SystemTypeEnum;
 import edu.utexas.tacc.tapis.systems.client.gen.model.TapisSystem;
@@ -16,6 +24,11 @@ public interface IRemoteDataClient
 {
   public static final String REGEX_PREFIX = "REGEX:";
 
+  // Order of names in a listing. Case-insensitive, with ties broken by case so that the order is total and a
+  //   name can be used as a continuation token.
+  public static final Comparator<String> LISTING_NAME_ORDER =
+          String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+
   // A remote data client always has at a minimum an associated oboUser, oboTenant and systemId
   String getOboTenant();
   String getOboUser();
@@ -48,8 +61,64 @@ public interface IRemoteDataClient
     return ls(path, limit, offset);
   }
 
+  /**
+   * List files or objects at a path, starting after a given name.
+   * Results are sorted by name using LISTING_NAME_ORDER and only items with names after startAfter are returned,
+   *   so the name of the last item of one page can be passed as startAfter to get the next page. Unlike offset,
+   *   this stays consistent when items earlier in the listing are added or removed between calls.
+   * Clients that cannot do this natively list everything and filter.
+   *
+   * @param path - path on system relative to system rootDir
+   * @param limit - Max number of items to return
+   * @param offset - offset, applied after startAfter
+   * @param regex - regex used to filter results.  Only results with file names that match the regex will be returned
+   * @param startAfter - only return items with names after this one. Ignored if blank.
+   * @throws NotFoundException if path not found
+   * @throws IOException on error
+   */
+  default List<FileInfo> ls(@NotNull String path, long limit, long offset, String regex, String startAfter)
+          throws NotFoundException, IOException {
+    if (StringUtils.isEmpty(startAfter)) return ls(path, limit, offset, regex);
+    return ls(path, Long.MAX_VALUE, 0, regex).stream()
+            .filter(f -> LISTING_NAME_ORDER.compare(f.getName(), startAfter) > 0)
+            .sorted(Comparator.comparing(FileInfo::getName, LISTING_NAME_ORDER))
+            .skip(Math.max(offset, 0)).limit(limit).collect(Collectors.toList());
+  }
+
   List<FileInfo> ls(@NotNull String path) throws NotFoundException, IOException;
 
+  /**
+   * Build the test applied to entry names during a listing, combining the pattern (glob, or regex if prefixed
+   *   by "regex:") and the startAfter continuation name. Either may be blank.
+   *
+   * @param pattern - wildcard (glob) pattern or regex, may be blank
+   * @param startAfter - only accept names after this one in LISTING_NAME_ORDER, may be blank
+   * @return test for entry names
+   */
+  static Predicate<String> getListingNameFilter(String pattern, String startAfter)
+  {
+    Predicate<String> filter = name -> true;
+    if (!StringUtils.isBlank(pattern))
+    {
+      final boolean isRegEx = StringUtils.startsWithIgnoreCase(pattern, REGEX_PREFIX);
+      final String patternOnly = isRegEx ? pattern.replaceFirst("(?i)regex:", "") : pattern;
+      if (isRegEx)
+      {
+        final Pattern compiledPattern = Pattern.compile(patternOnly);
+        filter = name -> compiledPattern.matcher(name).find();
+      }
+      else
+      {
+        filter = name -> FilenameUtils.wildcardMatch(name, patternOnly);
+      }
+    }
+    if (!StringUtils.isEmpty(startAfter))
+    {
+      filter = filter.and(name -> LISTING_NAME_ORDER.compare(name, startAfter) > 0);
+    }
+    return filter;
+  }
+
   /**
    * Upload will place the entire contents of an InputStream to the location at remotePath.
    *
@@ -106,6 +175,39 @@ public interface IRemoteDataClient
    */
   FileInfo getFileInfo(@NotNull String path, boolean followLinks) throws IOException;
 
+  /**
+   * Returns file info for several paths. Clients that can have several requests in flight at once override this
+   *   so that a batch costs about one round trip rather than one per path. By default paths are looked up one
+   *   at a time.
+   *
+   * A failed lookup only affects its own entry. It is logged and the entry is null, as for a path that does not
+   *   exist, so callers can skip it and carry on with the rest.
+   *
+   * @param paths - paths on system relative to system rootDir
+   * @return list with one entry per path, in the same order. An entry is null if that path does not exist or
+   *   could not be looked up.
+   * @throws IOException if no lookups could be made
+   */
+  default List<FileInfo> getFileInfos(@NotNull List<String> paths, boolean followLinks) throws IOException
+  {
+    List<FileInfo> fileInfos = new ArrayList<>(paths.size());
+    for (String path : paths)
+    {
+      FileInfo fileInfo = null;
+      try
+      {
+        fileInfo = getFileInfo(path, followLinks);
+      }
+      catch (IOException e)
+      {
+        LoggerFactory.getLogger(IRemoteDataClient.class).warn("Could not get file info for path:" + path + " " +
+                                                              e.getMessage());
+      }
+      fileInfos.add(fileInfo);
+    }
+    return fileInfos;
+  }
+
   /**
    * Returns a stream of the entire contents of a file or object.
    * @param path - path on system relative to system rootDir
@@ -1,10 +1,8 @@
 package edu.utexas.tacc.tapis.files.lib.clients;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
@@ -24,8 +22,10 @@ import org.irods.jargon.core.exception.JargonException;
 import org.irods.jargon.core.exception.JargonFileOrCollAlreadyExistsException;
 import org.irods.jargon.core.exception.JargonRuntimeException;
 import org.irods.jargon.core.packinstr.TransferOptions;
+import org.irods.jargon.core.pub.io.FileIOOperations;
 import org.irods.jargon.core.pub.io.IRODSFile;
 import org.irods.jargon.core.pub.io.IRODSFileOutputStream;
+import org.irods.jargon.core.pub.io.IRODSRandomAccessFile;
 import org.irods.jargon.core.pub.io.PackingIrodsInputStream;
 import org.irods.jargon.core.transfer.DefaultTransferControlBlock;
 import org.irods.jargon.core.transfer.TransferControlBlock;
@@ -56,8 +56,10 @@ public class IrodsDataClient implements IRemoteDataClient
   private final String rootDir;
   private final String host;
   private final int port;
-  private static final int MAX_BYTES_PER_CHUNK = 1000000;
   public static final long MAX_LISTING_SIZE = Long.MAX_VALUE;
+  // Bounds on the part size of parallel downloads
+  private static final int PARALLEL_MIN_PART_SIZE = 8 * 1024 * 1024;
+  private static final int PARALLEL_MAX_PART_SIZE = 32 * 1024 * 1024;
 
     public IrodsDataClient(@NotNull String oboTenant1, @NotNull String oboUser1, @NotNull TapisSystem system1) throws IOException
   {
@@ -140,10 +142,7 @@ public class IrodsDataClient implements IRemoteDataClient
             fileInfo.setType(FileInfo.FileType.UNKNOWN);
         }
         fileInfo.setSize(file.length());
-        try {
-          fileInfo.setMimeType(Files.probeContentType(tmpPath));
-        } catch (IOException ignored) {
-        }
+        fileInfo.setMimeType(MimeTypes.getMimeType(file.getName()));
 
         fileInfo.setLastModified(Instant.ofEpochMilli(file.lastModified()));
         outListing.add(fileInfo);
@@ -403,6 +402,8 @@ public class IrodsDataClient implements IRemoteDataClient
   }
 
     /**
+     * Read a range of a data object. The object is opened for random access and positioned at startByte, so
+     *   nothing before the range is read, and the range is streamed rather than buffered.
      *
      * @param path path to file
      * @param startByte position of first byte to return
@@ -412,24 +413,64 @@ public class IrodsDataClient implements IRemoteDataClient
      */
     @Override
     public InputStream getBytesByRange(@NotNull String path, long startByte, long count) throws IOException {
-        if (count > MAX_BYTES_PER_CHUNK) {
-            String msg = LibUtils.getMsg("FILES_IRODS_MAX_BYTES_ERROR", MAX_BYTES_PER_CHUNK);
-            throw new NotFoundException(msg);
-        }
         startByte = Math.max(startByte, 0);
         count = Math.max(count, 0);
-        byte[] bytes = new byte[(int) count];
-        try (InputStream stream = getStream(path)) {
-            stream.skip(startByte);
-            int counter = 0;
-            int bytesRead = stream.read(bytes);
-            if (bytesRead > 0) {
-                bytes = Arrays.copyOfRange(bytes, 0, bytesRead);
-            } else {
-                bytes = new byte[0];
+        Path cleanedRelativePath = cleanAndRelativize(path);
+        Path cleanedAbsolutePath = Paths.get(rootDir, cleanedRelativePath.toString());
+        IrodsConnection connection = new IrodsConnection(system, irodsZone, homeDir, oboTenant, oboUser);
+        try {
+            IRODSRandomAccessFile file =
+                    connection.getFileFactory().instanceIRODSRandomAccessFile(cleanedAbsolutePath.toString());
+            try {
+                file.seek(startByte, FileIOOperations.SeekWhenceType.SEEK_START);
+            } catch (IOException ex) {
+                file.close();
+                throw ex;
+            }
+            // handing ownership of connection over to the wrapper stream - it will close
+            return new DataClientInputStream<IrodsConnection, Void>(new RangeInputStream(file, count), connection, (c) -> {
+                c.close();
+                return null;
+            });
+        } catch (JargonException ex) {
+            connection.close();
+            if (ex instanceof FileNotFoundException || StringUtils.contains(ex.getMessage(), "FileNotFound")) {
+                String msg = LibUtils.getMsg("FILES_IRODS_PATH_NOT_FOUND", oboTenant, oboUser, systemId, cleanedAbsolutePath.toString());
+                throw new NotFoundException(msg);
             }
-        };
-        return new ByteArrayInputStream(bytes);
+            String msg = LibUtils.getMsg("FILES_IRODS_ERROR", oboTenant, "", oboTenant, oboUser);
+            throw new IOException(msg, ex);
+        } catch (IOException | RuntimeException ex) {
+            connection.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Download a data object as ranged reads running on several connections at once, see ParallelRangeInputStream.
+     *   The length is taken when the stream is opened, so the object should not change while it is read.
+     *
+     * @param path path to file
+     * @param threads max ranged reads in flight
+     * @return InputStream of the whole file
+     * @throws IOException error getting stream
+     * @throws NotFoundException file not found
+     */
+    public InputStream getStreamParallel(@NotNull String path, int threads) throws IOException, NotFoundException
+    {
+        FileInfo fileInfo = getFileInfo(path, false);
+        if (fileInfo == null)
+        {
+            String msg = LibUtils.getMsg("FILES_IRODS_PATH_NOT_FOUND", oboTenant, oboUser, systemId, path);
+            throw new NotFoundException(msg);
+        }
+        long length = fileInfo.getSize();
+        if (threads <= 1 || length <= PARALLEL_MIN_PART_SIZE) return getStream(path);
+        int partSize = ParallelRangeInputStream.choosePartSize(length, threads, PARALLEL_MIN_PART_SIZE,
+                                                               PARALLEL_MAX_PART_SIZE);
+        return new ParallelRangeInputStream((offset, buffer, bufferOffset, count) ->
+                                                    readRange(path, offset, buffer, bufferOffset, count),
+                                            0, length, partSize, threads);
     }
 
   /**
@@ -454,6 +495,60 @@ public class IrodsDataClient implements IRemoteDataClient
       }
   }
 
+  /*
+   * Read count bytes of a data object starting at offset into buffer.
+   */
+  private int readRange(String path, long offset, byte[] buffer, int bufferOffset, int count) throws IOException
+  {
+    try (InputStream in = getBytesByRange(path, offset, count))
+    {
+      int bytesRead = in.readNBytes(buffer, bufferOffset, count);
+      if (bytesRead < count)
+        throw new IOException(String.format("File %s ended at offset %d, expected %d bytes", path,
+                                            offset + bytesRead, offset + count));
+      return bytesRead;
+    }
+  }
+
+  /*
+   * Reads up to count bytes from the current position of a random access file. Closing it closes the file.
+   */
+  private static class RangeInputStream extends InputStream
+  {
+    private final IRODSRandomAccessFile file;
+    private long remaining;
+
+    RangeInputStream(IRODSRandomAccessFile file, long count)
+    {
+      this.file = file;
+      this.remaining = count;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+      byte[] b = new byte[1];
+      return (read(b, 0, 1) == -1) ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+      if (len == 0) return 0;
+      if (remaining <= 0) return -1;
+      int bytesRead = file.read(b, off, (int) Math.min(len, remaining));
+      if (bytesRead <= 0) return -1;
+      remaining -= bytesRead;
+      return bytesRead;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+      file.close();
+    }
+  }
+
   private InputStream wrapStream (IrodsConnection connection, PackingIrodsInputStream irodsInputStreamStream) {
       // wrap with DataclientInputStream so everything gets closed properly
       return new DataClientInputStream<IrodsConnection, Void>(irodsInputStreamStream, connection, (c) -> {
@@ -0,0 +1,297 @@
+package edu.utexas.tacc.tapis.files.lib.clients;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.irods.jargon.core.connection.AbstractIRODSMidLevelProtocol;
+import org.irods.jargon.core.connection.IRODSAccount;
+import org.irods.jargon.core.connection.IRODSSession;
+import org.irods.jargon.core.connection.IRODSSimpleProtocolManager;
+import org.irods.jargon.core.connection.PipelineConfiguration;
+import org.irods.jargon.core.exception.JargonException;
+import org.irods.jargon.core.packinstr.MiscSvrInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.utexas.tacc.tapis.files.lib.utils.LibUtils;
+
+/*
+ * Protocol manager that keeps authenticated iRODS connections for reuse instead of closing them.
+ *
+ * Jargon asks the protocol manager for a connection the first time a thread uses an account and hands it back when
+ *   the session is closed, which IrodsConnection does after every operation. The default manager opens and
+ *   authenticates a new connection each time and disconnects on return. Here returned connections are kept idle,
+ *   keyed by host, port, zone, user, proxy user and password, and given to the next thread asking for the same
+ *   account. The password is part of the key so a connection is never handed to a caller with other credentials.
+ * A connection is reused only if it is still connected and younger than maxLifetimeSeconds. One idle for longer
+ *   than a few seconds must also answer a server info request first, since the server or a firewall may have
+ *   dropped it without the client noticing. Idle connections are closed after idleSeconds, and at most
+ *   maxIdlePerKey are kept per key. Connections in use are not limited.
+ * Disabled when maxIdlePerKey is 0.
+ */
+class IrodsProtocolPool extends IRODSSimpleProtocolManager
+{
+  private static final Logger log = LoggerFactory.getLogger(IrodsProtocolPool.class);
+  private static final long EVICTION_INTERVAL_SECONDS = 30;
+  // Connections idle for at least this long are checked with a round trip before reuse
+  private static final long VALIDATE_AFTER_IDLE_MILLIS = 5000;
+
+  private final int maxIdlePerKey;
+  private final long idleMillis;
+  private final long maxLifetimeMillis;
+  private final long validateAfterIdleMillis;
+  private final Map<PoolKey, IdleProtocols> idleProtocols = new ConcurrentHashMap<>();
+  // Creation time of each connection handed out, by identity, for the lifetime check when it comes back
+  private final Map<AbstractIRODSMidLevelProtocol, Long> createTimes = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService evictor;
+
+  // Metrics
+  private final AtomicLong borrowCount = new AtomicLong();
+  private final AtomicLong createCount = new AtomicLong();
+  private final AtomicLong closeCount = new AtomicLong();
+
+  IrodsProtocolPool(int maxIdlePerKey, int idleSeconds, int maxLifetimeSeconds)
+  {
+    this(maxIdlePerKey, idleSeconds, maxLifetimeSeconds, VALIDATE_AFTER_IDLE_MILLIS);
+  }
+
+  IrodsProtocolPool(int maxIdlePerKey, int idleSeconds, int maxLifetimeSeconds, long validateAfterIdleMillis)
+  {
+    this.maxIdlePerKey = Math.max(0, maxIdlePerKey);
+    this.idleMillis = TimeUnit.SECONDS.toMillis(idleSeconds);
+    this.maxLifetimeMillis = TimeUnit.SECONDS.toMillis(maxLifetimeSeconds);
+    this.validateAfterIdleMillis = validateAfterIdleMillis;
+    if (this.maxIdlePerKey == 0)
+    {
+      evictor = null;
+      return;
+    }
+    evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "IrodsProtocolPool-evictor");
+      t.setDaemon(true);
+      return t;
+    });
+    evictor.scheduleWithFixedDelay(this::evictIdle, EVICTION_INTERVAL_SECONDS, EVICTION_INTERVAL_SECONDS,
+                                   TimeUnit.SECONDS);
+  }
+
+  @Override
+  public AbstractIRODSMidLevelProtocol getIRODSProtocol(IRODSAccount irodsAccount,
+                                                        PipelineConfiguration pipelineConfiguration,
+                                                        IRODSSession irodsSession) throws JargonException
+  {
+    borrowCount.incrementAndGet();
+    IdleProtocols idle = idleProtocols.get(new PoolKey(irodsAccount));
+    if (idle != null)
+    {
+      PooledProtocol pooled;
+      while ((pooled = idle.poll()) != null)
+      {
+        long now = System.currentTimeMillis();
+        if (isReusable(pooled.protocol, now) &&
+            (now - pooled.returnTime < validateAfterIdleMillis || isResponding(pooled.protocol)))
+          return pooled.protocol;
+        closeProtocol(pooled.protocol);
+      }
+    }
+    AbstractIRODSMidLevelProtocol protocol = createProtocol(irodsAccount, pipelineConfiguration, irodsSession);
+    createCount.incrementAndGet();
+    createTimes.put(protocol, System.currentTimeMillis());
+    return protocol;
+  }
+
+  @Override
+  public void returnIRODSProtocol(AbstractIRODSMidLevelProtocol protocol) throws JargonException
+  {
+    if (protocol == null) return;
+    long now = System.currentTimeMillis();
+    if (maxIdlePerKey > 0 && protocol.getIrodsAccount() != null && isReusable(protocol, now))
+    {
+      IdleProtocols idle = idleProtocols.computeIfAbsent(new PoolKey(protocol.getIrodsAccount()),
+                                                         k -> new IdleProtocols());
+      if (idle.offer(new PooledProtocol(protocol, now), maxIdlePerKey)) return;
+    }
+    closeProtocol(protocol);
+  }
+
+  @Override
+  public void returnWithForce(AbstractIRODSMidLevelProtocol protocol)
+  {
+    // Returned after an error, never reuse
+    createTimes.remove(protocol);
+    closeCount.incrementAndGet();
+    super.returnWithForce(protocol);
+  }
+
+  long getBorrowCount() { return borrowCount.get(); }
+  long getCreateCount() { return createCount.get(); }
+  long getCloseCount() { return closeCount.get(); }
+  int getIdleCount() { return idleProtocols.values().stream().mapToInt(IdleProtocols::size).sum(); }
+
+  /*
+   * Open and authenticate a new connection.
+   */
+  protected AbstractIRODSMidLevelProtocol createProtocol(IRODSAccount irodsAccount,
+                                                         PipelineConfiguration pipelineConfiguration,
+                                                         IRODSSession irodsSession) throws JargonException
+  {
+    return super.getIRODSProtocol(irodsAccount, pipelineConfiguration, irodsSession);
+  }
+
+  /*
+   * Disconnect a connection.
+   */
+  protected void disconnect(AbstractIRODSMidLevelProtocol protocol) throws JargonException
+  {
+    super.returnIRODSProtocol(protocol);
+  }
+
+  /*
+   * Check that the server still answers on a connection, with a server info request.
+   */
+  protected boolean isResponding(AbstractIRODSMidLevelProtocol protocol)
+  {
+    try
+    {
+      protocol.irodsFunction(MiscSvrInfo.instance());
+      return true;
+    }
+    catch (Exception e)
+    {
+      log.debug(LibUtils.getMsg("FILES_IRODS_POOL_CHECK_ERR", e.getMessage()));
+      return false;
+    }
+  }
+
+  private boolean isReusable(AbstractIRODSMidLevelProtocol protocol, long now)
+  {
+    Long createTime = createTimes.get(protocol);
+    return createTime != null && now - createTime < maxLifetimeMillis && protocol.isConnected();
+  }
+
+  private void closeProtocol(AbstractIRODSMidLevelProtocol protocol)
+  {
+    createTimes.remove(protocol);
+    closeCount.incrementAndGet();
+    try { disconnect(protocol); }
+    catch (Exception e) { log.debug(LibUtils.getMsg("FILES_IRODS_POOL_CLOSE_ERR", e.getMessage())); }
+  }
+
+  /*
+   * Close connections idle for longer than idleMillis or past their lifetime.
+   */
+  void evictIdle()
+  {
+    long now = System.currentTimeMillis();
+    for (IdleProtocols idle : idleProtocols.values())
+    {
+      List<PooledProtocol> expired = new ArrayList<>();
+      for (Iterator<PooledProtocol> it = idle.protocols.descendingIterator(); it.hasNext(); )
+      {
+        PooledProtocol pooled = it.next();
+        if (now - pooled.returnTime >= idleMillis || !isReusable(pooled.protocol, now)) expired.add(pooled);
+      }
+      // Another thread may have taken one in the meantime, only close those still idle
+      for (PooledProtocol pooled : expired) if (idle.remove(pooled)) closeProtocol(pooled.protocol);
+    }
+    log.trace(LibUtils.getMsg("FILES_IRODS_POOL_STATS", getBorrowCount(), getCreateCount(), getCloseCount(),
+                              getIdleCount()));
+  }
+
+  /*
+   * Idle connections of one key, most recently used first so the oldest idle ones are the ones that expire.
+   * The count is taken before a connection is added, so concurrent returns can never keep more than the cap.
+   */
+  private static class IdleProtocols
+  {
+    final Deque<PooledProtocol> protocols = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger count = new AtomicInteger();
+
+    boolean offer(PooledProtocol pooled, int max)
+    {
+      if (count.incrementAndGet() > max)
+      {
+        count.decrementAndGet();
+        return false;
+      }
+      protocols.offerFirst(pooled);
+      return true;
+    }
+
+    PooledProtocol poll()
+    {
+      PooledProtocol pooled = protocols.pollFirst();
+      if (pooled != null) count.decrementAndGet();
+      return pooled;
+    }
+
+    boolean remove(PooledProtocol pooled)
+    {
+      if (!protocols.remove(pooled)) return false;
+      count.decrementAndGet();
+      return true;
+    }
+
+    int size() { return protocols.size(); }
+  }
+
+  private static class PooledProtocol
+  {
+    final AbstractIRODSMidLevelProtocol protocol;
+    final long returnTime;
+
+    PooledProtocol(AbstractIRODSMidLevelProtocol protocol, long returnTime)
+    {
+      this.protocol = protocol;
+      this.returnTime = returnTime;
+    }
+  }
+
+  private static class PoolKey
+  {
+    private final String host;
+    private final int port;
+    private final String zone;
+    private final String userName;
+    private final String proxyName;
+    private final String password;
+
+    PoolKey(IRODSAccount account)
+    {
+      host = account.getHost();
+      port = account.getPort();
+      zone = account.getZone();
+      userName = account.getUserName();
+      proxyName = account.getProxyName();
+      password = account.getPassword();
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      PoolKey that = (PoolKey) o;
+      return port == that.port && Objects.equals(host, that.host) && Objects.equals(zone, that.zone) &&
+             Objects.equals(userName, that.userName) && Objects.equals(proxyName, that.proxyName) &&
+             Objects.equals(password, that.password);
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return Objects.hash(host, port, zone, userName, proxyName, password);
+    }
+  }
+}
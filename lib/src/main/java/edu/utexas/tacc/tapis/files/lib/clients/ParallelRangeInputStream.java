@@ -0,0 +1,356 @@
+package edu.utexas.tacc.tapis.files.lib.clients;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import edu.utexas.tacc.tapis.files.lib.config.RuntimeSettings;
+
+/*
+ * Reads a byte range of a remote file or object as several ranged reads running in parallel, presenting the data
+ *   in order as a single stream. Used by the clients for ranged requests over several connections (S3, HTTP, iRODS)
+ *   and for SFTP read ahead over one session.
+ *
+ * A single request is limited to what one connection or one round trip can carry. Here the range is split into
+ *   parts and up to parallelism parts are fetched at once, each into its own buffer, while the consumer works
+ *   through the earliest one. Part buffers are reused as a ring: once the consumer moves past a part its buffer is
+ *   used for the next part fetched.
+ * Part buffers of all streams come out of one budget of TAPIS_READ_AHEAD_BUFFER_MB. A stream always gets its first
+ *   buffer, so it can make progress, and only takes more while the budget allows. When the budget is used up
+ *   streams fetch fewer parts at once instead of adding to the heap. Buffers go back to the budget at the end of
+ *   the data or on close.
+ * If the end is not known, pass UNKNOWN_END. The data then ends at the first part that comes back short.
+ * The stream is not thread safe. Closing it drops fetches not yet started, waits for those running and then closes
+ *   the resource passed in, if any.
+ */
+class ParallelRangeInputStream extends InputStream
+{
+  // End of a range whose length is not known up front
+  static final long UNKNOWN_END = Long.MAX_VALUE;
+
+  // Attempts made to fetch one part before the stream fails
+  private static final int MAX_PART_ATTEMPTS = 2;
+
+  // Budget shared by the part buffers of all streams
+  private static final BufferBudget sharedBudget =
+          new BufferBudget(Math.max(1, RuntimeSettings.get().getReadAheadBufferMB()) * 1024L * 1024L);
+
+  // Threads fetching parts for streams not given an executor. Capped by TAPIS_RANGE_READ_THREADS, tasks queue
+  //   when all are busy. Idle threads exit after a minute.
+  private static final int THREADS = Math.max(1, RuntimeSettings.get().getRangeReadThreads());
+  private static final AtomicInteger threadCount = new AtomicInteger();
+  private static final ThreadPoolExecutor sharedExecutor =
+          new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "RangeRead-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+          });
+  static
+  {
+    sharedExecutor.allowCoreThreadTimeOut(true);
+  }
+
+  /*
+   * Fetches one part.
+   */
+  @FunctionalInterface
+  interface RangeReader
+  {
+    /**
+     * Read up to length bytes of the remote data starting at offset into buffer starting at bufferOffset.
+     * @return bytes read, 0 or -1 at the end of the data
+     */
+    int read(long offset, byte[] buffer, int bufferOffset, int length) throws IOException;
+  }
+
+  private final RangeReader reader;
+  private final long end;
+  private final int partSize;
+  private final int parallelism;
+  private final ExecutorService executor;
+  private final Closeable resource;
+  private final BufferBudget budget;
+  private final Deque<Future<Part>> pending = new ArrayDeque<>();
+  private final Deque<byte[]> freeBuffers = new ArrayDeque<>();
+  // Bytes of buffers this stream holds from the budget
+  private long reservedBytes = 0;
+  private long nextOffset;
+  // Set once a part shorter than requested has been read, nothing past it needs to be fetched
+  private boolean endSeen = false;
+  private Part current;
+  private volatile boolean closed = false;
+
+  /**
+   * Start fetching the range, using the shared threads.
+   *
+   * @param reader - fetches each part
+   * @param start - offset of the first byte
+   * @param end - offset just past the last byte, or UNKNOWN_END
+   * @param partSize - bytes fetched by each read
+   * @param parallelism - max reads in flight
+   */
+  ParallelRangeInputStream(RangeReader reader, long start, long end, int partSize, int parallelism)
+  {
+    this(reader, start, end, partSize, parallelism, sharedExecutor, null, sharedBudget);
+  }
+
+  /**
+   * Start fetching the range.
+   *
+   * @param reader - fetches each part
+   * @param start - offset of the first byte
+   * @param end - offset just past the last byte, or UNKNOWN_END
+   * @param partSize - bytes fetched by each read
+   * @param parallelism - max reads in flight
+   * @param executor - runs the reads. Must not be one whose tasks wait on each other.
+   * @param resource - closed when the stream is closed, after all reads are done. May be null.
+   */
+  ParallelRangeInputStream(RangeReader reader, long start, long end, int partSize, int parallelism,
+                           ExecutorService executor, Closeable resource)
+  {
+    this(reader, start, end, partSize, parallelism, executor, resource, sharedBudget);
+  }
+
+  ParallelRangeInputStream(RangeReader reader, long start, long end, int partSize, int parallelism,
+                           ExecutorService executor, Closeable resource, BufferBudget budget)
+  {
+    this.reader = reader;
+    this.end = end;
+    this.partSize = Math.max(1, partSize);
+    this.parallelism = Math.max(1, parallelism);
+    this.executor = executor;
+    this.resource = resource;
+    this.budget = budget;
+    this.nextOffset = start;
+    fill();
+  }
+
+  /**
+   * Choose a part size for a range so that each read in flight gets several parts, within the given bounds.
+   *
+   * @param length - bytes in the range
+   * @param parallelism - max reads in flight
+   * @param minPartSize - smallest part size
+   * @param maxPartSize - largest part size
+   * @return part size
+   */
+  static int choosePartSize(long length, int parallelism, int minPartSize, int maxPartSize)
+  {
+    long partSize = length / (Math.max(1, parallelism) * 4L);
+    return (int) Math.max(minPartSize, Math.min(maxPartSize, partSize));
+  }
+
+  @Override
+  public int read() throws IOException
+  {
+    if (!ensureData()) return -1;
+    return current.buffer[current.position++] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException
+  {
+    if (off < 0 || len < 0 || len > b.length - off) throw new IndexOutOfBoundsException();
+    if (len == 0) return 0;
+    if (!ensureData()) return -1;
+    int count = Math.min(len, current.count - current.position);
+    System.arraycopy(current.buffer, current.position, b, off, count);
+    current.position += count;
+    return count;
+  }
+
+  @Override
+  public int available()
+  {
+    return (current == null) ? 0 : current.count - current.position;
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    if (closed) return;
+    closed = true;
+    // Fetches not yet started are dropped. Those running use their buffers and the resource, wait for them.
+    for (Future<Part> future : pending) future.cancel(false);
+    for (Future<Part> future : pending)
+    {
+      try { Uninterruptibles.getUninterruptibly(future); }
+      catch (ExecutionException | CancellationException e) { /* Nothing more to read */ }
+    }
+    pending.clear();
+    current = null;
+    releaseBuffers();
+    if (resource != null) resource.close();
+  }
+
+  /*
+   * Make sure the current part has unread data. Returns false at the end of the range.
+   */
+  private boolean ensureData() throws IOException
+  {
+    if (closed) throw new IOException("Stream closed");
+    while (current == null || current.position >= current.count)
+    {
+      if (current != null)
+      {
+        // The buffer may be what a budget limited stream needs for its next fetch
+        freeBuffers.push(current.buffer);
+        current = null;
+        fill();
+      }
+      if (pending.isEmpty())
+      {
+        releaseBuffers();
+        return false;
+      }
+      // Leave the fetch queued until it completes so close() still waits for it if this fails
+      Part part = await(pending.peek());
+      pending.poll();
+      if (part.count < part.length)
+      {
+        if (end != UNKNOWN_END)
+          throw new IOException(String.format("Remote data ended at offset %d, expected %d bytes", part.offset +
+                                              part.count, end - part.offset));
+        endSeen = true;
+      }
+      current = part;
+      fill();
+    }
+    return true;
+  }
+
+  /*
+   * Start fetches until parallelism are in flight, the budget is used up or the whole range has been requested.
+   */
+  private void fill()
+  {
+    while (!endSeen && nextOffset < end && pending.size() < parallelism)
+    {
+      byte[] buffer = freeBuffers.poll();
+      if (buffer == null)
+      {
+        if (!budget.reserve(partSize, reservedBytes == 0)) break;
+        reservedBytes += partSize;
+        buffer = new byte[partSize];
+      }
+      long offset = nextOffset;
+      int length = (int) Math.min(partSize, end - offset);
+      nextOffset += length;
+      byte[] partBuffer = buffer;
+      pending.add(executor.submit(() -> readPart(offset, partBuffer, length)));
+    }
+  }
+
+  /*
+   * Hand all buffers back to the budget. Only called when no fetch is running.
+   */
+  private void releaseBuffers()
+  {
+    freeBuffers.clear();
+    budget.release(reservedBytes);
+    reservedBytes = 0;
+  }
+
+  /*
+   * Read one part. A reader may return less than requested before the end, so keep reading until the part is
+   *   full or a read returns nothing.
+   */
+  private Part readPart(long offset, byte[] buffer, int length) throws IOException
+  {
+    for (int attempt = 1; ; attempt++)
+    {
+      try
+      {
+        int total = 0;
+        while (total < length)
+        {
+          int count = reader.read(offset + total, buffer, total, length - total);
+          if (count <= 0) break;
+          total += count;
+        }
+        return new Part(buffer, offset, length, total);
+      }
+      catch (IOException e)
+      {
+        if (attempt >= MAX_PART_ATTEMPTS || closed) throw e;
+      }
+    }
+  }
+
+  private static Part await(Future<Part> future) throws IOException
+  {
+    try
+    {
+      return future.get();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while reading remote data");
+    }
+    catch (ExecutionException e)
+    {
+      if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+      throw new IOException(e.getCause());
+    }
+  }
+
+  /*
+   * Bytes of part buffers held by all streams using it, with a cap that can be exceeded by one buffer per stream.
+   */
+  static class BufferBudget
+  {
+    private final long maxBytes;
+    private final AtomicLong bytesInUse = new AtomicLong();
+
+    BufferBudget(long maxBytes) { this.maxBytes = maxBytes; }
+
+    /*
+     * Take bytes from the budget. Fails if that would exceed the cap, unless force is set.
+     */
+    boolean reserve(long bytes, boolean force)
+    {
+      while (true)
+      {
+        long inUse = bytesInUse.get();
+        if (!force && inUse + bytes > maxBytes) return false;
+        if (bytesInUse.compareAndSet(inUse, inUse + bytes)) return true;
+      }
+    }
+
+    void release(long bytes) { bytesInUse.addAndGet(-bytes); }
+
+    long getBytesInUse() { return bytesInUse.get(); }
+  }
+
+  private static class Part
+  {
+    final byte[] buffer;
+    final long offset;
+    final int length;
+    final int count;
+    int position = 0;
+
+    Part(byte[] buffer, long offset, int length, int count)
+    {
+      this.buffer = buffer;
+      this.offset = offset;
+      this.length = length;
+      this.count = count;
+    }
+  }
+}
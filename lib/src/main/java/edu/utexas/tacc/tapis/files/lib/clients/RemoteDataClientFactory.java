@@ -1,11 +1,15 @@
 package edu.utexas.tacc.tapis.files.lib.clients;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.validation.constraints.NotNull;
 import org.jvnet.hk2.annotations.Service;
 import edu.utexas.tacc.tapis.files.lib.caches.SystemsCache;
+import edu.utexas.tacc.tapis.files.lib.config.RuntimeSettings;
 import edu.utexas.tacc.tapis.files.lib.utils.LibUtils;
 import edu.utexas.tacc.tapis.shared.security.ServiceClients;
 import edu.utexas.tacc.tapis.systems.client.gen.model.SystemTypeEnum;
@@ -15,6 +19,11 @@ import edu.utexas.tacc.tapis.systems.client.gen.model.TapisSystem;
 @Named
 public class RemoteDataClientFactory implements IRemoteDataClientFactory
 {
+  // S3 systems that use the CRT based client. "*" selects all S3 systems.
+  private static final Set<String> S3_CRT_SYSTEMS =
+          Arrays.stream(RuntimeSettings.get().getS3CrtSystems().split(",")).map(String::trim)
+                .filter(id -> !id.isEmpty()).collect(Collectors.toSet());
+
   @Inject
   private ServiceClients serviceClients;
   @Inject
@@ -46,6 +55,10 @@ public class RemoteDataClientFactory implements IRemoteDataClientFactory
     }
     else if (SystemTypeEnum.S3.equals(system.getSystemType()))
     {
+      if (S3_CRT_SYSTEMS.contains("*") || S3_CRT_SYSTEMS.contains(system.getId()))
+      {
+        return new S3CrtDataClient(oboTenant, oboUser, system);
+      }
       return new S3DataClient(oboTenant, oboUser, system);
     }
     else if (SystemTypeEnum.IRODS.equals(system.getSystemType()))
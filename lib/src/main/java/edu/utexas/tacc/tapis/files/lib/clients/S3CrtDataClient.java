@@ -0,0 +1,304 @@
+package edu.utexas.tacc.tapis.files.lib.clients;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import javax.ws.rs.NotFoundException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.auth.credentials.AwsCredentials;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.async.BlockingInputStreamAsyncRequestBody;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3CrtAsyncClientBuilder;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.transfer.s3.S3TransferManager;
+import software.amazon.awssdk.transfer.s3.model.Upload;
+import software.amazon.awssdk.transfer.s3.model.UploadRequest;
+import edu.utexas.tacc.tapis.shared.utils.PathUtils;
+import edu.utexas.tacc.tapis.files.lib.config.RuntimeSettings;
+import edu.utexas.tacc.tapis.files.lib.utils.LibUtils;
+import edu.utexas.tacc.tapis.systems.client.gen.model.TapisSystem;
+
+/**
+ * S3 data client that moves object data using the AWS CRT based S3 client.
+ *
+ * Uploads go through the S3 transfer manager and downloads through the CRT client directly. Both split objects
+ *   into parts sent over several connections, sized to reach TAPIS_S3_CRT_TARGET_GBPS, and use non-blocking I/O
+ *   underneath. Uploads are streamed as parts, with no scratch file and no need to know the length up front.
+ * All other operations are inherited from S3DataClient and use the synchronous client.
+ *
+ * A CRT client holds native resources and its own event loop threads, so one is shared by all data clients with
+ *   the same endpoint, region and credentials rather than built per data client. Each upload and download holds a
+ *   reference to the shared client until it is done. A client dropped from the cache is only closed once the last
+ *   reference is released, and a new one is built for the next transfer.
+ * Used for the systems listed in TAPIS_S3_CRT_SYSTEMS, see RemoteDataClientFactory.
+ */
+public class S3CrtDataClient extends S3DataClient
+{
+  private static final Logger log = LoggerFactory.getLogger(S3CrtDataClient.class);
+  private static final double TARGET_THROUGHPUT_GBPS = RuntimeSettings.get().getS3CrtTargetThroughputGbps();
+  private static final long MIN_PART_SIZE = RuntimeSettings.get().getS3CrtPartSizeMB() * 1024L * 1024L;
+  // Shared CRT clients. Not bounded by size, there is one per distinct endpoint and credentials in use. Entries
+  //   not used for a while are dropped and closed once no transfer holds them.
+  private static final Duration SHARED_CLIENT_IDLE_TIME = Duration.ofHours(1);
+  private static final Cache<CrtClientKey, CrtClients> sharedClients = CacheBuilder.newBuilder()
+          .expireAfterAccess(SHARED_CLIENT_IDLE_TIME)
+          .removalListener((RemovalListener<CrtClientKey, CrtClients>) notification -> notification.getValue().retire())
+          .build();
+
+  private final CrtClientKey clientKey;
+
+  public S3CrtDataClient(@NotNull String oboTenant1, @NotNull String oboUser1, @NotNull TapisSystem system1)
+          throws IOException
+  {
+    super(oboTenant1, oboUser1, system1);
+    AwsCredentials credentials = getCredentialsProvider().resolveCredentials();
+    clientKey = new CrtClientKey(getEndpointOverride(), getRegion().id(), credentials.accessKeyId(),
+                                 credentials.secretAccessKey());
+    // Build the shared client now, so that a bad configuration fails here rather than on the first transfer
+    getSharedClients();
+  }
+
+  /**
+   * Upload an S3 object. The stream is sent as parts while it is read.
+   *
+   * @param path - Path to object relative to the system rootDir
+   * @param fileStream Stream of data to place in object
+   * @throws IOException on error
+   */
+  @Override
+  public void upload(@NotNull String path, @NotNull InputStream fileStream) throws IOException
+  {
+    String objKey = PathUtils.getAbsoluteKey(getRootDir(), path);
+    // Length is not known, the stream is read into parts until it ends
+    BlockingInputStreamAsyncRequestBody body = AsyncRequestBody.forBlockingInputStream(null);
+    UploadRequest req = UploadRequest.builder()
+            .putObjectRequest(b -> b.bucket(getBucket()).key(objKey))
+            .requestBody(body)
+            .build();
+    CrtClients clients = acquireClients();
+    try
+    {
+      Upload upload = clients.transferManager.upload(req);
+      try
+      {
+        body.writeInputStream(fileStream);
+        upload.completionFuture().join();
+      }
+      catch (CompletionException | SdkException ex)
+      {
+        upload.completionFuture().cancel(true);
+        Throwable cause = (ex instanceof CompletionException) ? ex.getCause() : ex;
+        String msg = LibUtils.getMsg("FILES_CLIENT_S3_OP_ERR1", getOboTenant(), getOboUser(), "insert",
+                                     getSystemId(), getBucket(), path, cause.getMessage());
+        log.error(msg);
+        throw new IOException(msg, cause);
+      }
+    }
+    finally
+    {
+      clients.release();
+    }
+  }
+
+  @Override
+  public InputStream getStream(@NotNull String path) throws IOException, NotFoundException
+  {
+    String objKey = PathUtils.getAbsoluteKey(getRootDir(), path);
+    GetObjectRequest req = GetObjectRequest.builder().bucket(getBucket()).key(objKey).build();
+    CrtClients clients = acquireClients();
+    InputStream stream = null;
+    try
+    {
+      // Returns once the response starts. Parts are fetched in parallel and handed over in order.
+      //   The client is held until the stream is closed.
+      stream = clients.asyncClient.getObject(req, AsyncResponseTransformer.toBlockingInputStream()).join();
+      return new FilterInputStream(stream)
+      {
+        private boolean released = false;
+
+        @Override
+        public void close() throws IOException
+        {
+          try { super.close(); }
+          finally
+          {
+            if (!released) clients.release();
+            released = true;
+          }
+        }
+      };
+    }
+    catch (CompletionException | SdkException ex)
+    {
+      Throwable cause = (ex instanceof CompletionException) ? ex.getCause() : ex;
+      if (cause instanceof NoSuchKeyException)
+      {
+        throw new NotFoundException(String.format("Object key not found: %s", objKey));
+      }
+      String msg = LibUtils.getMsg("FILES_CLIENT_S3_OP_ERR1", getOboTenant(), getOboUser(), "getStream",
+                                   getSystemId(), getBucket(), path, cause.getMessage());
+      log.error(msg);
+      throw new IOException(msg, cause);
+    }
+    finally
+    {
+      // Not handed over to a stream, nothing else will release it
+      if (stream == null) clients.release();
+    }
+  }
+
+  /* **************************************************************************** */
+  /*                                Private Methods                               */
+  /* **************************************************************************** */
+
+  /*
+   * Get the shared clients for this endpoint and credentials, building them if needed.
+   */
+  private CrtClients getSharedClients() throws IOException
+  {
+    try
+    {
+      return sharedClients.get(clientKey, this::buildClients);
+    }
+    catch (ExecutionException | UncheckedExecutionException e)
+    {
+      String msg = LibUtils.getMsg("FILES_CLIENT_S3_ERR", getOboTenant(), getOboUser(), getSystemId(), getBucket(),
+                                   e.getCause().getMessage());
+      log.error(msg);
+      throw new IOException(msg, e.getCause());
+    }
+  }
+
+  /*
+   * Take a reference to the shared clients for one transfer. Must be released when the transfer is done.
+   *   Clients dropped from the cache after the lookup are retired, try again with their replacement.
+   */
+  private CrtClients acquireClients() throws IOException
+  {
+    while (true)
+    {
+      CrtClients clients = getSharedClients();
+      if (clients.acquire()) return clients;
+      sharedClients.asMap().remove(clientKey, clients);
+    }
+  }
+
+  private CrtClients buildClients()
+  {
+    S3CrtAsyncClientBuilder builder = S3AsyncClient.crtBuilder()
+            .credentialsProvider(getCredentialsProvider())
+            .region(getRegion())
+            .targetThroughputInGbps(TARGET_THROUGHPUT_GBPS)
+            .minimumPartSizeInBytes(MIN_PART_SIZE);
+    if (getEndpointOverride() != null) builder.endpointOverride(getEndpointOverride());
+    S3AsyncClient client = builder.build();
+    return new CrtClients(client, S3TransferManager.builder().s3Client(client).build());
+  }
+
+  /*
+   * A CRT client and the transfer manager built on it, counting the transfers using them.
+   * Once retired no new references are handed out, and the clients are closed when the last one is released.
+   */
+  static class CrtClients
+  {
+    private final S3AsyncClient asyncClient;
+    private final S3TransferManager transferManager;
+    private int references = 0;
+    private boolean retired = false;
+    private boolean closed = false;
+
+    CrtClients(S3AsyncClient asyncClient, S3TransferManager transferManager)
+    {
+      this.asyncClient = asyncClient;
+      this.transferManager = transferManager;
+    }
+
+    synchronized boolean acquire()
+    {
+      if (retired) return false;
+      references++;
+      return true;
+    }
+
+    void release()
+    {
+      synchronized (this)
+      {
+        references--;
+        if (!retired || references > 0) return;
+      }
+      close();
+    }
+
+    void retire()
+    {
+      synchronized (this)
+      {
+        retired = true;
+        if (references > 0) return;
+      }
+      close();
+    }
+
+    synchronized boolean isClosed() { return closed; }
+
+    private void close()
+    {
+      synchronized (this)
+      {
+        if (closed) return;
+        closed = true;
+      }
+      transferManager.close();
+      asyncClient.close();
+    }
+  }
+
+  private static class CrtClientKey
+  {
+    private final URI endpoint;
+    private final String region;
+    private final String accessKey;
+    private final String accessSecret;
+
+    CrtClientKey(URI endpoint, String region, String accessKey, String accessSecret)
+    {
+      this.endpoint = endpoint;
+      this.region = region;
+      this.accessKey = accessKey;
+      this.accessSecret = accessSecret;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      CrtClientKey that = (CrtClientKey) o;
+      return Objects.equals(endpoint, that.endpoint) && Objects.equals(region, that.region) &&
+             Objects.equals(accessKey, that.accessKey) && Objects.equals(accessSecret, that.accessSecret);
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return Objects.hash(endpoint, region, accessKey, accessSecret);
+    }
+  }
+}
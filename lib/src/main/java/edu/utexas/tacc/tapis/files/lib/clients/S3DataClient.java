@@ -3,11 +3,23 @@ package edu.utexas.tacc.tapis.files.lib.clients;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.SequenceInputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.ws.rs.NotFoundException;
 import javax.ws.rs.core.UriBuilder;
@@ -20,25 +32,37 @@ import org.slf4j.LoggerFactory;
 
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.core.sync.ResponseTransformer;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
 import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.Delete;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
 import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Error;
 import software.amazon.awssdk.services.s3.model.S3Exception;
 import software.amazon.awssdk.services.s3.model.S3Object;
 import software.amazon.awssdk.services.s3.paginators.ListObjectsV2Iterable;
 
 import edu.utexas.tacc.tapis.shared.s3.S3Utils;
 import edu.utexas.tacc.tapis.shared.utils.PathUtils;
+import edu.utexas.tacc.tapis.files.lib.config.RuntimeSettings;
 import edu.utexas.tacc.tapis.files.lib.models.FileInfo;
 import edu.utexas.tacc.tapis.files.lib.utils.LibUtils;
 import edu.utexas.tacc.tapis.systems.client.gen.model.TapisSystem;
@@ -60,17 +84,39 @@ import edu.utexas.tacc.tapis.systems.client.gen.model.SystemTypeEnum;
  * Note that for S3 this means a path of "/" or the empty string indicates all objects in the bucket with a prefix matching
  *   *rootDir*, with any preceding "/" stripped off of *rootDir*
  *
+ * A listing returns all objects with keys starting with the path. A listing one level deep, with keys split on "/" and
+ *   the prefixes under the path returned as directories, is available through lsOneLevel.
+ *
  */
 public class S3DataClient implements IRemoteDataClient
 {
   private final Logger log = LoggerFactory.getLogger(S3DataClient.class);
   public static final long MAX_LISTING_SIZE = Long.MAX_VALUE;
+  // Max requests in flight when getting info for several paths
+  private static final int MAX_LOOKUPS_IN_FLIGHT = 16;
+  // Bulk deletes: keys per DeleteObjects request (the S3 maximum), requests in flight, failed keys in error message
+  private static final int DELETE_BATCH_SIZE = 1000;
+  private static final int MAX_DELETE_BATCHES_IN_FLIGHT = 4;
+  private static final int MAX_REPORTED_DELETE_ERRORS = 10;
+  // Max keys returned by one list request
+  private static final int LIST_PAGE_SIZE = 1000;
+  // Downloads: ranged requests in flight per object and part size bounds
+  private static final int DOWNLOAD_PARALLELISM = RuntimeSettings.get().getS3DownloadParallelism();
+  private static final int DOWNLOAD_MIN_PART_SIZE = 8 * 1024 * 1024;
+  private static final int DOWNLOAD_MAX_PART_SIZE = 16 * 1024 * 1024;
+  private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+  // Threads for requests that a single operation issues concurrently
+  private static final ExecutorService requestExecutor = S3RequestExecutor.get();
   private final String oboTenant;
   private final String oboUser;
   private final S3Client client;
   private final String bucket;
   private final TapisSystem system;
   private final String rootDir;
+  // Connection settings, kept for clients built on other S3 engines. endpointOverride is null for AWS.
+  private AwsCredentialsProvider credentialsProvider;
+  private Region region;
+  private URI endpointOverride;
 
   @Override
   public String getOboTenant() { return oboTenant; }
@@ -84,6 +130,11 @@ public class S3DataClient implements IRemoteDataClient
   public TapisSystem getSystem() { return system; }
 
   public S3Client getClient() { return client; }
+  protected String getBucket() { return bucket; }
+  protected String getRootDir() { return rootDir; }
+  protected AwsCredentialsProvider getCredentialsProvider() { return credentialsProvider; }
+  protected Region getRegion() { return region; }
+  protected URI getEndpointOverride() { return endpointOverride; }
 
   public S3DataClient(@NotNull String oboTenant1, @NotNull String oboUser1, @NotNull TapisSystem system1)
           throws IOException
@@ -150,15 +201,18 @@ public class S3DataClient implements IRemoteDataClient
         log.warn(msg);
         throw new IOException(msg);
       }
+      region = reg;
+      credentialsProvider = StaticCredentialsProvider.create(credentials);
       S3ClientBuilder builder = S3Client.builder()
               .region(reg)
-              .credentialsProvider(StaticCredentialsProvider.create(credentials));
+              .credentialsProvider(credentialsProvider);
 
       // Have to do the endpoint override if it is not a real AWS route, as in the case for a minio instance
       if (!S3Utils.isAWSUrl(host))
       {
         log.debug(LibUtils.getMsg("FILES_CLIENT_S3_EP_OVER", oboTenant, oboUser, system.getId(), bucket,
                 reg.toString(), host, endpoint.toString()));
+        endpointOverride = endpoint;
         builder.endpointOverride(endpoint);
       }
       // Log info about client we are building
@@ -176,6 +230,19 @@ public class S3DataClient implements IRemoteDataClient
     log.debug(LibUtils.getMsg("FILES_CLIENT_S3_BUILT", oboTenant, oboUser, system.getId(), bucket));
   }
 
+  /*
+   * Client using the given S3 client, for tests
+   */
+  S3DataClient(String oboTenant1, String oboUser1, TapisSystem system1, S3Client client1)
+  {
+    oboTenant = oboTenant1;
+    oboUser = oboUser1;
+    system = system1;
+    bucket = system.getBucketName();
+    rootDir = (StringUtils.isBlank(system.getRootDir())) ? "" :  system.getRootDir();
+    client = client1;
+  }
+
   /**
    * Build a URI using host, scheme, port
    *
@@ -238,6 +305,110 @@ public class S3DataClient implements IRemoteDataClient
     return files;
   }
 
+  /**
+   * List one level under a path, with the path treated as a directory. Objects directly under it are returned as
+   *   files and the common prefixes of deeper keys as directories.
+   * With a pattern or startAfter the whole level is listed and filtered, as for other clients that cannot filter
+   *   or page by name. The pattern applies to the names of both objects and prefixes.
+   *
+   * @param path - Path to directory relative to the system rootDir
+   * @param limit - maximum number of entries to return
+   * @param offset - Offset for listing, applied after the pattern and startAfter
+   * @param pattern - wildcard (glob) pattern or regex prefixed with "regex:" that names must match. Ignored if blank.
+   * @param startAfter - only return entries with names after this one. Ignored if blank.
+   * @return list of FileInfo objects
+   * @throws IOException Generally a network error
+   * @throws NotFoundException No file at target
+   */
+  public List<FileInfo> lsOneLevel(@NotNull String path, long limit, long offset, String pattern, String startAfter)
+          throws IOException, NotFoundException
+  {
+    String absoluteKey = PathUtils.getAbsoluteKey(rootDir, path);
+    if (StringUtils.isBlank(pattern) && StringUtils.isEmpty(startAfter))
+      return lsOneLevel(path, absoluteKey, limit, offset);
+    Predicate<String> nameFilter = IRemoteDataClient.getListingNameFilter(pattern, startAfter);
+    return lsOneLevel(path, absoluteKey, Long.MAX_VALUE, 0).stream()
+            .filter(f -> nameFilter.test(f.getName()))
+            .sorted(Comparator.comparing(FileInfo::getName, LISTING_NAME_ORDER))
+            .skip(Math.max(offset, 0)).limit(limit).collect(Collectors.toList());
+  }
+
+  /*
+   * List one level under a key, with the key treated as a directory. Objects directly under it are returned as
+   *   files and the common prefixes of deeper keys as directories, in key order.
+   * Pages are requested with continuation tokens until offset + limit entries have been seen, asking for no more
+   *   keys than are still needed. If there is nothing under the key but an object with that exact key exists, a
+   *   listing of just that object is returned.
+   */
+  private List<FileInfo> lsOneLevel(String path, String absoluteKey, long limit, long offset)
+          throws IOException, NotFoundException
+  {
+    String prefix = StringUtils.isEmpty(absoluteKey) ? "" : StringUtils.appendIfMissing(absoluteKey, "/");
+    List<FileInfo> files = new ArrayList<>();
+    if (limit <= 0) return files;
+    long toSkip = Math.max(offset, 0);
+    boolean anyFound = false;
+    String continuationToken = null;
+    try
+    {
+      do
+      {
+        long remaining = limit - files.size();
+        int maxKeys = (int) Math.min(LIST_PAGE_SIZE, Math.min(toSkip, LIST_PAGE_SIZE) + Math.min(remaining, LIST_PAGE_SIZE));
+        ListObjectsV2Request.Builder reqBuilder = ListObjectsV2Request.builder().bucket(bucket).prefix(prefix)
+                                                                      .delimiter("/").maxKeys(maxKeys);
+        if (continuationToken != null) reqBuilder.continuationToken(continuationToken);
+        ListObjectsV2Response resp = client.listObjectsV2(reqBuilder.build());
+
+        // Objects and common prefixes come back as separate sorted lists, merge them back into key order
+        List<S3Object> objects = resp.contents();
+        List<CommonPrefix> prefixes = resp.commonPrefixes();
+        int i = 0, j = 0;
+        while ((i < objects.size() || j < prefixes.size()) && files.size() < limit)
+        {
+          boolean takeObject = j >= prefixes.size() ||
+                  (i < objects.size() && objects.get(i).key().compareTo(prefixes.get(j).prefix()) < 0);
+          FileInfo fileInfo;
+          anyFound = true;
+          if (takeObject)
+          {
+            S3Object object = objects.get(i++);
+            // Skip the object marking the directory itself
+            if (object.key().equals(prefix)) continue;
+            fileInfo = new FileInfo(object, system.getId(), rootDir);
+          }
+          else
+          {
+            fileInfo = getDirFileInfo(prefixes.get(j++).prefix());
+          }
+          if (toSkip > 0) toSkip--; else files.add(fileInfo);
+        }
+        continuationToken = Boolean.TRUE.equals(resp.isTruncated()) ? resp.nextContinuationToken() : null;
+      }
+      while (continuationToken != null && files.size() < limit);
+
+      // Nothing under the key. It may be a single object, otherwise it does not exist.
+      if (!anyFound && StringUtils.isNotEmpty(absoluteKey))
+      {
+        FileInfo fileInfo = getObjectFileInfo(absoluteKey);
+        if (fileInfo == null)
+        {
+          String msg = LibUtils.getMsg("FILES_CLIENT_S3_NOFILE", oboTenant, oboUser, system.getId(), bucket, absoluteKey);
+          throw new NotFoundException(msg);
+        }
+        if (offset <= 0) files.add(fileInfo);
+      }
+    }
+    catch (S3Exception ex)
+    {
+      String msg = LibUtils.getMsg("FILES_CLIENT_S3_OP_ERR1", oboTenant, oboUser, "ls", system.getId(), bucket,
+                                   path, ex.getMessage());
+      log.error(msg);
+      throw new IOException(msg, ex);
+    }
+    return files;
+  }
+
   /** UNSUPPORTED
    * Create a simulated "directory" in S3
    * Note that this is simply an S3 key that always ends with a /
@@ -339,7 +510,9 @@ public class S3DataClient implements IRemoteDataClient
   }
 
   /**
-   * Delete either a single object or all objects under relative path "/"
+   * Delete an object together with any objects under it, as if it were a directory.
+   * For relative path "/" all objects in the bucket are deleted.
+   * Objects under a path are deleted in batches, see deleteObjectsWithPrefix().
    *
    * @param path - Path to object relative to the system rootDir
    * @throws NotFoundException if path not found
@@ -351,8 +524,8 @@ public class S3DataClient implements IRemoteDataClient
     // Determine the absolute path and the corresponding object key.
     String objKey = PathUtils.getAbsoluteKey(rootDir, path);
     // If relative path is "" delete all objects in rootDir
-    // else remove a single object
-    if (StringUtils.isEmpty(objKey)) { deleteAllObjectsInBucket(); }
+    // else remove the object and anything under it
+    if (StringUtils.isEmpty(objKey)) { deleteObjectsWithPrefix(path, ""); }
     else
     {
       // Remove a single object
@@ -365,31 +538,56 @@ public class S3DataClient implements IRemoteDataClient
         log.error(msg);
         throw new IOException(msg, ex);
       }
+      deleteObjectsWithPrefix(path, StringUtils.appendIfMissing(objKey, "/"));
     }
   }
 
   @Override
   public FileInfo getFileInfo(@NotNull String path, boolean followLinks) throws IOException
   {
-    FileInfo fileInfo = null;
+    FileInfo fileInfo;
     try
     {
+      // An object with the exact key, else a directory if any keys are under it
       String absoluteKey = PathUtils.getAbsoluteKey(rootDir, path);
-      Stream<S3Object> response = listWithIterator(absoluteKey, 1);
-      List<FileInfo> files = new ArrayList<>();
-      response.limit(1).forEach((S3Object x) -> files.add(new FileInfo(x, system.getId(), rootDir)));
-      if (!files.isEmpty()) fileInfo = files.get(0);
+      if (StringUtils.isEmpty(absoluteKey)) return getDirFileInfo(absoluteKey);
+      fileInfo = getObjectFileInfo(absoluteKey);
+      if (fileInfo == null)
+      {
+        String dirPrefix = StringUtils.appendIfMissing(absoluteKey, "/");
+        ListObjectsV2Request req = ListObjectsV2Request.builder().bucket(bucket).prefix(dirPrefix).maxKeys(1).build();
+        if (!client.listObjectsV2(req).contents().isEmpty()) fileInfo = getDirFileInfo(dirPrefix);
+      }
     }
-    catch (NoSuchKeyException ex) { fileInfo = null; }
     catch (S3Exception ex)
     {
-      String msg = LibUtils.getMsg("FILES_CLIENT_S3_OP_ERR1", oboTenant, oboUser, "delete", system.getId(), bucket,
+      String msg = LibUtils.getMsg("FILES_CLIENT_S3_OP_ERR1", oboTenant, oboUser, "getFileInfo", system.getId(), bucket,
               path, ex.getMessage());
       throw new IOException(msg, ex);
     }
     return fileInfo;
   }
 
+  /**
+   * Get info for several paths, with up to MAX_LOOKUPS_IN_FLIGHT lookups running at once.
+   * A path whose lookup fails is logged and reported as null, the other paths are unaffected.
+   */
+  @Override
+  public List<FileInfo> getFileInfos(@NotNull List<String> paths, boolean followLinks) throws IOException
+  {
+    List<FileInfo> fileInfos = new ArrayList<>(paths.size());
+    for (int start = 0; start < paths.size(); start += MAX_LOOKUPS_IN_FLIGHT)
+    {
+      List<Future<FileInfo>> futures = new ArrayList<>();
+      for (String path : paths.subList(start, Math.min(start + MAX_LOOKUPS_IN_FLIGHT, paths.size())))
+      {
+        futures.add(requestExecutor.submit(() -> getFileInfo(path, followLinks)));
+      }
+      for (int i = 0; i < futures.size(); i++) fileInfos.add(awaitLookup(futures.get(i), paths.get(start + i)));
+    }
+    return fileInfos;
+  }
+
   @Override
   public InputStream getStream(@NotNull String path) throws IOException, NotFoundException
   {
@@ -397,6 +595,7 @@ public class S3DataClient implements IRemoteDataClient
     String objKey = PathUtils.getAbsoluteKey(rootDir, path);
     try
     {
+      if (DOWNLOAD_PARALLELISM > 1) return getStreamInParts(objKey, path);
       GetObjectRequest req = GetObjectRequest.builder().bucket(bucket).key(objKey).build();
       return client.getObject(req, ResponseTransformer.toInputStream());
     }
@@ -438,6 +637,91 @@ public class S3DataClient implements IRemoteDataClient
   /*                                Private Methods                               */
   /* **************************************************************************** */
 
+  /*
+   * Get an object as ranged requests running in parallel.
+   * The first DOWNLOAD_MIN_PART_SIZE bytes are fetched with a single ranged GET, which also gives the object length
+   *   and ETag. Small objects are then complete. For larger objects the rest is fetched by a
+   *   ParallelRangeInputStream while the first part is consumed. Parts are only accepted for the same ETag, so an
+   *   object replaced during the download fails the read rather than mixing old and new data.
+   */
+  private InputStream getStreamInParts(String objKey, String path) throws S3Exception
+  {
+    ResponseInputStream<GetObjectResponse> firstPart;
+    try
+    {
+      GetObjectRequest req = GetObjectRequest.builder().bucket(bucket).key(objKey)
+              .range(String.format("bytes=0-%d", DOWNLOAD_MIN_PART_SIZE - 1)).build();
+      firstPart = client.getObject(req);
+    }
+    catch (S3Exception ex)
+    {
+      // Range cannot be satisfied for an empty object
+      if (ex.statusCode() != HTTP_RANGE_NOT_SATISFIABLE) throw ex;
+      GetObjectRequest req = GetObjectRequest.builder().bucket(bucket).key(objKey).build();
+      return client.getObject(req, ResponseTransformer.toInputStream());
+    }
+
+    // If the range was ignored the whole object is in the response
+    String contentRange = firstPart.response().contentRange();
+    long length = (contentRange == null) ? -1 : Long.parseLong(StringUtils.substringAfterLast(contentRange, "/"));
+    if (length <= DOWNLOAD_MIN_PART_SIZE) return firstPart;
+
+    String eTag = firstPart.response().eTag();
+    int partSize = ParallelRangeInputStream.choosePartSize(length - DOWNLOAD_MIN_PART_SIZE, DOWNLOAD_PARALLELISM,
+                                                           DOWNLOAD_MIN_PART_SIZE, DOWNLOAD_MAX_PART_SIZE);
+    InputStream remainingParts =
+            new ParallelRangeInputStream((offset, buffer, bufferOffset, count) ->
+                                                 readRange(objKey, path, eTag, offset, buffer, bufferOffset, count),
+                                         DOWNLOAD_MIN_PART_SIZE, length, partSize, DOWNLOAD_PARALLELISM,
+                                         requestExecutor, null);
+    return new SequenceInputStream(firstPart, remainingParts);
+  }
+
+  /*
+   * Read count bytes of an object starting at offset into buffer starting at bufferOffset.
+   */
+  private int readRange(String objKey, String path, String eTag, long offset, byte[] buffer, int bufferOffset,
+                        int count)
+          throws IOException
+  {
+    GetObjectRequest req = GetObjectRequest.builder().bucket(bucket).key(objKey).ifMatch(eTag)
+            .range(String.format("bytes=%d-%d", offset, offset + count - 1)).build();
+    try (InputStream in = client.getObject(req))
+    {
+      int bytesRead = in.readNBytes(buffer, bufferOffset, count);
+      if (bytesRead < count)
+        throw new IOException(String.format("Object %s ended at offset %d, expected %d bytes", objKey,
+                                            offset + bytesRead, offset + count));
+      return bytesRead;
+    }
+    catch (S3Exception ex)
+    {
+      String msg = LibUtils.getMsg("FILES_CLIENT_S3_OP_ERR1", oboTenant, oboUser, "getStream", system.getId(), bucket,
+                                   path, ex.getMessage());
+      log.error(msg);
+      throw new IOException(msg, ex);
+    }
+  }
+
+  private FileInfo awaitLookup(Future<FileInfo> future, String path) throws IOException
+  {
+    try
+    {
+      return future.get();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(e.getMessage());
+    }
+    catch (ExecutionException e)
+    {
+      if (!(e.getCause() instanceof IOException)) throw new IOException(e.getCause());
+      log.warn("Could not get file info for path:" + path + " " + e.getCause().getMessage());
+      return null;
+    }
+  }
+
   /**
    * Copy an object with the option to delete the old key
    *
@@ -449,7 +733,17 @@ public class S3DataClient implements IRemoteDataClient
   private void copyObject(@NotNull String srcKey, @NotNull String dstKey, boolean withDelete) throws IOException
   {
     doCopy(srcKey, dstKey);
-    if (withDelete) delete(srcKey);
+    if (withDelete)
+    {
+      try { deleteObject(srcKey); }
+      catch (S3Exception ex)
+      {
+        String msg = LibUtils.getMsg("FILES_CLIENT_S3_OP_ERR1", oboTenant, oboUser, "move", system.getId(), bucket,
+                                     srcKey, ex.getMessage());
+        log.error(msg);
+        throw new IOException(msg, ex);
+      }
+    }
   }
 
   /**
@@ -495,6 +789,43 @@ public class S3DataClient implements IRemoteDataClient
     return resp.contents().stream();
   }
 
+  /**
+   * Get info for the object with the given key using HeadObject.
+   * @param objKey - Object key
+   * @return FileInfo for the object or null if there is no object with that key
+   * @throws S3Exception on error
+   */
+  private FileInfo getObjectFileInfo(String objKey) throws S3Exception
+  {
+    try
+    {
+      HeadObjectRequest req = HeadObjectRequest.builder().bucket(bucket).key(objKey).build();
+      HeadObjectResponse resp = client.headObject(req);
+      S3Object object = S3Object.builder().key(objKey).size(resp.contentLength()).lastModified(resp.lastModified())
+                                .build();
+      return new FileInfo(object, system.getId(), rootDir);
+    }
+    catch (NoSuchKeyException ex) { return null; }
+  }
+
+  /**
+   * Build FileInfo for a key prefix treated as a directory.
+   * @param keyPrefix - key prefix, with or without a trailing "/"
+   * @return FileInfo of type DIR
+   */
+  private FileInfo getDirFileInfo(String keyPrefix)
+  {
+    String dirKey = StringUtils.removeEnd(keyPrefix, "/");
+    FileInfo fileInfo = new FileInfo();
+    Path dirKeyPath = Paths.get(dirKey);
+    fileInfo.setName(dirKeyPath.getFileName() == null ? "" : dirKeyPath.getFileName().toString());
+    fileInfo.setPath(PathUtils.getFileInfoPathFromS3Key(dirKey, rootDir));
+    fileInfo.setUrl(PathUtils.getTapisUrlFromPath(fileInfo.getPath(), system.getId()));
+    fileInfo.setType(FileInfo.FileType.DIR);
+    fileInfo.setSize(0L);
+    return fileInfo;
+  }
+
   /**
    * Check to see if an S3 object exists.
    * @param objKey - Object key
@@ -527,27 +858,135 @@ public class S3DataClient implements IRemoteDataClient
   }
 
   /**
-   * Delete all S3 objects in the bucket
+   * Delete all S3 objects with keys starting with a prefix.
+   * Keys are taken from the listing as it is paged in and grouped into DeleteObjects requests of up to
+   *   DELETE_BATCH_SIZE keys. Up to MAX_DELETE_BATCHES_IN_FLIGHT requests run at once. Listing waits while that
+   *   many are running, so keys are never buffered beyond the batches in flight.
+   * Failures for individual keys do not stop the delete. Once everything has been tried an IOException is thrown
+   *   reporting how many keys could not be deleted, with the first few keys and errors.
+   *
+   * @param path - path being deleted, for messages
+   * @param objKeyPrefix - key prefix, "" for the whole bucket
    * @throws NotFoundException if path not found
    * @throws IOException on error
    */
-  private void deleteAllObjectsInBucket() throws IOException, NotFoundException
+  private void deleteObjectsWithPrefix(String path, String objKeyPrefix) throws IOException, NotFoundException
   {
-    String objKeyPrefix = "";
+    String opName = "delete";
+    Semaphore batchPermits = new Semaphore(MAX_DELETE_BATCHES_IN_FLIGHT);
+    List<Future<List<S3Error>>> futures = new ArrayList<>();
+    List<S3Error> errors = new ArrayList<>();
+    int failedCount = 0;
+    Exception listingFailure = null;
+    RuntimeException batchFailure = null;
     try
     {
-      // List all objects under objKeyPrefix, deleting each one as we go
-      listWithIterator(objKeyPrefix, null).forEach(object -> {
-        try { deleteObject(object.key()); }
-        catch (S3Exception ex) { /* Ignore exception from individual operation, delete as much as possible */ }
-      });
+      List<ObjectIdentifier> batch = new ArrayList<>(DELETE_BATCH_SIZE);
+      Iterator<S3Object> objects = listWithIterator(objKeyPrefix, null).iterator();
+      while (objects.hasNext())
+      {
+        batch.add(ObjectIdentifier.builder().key(objects.next().key()).build());
+        if (batch.size() == DELETE_BATCH_SIZE || !objects.hasNext())
+        {
+          batchPermits.acquire();
+          List<ObjectIdentifier> keys = batch;
+          futures.add(requestExecutor.submit(() -> {
+            try { return deleteObjects(keys); }
+            finally { batchPermits.release(); }
+          }));
+          batch = new ArrayList<>(DELETE_BATCH_SIZE);
+        }
+      }
     }
-    catch (NoSuchKeyException ex) { throw new NotFoundException(); }
+    catch (InterruptedException ex)
+    {
+      Thread.currentThread().interrupt();
+      listingFailure = new InterruptedIOException(ex.getMessage());
+    }
+    catch (NoSuchKeyException ex) { listingFailure = new NotFoundException(); }
     catch (S3Exception ex) {
-      String msg = LibUtils.getMsg("FILES_CLIENT_S3_OP_ERR1", oboTenant, oboUser, "delete", system.getId(), bucket,
-              objKeyPrefix, ex.getMessage());
+      String msg = LibUtils.getMsg("FILES_CLIENT_S3_OP_ERR1", oboTenant, oboUser, opName, system.getId(), bucket,
+              path, ex.getMessage());
       log.error(msg);
-      throw new IOException(msg, ex);
+      listingFailure = new IOException(msg, ex);
+    }
+    catch (RuntimeException ex) { listingFailure = ex; }
+
+    // Collect results of all batches started, even if listing failed part way through
+    for (Future<List<S3Error>> future : futures)
+    {
+      try
+      {
+        List<S3Error> batchErrors = awaitDeleteBatch(future);
+        failedCount += batchErrors.size();
+        for (S3Error error : batchErrors) if (errors.size() < MAX_REPORTED_DELETE_ERRORS) errors.add(error);
+      }
+      catch (RuntimeException ex)
+      {
+        if (batchFailure == null) batchFailure = ex;
+        else batchFailure.addSuppressed(ex);
+      }
+    }
+
+    // A listing failure is what stopped the delete, so it is thrown with any batch failure attached
+    if (listingFailure != null)
+    {
+      if (batchFailure != null) listingFailure.addSuppressed(batchFailure);
+      if (listingFailure instanceof IOException) throw (IOException) listingFailure;
+      throw (RuntimeException) listingFailure;
+    }
+    if (batchFailure != null) throw batchFailure;
+
+    if (failedCount > 0)
+    {
+      String errorsStr = errors.stream().map(e -> e.key() + ": " + e.code() + " " + e.message())
+                               .collect(Collectors.joining("; "));
+      String msg = LibUtils.getMsg("FILES_CLIENT_S3_DELETE_ERRS", oboTenant, oboUser, opName, system.getId(), bucket,
+                                   path, failedCount, errorsStr);
+      log.error(msg);
+      throw new IOException(msg);
+    }
+  }
+
+  /*
+   * Delete a batch of keys in one request. Returns errors for keys that could not be deleted. If the request as a
+   *   whole fails every key is reported as failed.
+   */
+  private List<S3Error> deleteObjects(List<ObjectIdentifier> keys)
+  {
+    try
+    {
+      DeleteObjectsRequest req = DeleteObjectsRequest.builder().bucket(bucket)
+              .delete(Delete.builder().objects(keys).quiet(true).build()).build();
+      DeleteObjectsResponse resp = client.deleteObjects(req);
+      return resp.hasErrors() ? resp.errors() : List.of();
+    }
+    catch (S3Exception ex)
+    {
+      String code = (ex.awsErrorDetails() == null) ? String.valueOf(ex.statusCode()) : ex.awsErrorDetails().errorCode();
+      return keys.stream().map(k -> S3Error.builder().key(k.key()).code(code).message(ex.getMessage()).build())
+                 .collect(Collectors.toList());
+    }
+  }
+
+  private static List<S3Error> awaitDeleteBatch(Future<List<S3Error>> future)
+  {
+    boolean interrupted = false;
+    try
+    {
+      while (true)
+      {
+        try { return future.get(); }
+        catch (InterruptedException e) { interrupted = true; }
+      }
+    }
+    catch (ExecutionException e)
+    {
+      throw (e.getCause() instanceof RuntimeException) ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+    }
+    finally
+    {
+      if (interrupted) Thread.currentThread().interrupt();
     }
   }
 }
@@ -0,0 +1,37 @@
+package edu.utexas.tacc.tapis.files.lib.clients;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.utexas.tacc.tapis.files.lib.config.RuntimeSettings;
+
+/*
+ * Threads shared by S3DataClient for requests a single operation issues in parallel: lookups of several paths,
+ *   batched deletes and ranged downloads.
+ * The number of threads is capped by TAPIS_S3_REQUEST_THREADS. When all are busy tasks wait in the queue rather
+ *   than starting more threads. Idle threads exit after a minute.
+ * Tasks must not wait on other tasks run here, or a full pool could deadlock.
+ * This class is non-instantiable
+ */
+final class S3RequestExecutor
+{
+  private S3RequestExecutor() { throw new AssertionError(); }
+
+  private static final int THREADS = Math.max(1, RuntimeSettings.get().getS3RequestThreads());
+  private static final AtomicInteger threadCount = new AtomicInteger();
+  private static final ThreadPoolExecutor executor =
+          new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "S3Request-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+          });
+  static
+  {
+    executor.allowCoreThreadTimeOut(true);
+  }
+
+  static ExecutorService get() { return executor; }
+}
@@ -4,23 +4,41 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 import javax.ws.rs.BadRequestException;
 import javax.ws.rs.ForbiddenException;
 import javax.ws.rs.NotAuthorizedException;
 import javax.ws.rs.NotFoundException;
 import javax.ws.rs.NotSupportedException;
 
+import edu.utexas.tacc.tapis.files.lib.caches.KnownDirectoryCache;
 import edu.utexas.tacc.tapis.files.lib.caches.SystemsCache;
+import edu.utexas.tacc.tapis.files.lib.config.RuntimeSettings;
 import edu.utexas.tacc.tapis.files.lib.exceptions.ServiceException;
 import edu.utexas.tacc.tapis.files.lib.models.AclEntry;
 import edu.utexas.tacc.tapis.files.lib.services.FileOpsService;
@@ -33,6 +51,8 @@ import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.sshd.sftp.client.SftpClient.Attributes;
 import org.apache.sshd.sftp.client.SftpClient.DirEntry;
+import org.apache.sshd.sftp.client.SftpClient.Handle;
+import org.apache.sshd.sftp.client.SftpClient.OpenMode;
 import org.apache.sshd.sftp.common.SftpConstants;
 import org.apache.sshd.sftp.common.SftpException;
 import org.jetbrains.annotations.NotNull;
@@ -43,6 +63,7 @@ import edu.utexas.tacc.tapis.files.lib.models.FileInfo;
 import edu.utexas.tacc.tapis.files.lib.models.FileStatInfo;
 import edu.utexas.tacc.tapis.files.lib.models.NativeLinuxOpResult;
 import edu.utexas.tacc.tapis.files.lib.utils.LibUtils;
+import edu.utexas.tacc.tapis.files.lib.utils.MimeTypes;
 import edu.utexas.tacc.tapis.shared.exceptions.TapisException;
 import edu.utexas.tacc.tapis.shared.ssh.apache.SSHExecChannel;
 import edu.utexas.tacc.tapis.shared.ssh.apache.SSHSftpClient;
@@ -59,6 +80,14 @@ public class SSHDataClient implements ISSHDataClient
 {
   private static final int MAX_PERMS_INT = Integer.parseInt("777", 8);
   public static final long MAX_LISTING_VALUE = Long.MAX_VALUE;
+  // Pages needing more entries than this are listed without the bounded heap
+  private static final long MAX_LISTING_HEAP_SIZE = 1_000_000;
+  // Output format for find based listings: type, size, mtime, octal perms, uid, gid, path. NUL terminated
+  //   since paths may contain newlines.
+  private static final String FIND_PRINTF_FORMAT = "%y %s %T@ %m %U %G %p\\0";
+  private static final int FIND_BATCH_SIZE = 1000;
+  // Hosts where find cannot be used for listings
+  private static final Set<String> findUnsupportedHosts = ConcurrentHashMap.newKeySet();
 
   // SFTP client throws IOException containing this string if a path does not exist.
   private static final String NO_SUCH_FILE = "no such file";
@@ -66,12 +95,34 @@ public class SSHDataClient implements ISSHDataClient
   private static final int MAX_STDERR_SIZE = 1000;
   private static final Duration DEFAULT_SESSION_WAIT = Duration.ofMinutes(5);
 
+  // Deletes: additional sessions are only used for batches with at least this many entries per session
+  private static final int DELETE_ENTRIES_PER_SESSION = 64;
+  private static final Duration DELETE_EXTRA_SESSION_WAIT = Duration.ofSeconds(5);
+  private static final int DELETE_MAX_SESSIONS = Math.max(1, RuntimeSettings.get().getSshDeleteMaxSessions());
+  private static final boolean USE_RM_FOR_DELETE = RuntimeSettings.get().isSshDeleteUseRm();
+  // Uploads: bytes per SFTP write request and max writes waiting for acknowledgement. 1 disables pipelining.
+  private static final int UPLOAD_PACKET_SIZE = RuntimeSettings.get().getSshUploadPacketSize();
+  private static final int UPLOAD_MAX_WRITES_IN_FLIGHT = RuntimeSettings.get().getSshUploadMaxWritesInFlight();
+  // Downloads: bytes per SFTP read request and max reads issued ahead of the consumer. 1 disables read-ahead.
+  private static final int DOWNLOAD_CHUNK_SIZE = RuntimeSettings.get().getSshDownloadChunkSize();
+  private static final int DOWNLOAD_READ_AHEAD = RuntimeSettings.get().getSshDownloadReadAhead();
+  // Directories known to exist, shared by all clients so that the children of a transfer benefit
+  private static final KnownDirectoryCache knownDirectories =
+          new KnownDirectoryCache(RuntimeSettings.get().getSshKnownDirCacheSize(),
+                                  RuntimeSettings.get().getSshKnownDirCacheTtlSeconds());
+  // Max stat requests in flight when getting info for several paths
+  private static final int MAX_STATS_IN_FLIGHT = 16;
+  // Threads for requests that a single operation issues concurrently
+  private static final ExecutorService requestExecutor = SftpRequestExecutor.get();
+
   private final Logger log = LoggerFactory.getLogger(SSHDataClient.class);
 
   private final String oboTenant;
   private final String oboUser;
 
   private final String host;
+  // Host and port, identifying the server in the known directory cache
+  private final String dirCacheServer;
   private final String effectiveUserId;
   private final String rootDir;
   private final String systemId;
@@ -104,6 +155,7 @@ public class SSHDataClient implements ISSHDataClient
     this.oboUser = oboUser;
     this.rootDir = PathUtils.getAbsolutePath(system.getRootDir(), "/").toString();
     this.host = system.getHost();
+    this.dirCacheServer = system.getHost() + ":" + system.getPort();
     this.effectiveUserId = system.getEffectiveUserId();
     this.system = system;
     this.systemId = system.getId();
@@ -135,15 +187,43 @@ public class SSHDataClient implements ISSHDataClient
    */
   @Override
   public List<FileInfo> ls(@NotNull String path, long limit, long offset, String pattern) throws IOException, NotFoundException
+  {
+    return ls(path, limit, offset, pattern, null);
+  }
+
+  /**
+   * Return file listing on path using sftpClient, starting after the given name.
+   * Directory entries are streamed from the server. Filtering and the startAfter check are done on the entry name,
+   *   and only the first offset+limit entries in name order are kept (in a bounded heap), so memory use depends on
+   *   the size of the page rather than the size of the directory. FileInfo objects are only built for the
+   *   entries returned.
+   *
+   * @param path - Path to file or directory relative to the system rootDir
+   * @param limit - Max number of items to return
+   * @param offset - offset, applied after startAfter
+   * @param pattern - Wildcard (glob) pattern or regex used to filter results.  Regex must be prefixed by "regex:".
+   *                Only results with file names that match the regex will be returned.
+   * @param startAfter - only return entries with names after this one in LISTING_NAME_ORDER. Ignored if blank.
+   * @return list of FileInfo objects
+   * @throws IOException       Generally a network error
+   * @throws NotFoundException No file at target
+   */
+  @Override
+  public List<FileInfo> ls(@NotNull String path, long limit, long offset, String pattern, String startAfter)
+          throws IOException, NotFoundException
   {
     String opName = "ls";
     long startIdx = Math.max(offset, 0);
-    List<FileInfo> filesList = new ArrayList<>();
-    List<DirEntry> dirEntries = new ArrayList<>();
     // Get path relative to system rootDir and protect against ../..
     String relPathStr = PathUtils.getRelativePath(path).toString();
     Path absolutePath = PathUtils.getAbsolutePath(rootDir, relPathStr);
     boolean isDirectory = false;
+    Predicate<String> nameFilter = IRemoteDataClient.getListingNameFilter(pattern, startAfter);
+    Comparator<DirEntry> entryOrder = Comparator.comparing(SSHDataClient::getEntryName, LISTING_NAME_ORDER);
+    // Number of entries we need to keep. If the page is unbounded we keep everything.
+    long keepCount = (limit >= MAX_LISTING_VALUE - startIdx) ? MAX_LISTING_VALUE : startIdx + limit;
+    boolean bounded = keepCount < MAX_LISTING_HEAP_SIZE;
+    Collection<DirEntry> dirEntries = bounded ? new PriorityQueue<>(entryOrder.reversed()) : new ArrayList<>();
 
     try(var sessionHolder = borrowAutoCloseableSftpClient(DEFAULT_SESSION_WAIT, true))
     {
@@ -152,16 +232,23 @@ public class SSHDataClient implements ISSHDataClient
       {
         // we need to keep track of if this is a directory or not
         isDirectory = true;
-        Iterable<DirEntry> tmp = sessionHolder.getSession().readDir(absolutePath.toString());
-        tmp.forEach(dirEntries::add);
+        for (DirEntry entry : sessionHolder.getSession().readDir(absolutePath.toString()))
+        {
+          // Ignore filename . and ..
+          if (entry.getFilename().equals(".") || entry.getFilename().equals("..")) continue;
+          if (!nameFilter.test(entry.getFilename())) continue;
+          dirEntries.add(entry);
+          // Heap is ordered largest first, so this drops the entry that sorts last
+          if (bounded && dirEntries.size() > keepCount) ((PriorityQueue<DirEntry>) dirEntries).poll();
+        }
       }
       else
       {
         DirEntry entry = new DirEntry(relPathStr, relPathStr, attributes);
-        dirEntries.add(entry);
+        if (nameFilter.test(getEntryName(entry))) dirEntries.add(entry);
       }
     } catch (RuntimeException e) {
-      // we have to catch runtime exception here because tmp above is an sftp class the implements iterable, and
+      // we have to catch runtime exception here because the iterable returned by readDir is an sftp class, and
       // it wraps all excetpions in a runtime exception for some reason.
       if(e.getCause() != null) {
         if(e.getCause() instanceof IOException) {
@@ -175,25 +262,24 @@ public class SSHDataClient implements ISSHDataClient
       throw new IOException(msg, e);
     }
 
-    // For each entry in the fileList received, get the fileInfo object
-    for (DirEntry entry: dirEntries)
+    List<DirEntry> pageEntries = new ArrayList<>(dirEntries);
+    pageEntries.sort(entryOrder);
+
+    // For each entry in the page, get the fileInfo object
+    List<FileInfo> filesList = new ArrayList<>();
+    for (DirEntry entry: pageEntries.subList((int) Math.min(startIdx, pageEntries.size()), pageEntries.size()))
     {
+      if (filesList.size() >= limit) break;
       // Get the file attributes
       Attributes attrs = entry.getAttributes();
       FileInfo fileInfo = new FileInfo();
-      // Ignore filename . and ..
-      if (entry.getFilename().equals(".") || entry.getFilename().equals(".."))
-      {
-        continue;
-      }
       Path entryPath = Paths.get(entry.getFilename());
       fileInfo.setName(entryPath.getFileName().toString());
       fileInfo.setLastModified(attrs.getModifyTime().toInstant());
       fileInfo.setSize(attrs.getSize());
 
       //Try to determine the Mimetype
-      Path tmpPath = Paths.get(entry.getFilename());
-      fileInfo.setMimeType(Files.probeContentType(tmpPath));
+      fileInfo.setMimeType(MimeTypes.getMimeType(entry.getFilename()));
       fileInfo.setType(getFileInfoType(attrs));
       fileInfo.setOwner(String.valueOf(attrs.getUserId()));
       fileInfo.setGroup(String.valueOf(attrs.getGroupId()));
@@ -214,25 +300,76 @@ public class SSHDataClient implements ISSHDataClient
       }
       filesList.add(fileInfo);
     }
-    filesList.sort(Comparator.comparing(FileInfo::getName, String.CASE_INSENSITIVE_ORDER));
+    return filesList;
+  }
+
+  /**
+   * Recursive listing produced by a single remote find command rather than one SFTP readDir per directory.
+   * Output of find is parsed as it arrives and passed to the consumer in batches, with each directory listed
+   *   before its contents. The consumer is never called concurrently.
+   * Entries are the same as those produced by walking the tree with ls: everything below path, down to
+   *   recursionLimit levels of sub-directories. Symbolic links are not followed, except for path itself.
+   * Returns false without listing anything if find cannot be used, for example if it does not support -printf,
+   *   in which case the caller should fall back to SFTP. Hosts where find is not usable are remembered.
+   * If find fails, or its output cannot be parsed, after some entries have been passed to the consumer an
+   *   IOException is thrown.
+   *
+   * @param path - Path to directory relative to the system rootDir
+   * @param recursionLimit - maximum depth for recursion, as in FileListingOpts
+   * @param consumer - receives batches of FileInfo objects
+   * @return true if the listing was produced, false if the caller should fall back to SFTP
+   * @throws IOException       Generally a network error, or find failed part way through
+   * @throws NotFoundException No file at target
+   */
+  public boolean lsRecursiveWithFind(@NotNull String path, int recursionLimit, @NotNull Consumer<List<FileInfo>> consumer)
+          throws IOException, NotFoundException
+  {
+    String opName = "lsRecursiveWithFind";
+    if (findUnsupportedHosts.contains(host)) return false;
+    // Get path relative to system rootDir and protect against ../..
+    String relPathStr = PathUtils.getRelativePath(path).toString();
+    String absolutePathStr = PathUtils.getAbsolutePath(rootDir, relPathStr).toString();
 
+    // Listing a single file is cheap over SFTP. Let ls handle that and the not found case.
+    FileInfo baseInfo = getFileInfo(relPathStr, true);
+    if (baseInfo == null || !baseInfo.isDir()) return false;
 
-    if(StringUtils.isBlank(pattern))  {
-      return filesList.stream().skip(startIdx).limit(limit).collect(Collectors.toList());
+    // Entries directly in path are at depth 1 for find. -H follows path itself if it is a link, as ls does.
+    int maxDepth = (recursionLimit >= Integer.MAX_VALUE - 1) ? Integer.MAX_VALUE : Math.max(recursionLimit, 0) + 1;
+    String cmdStr = "find -H " + safelySingleQuoteString(absolutePathStr) + " -mindepth 1 -maxdepth " + maxDepth +
+                    " -printf " + safelySingleQuoteString(FIND_PRINTF_FORMAT);
+    FindOutputParser stdOut = new FindOutputParser(rootDir, systemId, FIND_BATCH_SIZE, consumer);
+    ByteArrayOutputStream stdErr = new ByteArrayOutputStream();
+    int exitCode;
+    try (var sessionHolder = borrowAutoCloseableExecChannel(DEFAULT_SESSION_WAIT, true))
+    {
+      exitCode = sessionHolder.getSession().execute(cmdStr, stdOut, stdErr, false);
     }
+    catch (TapisException e)
+    {
+      String msg = LibUtils.getMsg("FILES_CLIENT_SSH_OP_ERR1", oboTenant, oboUser, opName, systemId, effectiveUserId, host, relPathStr, e.getMessage());
+      throw new IOException(msg, e);
+    }
+    stdOut.close();
 
-    final boolean isRegEx = (StringUtils.startsWithIgnoreCase(pattern, IRemoteDataClient.REGEX_PREFIX)) ? true : false;
-    final String patternOnly = isRegEx ? pattern.replaceFirst("(?i)regex:", "") : pattern;
-    final Pattern compiledPattern = isRegEx ? Pattern.compile(patternOnly) : null;
-
-    return filesList.stream().filter((fileInfo) -> {
-      if(isRegEx) {
-        return compiledPattern.matcher(fileInfo.getName()).find();
-      } else {
-        return FilenameUtils.wildcardMatch(fileInfo.getName(), patternOnly);
+    if (exitCode != 0 || stdOut.getMalformedCount() > 0)
+    {
+      String errStr = StringUtils.left(stdErr.toString(), MAX_STDERR_SIZE);
+      if (stdOut.getEntryCount() == 0)
+      {
+        // 127 is command not found. Older or non GNU versions of find reject -printf.
+        if (exitCode == 127 || errStr.contains("printf")) findUnsupportedHosts.add(host);
+        log.warn(LibUtils.getMsg("FILES_CLIENT_SSH_FIND_FALLBACK", oboTenant, oboUser, systemId, effectiveUserId, host,
+                                 relPathStr, exitCode, errStr));
+        return false;
       }
-
-    }).skip(startIdx).limit(limit).collect(Collectors.toList());
+      // Typically a sub-directory that could not be read. Some entries have already been passed on, so the
+      //   listing cannot be redone over SFTP. Fail as a walk over SFTP would.
+      String msg = LibUtils.getMsg("FILES_CLIENT_SSH_FIND_ERR", oboTenant, oboUser, systemId, effectiveUserId, host,
+                                   relPathStr, exitCode, errStr, stdOut.getEntryCount(), stdOut.getMalformedCount());
+      throw new IOException(msg);
+    }
+    return true;
   }
 
   /**
@@ -245,7 +382,16 @@ public class SSHDataClient implements ISSHDataClient
   @Override
   public void mkdir(@NotNull String path) throws IOException, BadRequestException
   {
-    path = FilenameUtils.normalize(path);
+    mkdir(FilenameUtils.normalize(path), true);
+  }
+
+  /*
+   * Create the directory at path and any missing parents. The directory itself is always checked or created.
+   *   With useKnown, parents found in the known directory cache are taken to exist. If one of them turns out to be
+   *   gone, its entries are dropped and the path is walked again without the cache.
+   */
+  private void mkdir(String path, boolean useKnown) throws IOException, BadRequestException
+  {
     Path remote = Paths.get(rootDir, path);
     Path rootDirPath = Paths.get(rootDir);
     Path relativePath = rootDirPath.relativize(remote);
@@ -253,17 +399,28 @@ public class SSHDataClient implements ISSHDataClient
     // Walk the path parts creating directories as we go
     Path tmpPath = Paths.get(rootDir);
     StringBuilder partRelativePathSB = new StringBuilder();
+    int partsLeft = relativePath.getNameCount();
+    String firstSkippedPathStr = null;
     for (Path part : relativePath)
     {
       tmpPath = tmpPath.resolve(part);
       String tmpPathStr = tmpPath.toString();
       partRelativePathSB.append(part).append('/');
+      if (--partsLeft > 0 && useKnown && knownDirectories.isKnown(dirCacheServer, effectiveUserId, tmpPathStr))
+      {
+        if (firstSkippedPathStr == null) firstSkippedPathStr = tmpPathStr;
+        continue;
+      }
       // Do a stat to see if path already exists and is a dir or a file.
       // If it does not exist or exists and is a directory then all is good, if it exists and is a file it is an error
       try
       {
         FileStatInfo statInfo = getStatInfo(partRelativePathSB.toString(), true);
-        if (statInfo.isDir()) continue;
+        if (statInfo.isDir())
+        {
+          knownDirectories.add(dirCacheServer, effectiveUserId, tmpPathStr);
+          continue;
+        }
         else
         {
           String msg = LibUtils.getMsg("FILES_CLIENT_SSH_MKDIR_FILE", oboTenant, oboUser, systemId,
@@ -276,12 +433,20 @@ public class SSHDataClient implements ISSHDataClient
       // Get the sftpClient so we can perform operations
       try(var sessionHolder = borrowAutoCloseableSftpClient(DEFAULT_SESSION_WAIT, true)) {
         sessionHolder.getSession().mkdir(tmpPathStr);
+        knownDirectories.add(dirCacheServer, effectiveUserId, tmpPathStr);
       } catch (SftpException e) {
+        // A parent we skipped was removed behind our back
+        if (firstSkippedPathStr != null && e.getStatus() == SftpConstants.SSH_FX_NO_SUCH_FILE) {
+          knownDirectories.invalidatePath(dirCacheServer, firstSkippedPathStr);
+          mkdir(path, false);
+          return;
+        }
         try (var sessionHolder = borrowAutoCloseableSftpClient(DEFAULT_SESSION_WAIT, true)) {
           // Caught an exception.  If we look and see a directory there, it most likely means it was create
           // by another thread.  That's fine.  It's been created, so we will call it a success.
           FileInfo fileInfo = getFileInfo(path, true);
           if((fileInfo != null) && (fileInfo.isDir())) {
+            knownDirectories.add(dirCacheServer, effectiveUserId, remotePathStr);
             return;
           }
         } catch (Exception ex) {
@@ -337,6 +502,7 @@ public class SSHDataClient implements ISSHDataClient
 
     //This will throw a NotFoundException if source is not there
     ls(relOldPathStr);
+    knownDirectories.invalidatePath(dirCacheServer, absoluteOldPath.toString());
 
 
     // Construct and run linux commands to create the target dir and do the copy
@@ -455,6 +621,7 @@ public class SSHDataClient implements ISSHDataClient
   {
     // Get path relative to system rootDir and protect against ../..
     String relativePathStr = PathUtils.getRelativePath(path).toString();
+    knownDirectories.invalidatePath(dirCacheServer, PathUtils.getAbsolutePath(rootDir, relativePathStr).toString());
     try {
       recursiveDelete(relativePathStr);
     } catch (IOException e) {
@@ -478,6 +645,48 @@ public class SSHDataClient implements ISSHDataClient
     }
   }
 
+  /**
+   * Get info for several paths using one SFTP session, with several stat requests in flight at once.
+   *
+   * @param paths - Paths to files or directories relative to the system rootDir
+   * @return one entry per path, null for paths that do not exist or may not be looked up
+   * @throws IOException if any other lookup fails, generally a network error
+   */
+  @Override
+  public List<FileInfo> getFileInfos(@NotNull List<String> paths, boolean followLinks) throws IOException
+  {
+    FileInfo[] fileInfos = new FileInfo[paths.size()];
+    if (paths.isEmpty()) return new ArrayList<>();
+    try (var sessionHolder = borrowAutoCloseableSftpClient(DEFAULT_SESSION_WAIT, true)) {
+      SSHSftpClient sftpClient = sessionHolder.getSession();
+      AtomicInteger next = new AtomicInteger();
+      AtomicBoolean failed = new AtomicBoolean();
+      Callable<Void> statTask = () -> {
+        int idx;
+        while (!failed.get() && (idx = next.getAndIncrement()) < paths.size()) {
+          try {
+            fileInfos[idx] = getFileInfo(sftpClient, paths.get(idx), followLinks);
+          } catch (SftpException e) {
+            // Only this path is affected, e.g. a link to a path we may not read. Anything else, such as a dropped
+            //   session, fails the remaining lookups as well.
+            if (e.getStatus() != SftpConstants.SSH_FX_NO_SUCH_FILE &&
+                e.getStatus() != SftpConstants.SSH_FX_PERMISSION_DENIED) {
+              failed.set(true);
+              throw e;
+            }
+            log.warn("Could not get file info for path:" + paths.get(idx) + " " + e.getMessage());
+          } catch (IOException | RuntimeException e) {
+            failed.set(true);
+            throw e;
+          }
+        }
+        return null;
+      };
+      runConcurrently(statTask, statTask, Math.min(MAX_STATS_IN_FLIGHT, paths.size()) - 1, failed);
+    }
+    return new ArrayList<>(Arrays.asList(fileInfos));
+  }
+
   /**
    * Stream data from file using sftpClient
    *
@@ -494,7 +703,9 @@ public class SSHDataClient implements ISSHDataClient
     try
     {
       sftpClient = borrowAutoCloseableSftpClient(DEFAULT_SESSION_WAIT, true);
-      InputStream inputStream = sftpClient.getSession().read(absPath.toString());
+      InputStream inputStream = (DOWNLOAD_READ_AHEAD > 1)
+              ? openReadAhead(sftpClient.getSession(), absPath.toString(), DOWNLOAD_CHUNK_SIZE, DOWNLOAD_READ_AHEAD)
+              : sftpClient.getSession().read(absPath.toString());
       // TapisSSHInputStream closes the sftp connection after reading completes
       return new TapisSSHInputStream(inputStream, sftpClient);
     } catch (IOException e) {
@@ -524,6 +735,22 @@ public class SSHDataClient implements ISSHDataClient
     }
   }
 
+  /*
+   * Open a remote file for reading with several SFTP read requests in flight ahead of the consumer, see
+   *   ParallelRangeInputStream. The SFTP input stream sends one read request at a time, so its throughput is capped
+   *   at one packet per round trip. All reads go over the one SFTP client passed in. Closing the stream closes the
+   *   remote file, but not the SFTP client.
+   */
+  static InputStream openReadAhead(SSHSftpClient sftpClient, String absolutePath, int chunkSize, int readAhead)
+          throws IOException
+  {
+    Handle handle = sftpClient.open(absolutePath, EnumSet.of(OpenMode.Read));
+    return new ParallelRangeInputStream((offset, buffer, bufferOffset, count) ->
+                                                sftpClient.read(handle, offset, buffer, bufferOffset, count),
+                                        0, ParallelRangeInputStream.UNKNOWN_END, chunkSize, readAhead,
+                                        requestExecutor, () -> sftpClient.close(handle));
+  }
+
   @Override
   public InputStream getBytesByRange(@NotNull String path, long startByte, long count) throws IOException
   {
@@ -660,87 +887,280 @@ public class SSHDataClient implements ISSHDataClient
     Path absolutePath = Paths.get(rootDir, path).normalize();
     Path relativeRemotePath = Paths.get(StringUtils.stripStart(path, "/")).normalize();
     Path parentPath = relativeRemotePath.getParent();
-    if (parentPath != null) {
-      mkdir(parentPath.toString());
-    }
 
-    SshSessionPool.PooledSshSession<SSHSftpClient> sessionHolder = null;
-    OutputStream outputStream = null;
-    try {
-      sessionHolder = borrowAutoCloseableSftpClient(DEFAULT_SESSION_WAIT, true);
-      outputStream = sessionHolder.getSession().write(absolutePath.toString());
-      fileStream.transferTo(outputStream);
-      outputStream.flush();
+    try (var sessionHolder = borrowAutoCloseableSftpClient(DEFAULT_SESSION_WAIT, true)) {
+      SSHSftpClient sftpClient = sessionHolder.getSession();
+      // Assume the parent directory exists and only create it if the file cannot be opened because it does not.
+      //   The file is opened before anything is read from the stream, so the write can be retried.
+      try {
+        writeFile(sftpClient, absolutePath.toString(), fileStream);
+      } catch (SftpException e) {
+        if (parentPath == null || e.getStatus() != SftpConstants.SSH_FX_NO_SUCH_FILE) throw e;
+        // If we thought the parent existed it was removed behind our back. Anything we know about may be stale.
+        if (knownDirectories.isKnown(dirCacheServer, effectiveUserId, absolutePath.getParent().toString())) {
+          knownDirectories.invalidatePath(dirCacheServer, rootDir);
+        }
+        mkdir(parentPath.toString());
+        writeFile(sftpClient, absolutePath.toString(), fileStream);
+      }
+      if (parentPath != null) knownDirectories.add(dirCacheServer, effectiveUserId, absolutePath.getParent().toString());
     } catch (IOException ex) {
       handleSftpException(ex, "createFile", path);
       String msg = LibUtils.getMsg("FILES_CLIENT_SSH_OP_ERR1", oboTenant, oboUser, "insertOrAppend", systemId, effectiveUserId, host, path, ex.getMessage());
       throw new IOException(msg, ex);
-    } finally {
-      outputStream.close();
-      sessionHolder.close();
+    }
+  }
+
+  /*
+   * Create or truncate a remote file and write the stream to it. The file is opened before the stream is read.
+   */
+  private void writeFile(SSHSftpClient sftpClient, String absolutePathStr, InputStream fileStream) throws IOException
+  {
+    if (UPLOAD_MAX_WRITES_IN_FLIGHT > 1) {
+      new SftpPipelinedWriter(sftpClient, UPLOAD_PACKET_SIZE, UPLOAD_MAX_WRITES_IN_FLIGHT).write(absolutePathStr, fileStream);
+    } else {
+      try (OutputStream outputStream = sftpClient.write(absolutePathStr)) {
+        fileStream.transferTo(outputStream);
+        outputStream.flush();
+      }
     }
   }
 
   /**
-   * Recursive method to delete a file or files in a directory using the provided sftpClient
-   * @param relPathStr path
+   * Delete a file or a directory tree.
+   * The whole operation uses one SFTP session for reading directories plus, for large directories, a few more
+   *   sessions so that several remove requests are in flight at once. Sessions are borrowed once, not once per entry.
+   * The tree is deleted depth first as it is read, so only the directories on the current path are held in memory.
+   *   Each directory is read in full and its files and links removed, then its sub-directories are deleted in name
+   *   order, then the directory itself. A special file causes the delete to be rejected before anything in its
+   *   directory is removed. Anything deleted before an error stays deleted.
+   * If enabled, a directory is instead removed with a single "rm -rf". SFTP is used if rm fails.
+   * The rootDir itself is never removed, only its contents.
+   *
+   * @param relPathStr path relative to system rootDir
    * @throws IOException On error
    */
   private void recursiveDelete(String relPathStr) throws IOException, NotSupportedException
   {
     String opName = "recursiveDelete";
     String absolutePathStr = PathUtils.getAbsolutePath(rootDir, relPathStr).toString();
+    boolean isRootDir = absolutePathStr.equals(rootDir);
+
+    try (var sessionHolder = borrowAutoCloseableSftpClient(DEFAULT_SESSION_WAIT, true))
+    {
+      SSHSftpClient sftpClient = sessionHolder.getSession();
+      Attributes attributes = sftpClient.lstat(absolutePathStr);
+      if (!attributes.isDirectory())
+      {
+        if (!attributes.isRegularFile() && !attributes.isSymbolicLink())
+        {
+          throw new NotSupportedException(LibUtils.getMsg("FILES_CLIENT_SPECIAL_FILE", oboTenant, oboUser, systemId,
+                  effectiveUserId, host, absolutePathStr, getFileInfoType(attributes), opName));
+        }
+        if (!isRootDir) sftpClient.remove(absolutePathStr);
+        return;
+      }
+
+      if (!isRootDir && USE_RM_FOR_DELETE && deleteWithRm(relPathStr, absolutePathStr)) return;
 
-    //Get list of all files at the path
-    List<FileInfo> files = ls(relPathStr);
-    FileInfo fileInfo = getFileInfo(relPathStr, false);
-
-    if(fileInfo.isDir()) {
-      // For each file/directory do a delete
-      for (FileInfo entry : files) {
-        // If it is a directory (other than . or ..) then recursively delete
-        if ((!entry.getName().equals(".")) && (!entry.getName().equals("..")) && (entry.isDir())) {
-          // Get a normalized path for the directory
-          Path tmpPath = Paths.get(relPathStr, entry.getName()).normalize();
-          recursiveDelete(tmpPath.toString());
-        } else {
-          // It is a file or link, use sftpClient to delete (this will not delete the file if the
-          // type is "other" - but that's what we want
-          Path tmpPath = PathUtils.getAbsolutePath(rootDir, entry.getPath());
-          if (entry.isFile() || entry.isSymLink()) {
-            try(var autoCloseableSftpClient = borrowAutoCloseableSftpClient(DEFAULT_SESSION_WAIT, true)) {
-              var sftpClient = autoCloseableSftpClient.getSession();
-              sftpClient.remove(tmpPath.toString());
+      // Directories on the path from the top of the tree to the one being deleted, each with the
+      //   sub-directories still to be deleted.
+      Deque<DeleteFrame> stack = new ArrayDeque<>();
+      stack.push(new DeleteFrame(absolutePathStr));
+      while (!stack.isEmpty())
+      {
+        DeleteFrame frame = stack.peek();
+        if (frame.subDirs == null)
+        {
+          // First visit. Remove files and links, remember sub-directories.
+          List<String> files = new ArrayList<>();
+          List<String> subDirs = new ArrayList<>();
+          for (DirEntry entry : readDir(sftpClient, frame.path))
+          {
+            String entryPath = Paths.get(frame.path, entry.getFilename()).toString();
+            Attributes entryAttrs = entry.getAttributes();
+            if (entryAttrs.isDirectory())
+            {
+              subDirs.add(entryPath);
+            }
+            else if (entryAttrs.isRegularFile() || entryAttrs.isSymbolicLink())
+            {
+              files.add(entryPath);
+            }
+            else
+            {
+              String msg = LibUtils.getMsg("FILES_CLIENT_SPECIAL_FILE", oboTenant, oboUser, systemId, effectiveUserId,
+                      host, entryPath, getFileInfoType(entryAttrs), opName);
+              log.error(msg);
+              throw new NotSupportedException(msg);
             }
-          } else {
-            String msg = LibUtils.getMsg("FILES_CLIENT_SPECIAL_FILE",
-                    oboTenant, oboUser, systemId, effectiveUserId, host, absolutePathStr, entry.getType(), opName);
-            log.error(msg);
-            throw new NotSupportedException(msg);
           }
+          removeAll(sftpClient, files);
+          subDirs.sort(Comparator.naturalOrder());
+          frame.subDirs = subDirs.iterator();
+        }
+        if (frame.subDirs.hasNext())
+        {
+          stack.push(new DeleteFrame(frame.subDirs.next()));
+        }
+        else
+        {
+          // Everything under it is gone
+          stack.pop();
+          if (!(isRootDir && stack.isEmpty())) sftpClient.rmdir(frame.path);
         }
       }
     }
-    // If we were working on a directory and it was not rootDir then remove the directory entry
-    if (!absolutePathStr.equals(rootDir))
+  }
+
+  /*
+   * Read a directory, skipping . and ..
+   * The iterable returned by readDir wraps errors in runtime exceptions, unwrap them here.
+   */
+  private List<DirEntry> readDir(SSHSftpClient sftpClient, String absolutePathStr) throws IOException
+  {
+    List<DirEntry> entries = new ArrayList<>();
+    try
     {
-      if(fileInfo.isDir()) {
-        try(var autoCloseableSftpClient = borrowAutoCloseableSftpClient(DEFAULT_SESSION_WAIT, true)) {
-          var sftpClient = autoCloseableSftpClient.getSession();
-          sftpClient.rmdir(absolutePathStr);
-        }
-      } else if (fileInfo.isFile() || fileInfo.isSymLink()) {
-        try(var autoCloseableSftpClient = borrowAutoCloseableSftpClient(DEFAULT_SESSION_WAIT, true)) {
-          var sftpClient = autoCloseableSftpClient.getSession();
-          sftpClient.remove(absolutePathStr);
-        }
-      } else {
-        throw new NotSupportedException(LibUtils.getMsg("FILES_CLIENT_SPECIAL_FILE",
-                oboTenant, oboUser, systemId, effectiveUserId, host, absolutePathStr, fileInfo.getType(), opName));
+      for (DirEntry entry : sftpClient.readDir(absolutePathStr))
+      {
+        if (entry.getFilename().equals(".") || entry.getFilename().equals("..")) continue;
+        entries.add(entry);
+      }
+    }
+    catch (RuntimeException e)
+    {
+      if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+      throw e;
+    }
+    return entries;
+  }
+
+  /*
+   * Remove a list of files and links.
+   * Entries are handed out one at a time to the given session, on the calling thread, and to additional sessions
+   *   running on the request executor, so up to DELETE_MAX_SESSIONS requests are in flight. Additional sessions
+   *   are only used for large batches and only if they can be borrowed quickly. On error no new removes are
+   *   started and the first error is thrown once all sessions are done.
+   */
+  private void removeAll(SSHSftpClient sftpClient, List<String> absolutePaths) throws IOException
+  {
+    if (absolutePaths.isEmpty()) return;
+    AtomicInteger next = new AtomicInteger();
+    AtomicBoolean failed = new AtomicBoolean();
+    int extraSessions = Math.min(DELETE_MAX_SESSIONS, absolutePaths.size() / DELETE_ENTRIES_PER_SESSION) - 1;
+    Callable<Void> extraSessionTask = () -> {
+      SshSessionPool.PooledSshSession<SSHSftpClient> extraHolder;
+      try
+      {
+        extraHolder = borrowAutoCloseableSftpClient(DELETE_EXTRA_SESSION_WAIT, false);
+      }
+      catch (IOException | RuntimeException e)
+      {
+        // The session we already hold is enough to finish the job
+        log.debug("Could not borrow additional session for delete: " + e.getMessage());
+        return null;
+      }
+      try (extraHolder)
+      {
+        removeEntries(extraHolder.getSession(), absolutePaths, next, failed);
+      }
+      return null;
+    };
+    runConcurrently(() -> { removeEntries(sftpClient, absolutePaths, next, failed); return null; },
+                    extraSessionTask, extraSessions, failed);
+  }
+
+  /*
+   * Run a task on the calling thread and copies of another task on the request executor, then wait for all of
+   *   them. Tasks are expected to share out their work and to stop when failed is set.
+   *   The first error is thrown once all tasks are done.
+   */
+  private static void runConcurrently(Callable<Void> task, Callable<Void> extraTask, int extraCopies,
+                                      AtomicBoolean failed) throws IOException
+  {
+    List<Future<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < extraCopies; i++) futures.add(requestExecutor.submit(extraTask));
+
+    Exception failure = null;
+    try
+    {
+      task.call();
+    }
+    catch (Exception e)
+    {
+      failed.set(true);
+      failure = e;
+    }
+    for (Future<Void> future : futures)
+    {
+      try
+      {
+        future.get();
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+        failed.set(true);
+        if (failure == null) failure = new InterruptedIOException(e.getMessage());
+      }
+      catch (ExecutionException e)
+      {
+        failed.set(true);
+        if (failure == null) failure = (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+      }
+    }
+    if (failure instanceof IOException) throw (IOException) failure;
+    if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+    if (failure != null) throw new IOException(failure);
+  }
+
+  private static void removeEntries(SSHSftpClient sftpClient, List<String> absolutePaths, AtomicInteger next,
+                                    AtomicBoolean failed) throws IOException
+  {
+    int idx;
+    while (!failed.get() && (idx = next.getAndIncrement()) < absolutePaths.size())
+    {
+      try
+      {
+        sftpClient.remove(absolutePaths.get(idx));
+      }
+      catch (IOException | RuntimeException e)
+      {
+        failed.set(true);
+        throw e;
       }
     }
   }
 
+  /*
+   * Remove a directory tree with a single rm command.
+   * Returns false if rm failed, in which case the caller should fall back to SFTP to find out what went wrong.
+   */
+  private boolean deleteWithRm(String relPathStr, String absolutePathStr) throws IOException
+  {
+    String cmdStr = "rm -rf -- " + safelySingleQuoteString(absolutePathStr);
+    ByteArrayOutputStream stdOut = new ByteArrayOutputStream();
+    ByteArrayOutputStream stdErr = new ByteArrayOutputStream();
+    int exitCode;
+    try (var sessionHolder = borrowAutoCloseableExecChannel(DEFAULT_SESSION_WAIT, true))
+    {
+      exitCode = sessionHolder.getSession().execute(cmdStr, stdOut, stdErr, false);
+    }
+    catch (TapisException e)
+    {
+      String msg = LibUtils.getMsg("FILES_CLIENT_SSH_OP_ERR1", oboTenant, oboUser, "deleteWithRm", systemId, effectiveUserId, host, relPathStr, e.getMessage());
+      throw new IOException(msg, e);
+    }
+    if (exitCode != 0)
+    {
+      log.warn(LibUtils.getMsg("FILES_CLIENT_SSH_RM_FALLBACK", oboTenant, oboUser, systemId, effectiveUserId, host,
+                               relPathStr, exitCode, StringUtils.left(stdErr.toString(), MAX_STDERR_SIZE)));
+      return false;
+    }
+    return true;
+  }
+
   /**
    * Run one of the linux change operations: chmod, chown, chgrp
    *
@@ -819,8 +1239,7 @@ public class SSHDataClient implements ISSHDataClient
       fileInfo.setNativePermissions(FileStatInfo.getPermsFromInt(attributes.getPermissions()));
 
       //Try to determine the Mimetype
-      Path tmpPath = Paths.get(entry.getFilename());
-      fileInfo.setMimeType(Files.probeContentType(tmpPath));
+      fileInfo.setMimeType(MimeTypes.getMimeType(entry.getFilename()));
 
       //Path should be relative to rootDir
       // TODO: Add more comments as to exactly why this is needed and what is going on.
@@ -972,6 +1391,12 @@ public class SSHDataClient implements ISSHDataClient
     }
   }
 
+  // Name used for ordering and filtering a listing entry.  Entries for a single file carry the full relative path.
+  private static String getEntryName(DirEntry entry) {
+    Path fileName = Paths.get(entry.getFilename()).getFileName();
+    return fileName == null ? entry.getFilename() : fileName.toString();
+  }
+
   // retryOnFail - if this is set to true and the call to borrow a session fails with a tapis recoverable exception, the
   //               code will invalidate the system cache for that system, and try again (re-obtaining the system credentials).
   //               If the second try fails, the method will throw an IOException.  This behavior should help with caching
@@ -1075,4 +1500,15 @@ public class SSHDataClient implements ISSHDataClient
     return system;
   }
 
+  /*
+   * A directory being deleted by recursiveDelete
+   */
+  private static class DeleteFrame
+  {
+    final String path;
+    // Sub-directories not yet deleted. Null until the directory has been read.
+    Iterator<String> subDirs;
+
+    DeleteFrame(String path) { this.path = path; }
+  }
 }
@@ -0,0 +1,178 @@
+package edu.utexas.tacc.tapis.files.lib.clients;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.EnumSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.sshd.sftp.client.SftpClient.Handle;
+import org.apache.sshd.sftp.client.SftpClient.OpenMode;
+
+import edu.utexas.tacc.tapis.shared.ssh.apache.SSHSftpClient;
+
+/*
+ * Writes a stream to a remote file with several SFTP write requests in flight.
+ *
+ * Writing through the SFTP output stream waits for each write to be acknowledged before sending the next, so
+ *   throughput is capped at one packet per round trip. Here the source is read into a fixed ring of buffers and
+ *   each full buffer is sent as a write at its own offset on a pool thread, without waiting for earlier writes.
+ *   Once all buffers are in flight the reader waits for one to be acknowledged and reuses it.
+ * All writes go over the one SFTP client passed in. The first failed write stops the upload, and the error is
+ *   thrown once all outstanding writes have completed.
+ */
+class SftpPipelinedWriter
+{
+  private static final EnumSet<OpenMode> WRITE_MODES = EnumSet.of(OpenMode.Write, OpenMode.Create, OpenMode.Truncate);
+
+  // Threads waiting on write acknowledgements. Shared with the other SFTP helpers.
+  private static final ExecutorService executor = SftpRequestExecutor.get();
+
+  private final SSHSftpClient sftpClient;
+  private final int packetSize;
+  private final int maxWritesInFlight;
+
+  /**
+   * @param sftpClient - client used for all requests
+   * @param packetSize - bytes sent in each write request
+   * @param maxWritesInFlight - max write requests waiting for acknowledgement
+   */
+  SftpPipelinedWriter(SSHSftpClient sftpClient, int packetSize, int maxWritesInFlight)
+  {
+    this.sftpClient = sftpClient;
+    this.packetSize = Math.max(1, packetSize);
+    this.maxWritesInFlight = Math.max(1, maxWritesInFlight);
+  }
+
+  /**
+   * Create or truncate the remote file and write the whole stream to it.
+   *
+   * @param absolutePath - absolute path of remote file
+   * @param source - data to write, read until end of stream but not closed
+   * @return number of bytes written
+   * @throws IOException on error reading the source or writing the file
+   */
+  long write(String absolutePath, InputStream source) throws IOException
+  {
+    Handle handle = sftpClient.open(absolutePath, WRITE_MODES);
+    try
+    {
+      return write(handle, source);
+    }
+    finally
+    {
+      sftpClient.close(handle);
+    }
+  }
+
+  private long write(Handle handle, InputStream source) throws IOException
+  {
+    BlockingQueue<byte[]> freeBuffers = new ArrayBlockingQueue<>(maxWritesInFlight);
+    for (int i = 0; i < maxWritesInFlight; i++) freeBuffers.add(new byte[packetSize]);
+    AtomicReference<Exception> failure = new AtomicReference<>();
+    long offset = 0;
+    IOException readFailure = null;
+    boolean interrupted = false;
+    try
+    {
+      while (failure.get() == null)
+      {
+        byte[] buffer = freeBuffers.take();
+        int count;
+        try
+        {
+          count = readFully(source, buffer);
+        }
+        catch (IOException e)
+        {
+          freeBuffers.add(buffer);
+          throw e;
+        }
+        if (count <= 0)
+        {
+          freeBuffers.add(buffer);
+          break;
+        }
+        long writeOffset = offset;
+        offset += count;
+        executor.execute(() -> {
+          try
+          {
+            if (failure.get() == null) sftpClient.write(handle, writeOffset, buffer, 0, count);
+          }
+          catch (IOException | RuntimeException e)
+          {
+            failure.compareAndSet(null, e);
+          }
+          finally
+          {
+            freeBuffers.add(buffer);
+          }
+        });
+        // A short read means the end of the stream was reached
+        if (count < buffer.length) break;
+      }
+    }
+    catch (IOException e)
+    {
+      readFailure = e;
+    }
+    catch (InterruptedException e)
+    {
+      interrupted = true;
+    }
+    finally
+    {
+      // Every buffer comes back once its write completes. The handle must not be closed before then.
+      interrupted |= awaitAllBuffers(freeBuffers);
+      if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    if (readFailure != null) throw readFailure;
+    if (interrupted) throw new InterruptedIOException("Interrupted while writing to remote file");
+    Exception writeFailure = failure.get();
+    if (writeFailure instanceof IOException) throw (IOException) writeFailure;
+    if (writeFailure != null) throw (RuntimeException) writeFailure;
+    return offset;
+  }
+
+  /*
+   * Wait until all buffers are back in the queue. Returns true if the thread was interrupted while waiting.
+   */
+  private boolean awaitAllBuffers(BlockingQueue<byte[]> freeBuffers)
+  {
+    boolean interrupted = false;
+    int count = 0;
+    while (count < maxWritesInFlight)
+    {
+      try
+      {
+        freeBuffers.take();
+        count++;
+      }
+      catch (InterruptedException e)
+      {
+        interrupted = true;
+      }
+    }
+    return interrupted;
+  }
+
+  /*
+   * Fill the buffer from the stream. Returns fewer bytes than the buffer size only at end of stream.
+   */
+  private static int readFully(InputStream source, byte[] buffer) throws IOException
+  {
+    int total = 0;
+    while (total < buffer.length)
+    {
+      int count = source.read(buffer, total, buffer.length - total);
+      if (count < 0) break;
+      total += count;
+    }
+    return total;
+  }
+}
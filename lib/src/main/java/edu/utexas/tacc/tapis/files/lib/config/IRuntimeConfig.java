@@ -30,6 +30,37 @@ public interface IRuntimeConfig {
     int getSshPoolWorkerMaxSessionsPerConnection();
     int getSshPoolWorkerMaxSessionLifetimeMillis();
     int getMaxTransferCount();
+    int getListingThreadPoolSize();
+    int getListingMaxConcurrencyPerHost();
+    int getListingCacheSize();
+    int getListingCacheTtlSeconds();
+    int getSshDeleteMaxSessions();
+    boolean isSshDeleteUseRm();
+    int getSshUploadPacketSize();
+    int getSshUploadMaxWritesInFlight();
+    int getSshRequestThreads();
+    int getSshDownloadChunkSize();
+    int getSshDownloadReadAhead();
+    int getReadAheadBufferMB();
+    int getRangeReadThreads();
+    int getSshKnownDirCacheSize();
+    int getSshKnownDirCacheTtlSeconds();
+    int getS3DownloadParallelism();
+    int getS3RequestThreads();
+    String getS3CrtSystems();
+    int getS3CrtTargetThroughputGbps();
+    int getS3CrtPartSizeMB();
+    int getIrodsPoolMaxIdlePerKey();
+    int getIrodsPoolIdleSeconds();
+    int getIrodsPoolMaxLifetimeSeconds();
+    int getIrodsParallelThresholdMB();
+    int getIrodsParallelThreads();
+    int getHttpConnectTimeoutSeconds();
+    int getHttpReadTimeoutSeconds();
+    int getHttpMaxIdleConnections();
+    int getHttpHeadTimeoutSeconds();
+    int getHttpParallelThresholdMB();
+    int getHttpParallelConnections();
     public int getGrizzlyPoolCoreSize();
     public int getGrizzlyPoolMaxSize();
     public String getTapisDebugSystemServicePath();
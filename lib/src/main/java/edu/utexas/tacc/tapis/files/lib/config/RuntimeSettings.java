@@ -25,7 +25,7 @@ public class RuntimeSettings {
         protected String globusClientId = settings.get("TAPIS_GLOBUS_CLIENT_ID", "");
         protected final int parentThreadPoolSize = getIntSetting("PARENT_THREAD_POOL_SIZE", 8);
         protected final int childThreadPoolSize = getIntSetting("CHILD_THREAD_POOL_SIZE", 50);
-        // How often to poll when monitoring an asynchronous transfer. Default is 120 seconds.
+        // Longest interval between polls when monitoring an asynchronous transfer. Default is 120 seconds.
         protected final int asyncTransferPollSeconds = getIntSetting("ASYNC_TRANSFER_POLL_SECONDS", 120);
         protected final int postItsReaperIntervalMinutes = getIntSetting("POSTITS_REAPER_INTERVAL_MINUTES", 1440);
         protected final int dbConnectionPoolCoreSize = getIntSetting("TAPIS_DB_CONNECTION_POOL_CORE_SIZE", 15);
@@ -41,6 +41,54 @@ public class RuntimeSettings {
         protected final int grizzlyPoolMaxSize = getIntSetting("TAPIS_DB_CONNECTION_POOL_SIZE", 50);
         protected final String tapisDebugSystemServicePath = settings.get("TAPIS_DEBUG_SYSTEM_SERVICE_PATH", null);
         protected final int maxTransferCount = getIntSetting("MAX_TRANSFER_COUNT", 10000);
+        // Threads shared by all recursive listings, and max directory reads in flight against one host
+        protected final int listingThreadPoolSize = getIntSetting("TAPIS_LISTING_THREAD_POOL_SIZE", 16);
+        protected final int listingMaxConcurrencyPerHost = getIntSetting("TAPIS_LISTING_MAX_CONCURRENCY_PER_HOST", 4);
+        // Directory listing cache. Disabled when size is 0.
+        protected final int listingCacheSize = getIntSetting("TAPIS_LISTING_CACHE_SIZE", 0);
+        protected final int listingCacheTtlSeconds = getIntSetting("TAPIS_LISTING_CACHE_TTL_SECONDS", 60);
+        // Deletes on SSH systems
+        protected final int sshDeleteMaxSessions = getIntSetting("TAPIS_SSH_DELETE_MAX_SESSIONS", 4);
+        protected final boolean sshDeleteUseRm = getBooleanSetting("TAPIS_SSH_DELETE_USE_RM", false);
+        // Uploads to SSH systems: bytes per SFTP write and max writes awaiting acknowledgement
+        protected final int sshUploadPacketSize = getIntSetting("TAPIS_SSH_UPLOAD_PACKET_SIZE", 32768);
+        protected final int sshUploadMaxWritesInFlight = getIntSetting("TAPIS_SSH_UPLOAD_MAX_WRITES_IN_FLIGHT", 16);
+        // Downloads from SSH systems: bytes per SFTP read and max reads issued ahead of the consumer
+        protected final int sshDownloadChunkSize = getIntSetting("TAPIS_SSH_DOWNLOAD_CHUNK_SIZE", 32768);
+        protected final int sshDownloadReadAhead = getIntSetting("TAPIS_SSH_DOWNLOAD_READ_AHEAD", 16);
+        // Threads shared by SFTP uploads, downloads and deletes for requests issued in parallel
+        protected final int sshRequestThreads = getIntSetting("TAPIS_SSH_REQUEST_THREADS", 64);
+        // Ranged downloads (S3, HTTP, iRODS, SFTP read ahead): MB of part buffers shared by all downloads, and threads
+        // for the clients without a pool of their own
+        protected final int readAheadBufferMB = getIntSetting("TAPIS_READ_AHEAD_BUFFER_MB", 512);
+        protected final int rangeReadThreads = getIntSetting("TAPIS_RANGE_READ_THREADS", 64);
+        // Directories known to exist on SSH systems. Disabled when size is 0.
+        protected final int sshKnownDirCacheSize = getIntSetting("TAPIS_SSH_KNOWN_DIR_CACHE_SIZE", 100000);
+        protected final int sshKnownDirCacheTtlSeconds = getIntSetting("TAPIS_SSH_KNOWN_DIR_CACHE_TTL_SECONDS", 300);
+        // Downloads from S3 systems: max ranged requests in flight per object. 1 disables ranged downloads.
+        protected final int s3DownloadParallelism = getIntSetting("TAPIS_S3_DOWNLOAD_PARALLELISM", 4);
+        // Threads shared by S3 lookups, deletes and downloads for requests issued in parallel
+        protected final int s3RequestThreads = getIntSetting("TAPIS_S3_REQUEST_THREADS", 64);
+        // S3 systems using the CRT based client: comma separated system ids, or * for all. Target throughput and part size.
+        protected final String s3CrtSystems = settings.get("TAPIS_S3_CRT_SYSTEMS", "");
+        protected final int s3CrtTargetThroughputGbps = getIntSetting("TAPIS_S3_CRT_TARGET_GBPS", 10);
+        protected final int s3CrtPartSizeMB = getIntSetting("TAPIS_S3_CRT_PART_SIZE_MB", 8);
+        // Authenticated iRODS connections kept for reuse. Disabled when max idle is 0.
+        protected final int irodsPoolMaxIdlePerKey = getIntSetting("TAPIS_IRODS_POOL_MAX_IDLE_PER_KEY", 8);
+        protected final int irodsPoolIdleSeconds = getIntSetting("TAPIS_IRODS_POOL_IDLE_SECONDS", 60);
+        protected final int irodsPoolMaxLifetimeSeconds = getIntSetting("TAPIS_IRODS_POOL_MAX_LIFETIME_SECONDS", 600);
+        // Downloads of files at least this large from iRODS use parallel ranged reads. Disabled when threads is 1.
+        protected final int irodsParallelThresholdMB = getIntSetting("TAPIS_IRODS_PARALLEL_THRESHOLD_MB", 64);
+        protected final int irodsParallelThreads = getIntSetting("TAPIS_IRODS_PARALLEL_THREADS", 4);
+        // Shared client used for transfers from http/https sources
+        protected final int httpConnectTimeoutSeconds = getIntSetting("TAPIS_HTTP_CONNECT_TIMEOUT_SECONDS", 30);
+        protected final int httpReadTimeoutSeconds = getIntSetting("TAPIS_HTTP_READ_TIMEOUT_SECONDS", 300);
+        protected final int httpMaxIdleConnections = getIntSetting("TAPIS_HTTP_MAX_IDLE_CONNECTIONS", 50);
+        // Limit on a whole HEAD request, made by the parent task when it sizes the source
+        protected final int httpHeadTimeoutSeconds = getIntSetting("TAPIS_HTTP_HEAD_TIMEOUT_SECONDS", 10);
+        // Sources whose size is known to be at least this large are downloaded over several connections
+        protected final int httpParallelThresholdMB = getIntSetting("TAPIS_HTTP_PARALLEL_THRESHOLD_MB", 256);
+        protected final int httpParallelConnections = getIntSetting("TAPIS_HTTP_PARALLEL_CONNECTIONS", 4);
 
         public String getHostName() {
             return hostName;
@@ -157,6 +205,138 @@ public class RuntimeSettings {
             return maxTransferCount;
         }
 
+        public int getListingThreadPoolSize() {
+            return listingThreadPoolSize;
+        }
+
+        public int getListingMaxConcurrencyPerHost() {
+            return listingMaxConcurrencyPerHost;
+        }
+
+        public int getListingCacheSize() {
+            return listingCacheSize;
+        }
+
+        public int getListingCacheTtlSeconds() {
+            return listingCacheTtlSeconds;
+        }
+
+        public int getSshDeleteMaxSessions() {
+            return sshDeleteMaxSessions;
+        }
+
+        public boolean isSshDeleteUseRm() {
+            return sshDeleteUseRm;
+        }
+
+        public int getSshUploadPacketSize() {
+            return sshUploadPacketSize;
+        }
+
+        public int getSshUploadMaxWritesInFlight() {
+            return sshUploadMaxWritesInFlight;
+        }
+
+        public int getSshRequestThreads() {
+            return sshRequestThreads;
+        }
+
+        public int getSshDownloadChunkSize() {
+            return sshDownloadChunkSize;
+        }
+
+        public int getSshDownloadReadAhead() {
+            return sshDownloadReadAhead;
+        }
+
+        public int getReadAheadBufferMB() {
+            return readAheadBufferMB;
+        }
+
+        public int getRangeReadThreads() {
+            return rangeReadThreads;
+        }
+
+        public int getSshKnownDirCacheSize() {
+            return sshKnownDirCacheSize;
+        }
+
+        public int getSshKnownDirCacheTtlSeconds() {
+            return sshKnownDirCacheTtlSeconds;
+        }
+
+        public int getS3DownloadParallelism() {
+            return s3DownloadParallelism;
+        }
+
+        public int getS3RequestThreads() {
+            return s3RequestThreads;
+        }
+
+        public String getS3CrtSystems() {
+            return s3CrtSystems;
+        }
+
+        public int getS3CrtTargetThroughputGbps() {
+            return s3CrtTargetThroughputGbps;
+        }
+
+        public int getS3CrtPartSizeMB() {
+            return s3CrtPartSizeMB;
+        }
+
+        public int getIrodsPoolMaxIdlePerKey() {
+            return irodsPoolMaxIdlePerKey;
+        }
+
+        public int getIrodsPoolIdleSeconds() {
+            return irodsPoolIdleSeconds;
+        }
+
+        public int getIrodsPoolMaxLifetimeSeconds() {
+            return irodsPoolMaxLifetimeSeconds;
+        }
+
+        public int getIrodsParallelThresholdMB() {
+            return irodsParallelThresholdMB;
+        }
+
+        public int getIrodsParallelThreads() {
+            return irodsParallelThreads;
+        }
+
+        public int getHttpConnectTimeoutSeconds() {
+            return httpConnectTimeoutSeconds;
+        }
+
+        public int getHttpReadTimeoutSeconds() {
+            return httpReadTimeoutSeconds;
+        }
+
+        public int getHttpMaxIdleConnections() {
+            return httpMaxIdleConnections;
+        }
+
+        public int getHttpHeadTimeoutSeconds() {
+            return httpHeadTimeoutSeconds;
+        }
+
+        public int getHttpParallelThresholdMB() {
+            return httpParallelThresholdMB;
+        }
+
+        public int getHttpParallelConnections() {
+            return httpParallelConnections;
+        }
+
+        public static boolean getBooleanSetting(String settingName, boolean defaultValue) {
+            String settingValue = settings.get(settingName);
+            if(StringUtils.isBlank(settingValue)) {
+                return defaultValue;
+            }
+            return Boolean.parseBoolean(settingValue.trim());
+        }
+
         public static int getIntSetting(String settingName, int defaultValue) {
             String settingValue = settings.get(settingName);
             if(StringUtils.isBlank(settingValue)) {
@@ -1,7 +1,10 @@
 package edu.utexas.tacc.tapis.files.lib.dao.transfers;
 
 import edu.utexas.tacc.tapis.files.lib.database.HikariConnectionPool;
+import edu.utexas.tacc.tapis.files.lib.database.InstrumentedQueryRunner;
+import edu.utexas.tacc.tapis.files.lib.database.QueryMetrics;
 import edu.utexas.tacc.tapis.files.lib.exceptions.DAOException;
+import edu.utexas.tacc.tapis.files.lib.exceptions.ServiceException;
 import edu.utexas.tacc.tapis.files.lib.models.TransferTask;
 import edu.utexas.tacc.tapis.files.lib.models.TransferTaskChild;
 import edu.utexas.tacc.tapis.files.lib.models.TransferTaskParent;
@@ -12,15 +15,18 @@ import edu.utexas.tacc.tapis.files.lib.utils.LibUtils;
 import org.apache.commons.dbutils.*;
 import org.apache.commons.dbutils.handlers.BeanHandler;
 import org.apache.commons.dbutils.handlers.BeanListHandler;
+import org.apache.commons.dbutils.handlers.ColumnListHandler;
 import org.apache.commons.dbutils.handlers.ScalarHandler;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 
@@ -30,6 +36,20 @@ public class FileTransfersDAO {
 
     private static final Logger log = LoggerFactory.getLogger(FileTransfersDAO.class);
 
+    // Number of child tasks inserted per statement by bulkInsertChildTasks
+    private static final int BULK_INSERT_BATCH_SIZE = 5000;
+    // Number of child tasks cancelled per statement by cancelTransfer
+    private static final int CANCEL_BATCH_SIZE = 1000;
+    // Number of child task rows fetched per round trip by readChildrenPage
+    private static final int CHILD_FETCH_SIZE = 500;
+
+    /**
+     * Receives each batch of child tasks inserted by bulkInsertChildTasks, as returned by the database.
+     */
+    @FunctionalInterface
+    public interface ChildTaskBatchHandler {
+        void handle(List<TransferTaskChild> insertedChildren) throws ServiceException;
+    }
 
     private static class TransferTaskSummaryRowProcessor extends  BasicRowProcessor {
         @Override
@@ -54,115 +74,211 @@ public class FileTransfersDAO {
 
 
 
-    // TODO: There should be some way to not duplicate this code...
-    private static class TransferTaskRowProcessor extends BasicRowProcessor {
+    /*
+     * The row processors below map rows by column index. Indexes are looked up by name once per result set
+     * (see the Columns classes) rather than once per column per row, and URIs are left unparsed until first use.
+     */
+
+    static class TransferTaskRowProcessor extends BasicRowProcessor {
+
+        private static class Columns {
+            final int id, tenantId, username, created, uuid, status, tag, errorMessage, startTime, endTime;
+
+            Columns(ResultSet rs) throws SQLException {
+                id = rs.findColumn("id");
+                tenantId = rs.findColumn("tenant_id");
+                username = rs.findColumn("username");
+                created = rs.findColumn("created");
+                uuid = rs.findColumn("uuid");
+                status = rs.findColumn("status");
+                tag = rs.findColumn("tag");
+                errorMessage = rs.findColumn("error_message");
+                startTime = rs.findColumn("start_time");
+                endTime = rs.findColumn("end_time");
+            }
+        }
 
         @Override
         public TransferTask toBean(ResultSet rs, Class type) throws SQLException {
+            return toBean(rs, new Columns(rs));
+        }
+
+        private TransferTask toBean(ResultSet rs, Columns c) throws SQLException {
             TransferTask task = new TransferTask();
-            task.setId(rs.getInt("id"));
-            task.setTenantId(rs.getString("tenant_id"));
-            task.setUsername(rs.getString("username"));
-            task.setCreated(rs.getTimestamp("created").toInstant());
-            task.setUuid(UUID.fromString(rs.getString("uuid")));
-            task.setStatus(rs.getString("status"));
-            task.setTag(rs.getString("tag"));
-            task.setErrorMessage(rs.getString("error_message"));
-            Optional.ofNullable(rs.getTimestamp("start_time")).ifPresent(ts-> task.setStartTime(ts.toInstant()));
-            Optional.ofNullable(rs.getTimestamp("end_time")).ifPresent(ts-> task.setEndTime(ts.toInstant()));
+            task.setId(rs.getInt(c.id));
+            task.setTenantId(rs.getString(c.tenantId));
+            task.setUsername(rs.getString(c.username));
+            task.setCreated(rs.getTimestamp(c.created).toInstant());
+            task.setUuid(rs.getObject(c.uuid, UUID.class));
+            task.setStatus(rs.getString(c.status));
+            task.setTag(rs.getString(c.tag));
+            task.setErrorMessage(rs.getString(c.errorMessage));
+            Optional.ofNullable(rs.getTimestamp(c.startTime)).ifPresent(ts-> task.setStartTime(ts.toInstant()));
+            Optional.ofNullable(rs.getTimestamp(c.endTime)).ifPresent(ts-> task.setEndTime(ts.toInstant()));
             return task;
         }
 
         @Override
         public List<TransferTask> toBeanList(ResultSet rs, Class type) throws SQLException {
             List<TransferTask> list = new ArrayList<>();
+            Columns c = new Columns(rs);
             while (rs.next()) {
-                list.add(toBean(rs, type));
+                list.add(toBean(rs, c));
             }
             return list;
         }
     }
 
-    // TODO: There should be some way to not duplicate this code...
-    private static class TransferTaskParentRowProcessor extends BasicRowProcessor
+    static class TransferTaskParentRowProcessor extends BasicRowProcessor
     {
+        private static class Columns {
+            final int id, taskId, username, tenantId, sourceUri, destinationUri, created, uuid, status, optional,
+                      srcSharedCtx, dstSharedCtx, tag, totalBytes, bytesTransferred, errorMessage, finalMessage,
+                      transferType, startTime, endTime;
+
+            Columns(ResultSet rs) throws SQLException {
+                id = rs.findColumn("id");
+                taskId = rs.findColumn("task_id");
+                username = rs.findColumn("username");
+                tenantId = rs.findColumn("tenant_id");
+                sourceUri = rs.findColumn("source_uri");
+                destinationUri = rs.findColumn("destination_uri");
+                created = rs.findColumn("created");
+                uuid = rs.findColumn("uuid");
+                status = rs.findColumn("status");
+                optional = rs.findColumn("optional");
+                srcSharedCtx = rs.findColumn("src_shared_ctx");
+                dstSharedCtx = rs.findColumn("dst_shared_ctx");
+                tag = rs.findColumn("tag");
+                totalBytes = rs.findColumn("total_bytes");
+                bytesTransferred = rs.findColumn("bytes_transferred");
+                errorMessage = rs.findColumn("error_message");
+                finalMessage = rs.findColumn("final_message");
+                transferType = rs.findColumn("transfer_type");
+                startTime = rs.findColumn("start_time");
+                endTime = rs.findColumn("end_time");
+            }
+        }
+
         @Override
         public TransferTaskParent toBean(ResultSet rs, Class type) throws SQLException
+        {
+            return toBean(rs, new Columns(rs));
+        }
+
+        private TransferTaskParent toBean(ResultSet rs, Columns c) throws SQLException
         {
             TransferTaskParent task = new TransferTaskParent();
-            task.setId(rs.getInt("id"));
-            task.setTaskId(rs.getInt("task_id"));
-            task.setUsername(rs.getString("username"));
-            task.setTenantId(rs.getString("tenant_id"));
-            task.setSourceURI(rs.getString("source_uri"));
-            task.setDestinationURI(rs.getString("destination_uri"));
-            task.setCreated(rs.getTimestamp("created").toInstant());
-            task.setUuid(UUID.fromString(rs.getString("uuid")));
-            task.setStatus(rs.getString("status"));
-            task.setOptional(rs.getBoolean("optional"));
-            task.setSrcSharedCtxGrantor(rs.getString("src_shared_ctx"));
-            task.setDestSharedCtxGrantor(rs.getString("dst_shared_ctx"));
-            task.setTag(rs.getString("tag"));
-            task.setTotalBytes(rs.getLong("total_bytes"));
-            task.setBytesTransferred(rs.getLong("bytes_transferred"));
-            task.setErrorMessage(rs.getString("error_message"));
-            task.setFinalMessage(rs.getString("final_message"));
-            String transferTypeString = rs.getString("transfer_type");
+            task.setId(rs.getInt(c.id));
+            task.setTaskId(rs.getInt(c.taskId));
+            task.setUsername(rs.getString(c.username));
+            task.setTenantId(rs.getString(c.tenantId));
+            task.setRawURIs(rs.getString(c.sourceUri), rs.getString(c.destinationUri));
+            task.setCreated(rs.getTimestamp(c.created).toInstant());
+            task.setUuid(rs.getObject(c.uuid, UUID.class));
+            task.setStatus(rs.getString(c.status));
+            task.setOptional(rs.getBoolean(c.optional));
+            task.setSrcSharedCtxGrantor(rs.getString(c.srcSharedCtx));
+            task.setDestSharedCtxGrantor(rs.getString(c.dstSharedCtx));
+            task.setTag(rs.getString(c.tag));
+            task.setTotalBytes(rs.getLong(c.totalBytes));
+            task.setBytesTransferred(rs.getLong(c.bytesTransferred));
+            task.setErrorMessage(rs.getString(c.errorMessage));
+            task.setFinalMessage(rs.getString(c.finalMessage));
+            String transferTypeString = rs.getString(c.transferType);
             if(!StringUtils.isBlank(transferTypeString)) {
                 task.setTransferType(TransferTaskParent.TransferType.valueOf(transferTypeString));
             }
-            Optional.ofNullable(rs.getTimestamp("start_time")).ifPresent(ts-> task.setStartTime(ts.toInstant()));
-            Optional.ofNullable(rs.getTimestamp("end_time")).ifPresent(ts-> task.setEndTime(ts.toInstant()));
+            Optional.ofNullable(rs.getTimestamp(c.startTime)).ifPresent(ts-> task.setStartTime(ts.toInstant()));
+            Optional.ofNullable(rs.getTimestamp(c.endTime)).ifPresent(ts-> task.setEndTime(ts.toInstant()));
             return task;
         }
 
         @Override
         public List<TransferTaskParent> toBeanList(ResultSet rs, Class type) throws SQLException {
             List<TransferTaskParent> list = new ArrayList<>();
+            Columns c = new Columns(rs);
             while (rs.next()) {
-                list.add(toBean(rs, type));
+                list.add(toBean(rs, c));
             }
             return list;
         }
     }
 
 
-    private static class TransferTaskChildRowProcessor extends BasicRowProcessor {
+    static class TransferTaskChildRowProcessor extends BasicRowProcessor {
+
+        private static class Columns {
+            final int id, taskId, parentTaskId, username, tenantId, sourceUri, destinationUri, created, retries, uuid,
+                      status, isDir, totalBytes, bytesTransferred, errorMessage, externalTaskId, startTime, endTime;
+
+            Columns(ResultSet rs) throws SQLException {
+                id = rs.findColumn("id");
+                taskId = rs.findColumn("task_id");
+                parentTaskId = rs.findColumn("parent_task_id");
+                username = rs.findColumn("username");
+                tenantId = rs.findColumn("tenant_id");
+                sourceUri = rs.findColumn("source_uri");
+                destinationUri = rs.findColumn("destination_uri");
+                created = rs.findColumn("created");
+                retries = rs.findColumn("retries");
+                uuid = rs.findColumn("uuid");
+                status = rs.findColumn("status");
+                isDir = rs.findColumn("is_dir");
+                totalBytes = rs.findColumn("total_bytes");
+                bytesTransferred = rs.findColumn("bytes_transferred");
+                errorMessage = rs.findColumn("error_message");
+                externalTaskId = rs.findColumn("external_task_id");
+                startTime = rs.findColumn("start_time");
+                endTime = rs.findColumn("end_time");
+            }
+        }
 
         @Override
         public TransferTaskChild toBean(ResultSet rs, Class type) throws SQLException {
+            return toBean(rs, new Columns(rs));
+        }
+
+        private TransferTaskChild toBean(ResultSet rs, Columns c) throws SQLException {
             TransferTaskChild task = new TransferTaskChild();
-            task.setId(rs.getInt("id"));
-            task.setTaskId(rs.getInt("task_id"));
-            task.setParentTaskId(rs.getInt("parent_task_id"));
-            task.setUsername(rs.getString("username"));
-            task.setTenantId(rs.getString("tenant_id"));
-            task.setSourceURI(rs.getString("source_uri"));
-            task.setDestinationURI(rs.getString("destination_uri"));
-            task.setCreated(rs.getTimestamp("created").toInstant());
-            task.setRetries(rs.getInt("retries"));
-            task.setUuid(UUID.fromString(rs.getString("uuid")));
-            task.setStatus(rs.getString("status"));
-            task.setDir(rs.getBoolean("is_dir"));
-            task.setTotalBytes(rs.getLong("total_bytes"));
-            task.setBytesTransferred(rs.getLong("bytes_transferred"));
-            task.setErrorMessage(rs.getString("error_message"));
-            task.setExternalTaskId(rs.getString("external_task_id"));
-            Optional.ofNullable(rs.getTimestamp("start_time")).ifPresent(ts-> task.setStartTime(ts.toInstant()));
-            Optional.ofNullable(rs.getTimestamp("end_time")).ifPresent(ts-> task.setEndTime(ts.toInstant()));
+            task.setId(rs.getInt(c.id));
+            task.setTaskId(rs.getInt(c.taskId));
+            task.setParentTaskId(rs.getInt(c.parentTaskId));
+            task.setUsername(rs.getString(c.username));
+            task.setTenantId(rs.getString(c.tenantId));
+            task.setRawURIs(rs.getString(c.sourceUri), rs.getString(c.destinationUri));
+            task.setCreated(rs.getTimestamp(c.created).toInstant());
+            task.setRetries(rs.getInt(c.retries));
+            task.setUuid(rs.getObject(c.uuid, UUID.class));
+            task.setStatus(rs.getString(c.status));
+            task.setDir(rs.getBoolean(c.isDir));
+            task.setTotalBytes(rs.getLong(c.totalBytes));
+            task.setBytesTransferred(rs.getLong(c.bytesTransferred));
+            task.setErrorMessage(rs.getString(c.errorMessage));
+            task.setExternalTaskId(rs.getString(c.externalTaskId));
+            Optional.ofNullable(rs.getTimestamp(c.startTime)).ifPresent(ts-> task.setStartTime(ts.toInstant()));
+            Optional.ofNullable(rs.getTimestamp(c.endTime)).ifPresent(ts-> task.setEndTime(ts.toInstant()));
             return task;
         }
 
         @Override
         public List<TransferTaskChild> toBeanList(ResultSet rs, Class type) throws SQLException {
             List<TransferTaskChild> list = new ArrayList<>();
+            Columns c = new Columns(rs);
             while (rs.next()) {
-                list.add(toBean(rs, type));
+                list.add(toBean(rs, c));
             }
             return list;
         }
     }
 
+    // Row processors and the query runner are stateless, so share them across all calls.
+    private static final RowProcessor SUMMARY_ROW_PROCESSOR = new TransferTaskSummaryRowProcessor();
+    private static final RowProcessor TASK_ROW_PROCESSOR = new TransferTaskRowProcessor();
+    private static final RowProcessor PARENT_ROW_PROCESSOR = new TransferTaskParentRowProcessor();
+    static final TransferTaskChildRowProcessor CHILD_ROW_PROCESSOR = new TransferTaskChildRowProcessor();
+    private static final InstrumentedQueryRunner runner = new InstrumentedQueryRunner(FileTransfersDAOStatements.class);
+
     /**
      * Create a transfer task and all the associated TransferTaskParent objects.
      * @param task Transfer task
@@ -236,12 +352,11 @@ public class FileTransfersDAO {
 
     public TransferTask getTransferTaskByUUID(@NotNull UUID taskUUID, boolean includeSummary)
             throws DAOException {
-        RowProcessor rowProcessor = new TransferTaskRowProcessor();
-        RowProcessor summaryRowProcessor = new TransferTaskSummaryRowProcessor();
+        RowProcessor rowProcessor = TASK_ROW_PROCESSOR;
+        RowProcessor summaryRowProcessor = SUMMARY_ROW_PROCESSOR;
         try (Connection connection = HikariConnectionPool.getConnection()) {
             BeanHandler<TransferTask> handler = new BeanHandler<>(TransferTask.class, rowProcessor);
             String query = FileTransfersDAOStatements.GET_TASK_BY_UUID;
-            QueryRunner runner = new QueryRunner();
             TransferTask task = runner.query(connection, query, handler, taskUUID);
             if (task == null) {
                 return null;
@@ -250,8 +365,7 @@ public class FileTransfersDAO {
             if (includeSummary) {
                 BeanHandler<TransferTaskSummary> summaryHandler = new BeanHandler<>(TransferTaskSummary.class, summaryRowProcessor);
                 String summaryQuery = FileTransfersDAOStatements.GET_TRANSFER_TASK_SUMMARY_BY_UUID;
-                QueryRunner summaryRunner = new QueryRunner();
-                TransferTaskSummary summary = summaryRunner.query(connection, summaryQuery, summaryHandler, taskUUID);
+                TransferTaskSummary summary = runner.query(connection, summaryQuery, summaryHandler, taskUUID);
                 task.setTotalTransfers(summary.getTotalTransfers());
                 task.setCompleteTransfers(summary.getCompleteTransfers());
                 task.setTotalBytesTransferred(summary.getTotalBytesTransferred());
@@ -265,12 +379,11 @@ public class FileTransfersDAO {
     }
 
     public TransferTask getTransferTaskByID(@NotNull int taskId) throws DAOException {
-        RowProcessor rowProcessor = new TransferTaskRowProcessor();
-        RowProcessor summaryRowProcessor = new TransferTaskSummaryRowProcessor();
+        RowProcessor rowProcessor = TASK_ROW_PROCESSOR;
+        RowProcessor summaryRowProcessor = SUMMARY_ROW_PROCESSOR;
         try (Connection connection = HikariConnectionPool.getConnection()) {
             BeanHandler<TransferTask> handler = new BeanHandler<>(TransferTask.class, rowProcessor);
             String query = FileTransfersDAOStatements.GET_TASK_BY_ID;
-            QueryRunner runner = new QueryRunner();
             TransferTask task = runner.query(connection, query, handler, taskId);
             if (task ==null) {
                 return null;
@@ -278,8 +391,7 @@ public class FileTransfersDAO {
 
             BeanHandler<TransferTaskSummary> summaryHandler = new BeanHandler<>(TransferTaskSummary.class, summaryRowProcessor);
             String summaryQuery = FileTransfersDAOStatements.GET_TRANSFER_TASK_SUMMARY_BY_ID;
-            QueryRunner summaryRunner = new QueryRunner();
-            TransferTaskSummary summary = summaryRunner.query(connection, summaryQuery, summaryHandler, taskId);
+            TransferTaskSummary summary = runner.query(connection, summaryQuery, summaryHandler, taskId);
             task.setTotalTransfers(summary.getTotalTransfers());
             task.setCompleteTransfers(summary.getCompleteTransfers());
             task.setTotalBytesTransferred(summary.getTotalBytesTransferred());
@@ -292,11 +404,10 @@ public class FileTransfersDAO {
     }
 
     public TransferTaskChild getTransferTaskChild(@NotNull UUID taskUUID) throws DAOException {
-        RowProcessor rowProcessor = new TransferTaskChildRowProcessor();
+        RowProcessor rowProcessor = CHILD_ROW_PROCESSOR;
         try (Connection connection = HikariConnectionPool.getConnection()) {
             BeanHandler<TransferTaskChild> handler = new BeanHandler<>(TransferTaskChild.class, rowProcessor);
             String query = FileTransfersDAOStatements.GET_CHILD_TASK_BY_UUID;
-            QueryRunner runner = new QueryRunner();
             return runner.query(connection, query, handler, taskUUID);
         } catch (SQLException ex) {
             throw new DAOException(LibUtils.getMsg("FILES_TXFR_DAO_ERR2", "getTransferTaskChild", taskUUID), ex);
@@ -304,11 +415,10 @@ public class FileTransfersDAO {
     }
 
     public List<TransferTaskParent> getAllParentsForTaskByID(@NotNull int taskId) throws DAOException {
-        RowProcessor rowProcessor = new TransferTaskParentRowProcessor();
+        RowProcessor rowProcessor = PARENT_ROW_PROCESSOR;
         try (Connection connection = HikariConnectionPool.getConnection()) {
             BeanListHandler<TransferTaskParent> handler = new BeanListHandler<>(TransferTaskParent.class, rowProcessor);
             String query = FileTransfersDAOStatements.GET_PARENTS_FOR_TASK_BY_ID;
-            QueryRunner runner = new QueryRunner();
             List<TransferTaskParent> parentTasks = runner.query(connection, query, handler, taskId);
             return parentTasks;
         } catch (SQLException ex) {
@@ -317,11 +427,10 @@ public class FileTransfersDAO {
     }
 
     public TransferTaskParent getTransferTaskParentByUUID(@NotNull UUID uuid) throws DAOException {
-        RowProcessor rowProcessor = new TransferTaskParentRowProcessor();
+        RowProcessor rowProcessor = PARENT_ROW_PROCESSOR;
         try (Connection connection = HikariConnectionPool.getConnection()) {
             BeanHandler<TransferTaskParent> handler = new BeanHandler<>(TransferTaskParent.class, rowProcessor);
             String query = FileTransfersDAOStatements.GET_PARENT_TASK_BY_UUID;
-            QueryRunner runner = new QueryRunner();
             TransferTaskParent task = runner.query(connection, query, handler, uuid);
             return task;
         } catch (SQLException ex) {
@@ -330,11 +439,10 @@ public class FileTransfersDAO {
     }
 
     public TransferTaskParent getTransferTaskParentById(@NotNull long id) throws DAOException {
-        RowProcessor rowProcessor = new TransferTaskParentRowProcessor();
+        RowProcessor rowProcessor = PARENT_ROW_PROCESSOR;
         try (Connection connection = HikariConnectionPool.getConnection()) {
             BeanHandler<TransferTaskParent> handler = new BeanHandler<>(TransferTaskParent.class, rowProcessor);
             String query = FileTransfersDAOStatements.GET_PARENT_TASK_BY_ID;
-            QueryRunner runner = new QueryRunner();
             TransferTaskParent task = runner.query(connection, query, handler, id);
             return task;
         } catch (SQLException ex) {
@@ -349,11 +457,10 @@ public class FileTransfersDAO {
      * @param task
      */
     public TransferTask updateTransferTask(@NotNull TransferTask task) throws DAOException {
-        RowProcessor rowProcessor = new TransferTaskRowProcessor();
+        RowProcessor rowProcessor = TASK_ROW_PROCESSOR;
         try (Connection connection = HikariConnectionPool.getConnection()) {
             BeanHandler<TransferTask> handler = new BeanHandler<>(TransferTask.class, rowProcessor);
             String stmt = FileTransfersDAOStatements.UPDATE_TRANSFER_TASK;
-            QueryRunner runner = new QueryRunner();
             Timestamp startTime = null;
             Timestamp endTime = null;
             if (task.getStartTime() != null) {
@@ -383,11 +490,10 @@ public class FileTransfersDAO {
      * @param newBytes The size in bytes to be added to the total size of the transfer
      */
     public TransferTaskParent updateTransferTaskParentSize(@NotNull TransferTask task, Long newBytes) throws DAOException {
-        RowProcessor rowProcessor = new TransferTaskParentRowProcessor();
+        RowProcessor rowProcessor = PARENT_ROW_PROCESSOR;
         try (Connection connection = HikariConnectionPool.getConnection()) {
             BeanHandler<TransferTaskParent> handler = new BeanHandler<>(TransferTaskParent.class, rowProcessor);
             String stmt = FileTransfersDAOStatements.UPDATE_PARENT_TASK_SIZE;
-            QueryRunner runner = new QueryRunner();
             TransferTaskParent updatedTask = runner.query(connection, stmt, handler,
                 newBytes,
                 task.getId());
@@ -408,7 +514,6 @@ public class FileTransfersDAO {
     public void updateTransferTaskChildBytesTransferred(@NotNull TransferTaskChild task, Long newBytes) throws DAOException {
         try (Connection connection = HikariConnectionPool.getConnection()) {
             String stmt = FileTransfersDAOStatements.UPDATE_CHILD_TASK_BYTES_TRANSFERRED;
-            QueryRunner runner = new QueryRunner();
             runner.execute(connection, stmt,
                 newBytes,
                 task.getId());
@@ -427,11 +532,10 @@ public class FileTransfersDAO {
      * @param newBytes The size in bytes to be added to the total size of the transfer
      */
     public void updateTransferTaskParentBytesTransferred(long taskId, Long newBytes) throws DAOException {
-        RowProcessor rowProcessor = new TransferTaskParentRowProcessor();
+        RowProcessor rowProcessor = PARENT_ROW_PROCESSOR;
         try (Connection connection = HikariConnectionPool.getConnection()) {
             BeanHandler<TransferTaskParent> handler = new BeanHandler<>(TransferTaskParent.class, rowProcessor);
             String stmt = FileTransfersDAOStatements.UPDATE_PARENT_TASK_BYTES_TRANSFERRED;
-            QueryRunner runner = new QueryRunner();
             runner.execute(connection, stmt,
                 newBytes,
                 taskId);
@@ -442,11 +546,10 @@ public class FileTransfersDAO {
     }
 
     public TransferTaskParent updateTransferTaskParent(@NotNull TransferTaskParent task) throws DAOException {
-        RowProcessor rowProcessor = new TransferTaskParentRowProcessor();
+        RowProcessor rowProcessor = PARENT_ROW_PROCESSOR;
         try (Connection connection = HikariConnectionPool.getConnection()) {
             BeanHandler<TransferTaskParent> handler = new BeanHandler<>(TransferTaskParent.class, rowProcessor);
             String stmt = FileTransfersDAOStatements.UPDATE_PARENT_TASK;
-            QueryRunner runner = new QueryRunner();
             Timestamp startTime = null;
             Timestamp endTime = null;
             if (task.getStartTime() != null) {
@@ -476,11 +579,10 @@ public class FileTransfersDAO {
     }
 
     public TransferTaskChild updateTransferTaskChild(@NotNull TransferTaskChild task) throws DAOException {
-        RowProcessor rowProcessor = new TransferTaskChildRowProcessor();
+        RowProcessor rowProcessor = CHILD_ROW_PROCESSOR;
         try (Connection connection = HikariConnectionPool.getConnection()) {
             BeanHandler<TransferTaskChild> handler = new BeanHandler<>(TransferTaskChild.class, rowProcessor);
             String stmt = FileTransfersDAOStatements.UPDATE_CHILD_TASK;
-            QueryRunner runner = new QueryRunner();
             Timestamp startTime = null;
             Timestamp endTime = null;
             if (task.getStartTime() != null) {
@@ -510,11 +612,10 @@ public class FileTransfersDAO {
     public TransferTaskParent createTransferTaskParent(@NotNull TransferTaskParent task) throws DAOException {
 
         task.setStatus(TransferTaskStatus.ACCEPTED.name());
-        RowProcessor rowProcessor = new TransferTaskParentRowProcessor();
+        RowProcessor rowProcessor = PARENT_ROW_PROCESSOR;
         try (Connection connection = HikariConnectionPool.getConnection()) {
             BeanHandler<TransferTaskParent> handler = new BeanHandler<>(TransferTaskParent.class, rowProcessor);
             String stmt = FileTransfersDAOStatements.INSERT_PARENT_TASK;
-            QueryRunner runner = new QueryRunner();
             TransferTaskParent insertedTask = runner.query(connection, stmt, handler,
                 task.getTenantId(),
                 task.getTaskId(),
@@ -536,41 +637,107 @@ public class FileTransfersDAO {
     }
 
     public void bulkInsertChildTasks(@NotNull List<TransferTaskChild> children) throws DAOException {
-        List<Object[]> params = new ArrayList<>();
-        children.forEach( (child)->{
-            params.add( new Object[] {
-                child.getTenantId(),
-                child.getTaskId(),
-                child.getParentTaskId(),
-                child.getUsername(),
-                child.getSourceURI().toString(),
-                child.getDestinationURI().toString(),
-                child.getStatus().name(),
-                child.getBytesTransferred(),
-                child.getTotalBytes(),
-                child.isDir(),
-                child.getTag(),
-                child.getExternalTaskId()
-            });
-        });
-        Object[][] t = new Object[params.size()][];
-        params.toArray(t);
+        try {
+            bulkInsertChildTasks(children, null);
+        } catch (ServiceException ex) {
+            // Cannot happen, there is no handler to throw it.
+            throw new DAOException("Bulk insert failed!", ex);
+        }
+    }
+
+    /**
+     * Insert child tasks in batches of BULK_INSERT_BATCH_SIZE rows. Each batch is a single multi-row
+     * INSERT ... SELECT unnest(...) statement. All batches are inserted in one transaction, so either all
+     * children are inserted or none are. Once committed the inserted rows (including generated ids and uuids)
+     * are passed to the handler batch by batch, after the connection has been returned to the pool. This allows
+     * callers to act on the new children without having to read them all back from the database, and nothing
+     * is published for children that were rolled back.
+     *
+     * @param children child tasks to insert
+     * @param handler called once per batch with the inserted rows, may be null
+     * @throws DAOException on database error
+     * @throws ServiceException if thrown by the handler
+     */
+    public void bulkInsertChildTasks(@NotNull List<TransferTaskChild> children, ChildTaskBatchHandler handler)
+            throws DAOException, ServiceException {
+        TransferTaskChildRowProcessor rowProcessor = CHILD_ROW_PROCESSOR;
+        List<List<TransferTaskChild>> insertedBatches = new ArrayList<>();
         try (Connection connection = HikariConnectionPool.getConnection()) {
-            String stmt = FileTransfersDAOStatements.INSERT_CHILD_TASK;
-            QueryRunner runner = new QueryRunner();
-            runner.batch(connection, stmt, t);
+            connection.setAutoCommit(false);
+            try (PreparedStatement stmt = connection.prepareStatement(FileTransfersDAOStatements.BULK_INSERT_CHILD_TASKS)) {
+                for (int start = 0; start < children.size(); start += BULK_INSERT_BATCH_SIZE) {
+                    List<TransferTaskChild> batch = children.subList(start, Math.min(children.size(), start + BULK_INSERT_BATCH_SIZE));
+                    int size = batch.size();
+                    String[] tenantIds = new String[size];
+                    Integer[] taskIds = new Integer[size];
+                    Integer[] parentTaskIds = new Integer[size];
+                    String[] usernames = new String[size];
+                    String[] sourceUris = new String[size];
+                    String[] destinationUris = new String[size];
+                    String[] statuses = new String[size];
+                    Long[] bytesTransferred = new Long[size];
+                    Long[] totalBytes = new Long[size];
+                    Boolean[] isDirs = new Boolean[size];
+                    String[] tags = new String[size];
+                    String[] externalTaskIds = new String[size];
+                    for (int i = 0; i < size; i++) {
+                        TransferTaskChild child = batch.get(i);
+                        tenantIds[i] = child.getTenantId();
+                        taskIds[i] = child.getTaskId();
+                        parentTaskIds[i] = child.getParentTaskId();
+                        usernames[i] = child.getUsername();
+                        sourceUris[i] = child.getSourceURI().toString();
+                        destinationUris[i] = child.getDestinationURI().toString();
+                        statuses[i] = child.getStatus().name();
+                        bytesTransferred[i] = child.getBytesTransferred();
+                        totalBytes[i] = child.getTotalBytes();
+                        isDirs[i] = child.isDir();
+                        tags[i] = child.getTag();
+                        externalTaskIds[i] = child.getExternalTaskId();
+                    }
+                    stmt.setArray(1, connection.createArrayOf("varchar", tenantIds));
+                    stmt.setArray(2, connection.createArrayOf("int4", taskIds));
+                    stmt.setArray(3, connection.createArrayOf("int4", parentTaskIds));
+                    stmt.setArray(4, connection.createArrayOf("varchar", usernames));
+                    stmt.setArray(5, connection.createArrayOf("varchar", sourceUris));
+                    stmt.setArray(6, connection.createArrayOf("varchar", destinationUris));
+                    stmt.setArray(7, connection.createArrayOf("varchar", statuses));
+                    stmt.setArray(8, connection.createArrayOf("int8", bytesTransferred));
+                    stmt.setArray(9, connection.createArrayOf("int8", totalBytes));
+                    stmt.setArray(10, connection.createArrayOf("bool", isDirs));
+                    stmt.setArray(11, connection.createArrayOf("text", tags));
+                    stmt.setArray(12, connection.createArrayOf("text", externalTaskIds));
+
+                    List<TransferTaskChild> inserted;
+                    long startNanos = System.nanoTime();
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        inserted = rowProcessor.toBeanList(rs, TransferTaskChild.class);
+                    }
+                    QueryMetrics.record("BULK_INSERT_CHILD_TASKS", System.nanoTime() - startNanos, inserted.size());
+                    insertedBatches.add(inserted);
+                }
+                connection.commit();
+            } finally {
+                // No-op after a commit, undoes all batches after a failure
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
         } catch (SQLException ex) {
             throw new DAOException("Bulk insert failed!", ex);
         }
+        if (handler != null) {
+            for (List<TransferTaskChild> inserted : insertedBatches) {
+                handler.handle(inserted);
+            }
+        }
     }
 
     public TransferTaskChild insertChildTask(@NotNull TransferTaskChild task) throws DAOException {
-        RowProcessor rowProcessor = new TransferTaskChildRowProcessor();
+        RowProcessor rowProcessor = CHILD_ROW_PROCESSOR;
 
         try (Connection connection = HikariConnectionPool.getConnection()) {
             BeanHandler<TransferTaskChild> handler = new BeanHandler<>(TransferTaskChild.class, rowProcessor);
             String stmt = FileTransfersDAOStatements.INSERT_CHILD_TASK;
-            QueryRunner runner = new QueryRunner();
             TransferTaskChild child = runner.query(connection, stmt, handler,
                 task.getTenantId(),
                 task.getTaskId(),
@@ -594,12 +761,11 @@ public class FileTransfersDAO {
     }
 
     public TransferTaskChild getChildTaskByUUID(@NotNull UUID taskUUID) throws DAOException {
-        RowProcessor rowProcessor = new TransferTaskChildRowProcessor();
+        RowProcessor rowProcessor = CHILD_ROW_PROCESSOR;
 
         try (Connection connection = HikariConnectionPool.getConnection()) {
             BeanHandler<TransferTaskChild> handler = new BeanHandler<>(TransferTaskChild.class, rowProcessor);
             String stmt = FileTransfersDAOStatements.GET_CHILD_TASK_BY_UUID;
-            QueryRunner runner = new QueryRunner();
             TransferTaskChild child = runner.query(connection, stmt, handler,
                 taskUUID
             );
@@ -610,13 +776,121 @@ public class FileTransfersDAO {
         }
     }
 
+    /**
+     * Get several child tasks in one query. Children that do not exist are left out.
+     *
+     * @param taskUUIDs uuids of the children
+     * @return children found, in no particular order
+     * @throws DAOException on error
+     */
+    public List<TransferTaskChild> getChildTasksByUUIDs(@NotNull List<UUID> taskUUIDs) throws DAOException {
+        RowProcessor rowProcessor = CHILD_ROW_PROCESSOR;
+
+        try (Connection connection = HikariConnectionPool.getConnection()) {
+            ResultSetHandler<List<TransferTaskChild>> handler = new BeanListHandler<>(TransferTaskChild.class, rowProcessor);
+            String stmt = FileTransfersDAOStatements.GET_CHILD_TASKS_BY_UUIDS;
+            Array uuids = connection.createArrayOf("uuid", taskUUIDs.toArray());
+            return runner.query(connection, stmt, handler, uuids);
+        } catch (SQLException ex) {
+            throw new DAOException(LibUtils.getMsg("FILES_TXFR_DAO_ERR2", "getChildTasksByUUIDs", taskUUIDs.size(), ex.getMessage()), ex);
+        }
+    }
+
+    /**
+     * Take over children with an external task that no instance holds a current lease on, e.g. because the instance
+     * following them has stopped.
+     *
+     * @param owner id of the instance taking them
+     * @param leaseExpires time the lease runs out unless renewed
+     * @param limit max children taken
+     * @return children taken
+     * @throws DAOException on error
+     */
+    public List<TransferTaskChild> claimMonitorChildTasks(@NotNull String owner, @NotNull Instant leaseExpires,
+                                                          int limit) throws DAOException {
+        RowProcessor rowProcessor = CHILD_ROW_PROCESSOR;
+
+        try (Connection connection = HikariConnectionPool.getConnection()) {
+            ResultSetHandler<List<TransferTaskChild>> handler = new BeanListHandler<>(TransferTaskChild.class, rowProcessor);
+            String stmt = FileTransfersDAOStatements.CLAIM_MONITOR_CHILD_TASKS;
+            return runner.query(connection, stmt, handler, limit, owner, Timestamp.from(leaseExpires));
+        } catch (SQLException ex) {
+            throw new DAOException(LibUtils.getMsg("FILES_TXFR_DAO_ERR2", "claimMonitorChildTasks", owner, ex.getMessage()), ex);
+        }
+    }
+
+    /**
+     * Take over one child with an external task, unless another instance holds a current lease on it.
+     *
+     * @param taskUUID uuid of the child
+     * @param owner id of the instance taking it
+     * @param leaseExpires time the lease runs out unless renewed
+     * @return the child, or null if it is finished or held by another instance
+     * @throws DAOException on error
+     */
+    public TransferTaskChild claimMonitorChildTask(@NotNull UUID taskUUID, @NotNull String owner,
+                                                   @NotNull Instant leaseExpires) throws DAOException {
+        RowProcessor rowProcessor = CHILD_ROW_PROCESSOR;
+
+        try (Connection connection = HikariConnectionPool.getConnection()) {
+            BeanHandler<TransferTaskChild> handler = new BeanHandler<>(TransferTaskChild.class, rowProcessor);
+            String stmt = FileTransfersDAOStatements.CLAIM_MONITOR_CHILD_TASK;
+            return runner.query(connection, stmt, handler, owner, Timestamp.from(leaseExpires), taskUUID, owner);
+        } catch (SQLException ex) {
+            throw new DAOException(LibUtils.getMsg("FILES_TXFR_DAO_ERR2", "claimMonitorChildTask", taskUUID, ex.getMessage()), ex);
+        }
+    }
+
+    /**
+     * Extend the leases an instance holds.
+     *
+     * @param taskUUIDs uuids of the children
+     * @param owner id of the instance holding them
+     * @param leaseExpires new time the leases run out
+     * @return uuids of the children whose lease was extended. Others are finished or taken by another instance.
+     * @throws DAOException on error
+     */
+    public List<UUID> renewMonitorLeases(@NotNull List<UUID> taskUUIDs, @NotNull String owner,
+                                         @NotNull Instant leaseExpires) throws DAOException {
+        try (Connection connection = HikariConnectionPool.getConnection()) {
+            String stmt = FileTransfersDAOStatements.RENEW_MONITOR_LEASES;
+            Array uuids = connection.createArrayOf("uuid", taskUUIDs.toArray());
+            return runner.query(connection, stmt, new ColumnListHandler<UUID>("uuid"), Timestamp.from(leaseExpires),
+                                uuids, owner);
+        } catch (SQLException ex) {
+            throw new DAOException(LibUtils.getMsg("FILES_TXFR_DAO_ERR2", "renewMonitorLeases", taskUUIDs.size(), ex.getMessage()), ex);
+        }
+    }
+
+    /**
+     * Record the final status and end time of a child followed under a lease. Nothing is written if the lease has
+     * been lost or the child was already finished, so a child is only ever finished once.
+     *
+     * @param task child with the final status and end time set
+     * @param owner id of the instance holding the lease
+     * @return the updated child, or null if nothing was written
+     * @throws DAOException on error
+     */
+    public TransferTaskChild finishMonitorChildTask(@NotNull TransferTaskChild task, @NotNull String owner)
+            throws DAOException {
+        RowProcessor rowProcessor = CHILD_ROW_PROCESSOR;
+        try (Connection connection = HikariConnectionPool.getConnection()) {
+            BeanHandler<TransferTaskChild> handler = new BeanHandler<>(TransferTaskChild.class, rowProcessor);
+            String stmt = FileTransfersDAOStatements.FINISH_MONITOR_CHILD_TASK;
+            Timestamp endTime = (task.getEndTime() == null) ? null : Timestamp.from(task.getEndTime());
+            return runner.query(connection, stmt, handler, task.getStatus().name(), endTime, task.getId(), owner);
+        } catch (SQLException ex) {
+            throw new DAOException(LibUtils.getMsg("FILES_TXFR_DAO_ERR1", task.getTenantId(), task.getUsername(),
+                  "finishMonitorChildTask", task.getId(), task.getTag(), task.getUuid(), ex.getMessage()), ex);
+        }
+    }
+
     public List<TransferTask> getRecentTransfersForUser(@NotNull String tenantId, @NotNull String username, int limit, int offset) throws DAOException {
-        RowProcessor rowProcessor = new TransferTaskRowProcessor();
+        RowProcessor rowProcessor = TASK_ROW_PROCESSOR;
 
         try (Connection connection = HikariConnectionPool.getConnection()) {
             ResultSetHandler<List<TransferTask>> handler = new BeanListHandler<>(TransferTask.class, rowProcessor);
             String query = FileTransfersDAOStatements.GET_ALL_TASKS_FOR_USER;
-            QueryRunner runner = new QueryRunner();
             List<TransferTask> tasks = runner.query(connection, query, handler,
                 tenantId,
                 username,
@@ -633,7 +907,6 @@ public class FileTransfersDAO {
     public long getIncompleteParentCount(@NotNull long taskId) throws DAOException
     {
       ScalarHandler<Long> scalarHandler = new ScalarHandler<>();
-      QueryRunner runner = new QueryRunner();
       String query = FileTransfersDAOStatements.GET_PARENT_TASK_INCOMPLETE_COUNT;
       try (Connection connection = HikariConnectionPool.getConnection()) {
         long count = runner.query(connection, query, scalarHandler, taskId);
@@ -646,7 +919,6 @@ public class FileTransfersDAO {
     public long getIncompleteChildrenCount(@NotNull long taskId) throws DAOException
     {
         ScalarHandler<Long> scalarHandler = new ScalarHandler<>();
-        QueryRunner runner = new QueryRunner();
         String query = FileTransfersDAOStatements.GET_CHILD_TASK_INCOMPLETE_COUNT;
         try (Connection connection = HikariConnectionPool.getConnection()) {
             long count = runner.query(connection, query, scalarHandler, taskId);
@@ -658,7 +930,6 @@ public class FileTransfersDAO {
 
     public long getIncompleteChildrenCountForParent(@NotNull long parentTaskId) throws DAOException {
         ScalarHandler<Long> scalarHandler = new ScalarHandler<>();
-        QueryRunner runner = new QueryRunner();
         String query = FileTransfersDAOStatements.GET_CHILD_TASK_INCOMPLETE_COUNT_FOR_PARENT;
         try (Connection connection = HikariConnectionPool.getConnection()) {
             long count = runner.query(connection, query, scalarHandler, parentTaskId);
@@ -669,12 +940,11 @@ public class FileTransfersDAO {
     }
 
     public List<TransferTaskChild> getAllChildren(@NotNull TransferTask task) throws DAOException {
-        RowProcessor rowProcessor = new TransferTaskChildRowProcessor();
+        RowProcessor rowProcessor = CHILD_ROW_PROCESSOR;
 
         try (Connection connection = HikariConnectionPool.getConnection()) {
             ResultSetHandler<List<TransferTaskChild>> handler = new BeanListHandler<>(TransferTaskChild.class, rowProcessor);
             String stmt = FileTransfersDAOStatements.GET_ALL_CHILDREN;
-            QueryRunner runner = new QueryRunner();
 
             List<TransferTaskChild> children = runner.query(
                 connection,
@@ -691,12 +961,11 @@ public class FileTransfersDAO {
     }
 
     public List<TransferTaskChild> getAllChildren(@NotNull TransferTaskParent task) throws DAOException {
-        RowProcessor rowProcessor = new TransferTaskChildRowProcessor();
+        RowProcessor rowProcessor = CHILD_ROW_PROCESSOR;
 
         try (Connection connection = HikariConnectionPool.getConnection()) {
             ResultSetHandler<List<TransferTaskChild>> handler = new BeanListHandler<>(TransferTaskChild.class, rowProcessor);
             String stmt = FileTransfersDAOStatements.GET_ALL_CHILDREN_FOR_PARENT;
-            QueryRunner runner = new QueryRunner();
 
             List<TransferTaskChild> children = runner.query(
                 connection,
@@ -712,14 +981,92 @@ public class FileTransfersDAO {
         }
     }
 
+    /**
+     * Fetch one page of the children of a task using keyset pagination. Children are ordered by id and
+     * only those with an id greater than afterId are returned, so the cost of a page does not depend on
+     * how deep into the listing it is.
+     *
+     * @param task transfer task
+     * @param afterId return children with id greater than this, use 0 for the first page
+     * @param limit maximum number of children to return
+     * @return page of children ordered by id
+     * @throws DAOException on error
+     */
+    public List<TransferTaskChild> getChildrenPage(@NotNull TransferTask task, int afterId, int limit) throws DAOException {
+        List<TransferTaskChild> children = new ArrayList<>();
+        readChildrenPage(task, afterId, limit, children::add);
+        return children;
+    }
+
+    /**
+     * Read one page of the children of a task as for getChildrenPage, passing each child to the consumer as
+     * its row is read. Rows are fetched from a cursor CHILD_FETCH_SIZE at a time, so only the consumer decides
+     * how many children are held in memory.
+     *
+     * @param task transfer task
+     * @param afterId read children with id greater than this, use 0 for the first page
+     * @param limit maximum number of children to read
+     * @param consumer receives each child, in id order
+     * @return number of children read
+     * @throws DAOException on error
+     */
+    public int readChildrenPage(@NotNull TransferTask task, int afterId, int limit,
+                                @NotNull Consumer<TransferTaskChild> consumer) throws DAOException {
+        TransferTaskChildRowProcessor rowProcessor = CHILD_ROW_PROCESSOR;
+
+        try (Connection connection = HikariConnectionPool.getConnection()) {
+            // The driver only fetches rows through a cursor inside a transaction
+            connection.setAutoCommit(false);
+            try (PreparedStatement stmt = connection.prepareStatement(FileTransfersDAOStatements.GET_CHILDREN_PAGE)) {
+                stmt.setFetchSize(CHILD_FETCH_SIZE);
+                stmt.setInt(1, task.getId());
+                stmt.setInt(2, afterId);
+                stmt.setInt(3, limit);
+                long startNanos = System.nanoTime();
+                int count = 0;
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        consumer.accept(rowProcessor.toBean(rs, TransferTaskChild.class));
+                        count++;
+                    }
+                }
+                QueryMetrics.record("GET_CHILDREN_PAGE", System.nanoTime() - startNanos, count);
+                return count;
+            } finally {
+                // Read only, nothing to keep
+                if (!connection.isClosed()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+            }
+        } catch (SQLException ex) {
+            throw new DAOException(LibUtils.getMsg("FILES_TXFR_DAO_ERR1", task.getTenantId(), task.getUsername(),
+                  "readChildrenPage", task.getId(), task.getTag(), task.getUuid(), ex.getMessage()), ex);
+        }
+    }
+
+    /**
+     * Cancel a transfer task, its parents and all of its children that are not already in a terminal state.
+     * Children are cancelled in batches of CANCEL_BATCH_SIZE, each in its own transaction, skipping rows that
+     * are locked by workers so that a cancel does not hold locks on the whole child table for a large transfer.
+     * Batches run until none are left to cancel. A row locked by a worker is not waited for, the worker holding it
+     * has received the cancel on the control exchange and marks its child CANCELLED itself before writing it,
+     * see ChildTaskTransferService.applyCancelRequest.
+     *
+     * @param task transfer task to cancel
+     * @throws DAOException on error
+     */
     public void cancelTransfer(@NotNull TransferTask task) throws DAOException
     {
         try (Connection connection = HikariConnectionPool.getConnection())
         {
-            String stmt = FileTransfersDAOStatements.CANCEL_TRANSFER_TASK_AND_CHILDREN;
-            QueryRunner runner = new QueryRunner();
 
-            runner.execute(connection, stmt, task.getId(), task.getId(), task.getId());
+            runner.execute(connection, FileTransfersDAOStatements.CANCEL_TRANSFER_TASK_AND_PARENTS, task.getId(), task.getId());
+            int updated;
+            do {
+                updated = runner.update(connection, FileTransfersDAOStatements.CANCEL_CHILD_TASKS_BATCH,
+                        task.getId(), CANCEL_BATCH_SIZE);
+            } while (updated > 0);
         }
         catch (SQLException ex)
         {
@@ -737,7 +1084,6 @@ public class FileTransfersDAO {
     try (Connection connection = HikariConnectionPool.getConnection())
     {
       String stmt = FileTransfersDAOStatements.DELETE_ALL_TRANSFER_TASKS_FOR_USER;
-      QueryRunner runner = new QueryRunner();
 
       runner.execute(connection, stmt, tenantId, userName);
     }
@@ -26,6 +26,10 @@ public class FileTransfersDAOStatements
     public static final String GET_CHILD_TASK_BY_UUID =
         "SELECT * FROM transfer_tasks_child where uuid = ?";
 
+    //language=SQL
+    public static final String GET_CHILD_TASKS_BY_UUIDS =
+        "SELECT * FROM transfer_tasks_child where uuid = ANY(?)";
+
     //language=SQL
     public static final String GET_ALL_CHILDREN_FOR_PARENT =
         "SELECT * FROM transfer_tasks_child where parent_task_id = ?";
@@ -34,6 +38,11 @@ public class FileTransfersDAOStatements
     public static final String GET_ALL_CHILDREN =
         "SELECT * FROM transfer_tasks_child where task_id = ?";
 
+    //language=SQL
+    // Keyset paged listing of children for a task. Children with id greater than the given id, in id order.
+    public static final String GET_CHILDREN_PAGE =
+        "SELECT * FROM transfer_tasks_child where task_id = ? AND id > ? ORDER BY id LIMIT ?";
+
     //language=SQL
     public static final String GET_ALL_TASKS_FOR_USER =
         "SELECT * FROM transfer_tasks where tenant_id = ? AND username = ? order by created DESC limit ? offset ?";
@@ -186,11 +195,88 @@ public class FileTransfersDAOStatements
             " RETURNING * ";
 
     //language=SQL
-    public static final String CANCEL_TRANSFER_TASK_AND_CHILDREN =
+    // Multi-row insert of child tasks. Each parameter is an array holding one column for all rows in the batch.
+    public static final String BULK_INSERT_CHILD_TASKS =
+        """
+            INSERT into transfer_tasks_child
+              (tenant_id, task_id, parent_task_id, username, source_uri, destination_uri, status, bytes_transferred, total_bytes, is_dir, tag, external_task_id)
+            SELECT * FROM unnest(?::varchar[], ?::int[], ?::int[], ?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[],
+                                 ?::bigint[], ?::bigint[], ?::boolean[], ?::text[], ?::text[])
+            RETURNING *
+        """;
+
+    //language=SQL
+    public static final String CANCEL_TRANSFER_TASK_AND_PARENTS =
+        """
+            UPDATE transfer_tasks set status = 'CANCELLED'
+                WHERE id = ? AND status NOT IN ('COMPLETED', 'FAILED', 'FAILED_OPT', 'CANCELLED', 'PAUSED');
+            UPDATE transfer_tasks_parent set status = 'CANCELLED'
+                WHERE task_id = ? AND status NOT IN ('COMPLETED', 'FAILED', 'FAILED_OPT', 'CANCELLED', 'PAUSED');
+        """;
+
+    //language=SQL
+    // Cancel up to N non-terminal children of a task. Rows currently locked by workers are skipped.
+    public static final String CANCEL_CHILD_TASKS_BATCH =
+        """
+            WITH batch AS (
+                SELECT id FROM transfer_tasks_child
+                WHERE task_id = ? AND status NOT IN ('COMPLETED', 'FAILED', 'FAILED_OPT', 'CANCELLED', 'PAUSED')
+                ORDER BY id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            )
+            UPDATE transfer_tasks_child set status = 'CANCELLED'
+                FROM batch WHERE transfer_tasks_child.id = batch.id
+        """;
+
+    //language=SQL
+    // Take over up to N children with an external task that no instance holds a current lease on.
+    // Rows locked by another instance claiming them are skipped.
+    public static final String CLAIM_MONITOR_CHILD_TASKS =
+        """
+            WITH batch AS (
+                SELECT id FROM transfer_tasks_child
+                WHERE external_task_id IS NOT NULL AND end_time IS NULL
+                  AND (monitor_lease_expires IS NULL OR monitor_lease_expires < now())
+                ORDER BY monitor_lease_expires NULLS FIRST
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            )
+            UPDATE transfer_tasks_child set monitor_owner = ?, monitor_lease_expires = ?
+                FROM batch WHERE transfer_tasks_child.id = batch.id
+                RETURNING transfer_tasks_child.*
+        """;
+
+    //language=SQL
+    // Take over one child with an external task, unless another instance holds a current lease on it
+    public static final String CLAIM_MONITOR_CHILD_TASK =
+        """
+            UPDATE transfer_tasks_child set monitor_owner = ?, monitor_lease_expires = ?
+                WHERE uuid = ? AND external_task_id IS NOT NULL AND end_time IS NULL
+                  AND (monitor_owner = ? OR monitor_lease_expires IS NULL OR monitor_lease_expires < now())
+                RETURNING *
+        """;
+
+    //language=SQL
+    // Extend the leases still held by an instance. Returns the uuids of the children renewed.
+    public static final String RENEW_MONITOR_LEASES =
+        """
+            UPDATE transfer_tasks_child set monitor_lease_expires = ?
+                WHERE uuid = ANY(?) AND monitor_owner = ? AND end_time IS NULL
+                RETURNING uuid
+        """;
+
+    //language=SQL
+    // Record the final status of a child, only if the instance still holds its lease and it is not yet finished
+    public static final String FINISH_MONITOR_CHILD_TASK =
         """
-            UPDATE transfer_tasks set status = 'CANCELLED' where id = ?;
-            UPDATE transfer_tasks_parent set status = 'CANCELLED' where task_id = ?;
-            UPDATE transfer_tasks_child set status = 'CANCELLED' where task_id = ?;
+            UPDATE transfer_tasks_child
+            SET status = ?,
+                end_time = ?,
+                monitor_owner = NULL,
+                monitor_lease_expires = NULL
+                WHERE id = ? AND monitor_owner = ? AND end_time IS NULL
+                RETURNING *
         """;
 
     //language=SQL
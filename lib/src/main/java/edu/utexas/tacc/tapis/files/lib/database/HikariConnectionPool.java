@@ -27,9 +27,11 @@ public class HikariConnectionPool {
         config.setJdbcUrl(dbUrl);
         config.setUsername(conf.getDbUsername());
         config.setPassword(conf.getDbPassword());
-        config.addDataSourceProperty("cachePrepStmts", "true");
-        config.addDataSourceProperty("prepStmtCacheSize", "250");
-        config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        // Postgres driver statement cache. Statements are prepared server side on first use and the
+        // parsed statement is cached per connection.
+        config.addDataSourceProperty("prepareThreshold", "1");
+        config.addDataSourceProperty("preparedStatementCacheQueries", "256");
+        config.addDataSourceProperty("preparedStatementCacheSizeMiB", "5");
         config.setMaximumPoolSize(conf.getDbConnectionPoolSize());
         config.setMinimumIdle(conf.getDbConnectionPoolCoreSize());
         ds = new HikariDataSource(config);
@@ -0,0 +1,82 @@
+package edu.utexas.tacc.tapis.files.lib.database;
+
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.ResultSetHandler;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * QueryRunner that records latency and row counts for each statement in QueryMetrics.
+ * A single instance is thread safe and is meant to be shared by all calls in a DAO.
+ *
+ * Statements are named after the public static String constants of the statements class passed to the
+ * constructor (for example FileTransfersDAOStatements). SQL that is not one of those constants is
+ * recorded under UNKNOWN_STATEMENT.
+ * Statement caching itself is done by the JDBC driver, see HikariConnectionPool.
+ */
+public class InstrumentedQueryRunner extends QueryRunner
+{
+  public static final String UNKNOWN_STATEMENT = "UNKNOWN";
+
+  private final Map<String, String> statementNames = new HashMap<>();
+
+  public InstrumentedQueryRunner(Class<?> statementsClass)
+  {
+    for (Field field : statementsClass.getFields())
+    {
+      int mods = field.getModifiers();
+      if (!Modifier.isStatic(mods) || !String.class.equals(field.getType())) continue;
+      try
+      {
+        statementNames.put((String) field.get(null), field.getName());
+      }
+      catch (IllegalAccessException e)
+      {
+        // Public field, cannot happen
+      }
+    }
+  }
+
+  /**
+   * @param sql SQL text
+   * @return name of the statement constant holding this SQL, or UNKNOWN_STATEMENT
+   */
+  public String getStatementName(String sql)
+  {
+    return statementNames.getOrDefault(sql, UNKNOWN_STATEMENT);
+  }
+
+  @Override
+  public <T> T query(Connection conn, String sql, ResultSetHandler<T> rsh, Object... params) throws SQLException
+  {
+    long start = System.nanoTime();
+    T result = super.query(conn, sql, rsh, params);
+    long rows = (result instanceof Collection) ? ((Collection<?>) result).size() : (result == null ? 0 : 1);
+    QueryMetrics.record(getStatementName(sql), System.nanoTime() - start, rows);
+    return result;
+  }
+
+  @Override
+  public int update(Connection conn, String sql, Object... params) throws SQLException
+  {
+    long start = System.nanoTime();
+    int rows = super.update(conn, sql, params);
+    QueryMetrics.record(getStatementName(sql), System.nanoTime() - start, rows);
+    return rows;
+  }
+
+  @Override
+  public int execute(Connection conn, String sql, Object... params) throws SQLException
+  {
+    long start = System.nanoTime();
+    int rows = super.execute(conn, sql, params);
+    QueryMetrics.record(getStatementName(sql), System.nanoTime() - start, rows);
+    return rows;
+  }
+}
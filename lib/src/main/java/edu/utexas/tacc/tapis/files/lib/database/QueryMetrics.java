@@ -0,0 +1,140 @@
+package edu.utexas.tacc.tapis.files.lib.database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Per statement latency and row count statistics for database access.
+ * Statements are recorded by name (for the transfers DAO this is the name of the constant in
+ * FileTransfersDAOStatements). Latencies are kept in a fixed bucket histogram so that recording is
+ * cheap and lock free. Statements slower than SLOW_QUERY_MILLIS are logged as they happen, and a
+ * summary of all statements is logged periodically when debug logging is enabled.
+ */
+public class QueryMetrics
+{
+  private static final Logger log = LoggerFactory.getLogger(QueryMetrics.class);
+
+  // Upper bounds of the histogram buckets in milliseconds. There is one more bucket for everything above the last.
+  private static final long[] BUCKET_BOUNDS_MILLIS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000};
+  private static final long SLOW_QUERY_MILLIS = 1000;
+  private static final long SUMMARY_INTERVAL_MINUTES = 5;
+
+  private static final ConcurrentMap<String, StatementStats> stats = new ConcurrentHashMap<>();
+
+  static
+  {
+    ScheduledExecutorService summaryService = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "QueryMetricsSummary");
+      t.setDaemon(true);
+      return t;
+    });
+    summaryService.scheduleWithFixedDelay(QueryMetrics::logSummary, SUMMARY_INTERVAL_MINUTES,
+                                          SUMMARY_INTERVAL_MINUTES, TimeUnit.MINUTES);
+  }
+
+  private QueryMetrics() { }
+
+  /**
+   * Record one execution of a statement.
+   * @param statementName name used to group executions
+   * @param elapsedNanos time taken by the statement, including reading the results
+   * @param rows number of rows returned or updated
+   */
+  public static void record(String statementName, long elapsedNanos, long rows)
+  {
+    stats.computeIfAbsent(statementName, k -> new StatementStats()).record(elapsedNanos, rows);
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    if (elapsedMillis >= SLOW_QUERY_MILLIS)
+    {
+      log.warn("Slow query. Statement: {} Elapsed ms: {} Rows: {}", statementName, elapsedMillis, rows);
+    }
+  }
+
+  /**
+   * @return current statistics keyed by statement name, sorted by name
+   */
+  public static Map<String, StatementStats> getStats()
+  {
+    return Collections.unmodifiableMap(new TreeMap<>(stats));
+  }
+
+  public static void logSummary()
+  {
+    if (!log.isDebugEnabled()) return;
+    getStats().forEach((name, s) -> log.debug("Query stats. Statement: {} {}", name, s));
+  }
+
+  /*
+   * Statistics for a single statement
+   */
+  public static class StatementStats
+  {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder totalRows = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_MILLIS.length + 1];
+
+    StatementStats()
+    {
+      for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+    }
+
+    void record(long elapsedNanos, long rows)
+    {
+      count.increment();
+      totalNanos.add(elapsedNanos);
+      totalRows.add(rows);
+      maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+      long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+      int i = 0;
+      while (i < BUCKET_BOUNDS_MILLIS.length && elapsedMillis > BUCKET_BOUNDS_MILLIS[i]) i++;
+      buckets[i].increment();
+    }
+
+    public long getCount() { return count.sum(); }
+    public long getTotalRows() { return totalRows.sum(); }
+    public long getTotalMillis() { return TimeUnit.NANOSECONDS.toMillis(totalNanos.sum()); }
+    public long getMaxMillis() { return TimeUnit.NANOSECONDS.toMillis(maxNanos.get()); }
+
+    /**
+     * @return counts per latency bucket, keyed by bucket upper bound in ms. The last bucket is keyed by Long.MAX_VALUE
+     */
+    public Map<Long, Long> getHistogram()
+    {
+      Map<Long, Long> histogram = new TreeMap<>();
+      for (int i = 0; i < buckets.length; i++)
+      {
+        long bound = (i < BUCKET_BOUNDS_MILLIS.length) ? BUCKET_BOUNDS_MILLIS[i] : Long.MAX_VALUE;
+        histogram.put(bound, buckets[i].sum());
+      }
+      return histogram;
+    }
+
+    @Override
+    public String toString()
+    {
+      StringJoiner histogram = new StringJoiner(", ", "[", "]");
+      getHistogram().forEach((bound, n) -> histogram.add((bound == Long.MAX_VALUE ? "inf" : "<=" + bound) + "ms=" + n));
+      return new StringJoiner(" ")
+          .add("count=" + getCount())
+          .add("rows=" + getTotalRows())
+          .add("totalMs=" + getTotalMillis())
+          .add("maxMs=" + getMaxMillis())
+          .add("histogram=" + histogram)
+          .toString();
+    }
+  }
+}
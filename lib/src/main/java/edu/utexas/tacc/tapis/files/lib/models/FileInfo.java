@@ -1,7 +1,5 @@
 package edu.utexas.tacc.tapis.files.lib.models;
 
-import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
@@ -13,6 +11,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonValue;
 import software.amazon.awssdk.services.s3.model.S3Object;
 
+import edu.utexas.tacc.tapis.files.lib.utils.MimeTypes;
 import edu.utexas.tacc.tapis.shared.utils.PathUtils;
 
 /**
@@ -89,8 +88,7 @@ public class FileInfo
     size = s3Object.size();
     path = PathUtils.getFileInfoPathFromS3Key(s3Object.key(), rootDir);
     url = PathUtils.getTapisUrlFromPath(path, systemId);
-    try { mimeType = Files.probeContentType(tmpPath); }
-    catch (IOException ex) { mimeType = null; }
+    mimeType = MimeTypes.getMimeType(name);
     // If it ends with a / then it is considered a "directory" else it is a file
 //    if (s3Object.key().endsWith("/")) type = "dir"; else type = "file";
     // S3 objects are always files
@@ -97,8 +97,8 @@ public class TransferTaskChild extends TransferTaskParent
             .add("retries=" + retries)
             .add("tenantId='" + tenantId + "'")
             .add("username='" + username + "'")
-            .add("sourceURI='" + sourceURI + "'")
-            .add("destinationURI='" + destinationURI + "'")
+            .add("sourceURI='" + getSourceURI() + "'")
+            .add("destinationURI='" + getDestinationURI() + "'")
             .add("uuid=" + uuid)
             .add("totalBytes=" + totalBytes)
             .add("bytesTransferred=" + bytesTransferred)
@@ -27,6 +27,9 @@ public class TransferTaskParent
   protected String username;
   protected TransferURI sourceURI;
   protected TransferURI destinationURI;
+  // Unparsed URIs as read from the DB. Parsed into sourceURI/destinationURI on first access.
+  private String rawSourceURI;
+  private String rawDestinationURI;
   protected UUID uuid;
   protected long totalBytes;
   protected long bytesTransferred;
@@ -125,22 +128,42 @@ public class TransferTaskParent
   @JsonProperty("endTime")
   public void setEndTime(String s) { if (s != null) endTime = Instant.parse(s); }
 
-  public TransferURI getSourceURI() { return sourceURI; }
+  public TransferURI getSourceURI() {
+    if (sourceURI == null && rawSourceURI != null) sourceURI = new TransferURI(rawSourceURI);
+    return sourceURI;
+  }
   public void setSourceURI(String s) {
     sourceURI = new TransferURI(s);
+    rawSourceURI = null;
   }
   public void setSourceURI(TransferURI t) {
     sourceURI = t;
+    rawSourceURI = null;
   }
 
   public TransferURI getDestinationURI() {
+    if (destinationURI == null && rawDestinationURI != null) destinationURI = new TransferURI(rawDestinationURI);
     return destinationURI;
   }
   public void setDestinationURI(String s) {
     destinationURI = new TransferURI(s);
+    rawDestinationURI = null;
   }
   public void setDestinationURI(TransferURI t) {
     destinationURI = t;
+    rawDestinationURI = null;
+  }
+
+  /*
+   * Set the URIs without parsing them. Used when reading rows from the DB, where the values were validated
+   * on the way in. Parsing is deferred until the URI is first used.
+   */
+  @JsonIgnore
+  public void setRawURIs(String srcUri, String dstUri) {
+    sourceURI = null;
+    destinationURI = null;
+    rawSourceURI = srcUri;
+    rawDestinationURI = dstUri;
   }
 
   public int getTaskId() { return taskId; }
@@ -230,8 +253,8 @@ public class TransferTaskParent
             .add("tag=" + tag)
             .add("tenantId='" + tenantId + "'")
             .add("username='" + username + "'")
-            .add("sourceURI='" + sourceURI + "'")
-            .add("destinationURI='" + destinationURI + "'")
+            .add("sourceURI='" + getSourceURI() + "'")
+            .add("destinationURI='" + getDestinationURI() + "'")
             .add("uuid=" + uuid)
             .add("totalBytes=" + totalBytes)
             .add("bytesTransferred=" + bytesTransferred)
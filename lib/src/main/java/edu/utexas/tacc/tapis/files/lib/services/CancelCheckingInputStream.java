@@ -0,0 +1,44 @@
+package edu.utexas.tacc.tapis.files.lib.services;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.BooleanSupplier;
+
+/*
+ * Source stream of a child transfer that stops the transfer once a cancel has been requested.
+ *
+ * Before each read the cancel check is consulted, and once it returns true every read fails with an IOException.
+ *   The destination client gives up on the upload, and the caller can tell from the same check that the failure
+ *   was a cancel and not an error. The check is expected to be cheap, e.g. a lookup in the set of cancelled tasks.
+ */
+class CancelCheckingInputStream extends FilterInputStream {
+    private final BooleanSupplier cancelRequested;
+
+    CancelCheckingInputStream(InputStream in, BooleanSupplier cancelRequested) {
+        super(in);
+        this.cancelRequested = cancelRequested;
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkCancel();
+        return super.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        checkCancel();
+        return super.read(b, off, len);
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        checkCancel();
+        return super.skip(n);
+    }
+
+    private void checkCancel() throws IOException {
+        if (cancelRequested.getAsBoolean()) throw new IOException("Transfer cancelled");
+    }
+}
@@ -3,10 +3,15 @@ package edu.utexas.tacc.tapis.files.lib.services;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
@@ -22,6 +27,9 @@ import javax.ws.rs.NotFoundException;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.rabbitmq.client.AMQP;
 import com.rabbitmq.client.BuiltinExchangeType;
 import com.rabbitmq.client.Channel;
@@ -31,6 +39,7 @@ import com.rabbitmq.client.Envelope;
 import edu.utexas.tacc.tapis.files.lib.clients.GlobusDataClient;
 import edu.utexas.tacc.tapis.files.lib.clients.HTTPClient;
 import edu.utexas.tacc.tapis.files.lib.clients.IRemoteDataClient;
+import edu.utexas.tacc.tapis.files.lib.clients.IrodsDataClient;
 import edu.utexas.tacc.tapis.files.lib.config.RuntimeSettings;
 import edu.utexas.tacc.tapis.files.lib.exceptions.DAOException;
 import edu.utexas.tacc.tapis.files.lib.exceptions.ServiceException;
@@ -99,10 +108,36 @@ public class ChildTaskTransferService {
     private final SystemsCacheNoAuth systemsCacheNoAuth;
     private final FileUtilsService fileUtilsService;
     private static final Logger log = LoggerFactory.getLogger(ChildTaskTransferService.class);
+    private static final long MAX_CACHED_SRC_DIR_ENTRIES = 100_000;
+    // Max paths looked up in one call to getFileInfos
+    private static final int FILE_INFO_BATCH_SIZE = 1000;
+    // Files at least this large from an IRODS source are downloaded as ranges over several connections
+    private static final long IRODS_PARALLEL_THRESHOLD = RuntimeSettings.get().getIrodsParallelThresholdMB() * 1024L * 1024L;
+    private static final int IRODS_PARALLEL_THREADS = RuntimeSettings.get().getIrodsParallelThreads();
+    // Files at least this large from an HTTP/S source are downloaded as ranges over several connections
+    private static final long HTTP_PARALLEL_THRESHOLD = RuntimeSettings.get().getHttpParallelThresholdMB() * 1024L * 1024L;
+    private static final int HTTP_PARALLEL_CONNECTIONS = RuntimeSettings.get().getHttpParallelConnections();
     private Connection connection;
     private List<Channel> channels = new ArrayList<Channel>();
     private ExecutorService connectionThreadPool = null;
     private ScheduledExecutorService channelMonitorService = Executors.newSingleThreadScheduledExecutor();
+    // Ids of top level tasks for which a cancel has been received on the control exchange. Consulted before
+    // writing child task updates so that workers stop as soon as possible without polling the DB for the cancel.
+    private final Cache<Integer, Boolean> cancelledTaskIds =
+            CacheBuilder.newBuilder().maximumSize(10000).expireAfterWrite(Duration.ofHours(24)).build();
+    private Channel controlChannel;
+    // Follows started Globus transfers, see performASynchFileTransfer
+    private static final long GLOBUS_INITIAL_POLL_MILLIS = 5000;
+    private final GlobusTaskMonitor globusMonitor;
+    // For children of directory transfers between LINUX systems, which source files are executable. Filled in a
+    // directory at a time so that each child does not need its own stat of the source just to check the x bit.
+    // Keyed by parent task and source directory, so a listing is only shared by children of the same transfer,
+    // which are normally processed within moments of each other. Entries expire after a minute and are dropped as
+    // soon as a child finds its file missing from the listing. Weighed by number of entries.
+    private final Cache<String, Map<String, Boolean>> srcDirExecutables =
+            CacheBuilder.newBuilder().maximumWeight(MAX_CACHED_SRC_DIR_ENTRIES)
+                    .weigher((String key, Map<String, Boolean> entries) -> entries.size() + 1)
+                    .expireAfterWrite(Duration.ofMinutes(1)).build();
 
     /* *********************************************************************** */
     /*            Constructors                                                 */
@@ -126,6 +161,8 @@ public class ChildTaskTransferService {
         this.systemsCacheNoAuth = systemsCacheNoAuth;
         this.remoteDataClientFactory = remoteDataClientFactory;
         this.fileUtilsService = fileUtilsService;
+        this.globusMonitor = new GlobusTaskMonitor(dao, new GlobusMonitorListener(), GLOBUS_INITIAL_POLL_MILLIS,
+                RuntimeSettings.get().getAsyncTransferPollSeconds() * 1000L);
 
         connectionThreadPool = Executors.newFixedThreadPool(MAX_CONSUMERS);
         connection = RabbitMQConnection.getInstance().newConnection(connectionThreadPool);
@@ -137,6 +174,9 @@ public class ChildTaskTransferService {
 
     public void startListeners() throws IOException, TimeoutException {
         createChannels();
+        createControlChannel();
+        // Also takes over the Globus transfers followed before a restart, see GlobusTaskMonitor
+        globusMonitor.start();
 
         channelMonitorService.scheduleWithFixedDelay(new Runnable() {
             @Override
@@ -155,6 +195,10 @@ public class ChildTaskTransferService {
                     // re-open channels
                     try {
                         createChannels();
+                        if (controlChannel == null || !controlChannel.isOpen()) {
+                            log.warn("RabbitMQ control channel is closed");
+                            createControlChannel();
+                        }
                     } catch (Exception ex) {
                         log.error("Unable to re-open channels", ex);
                     }
@@ -195,6 +239,48 @@ public class ChildTaskTransferService {
         }
     }
 
+    /*
+     * Subscribe to the control exchange for the lifetime of the service and record every cancelled task id.
+     */
+    private void createControlChannel() throws IOException {
+        Channel channel = connection.createChannel();
+        String queueName = "control.worker." + UUID.randomUUID();
+        channel.queueDeclare(queueName, false, true, true, null);
+        channel.exchangeDeclare(TransfersService.CONTROL_EXCHANGE, BuiltinExchangeType.FANOUT, true);
+        channel.queueBind(queueName, TransfersService.CONTROL_EXCHANGE, "#");
+        channel.basicConsume(queueName, true, new DefaultConsumer(channel) {
+            @Override
+            public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body) {
+                try {
+                    TransferControlAction action = mapper.readValue(body, TransferControlAction.class);
+                    if (TransferControlAction.ControlAction.CANCEL.equals(action.getAction())) {
+                        cancelledTaskIds.put(action.getTaskId(), Boolean.TRUE);
+                    }
+                } catch (IOException ex) {
+                    log.error(LibUtils.getMsg("FILES_TXFR_UNABLE_TO_PARSE_MESSAGE"), ex);
+                }
+            }
+        });
+        controlChannel = channel;
+    }
+
+    /*
+     * Return true if a cancel has been received for the top level task that owns this child.
+     */
+    private boolean isCancelRequested(TransferTaskChild taskChild) {
+        return cancelledTaskIds.getIfPresent(taskChild.getTaskId()) != null;
+    }
+
+    /*
+     * If a cancel has been received for the task, mark the child CANCELLED before it is written to the DB.
+     * Covers the window where the DB cancel has not yet reached this row.
+     */
+    private void applyCancelRequest(TransferTaskChild taskChild) {
+        if (!taskChild.isTerminal() && isCancelRequested(taskChild)) {
+            taskChild.setStatus(TransferTaskStatus.CANCELLED);
+        }
+    }
+
     public void handleDelivery(Channel channel, String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body) {
         TransferTaskChild taskChild = null;
 
@@ -282,6 +368,12 @@ public class ChildTaskTransferService {
                     }
                 }
 
+                // A started Globus transfer is finished by the globusMonitor, see performASynchFileTransfer
+                if (!taskChild.isTerminal() && !StringUtils.isBlank(taskChild.getExternalTaskId())) {
+                    channel.basicAck(envelope.getDeliveryTag(), false);
+                    return;
+                }
+
                 if(!postTransferUpdateComplete) {
                     taskChild = updateStatusAfterTransfer(taskChild);
                     if (taskChild == null) {
@@ -368,6 +460,7 @@ public class ChildTaskTransferService {
                 dao.updateTransferTaskParent(parentTask);
             }
 
+            applyCancelRequest(taskChild);
             // If cancelled or failed set the end time, and we are done
             if (taskChild.isTerminal()) {
                 taskChild.setEndTime(Instant.now());
@@ -435,6 +528,7 @@ public class ChildTaskTransferService {
                     taskChild.setStatus(parentTask.getStatus());
                 }
             }
+            applyCancelRequest(taskChild);
 
             // If cancelled or failed set the end time, and we are done
             if (taskChild.isTerminal()) {
@@ -554,7 +648,7 @@ public class ChildTaskTransferService {
 
         // If it is an executable file on a posix system going to a posix system, chmod it to be +x.
         // Note: sourceSystem will be null and srcIsLinux will be false if source is http/s.
-        if (sourceSystem != null && srcIsLinux && dstIsLinux) {
+        if (sourceSystem != null && srcIsLinux && dstIsLinux && !isCancelRequested(taskChild)) {
             // Figure out if dest system is shared. We need to know if we should turn of perm checking.
             // First check to see if we are in a sharedCtx
             boolean isDestShared = !StringUtils.isBlank(parentTask.getDestSharedCtxGrantor());
@@ -565,7 +659,9 @@ public class ChildTaskTransferService {
                 boolean isSharedDirect = (sharedWithUsers != null && sharedWithUsers.contains(oboUser));
                 isDestShared = (isSharedPublic || isSharedDirect);
             }
-            updateLinuxExeFile(taskChild, sourceClient, sourceURL, destClient, destURL, isDestShared);
+            // If the parent transfer is for a directory there will usually be other children from the same directory
+            boolean isDirTransfer = !sourceURL.equals(parentTask.getSourceURI());
+            updateLinuxExeFile(taskChild, sourceClient, sourceURL, destClient, destURL, isDestShared, isDirTransfer);
         }
 
         // The ChildTransferTask may have been updated by calling thread, e.g. cancelled, so we look it up again
@@ -591,6 +687,7 @@ public class ChildTaskTransferService {
         log.info(LibUtils.getMsg("FILES_TXFR_CHILD_TASK", stepLabel, taskChild));
         // If it cancelled/failed somehow, just push it through unchanged.
         try {
+            applyCancelRequest(taskChild);
             // If we are cancelled/failed, update end time, and we are done
             if (taskChild.isTerminal()) {
                 taskChild.setEndTime(Instant.now());
@@ -878,23 +975,28 @@ public class ChildTaskTransferService {
      * @param srcUri    source path as URI
      * @param dstClient Remote data client for destination system
      * @param dstUri    Destination path as URI
+     * @param isDirTransfer true if the child is part of a directory transfer
      */
     private void updateLinuxExeFile(TransferTaskChild taskChild,
                                     IRemoteDataClient srcClient, TransferURI srcUri,
                                     IRemoteDataClient dstClient, TransferURI dstUri,
-                                    boolean isDestShared)
+                                    boolean isDestShared, boolean isDirTransfer)
             throws IOException, ServiceException {
 
         String srcPath = srcUri.getPath();
         String dstPath = dstUri.getPath();
-        FileInfo item = srcClient.getFileInfo(srcPath, true);
-        if (item == null) {
-            throw new NotFoundException(LibUtils.getMsg("FILES_TXFR_CHILD_PATH_NOTFOUND", taskChild.getTenantId(),
-                    taskChild.getUsername(), taskChild.getId(),
-                    taskChild.getUuid(), srcPath, taskChild.getTag()));
+        Boolean isExecutable = isDirTransfer ? getExecutableFromSrcDir(taskChild, srcClient, srcPath) : null;
+        if (isExecutable == null) {
+            FileInfo item = srcClient.getFileInfo(srcPath, true);
+            if (item == null) {
+                throw new NotFoundException(LibUtils.getMsg("FILES_TXFR_CHILD_PATH_NOTFOUND", taskChild.getTenantId(),
+                        taskChild.getUsername(), taskChild.getId(),
+                        taskChild.getUuid(), srcPath, taskChild.getTag()));
+            }
+            isExecutable = isExecutableFile(item);
         }
 
-        if (!item.isDir() && item.getNativePermissions().contains("x")) {
+        if (isExecutable) {
             try {
                 // If in a sharedAppCtx, tell linuxOp to skip the perms check.
                 // so the linuxOp will skip the perm check
@@ -910,6 +1012,56 @@ public class ChildTaskTransferService {
         }
     }
 
+    /**
+     * Look up whether a source file is executable using a listing of its directory, shared with the other
+     * children of the same transfer from the same directory.
+     *
+     * @return null if the file is not in the listing or the directory could not be listed
+     */
+    private Boolean getExecutableFromSrcDir(TransferTaskChild taskChild, IRemoteDataClient srcClient, String srcPath) {
+        Path srcFilePath = Paths.get(srcPath);
+        Path srcDirPath = srcFilePath.getParent();
+        if (srcDirPath == null || srcFilePath.getFileName() == null) return null;
+        String key = taskChild.getParentTaskId() + "|" + srcDirPath;
+        try {
+            Map<String, Boolean> executables =
+                    srcDirExecutables.get(key, () -> listExecutables(srcClient, srcDirPath.toString()));
+            String fileName = srcFilePath.getFileName().toString();
+            // The listing is out of date, let the next child list the directory again
+            if (!executables.containsKey(fileName)) srcDirExecutables.invalidate(key);
+            return executables.get(fileName);
+        } catch (ExecutionException | UncheckedExecutionException ex) {
+            log.warn("Could not list source directory " + srcDirPath + ": " + ex.getMessage());
+            return null;
+        }
+    }
+
+    /*
+     * List a directory and work out which entries are executable files. Links are followed, in batches.
+     */
+    private static Map<String, Boolean> listExecutables(IRemoteDataClient client, String dirPath) throws IOException {
+        Map<String, Boolean> executables = new HashMap<>();
+        List<FileInfo> links = new ArrayList<>();
+        for (FileInfo fileInfo : client.ls(dirPath)) {
+            if (fileInfo.isSymLink()) links.add(fileInfo);
+            else executables.put(fileInfo.getName(), isExecutableFile(fileInfo));
+        }
+        for (int start = 0; start < links.size(); start += FILE_INFO_BATCH_SIZE) {
+            List<FileInfo> batch = links.subList(start, Math.min(start + FILE_INFO_BATCH_SIZE, links.size()));
+            List<FileInfo> targets = client.getFileInfos(batch.stream().map(FileInfo::getPath).toList(), true);
+            for (int i = 0; i < batch.size(); i++) {
+                // Unknown for links that could not be resolved, a lookup of just that file will report it
+                FileInfo target = targets.get(i);
+                executables.put(batch.get(i).getName(), (target == null) ? null : isExecutableFile(target));
+            }
+        }
+        return executables;
+    }
+
+    private static boolean isExecutableFile(FileInfo fileInfo) {
+        return !fileInfo.isDir() && fileInfo.getNativePermissions() != null && fileInfo.getNativePermissions().contains("x");
+    }
+
     /**
      * Perform synchronous transfer between two systems using a stream
      *
@@ -933,10 +1085,28 @@ public class ChildTaskTransferService {
         // Stream the file contents to destination. While the InputStream is open,
         // we put a tap on it and send events that get grouped into 100 ms intervals. Progress
         // on the child tasks are updated during the reading of the source input stream.
-        try (InputStream sourceStream = srcClient.getStream(srcPath)) {
-            // Observe the progress event stream, just get the last event from the past 1 second.
-            final TransferTaskChild finalTaskChild = taskChild;
+        // Large IRODS and HTTP/S sources are fetched as parallel ranges. An HTTP/S source only counts as large when
+        // the parent recorded its size, so small and unsized sources skip the extra HEAD request.
+        boolean irodsParallel = IRODS_PARALLEL_THREADS > 1 && taskChild.getTotalBytes() >= IRODS_PARALLEL_THRESHOLD;
+        boolean httpParallel = HTTP_PARALLEL_CONNECTIONS > 1 && taskChild.getTotalBytes() >= HTTP_PARALLEL_THRESHOLD;
+        InputStream srcStream;
+        if (irodsParallel && srcClient instanceof IrodsDataClient) {
+            srcStream = ((IrodsDataClient) srcClient).getStreamParallel(srcPath, IRODS_PARALLEL_THREADS);
+        } else if (httpParallel && srcClient instanceof HTTPClient) {
+            srcStream = ((HTTPClient) srcClient).getStreamParallel(srcPath, HTTP_PARALLEL_CONNECTIONS, HTTP_PARALLEL_THRESHOLD);
+        } else {
+            srcStream = srcClient.getStream(srcPath);
+        }
+        // Reads fail once a cancel for the task is received, so a long transfer stops without finishing the copy.
+        final TransferTaskChild finalTaskChild = taskChild;
+        try (InputStream sourceStream = new CancelCheckingInputStream(srcStream, () -> isCancelRequested(finalTaskChild))) {
             dstClient.upload(dstPath, sourceStream);
+        } catch (IOException ex) {
+            // Not an error if it was the cancel, updateStatusAfterTransfer marks the child CANCELLED
+            if (!isCancelRequested(taskChild)) throw ex;
+            log.info(LibUtils.getMsg("FILES_TXFR_CHILD_CANCELLED", taskChild.getTenantId(), taskChild.getUsername(),
+                    taskChild.getId(), taskChild.getTag(), taskChild.getUuid()));
+            return;
         }
         msg = LibUtils.getMsg("FILES_TXFR_CHILD_SYNCH_END", taskChild.getTenantId(), taskChild.getUsername(),
                 taskChild.getId(), taskChild.getTag(), taskChild.getUuid(),
@@ -944,12 +1114,49 @@ public class ChildTaskTransferService {
         log.trace(msg);
     }
 
+    /*
+     * Callbacks for the globusMonitor, doing for a finished Globus transfer what handleMessage does for others.
+     */
+    private class GlobusMonitorListener implements GlobusTaskMonitor.Listener {
+        @Override
+        public GlobusDataClient getClient(TransferTaskChild taskChild) throws Exception {
+            TransferURI srcUri = taskChild.getSourceURI();
+            TransferTaskParent parentTask = dao.getTransferTaskParentById(taskChild.getParentTaskId());
+            TapisSystem srcSys =
+                    systemsCacheNoAuth.getSystem(taskChild.getTenantId(), srcUri.getSystemId(), taskChild.getUsername());
+            IRemoteDataClient srcClient =
+                    remoteDataClientFactory.getRemoteDataClient(taskChild.getTenantId(), taskChild.getUsername(),
+                            srcSys, IMPERSONATION_ID_NULL, parentTask.getSrcSharedCtxGrantor());
+            if (!(srcClient instanceof GlobusDataClient)) {
+                throw new ServiceException(LibUtils.getMsg("FILES_TXFR_GLOBUS_WRONG_CLIENT", "Source", srcUri, taskChild.getTag()));
+            }
+            return (GlobusDataClient) srcClient;
+        }
+
+        @Override
+        public boolean isCancelRequested(TransferTaskChild taskChild) {
+            return ChildTaskTransferService.this.isCancelRequested(taskChild);
+        }
+
+        @Override
+        public void onFinished(TransferTaskChild taskChild) throws ServiceException {
+            taskChild = updateStatusAfterTransfer(taskChild);
+            checkForParentCompletion(taskChild);
+        }
+
+        @Override
+        public void onError(TransferTaskChild taskChild, Exception cause) {
+            doErrorStepOne(cause, taskChild);
+        }
+    }
+
     /**
      * Perform asynchronous transfer between two systems for the case where Tapis is not in control of the transfer.
      * All incoming arguments must be non-null
      * Handle a GLOBUS type point to point txfr where we are not in control of the stream.
      * We initiate the transfer, get the externalTransferId, update the child task
-     * with the externalTransferId and then monitor the transfer and update the progress.
+     * with the externalTransferId and then hand it to the globusMonitor, which follows the transfer and
+     * finishes the child once it ends.
      *
      * @param taskChild task we are processing
      * @param srcClient Remote data client for source system
@@ -998,8 +1205,6 @@ public class ChildTaskTransferService {
             throw new ServiceException(LibUtils.getMsg("FILES_TXFR_GLOBUS_WRONG_CLIENT", "Destination", dstUri, tag));
         }
 
-        // TODO: Use a backoff policy?
-        long pollIntervalSeconds = RuntimeSettings.get().getAsyncTransferPollSeconds();
         String externalTaskId = null;
         try {
             // Use srcClient to call GlobusProxy to kick off a transfer originating from the source Globus system
@@ -1017,68 +1222,26 @@ public class ChildTaskTransferService {
             // Update child task with external task id.
             taskChild.setExternalTaskId(externalTaskId);
             taskChild = dao.updateTransferTaskChild(taskChild);
-            // Monitor the status of the transfer until it is in a final state.
-            // Loop forever waiting for task to finish or be cancelled.
-            int iteration = 1;
-            while (true) {
-                // Get latest taskChild info to see if it has been cancelled
-                taskChild = dao.getTransferTaskChild(taskChild.getUuid());
-                // If in a terminal state, e.g. cancelled, set the end time and exit loop
-                if (taskChild.isTerminal()) {
-                    taskChild.setEndTime(Instant.now());
-                    taskChild = dao.updateTransferTaskChild(taskChild);
-                    break;
-                }
-                // Wait poll interval between status checks.
-                log.trace(LibUtils.getMsg("FILES_TXFR_ASYNCH_POLL", taskChild.getTenantId(), taskChild.getUsername(),
-                        taskChild.getId(), tag, taskChild.getUuid(), pollIntervalSeconds, iteration));
-                try {
-                    Thread.sleep(pollIntervalSeconds * 1000);
-                } catch (InterruptedException e) {
-                    log.warn(LibUtils.getMsg("FILES_TXFR_ASYNCH_INTERRUPTED", taskChild.getTenantId(), taskChild.getUsername(),
-                            taskChild.getId(), taskChild.getTag(), taskChild.getUuid(), iteration));
-                }
-
-                // Get the external task status
-                // Expected enum values from client: ACTIVE, INACTIVE, SUCCEEDED, FAILED
-                String externalTaskStatus = gSrcClient.getGlobusTransferTaskStatus(externalTaskId);
-
-                // If in a final state we are done. Use valueOf in case string is null
-                boolean isTerminal;
-                switch (String.valueOf(externalTaskStatus)) {
-                    case "ACTIVE", "INACTIVE" -> isTerminal = false;
-                    case "FAILED" -> {
-                        isTerminal = true;
-                        // Update status of taskChild.
-                        if (taskChild.isOptional()) taskChild.setStatus(TransferTaskStatus.FAILED_OPT);
-                        else taskChild.setStatus(TransferTaskStatus.FAILED);
-                        taskChild.setEndTime(Instant.now());
-                        taskChild = dao.updateTransferTaskChild(taskChild);
-                    }
-                    case "SUCCEEDED" -> {
-                        isTerminal = true;
-                        // Update status of taskChild.
-                        taskChild.setStatus(TransferTaskStatus.COMPLETED);
-                        taskChild.setEndTime(Instant.now());
-                        taskChild = dao.updateTransferTaskChild(taskChild);
-                    }
-                    default -> {
-                        msg = LibUtils.getMsg("FILES_TXFR_ASYNCH_BAD_STATUS", taskChild.getTenantId(), taskChild.getUsername(),
-                                taskChild.getId(), taskChild.getTag(), taskChild.getUuid(), externalTaskId,
-                                externalTaskStatus, iteration);
-                        log.error(msg);
-                        throw new ServiceException(msg);
-                    }
-                }
-                if (isTerminal) break;
-                iteration++;
-            }
         } catch (DAOException ex) {
             msg = LibUtils.getMsg("FILES_TXFR_SVC_ERR1", taskChild.getTenantId(), taskChild.getUsername(),
                     "ChildStepTwoC", taskChild.getId(), taskChild.getTag(), taskChild.getUuid(), ex.getMessage());
             log.error(msg, ex);
+            // Nothing records the Globus task, so nothing would follow it. Stop it before the child is failed.
+            if (externalTaskId != null) {
+                try {
+                    ((GlobusDataClient) srcClient).cancelGlobusTransferTask(externalTaskId);
+                } catch (Exception cancelEx) {
+                    log.warn(LibUtils.getMsg("FILES_TXFR_GLOBUS_CANCEL_ERR", taskChild.getTenantId(),
+                            taskChild.getUsername(), taskChild.getId(), taskChild.getTag(), taskChild.getUuid(),
+                            externalTaskId, cancelEx.getMessage()));
+                }
+            }
             throw new ServiceException(msg, ex);
         }
+        // The external task id is in the DB, so from here on some instance follows the task even if this one stops.
+        // Hand the child to the globusMonitor, which follows the external task and does the remaining steps
+        // once it is in a final state. Nothing more is done for the child on this thread.
+        globusMonitor.track(taskChild);
         msg = LibUtils.getMsg("FILES_TXFR_CHILD_ASYNCH_END", taskChild.getTenantId(), taskChild.getUsername(),
                 taskChild.getId(), taskChild.getTag(), taskChild.getUuid(), externalTaskId,
                 srcUri.getSystemId(), srcRelPath, dstUri.getSystemId(), dstRelPath);
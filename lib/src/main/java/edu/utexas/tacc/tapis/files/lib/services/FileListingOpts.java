@@ -36,6 +36,16 @@ public class FileListingOpts {
             return this;
         }
 
+        public Builder setStartAfter(String startAfter) {
+            this.fileListingOpts.setStartAfter(startAfter);
+            return this;
+        }
+
+        public Builder setHierarchical(boolean hierarchical) {
+            this.fileListingOpts.setHierarchical(hierarchical);
+            return this;
+        }
+
         public FileListingOpts build() {
             return this.fileListingOpts;
         }
@@ -46,12 +56,18 @@ public class FileListingOpts {
     public static final boolean DEFAULT_RECURSE = false;
     public static final int DEFAULT_RECURSION_LIMIT = 20;
     public static final String DEFAULT_PATTERN = null;
+    public static final String DEFAULT_START_AFTER = null;
+    public static final boolean DEFAULT_HIERARCHICAL = false;
 
     private int pageSize;
     private long itemOffset;
     private int recursionLimit;
     private String pattern;
     private boolean recurse;
+    // Continuation token for paged listings: name of the last item of the previous page
+    private String startAfter;
+    // For S3, list one level with key prefixes as directories instead of every object under the path
+    private boolean hierarchical;
 
     private FileListingOpts() {
         this.pageSize = DEFAULT_PAGE_SIZE;
@@ -59,6 +75,8 @@ public class FileListingOpts {
         this.recurse = DEFAULT_RECURSE;
         this.recursionLimit = DEFAULT_RECURSION_LIMIT;
         this.pattern = DEFAULT_PATTERN;
+        this.startAfter = DEFAULT_START_AFTER;
+        this.hierarchical = DEFAULT_HIERARCHICAL;
     }
 
     public int getPageSize() {
@@ -100,5 +118,34 @@ public class FileListingOpts {
     public void setRecurse(boolean recurse) {
         this.recurse = recurse;
     }
-}
 
+    public String getStartAfter() {
+        return startAfter;
+    }
+
+    public void setStartAfter(String startAfter) {
+        this.startAfter = startAfter;
+    }
+
+    public boolean isHierarchical() {
+        return hierarchical;
+    }
+
+    public void setHierarchical(boolean hierarchical) {
+        this.hierarchical = hierarchical;
+    }
+
+    /*
+     * Copy of these options with startAfter cleared
+     */
+    FileListingOpts withoutStartAfter() {
+        FileListingOpts opts = new FileListingOpts();
+        opts.pageSize = pageSize;
+        opts.itemOffset = itemOffset;
+        opts.recursionLimit = recursionLimit;
+        opts.pattern = pattern;
+        opts.recurse = recurse;
+        opts.hierarchical = hierarchical;
+        return opts;
+    }
+}
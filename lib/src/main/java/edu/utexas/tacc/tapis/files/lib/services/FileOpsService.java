@@ -5,10 +5,14 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 import javax.inject.Inject;
@@ -19,6 +23,7 @@ import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.StreamingOutput;
 
 import edu.utexas.tacc.tapis.files.lib.clients.ISSHDataClient;
+import edu.utexas.tacc.tapis.files.lib.clients.S3DataClient;
 import edu.utexas.tacc.tapis.files.lib.clients.SSHDataClient;
 import edu.utexas.tacc.tapis.files.lib.models.NativeLinuxOpResult;
 import org.apache.commons.io.FilenameUtils;
@@ -31,10 +36,13 @@ import org.slf4j.LoggerFactory;
 import org.jetbrains.annotations.NotNull;
 
 import edu.utexas.tacc.tapis.client.shared.exceptions.TapisClientException;
+import edu.utexas.tacc.tapis.files.lib.caches.DirectoryListingCache;
+import edu.utexas.tacc.tapis.files.lib.caches.DirectoryListingCache.ListingCacheKey;
 import edu.utexas.tacc.tapis.files.lib.caches.SystemsCache;
 import edu.utexas.tacc.tapis.files.lib.caches.SystemsCacheNoAuth;
 import edu.utexas.tacc.tapis.files.lib.clients.IRemoteDataClient;
 import edu.utexas.tacc.tapis.files.lib.clients.RemoteDataClientFactory;
+import edu.utexas.tacc.tapis.files.lib.config.RuntimeSettings;
 import edu.utexas.tacc.tapis.files.lib.database.HikariConnectionPool;
 import edu.utexas.tacc.tapis.files.lib.exceptions.ServiceException;
 import edu.utexas.tacc.tapis.files.lib.models.FileInfo;
@@ -65,6 +73,8 @@ import static edu.utexas.tacc.tapis.files.lib.clients.IRemoteDataClientFactory.S
 public class FileOpsService
 {
   public static final int MAX_RECURSION = 20;
+  // Max paths looked up in one call to getFileInfos
+  private static final int FILE_INFO_BATCH_SIZE = 1000;
 
   public enum MoveCopyOperation {MOVE, COPY, SERVICE_MOVE_DIRECTORY_CONTENTS, SERVICE_MOVE_FILE_OR_DIRECTORY}
 
@@ -72,6 +82,10 @@ public class FileOpsService
 
   private static final String SERVICE_NAME = TapisConstants.SERVICE_NAME_FILES;
 
+  // Opt in cache of directory listings, see DirectoryListingCache
+  private static final DirectoryListingCache listingCache =
+          new DirectoryListingCache(RuntimeSettings.get().getListingCacheSize(), RuntimeSettings.get().getListingCacheTtlSeconds());
+
   // 0=systemId, 1=path, 2=tenant
   private final String TAPIS_FILES_URL_FORMAT = String.format("%s{0}/{1}?tenant={2}", TAPIS_PROTOCOL_PREFIX);
 
@@ -159,6 +173,10 @@ public class FileOpsService
     {
       // Get the connection and increment the reservation count
       client = remoteDataClientFactory.getRemoteDataClient(oboTenant, oboUser, sys, impersonationId, sharedCtxGrantor);
+      if (listingCache.isEnabled() && SystemTypeEnum.LINUX.equals(sys.getSystemType()))
+      {
+        return lsCached(client, sys.getEffectiveUserId(), relPathStr, fileListingOpts);
+      }
       return ls(client, relPathStr, fileListingOpts);
     }
     catch (IOException | ServiceException ex)
@@ -193,14 +211,19 @@ public class FileOpsService
     String relPathStr = PathUtils.getRelativePath(pathStr).toString();
     try
     {
-      List<FileInfo> listing = client.ls(relPathStr, fileListingOpts.getPageSize(), fileListingOpts.getItemOffset(), fileListingOpts.getPattern());
-      listing.forEach(f ->
-        {
-          f.setUrl(PathUtils.getTapisUrlFromPath(f.getPath(), client.getSystemId()));
-          // Ensure there is no leading slash
-          f.setPath(StringUtils.removeStart(f.getPath(), "/"));
-        }
-      );
+      List<FileInfo> listing;
+      if (fileListingOpts.isHierarchical() && client instanceof S3DataClient)
+      {
+        listing = ((S3DataClient) client).lsOneLevel(relPathStr, fileListingOpts.getPageSize(),
+                                                     fileListingOpts.getItemOffset(), fileListingOpts.getPattern(),
+                                                     fileListingOpts.getStartAfter());
+      }
+      else
+      {
+        listing = client.ls(relPathStr, fileListingOpts.getPageSize(), fileListingOpts.getItemOffset(),
+                            fileListingOpts.getPattern(), fileListingOpts.getStartAfter());
+      }
+      setListingUrls(client, listing);
       return listing;
     }
     catch (IOException ex)
@@ -212,6 +235,27 @@ public class FileOpsService
     }
   }
 
+  /*
+   * List files using the listing cache. The path is checked with a stat and a cached listing is only used if the
+   *   path has not been modified since it was listed.
+   */
+  private List<FileInfo> lsCached(IRemoteDataClient client, String effectiveUserId, String relPathStr,
+                                  FileListingOpts fileListingOpts)
+          throws IOException, ServiceException
+  {
+    ListingCacheKey key = new ListingCacheKey(client.getOboTenant(), client.getSystemId(), effectiveUserId,
+                                              relPathStr, fileListingOpts);
+    Instant statTime = Instant.now();
+    FileInfo pathInfo = client.getFileInfo(relPathStr, true);
+    // If not found, let ls report it
+    if (pathInfo == null) return ls(client, relPathStr, fileListingOpts);
+    List<FileInfo> listing = listingCache.get(key, pathInfo.getLastModified());
+    if (listing != null) return listing;
+    listing = ls(client, relPathStr, fileListingOpts);
+    listingCache.put(key, pathInfo.getLastModified(), statTime, listing);
+    return listing;
+  }
+
   /**
    * Recursive list of files at path. Max possible depth = MAX_RECURSION(20)
    * @param rUser - ResourceRequestUser containing tenant, user and request info
@@ -275,11 +319,59 @@ public class FileOpsService
           throws ServiceException
   {
     List<FileInfo> listing = new ArrayList<>();
-    // Make the call that does recursion
-    listDirectoryRecurse(client, relPathStr, listing, followLinks, 0, fileListingOpts);
+    lsRecursive(client, relPathStr, followLinks, fileListingOpts, listing::addAll);
+    // Directories read in parallel arrive in completion order. Sort so the result does not change between calls.
+    listing.sort((f1, f2) -> compareWalkOrder(f1.getPath(), f2.getPath()));
     return listing;
   }
 
+  /**
+   * Recursive list files at path using provided client, passing the listing of each directory to the consumer
+   *   as soon as it has been read. Directories may be read in parallel, see RecursiveListingWalker.
+   * A directory is always passed to the consumer before anything under it. The consumer is called on the
+   *   calling thread.
+   * NOTE: This method does not check permissions. Callers should check first
+   * @param client - Remote data client
+   * @param relPathStr - normalized path on system relative to system rootDir
+   * @param followLinks - if true, symlinks will be followed when deciding which entries are directories
+   * @param fileListingOpts - listing options, including the maximum depth for recursion
+   * @param consumer - receives the listing of each directory
+   * @throws ServiceException - general error
+   * @throws NotFoundException - requested path not found
+   */
+  public void lsRecursive(@NotNull IRemoteDataClient client, @NotNull String relPathStr, boolean followLinks,
+                          FileListingOpts fileListingOpts, Consumer<List<FileInfo>> consumer)
+          throws ServiceException
+  {
+    // For Linux systems first try a single remote find. This is only equivalent to walking the tree when
+    //   links are not followed and the listing of each directory is neither paged nor filtered.
+    if (client instanceof SSHDataClient && !followLinks && isUnpagedAndUnfiltered(fileListingOpts))
+    {
+      try
+      {
+        boolean listed = ((SSHDataClient) client).lsRecursiveWithFind(relPathStr, fileListingOpts.getRecursionLimit(),
+                                                                      listing -> {
+                                                                        setListingUrls(client, listing);
+                                                                        consumer.accept(listing);
+                                                                      });
+        if (listed) return;
+      }
+      catch (IOException ex)
+      {
+        String msg = LibUtils.getMsg("FILES_OPSC_ERR", client.getOboTenant(), client.getOboUser(), "lsRecursive",
+                                     client.getSystemId(), relPathStr, ex.getMessage());
+        log.error(msg, ex);
+        throw new ServiceException(msg, ex);
+      }
+    }
+    // startAfter only applies to the top level, directories under it are always listed from the start
+    FileListingOpts subDirListingOpts = fileListingOpts.withoutStartAfter();
+    RecursiveListingWalker walker = new RecursiveListingWalker(client,
+            (c, path) -> ls(c, path, relPathStr.equals(path) ? fileListingOpts : subDirListingOpts),
+            followLinks, fileListingOpts.getRecursionLimit());
+    walker.walk(relPathStr, consumer);
+  }
+
   /**
    * Get FileInfo for a path
    * @param rUser - ResourceRequestUser containing tenant, user and request info
@@ -399,6 +491,7 @@ public class FileOpsService
           throw new BadRequestException(msg);
         }
         client.upload(relPathStr, inputStream);
+        listingCache.invalidatePath(client.getOboTenant(), client.getSystemId(), relPathStr);
       }
       catch (IOException ex)
       {
@@ -473,6 +566,7 @@ public class FileOpsService
       synchronized (SSHDataClient.class) {
         client.mkdir(relPathStr);
       }
+      listingCache.invalidatePath(client.getOboTenant(), client.getSystemId(), relPathStr);
     }
     catch (IOException ex)
     {
@@ -593,6 +687,8 @@ public class FileOpsService
       } else {
         client.copy(srcRelPathStr, dstRelPathStr);
       }
+      listingCache.invalidatePath(oboTenant, sysId, srcRelPathStr);
+      listingCache.invalidatePath(oboTenant, sysId, dstRelPathStr);
     }
     catch (IOException ex)
     {
@@ -657,6 +753,7 @@ public class FileOpsService
     try
     {
       client.delete(relPathStr);
+      listingCache.invalidatePath(client.getOboTenant(), client.getSystemId(), relPathStr);
       permsService.removePathPermissionFromAllRoles(client.getOboTenant(), client.getOboUser(), client.getSystemId(),
                                                     relPathStr);
     }
@@ -1025,6 +1122,9 @@ public class FileOpsService
       FileListingOpts.Builder optsBuilder = new FileListingOpts.Builder();
       // Step through a recursive listing up to some max depth
       List<FileInfo> listing = lsRecursive(client, relPathStr, true, optsBuilder.build());
+      // the file info that we got from the directory listing will not follow links, so we must
+      // get file info with followLinks=true to get the info for the link. Look them all up in batches.
+      Map<String, FileInfo> linkTargets = getLinkTargets(client, listing);
       for (FileInfo fileInfo : listing)
       {
         // Build the path we will use for the zip entry
@@ -1036,10 +1136,8 @@ public class FileOpsService
         // For final entry we do not want the leading slash
         String entryPath = StringUtils.removeStart(currentPath.toString(), "/");
 
-        // the file info that we got from the directory listing will not follow links, so we must
-        // get file info with followLinks=true to get the info for the link.
         if(fileInfo.isSymLink()) {
-          FileInfo tmpInfo = getFileInfo(rUser, sysId, fileInfo.getPath(), true, null, null);
+          FileInfo tmpInfo = linkTargets.get(fileInfo.getPath());
           if(tmpInfo == null) {
             log.warn("Could not get file info for path:" + fileInfo.getPath());
             continue;
@@ -1069,6 +1167,31 @@ public class FileOpsService
     }
   }
 
+  /*
+   * Get info with links followed for all symbolic links in a listing, keyed by path.
+   * Links that cannot be resolved are left out.
+   */
+  private static Map<String, FileInfo> getLinkTargets(IRemoteDataClient client, List<FileInfo> listing)
+          throws IOException
+  {
+    List<String> linkPaths = new ArrayList<>();
+    for (FileInfo fileInfo : listing)
+    {
+      if (fileInfo.isSymLink()) linkPaths.add(fileInfo.getPath());
+    }
+    Map<String, FileInfo> linkTargets = new HashMap<>();
+    for (int start = 0; start < linkPaths.size(); start += FILE_INFO_BATCH_SIZE)
+    {
+      List<String> batch = linkPaths.subList(start, Math.min(start + FILE_INFO_BATCH_SIZE, linkPaths.size()));
+      List<FileInfo> batchInfos = client.getFileInfos(batch, true);
+      for (int i = 0; i < batch.size(); i++)
+      {
+        if (batchInfos.get(i) != null) linkTargets.put(batch.get(i), batchInfos.get(i));
+      }
+    }
+    return linkTargets;
+  }
+
   private void addDirectoryToZip(ZipOutputStream zos, String directoryPath) throws IOException {
     // Since it is a dir we add a trailing slash
     directoryPath = StringUtils.appendIfMissing(directoryPath, "/");
@@ -1083,47 +1206,44 @@ public class FileOpsService
     zos.closeEntry();
   }
 
-  /**
-   * Recursive method to build up list of files at a path
-   * @param client remote data client to use
-   * @param basePath - path on system relative to system rootDir
-   * @param listing - collection of FileInfo objects being used to build up list
-   * @param depth - depth currently being listed
-   * @param maxDepth - maximum depth for recursion
-   * @param pattern - Wildcard (glob) pattern or regex used to filter results.  Regex must be prefixed by "regex:".
-   *                Only results with file names that match the regex will be returned.
-   * @throws ServiceException - general error
-   * @throws NotFoundException - requested path not found
+  /*
+   * Fill in the url of each entry of a listing and make sure paths have no leading slash
    */
-  private void listDirectoryRecurse(@NotNull IRemoteDataClient client, String basePath, List<FileInfo> listing,
-                                    boolean followLinks, int depth, FileListingOpts fileListingOpts)
-          throws ServiceException
+  private static void setListingUrls(IRemoteDataClient client, List<FileInfo> listing)
   {
-    List<FileInfo> currentListing = ls(client, basePath, fileListingOpts);
-    listing.addAll(currentListing);
-    // If client is S3 we are done.
-    if (SystemTypeEnum.S3.equals(client.getSystemType())) return;
-    for (FileInfo fileInfo: currentListing)
-    {
-      if(followLinks && fileInfo.isSymLink()) {
-        FileInfo tmpInfo = null;
-        try {
-          tmpInfo = client.getFileInfo(fileInfo.getPath(), true);
-        } catch (IOException e) {
-          log.error("Could not get file info for path:" + fileInfo.getPath(), e);
-          continue;
-        }
-        if(tmpInfo == null) {
-          log.warn("Could not get file info for path:" + fileInfo.getPath());
-          continue;
-        }
-        fileInfo = tmpInfo;
-      }
-      if (fileInfo.isDir() && depth < fileListingOpts.getRecursionLimit())
+    listing.forEach(f ->
       {
-        listDirectoryRecurse(client, fileInfo.getPath(), listing, followLinks, depth + 1, fileListingOpts);
+        f.setUrl(PathUtils.getTapisUrlFromPath(f.getPath(), client.getSystemId()));
+        // Ensure there is no leading slash
+        f.setPath(StringUtils.removeStart(f.getPath(), "/"));
       }
+    );
+  }
+
+  /*
+   * Order paths the way a depth first walk visits them: a directory before its contents, siblings in name order
+   */
+  static int compareWalkOrder(String path1, String path2)
+  {
+    String[] names1 = StringUtils.split(path1, '/');
+    String[] names2 = StringUtils.split(path2, '/');
+    for (int i = 0; i < Math.min(names1.length, names2.length); i++)
+    {
+      int cmp = IRemoteDataClient.LISTING_NAME_ORDER.compare(names1[i], names2[i]);
+      if (cmp != 0) return cmp;
     }
+    return Integer.compare(names1.length, names2.length);
+  }
+
+  /*
+   * True if listing options do not page or filter the entries of each directory
+   */
+  private static boolean isUnpagedAndUnfiltered(FileListingOpts fileListingOpts)
+  {
+    return fileListingOpts.getPageSize() == FileListingOpts.DEFAULT_PAGE_SIZE &&
+           fileListingOpts.getItemOffset() <= 0 &&
+           StringUtils.isBlank(fileListingOpts.getPattern()) &&
+           StringUtils.isEmpty(fileListingOpts.getStartAfter());
   }
 
   /*
@@ -0,0 +1,366 @@
+package edu.utexas.tacc.tapis.files.lib.services;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import com.google.common.collect.Lists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import edu.utexas.tacc.tapis.files.lib.clients.GlobusDataClient;
+import edu.utexas.tacc.tapis.files.lib.dao.transfers.FileTransfersDAO;
+import edu.utexas.tacc.tapis.files.lib.exceptions.DAOException;
+import edu.utexas.tacc.tapis.files.lib.exceptions.ServiceException;
+import edu.utexas.tacc.tapis.files.lib.models.TransferTaskChild;
+import edu.utexas.tacc.tapis.files.lib.models.TransferTaskStatus;
+import edu.utexas.tacc.tapis.files.lib.utils.LibUtils;
+
+/*
+ * Follows the external Globus tasks started for child transfer tasks and finishes each child when its Globus task
+ *   ends.
+ *
+ * For a transfer between Globus systems the child only starts a Globus task, Globus moves the data. Rather than a
+ *   worker thread waiting on each of these, ChildTaskTransferService hands the child to this monitor and moves on.
+ * Which instance follows a child is recorded in the DB as a lease, renewed every LEASE_RENEW_MILLIS while the child
+ *   is tracked. Every CLAIM_INTERVAL_MILLIS, and right after start, the monitor takes over children with an
+ *   external task whose lease is missing or has run out, e.g. after a restart or when another instance stopped.
+ *   Only the lease holder records the final status, so a child is never finished twice.
+ *   All tracked tasks are polled from one thread. Children due for a poll are taken in batches of POLL_BATCH_SIZE,
+ *   each batch is re-read from the DB with one query to pick up cancels, and the Globus status calls for the batch
+ *   run in parallel on a small pool.
+ * A task is first polled after initialPollMillis and the interval doubles each time it is found still running, up
+ *   to maxPollMillis. Short transfers are finished quickly and long ones are polled at the configured rate. Failed
+ *   polls are retried on the same schedule, and after MAX_POLL_ERRORS in a row the child is failed.
+ */
+class GlobusTaskMonitor {
+    private static final Logger log = LoggerFactory.getLogger(GlobusTaskMonitor.class);
+    private static final int POLL_BATCH_SIZE = 100;
+    private static final int POLL_THREADS = 8;
+    private static final long TICK_MILLIS = 1000;
+    private static final int MAX_POLL_ERRORS = 5;
+    private static final long LEASE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final long LEASE_RENEW_MILLIS = TimeUnit.MINUTES.toMillis(2);
+    private static final long CLAIM_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final int CLAIM_BATCH_SIZE = 1000;
+
+    /*
+     * Steps of the transfer service used by the monitor.
+     */
+    interface Listener {
+        // Client for the source system of the child, used for status and cancel calls
+        GlobusDataClient getClient(TransferTaskChild child) throws Exception;
+
+        boolean isCancelRequested(TransferTaskChild child);
+
+        // Remaining steps for a child whose final status has been recorded
+        void onFinished(TransferTaskChild child) throws Exception;
+
+        // Fail a child that could not be monitored
+        void onError(TransferTaskChild child, Exception cause);
+    }
+
+    private final FileTransfersDAO dao;
+    private final Listener listener;
+    private final long initialPollMillis;
+    private final long maxPollMillis;
+    // Identifies this instance in the leases it holds
+    private final String owner = UUID.randomUUID().toString();
+    private final Map<UUID, Tracked> tracked = new ConcurrentHashMap<>();
+    private final ExecutorService pollExecutor = Executors.newFixedThreadPool(POLL_THREADS, r -> {
+        Thread t = new Thread(r, "GlobusTaskMonitor-poll");
+        t.setDaemon(true);
+        return t;
+    });
+    private ScheduledExecutorService scheduler;
+    // Only touched from the scheduler thread
+    private long nextRenewMillis = 0;
+    private long nextClaimMillis = 0;
+
+    GlobusTaskMonitor(FileTransfersDAO dao, Listener listener, long initialPollMillis, long maxPollMillis) {
+        this.dao = dao;
+        this.listener = listener;
+        this.maxPollMillis = Math.max(0, maxPollMillis);
+        this.initialPollMillis = Math.min(Math.max(0, initialPollMillis), this.maxPollMillis);
+    }
+
+    /*
+     * Start polling.
+     */
+    synchronized void start() {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "GlobusTaskMonitor");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                maintainLeases();
+                pollDue();
+            } catch (Throwable th) {
+                log.error(th.getMessage(), th);
+            }
+        }, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Take the lease on a child and start tracking it. If the lease cannot be taken the child is left to the
+     * instance holding it, or, on a DB error, to whichever instance next takes over children without a lease.
+     *
+     * @param child child task with the external task id recorded in the DB
+     * @return true if the child is now tracked by this monitor
+     */
+    boolean track(TransferTaskChild child) {
+        TransferTaskChild claimed;
+        try {
+            claimed = dao.claimMonitorChildTask(child.getUuid(), owner, leaseExpiry());
+        } catch (DAOException ex) {
+            log.error(ex.getMessage(), ex);
+            return false;
+        }
+        if (claimed == null) return false;
+        tracked.putIfAbsent(claimed.getUuid(), new Tracked(claimed.getUuid(), initialPollMillis));
+        return true;
+    }
+
+    int getTrackedCount() { return tracked.size(); }
+
+    /*
+     * Renew the leases of tracked children and take over children no instance is following, when due.
+     */
+    void maintainLeases() {
+        long now = System.currentTimeMillis();
+        if (now >= nextRenewMillis) {
+            nextRenewMillis = now + LEASE_RENEW_MILLIS;
+            renewLeases();
+        }
+        if (now >= nextClaimMillis) {
+            nextClaimMillis = now + CLAIM_INTERVAL_MILLIS;
+            claimUnfollowed();
+        }
+    }
+
+    /*
+     * Extend the leases of tracked children. Children whose lease could not be extended are finished or followed
+     * by another instance now, stop tracking them. Children already finished here no longer have a lease.
+     */
+    private void renewLeases() {
+        List<UUID> uuids = tracked.values().stream().filter(t -> t.finished == null).map(t -> t.uuid).toList();
+        for (List<UUID> batch : Lists.partition(uuids, CLAIM_BATCH_SIZE)) {
+            Set<UUID> renewed;
+            try {
+                renewed = new HashSet<>(dao.renewMonitorLeases(batch, owner, leaseExpiry()));
+            } catch (DAOException ex) {
+                // Try again on the next tick, the leases are good for several renew intervals
+                log.error(ex.getMessage(), ex);
+                nextRenewMillis = 0;
+                return;
+            }
+            for (UUID uuid : batch) {
+                if (renewed.contains(uuid)) continue;
+                log.warn(LibUtils.getMsg("FILES_TXFR_GLOBUS_MONITOR_LOST", uuid));
+                tracked.remove(uuid);
+            }
+        }
+    }
+
+    /*
+     * Take over children with an external task that no instance holds a current lease on.
+     */
+    private void claimUnfollowed() {
+        int total = 0;
+        try {
+            List<TransferTaskChild> claimed;
+            do {
+                claimed = dao.claimMonitorChildTasks(owner, leaseExpiry(), CLAIM_BATCH_SIZE);
+                for (TransferTaskChild child : claimed) {
+                    tracked.putIfAbsent(child.getUuid(), new Tracked(child.getUuid(), initialPollMillis));
+                }
+                total += claimed.size();
+            } while (claimed.size() == CLAIM_BATCH_SIZE);
+        } catch (DAOException ex) {
+            log.error(ex.getMessage(), ex);
+        }
+        if (total > 0) log.info(LibUtils.getMsg("FILES_TXFR_GLOBUS_MONITOR_CLAIMED", total, owner));
+    }
+
+    private Instant leaseExpiry() {
+        return Instant.now().plusMillis(LEASE_MILLIS);
+    }
+
+    /*
+     * Poll the tasks that are due, most overdue first.
+     */
+    void pollDue() {
+        long now = System.currentTimeMillis();
+        List<Tracked> due = tracked.values().stream()
+                .filter(t -> t.nextPollMillis <= now)
+                .sorted(Comparator.comparingLong(t -> t.nextPollMillis))
+                .toList();
+        for (List<Tracked> batch : Lists.partition(due, POLL_BATCH_SIZE)) {
+            if (!pollBatch(batch)) return;
+        }
+    }
+
+    /*
+     * Poll a batch of tasks. Returns false if interrupted.
+     */
+    private boolean pollBatch(List<Tracked> batch) {
+        Map<UUID, TransferTaskChild> children = new HashMap<>();
+        try {
+            for (TransferTaskChild child : dao.getChildTasksByUUIDs(batch.stream().map(t -> t.uuid).toList())) {
+                children.put(child.getUuid(), child);
+            }
+        } catch (DAOException ex) {
+            // Not the fault of any one task, try again later without counting it against them
+            log.error(ex.getMessage(), ex);
+            batch.forEach(this::backOff);
+            return true;
+        }
+
+        List<Future<?>> polls = new ArrayList<>();
+        for (Tracked t : batch) {
+            TransferTaskChild child = children.get(t.uuid);
+            if (child == null) {
+                log.warn(LibUtils.getMsg("FILES_TXFR_GLOBUS_MONITOR_GONE", t.uuid));
+                done(t);
+                continue;
+            }
+            polls.add(pollExecutor.submit(() -> poll(t, child)));
+        }
+        for (Future<?> poll : polls) {
+            try {
+                poll.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (ExecutionException ex) {
+                log.error(ex.getMessage(), ex);
+            }
+        }
+        return true;
+    }
+
+    private void poll(Tracked t, TransferTaskChild child) {
+        t.polls++;
+        try {
+            // Final status recorded on an earlier poll, the remaining steps failed
+            if (t.finished != null) {
+                completeFinish(t);
+                return;
+            }
+            if (t.client == null) t.client = listener.getClient(child);
+            // Ended or cancelled on our side while Globus is still working
+            if (child.isTerminal() || listener.isCancelRequested(child)) {
+                cancel(t, child);
+                return;
+            }
+            log.trace(LibUtils.getMsg("FILES_TXFR_ASYNCH_POLL", child.getTenantId(), child.getUsername(),
+                    child.getId(), child.getTag(), child.getUuid(), t.intervalMillis / 1000, t.polls));
+
+            // Expected enum values from client: ACTIVE, INACTIVE, SUCCEEDED, FAILED
+            String externalTaskStatus = t.client.getGlobusTransferTaskStatus(child.getExternalTaskId());
+            // Use valueOf in case string is null
+            switch (String.valueOf(externalTaskStatus)) {
+                case "ACTIVE", "INACTIVE" -> {
+                    t.errors = 0;
+                    backOff(t);
+                }
+                case "FAILED" -> finish(t, child,
+                        child.isOptional() ? TransferTaskStatus.FAILED_OPT : TransferTaskStatus.FAILED);
+                case "SUCCEEDED" -> finish(t, child, TransferTaskStatus.COMPLETED);
+                default -> throw new ServiceException(LibUtils.getMsg("FILES_TXFR_ASYNCH_BAD_STATUS",
+                        child.getTenantId(), child.getUsername(), child.getId(), child.getTag(), child.getUuid(),
+                        child.getExternalTaskId(), externalTaskStatus, t.polls));
+            }
+        } catch (Exception ex) {
+            t.errors++;
+            log.warn(LibUtils.getMsg("FILES_TXFR_GLOBUS_MONITOR_ERR", child.getTenantId(), child.getUsername(),
+                    child.getId(), child.getTag(), child.getUuid(), child.getExternalTaskId(), t.errors,
+                    ex.getMessage()));
+            if (t.errors < MAX_POLL_ERRORS) {
+                backOff(t);
+                return;
+            }
+            listener.onError(child, ex);
+            done(t);
+        }
+    }
+
+    /*
+     * Stop the Globus task of a child that was cancelled or ended by other means.
+     */
+    private void cancel(Tracked t, TransferTaskChild child) throws Exception {
+        try {
+            t.client.cancelGlobusTransferTask(child.getExternalTaskId());
+        } catch (Exception ex) {
+            // Most likely already ended
+            log.warn(LibUtils.getMsg("FILES_TXFR_GLOBUS_CANCEL_ERR", child.getTenantId(), child.getUsername(),
+                    child.getId(), child.getTag(), child.getUuid(), child.getExternalTaskId(), ex.getMessage()));
+        }
+        finish(t, child, child.isTerminal() ? child.getStatus() : TransferTaskStatus.CANCELLED);
+    }
+
+    /*
+     * Record the final status, then do the remaining steps. If the lease has been lost the status is not written
+     * and the instance now holding the lease finishes the child instead.
+     */
+    private void finish(Tracked t, TransferTaskChild child, TransferTaskStatus status) throws Exception {
+        child.setStatus(status);
+        child.setEndTime(Instant.now());
+        TransferTaskChild finished = dao.finishMonitorChildTask(child, owner);
+        if (finished == null) {
+            log.warn(LibUtils.getMsg("FILES_TXFR_GLOBUS_MONITOR_LOST", t.uuid));
+            done(t);
+            return;
+        }
+        t.finished = finished;
+        completeFinish(t);
+    }
+
+    private void completeFinish(Tracked t) throws Exception {
+        listener.onFinished(t.finished);
+        done(t);
+    }
+
+    private void backOff(Tracked t) {
+        t.intervalMillis = Math.min(Math.max(t.intervalMillis * 2, initialPollMillis), maxPollMillis);
+        t.nextPollMillis = System.currentTimeMillis() + t.intervalMillis;
+    }
+
+    private void done(Tracked t) {
+        tracked.remove(t.uuid, t);
+    }
+
+    /*
+     * State of one tracked child. Only touched by the poll of the child and by the scheduler thread.
+     */
+    private static class Tracked {
+        final UUID uuid;
+        GlobusDataClient client;
+        // Set once the final status is recorded
+        volatile TransferTaskChild finished;
+        long intervalMillis;
+        long nextPollMillis;
+        int polls = 0;
+        int errors = 0;
+
+        Tracked(UUID uuid, long intervalMillis) {
+            this.uuid = uuid;
+            this.intervalMillis = intervalMillis;
+            this.nextPollMillis = System.currentTimeMillis() + intervalMillis;
+        }
+    }
+}
@@ -9,6 +9,7 @@ import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.DefaultConsumer;
 import com.rabbitmq.client.Envelope;
+import edu.utexas.tacc.tapis.files.lib.clients.HTTPClient;
 import edu.utexas.tacc.tapis.files.lib.clients.IRemoteDataClient;
 import edu.utexas.tacc.tapis.files.lib.config.RuntimeSettings;
 import edu.utexas.tacc.tapis.files.lib.exceptions.DAOException;
@@ -572,9 +573,8 @@ public class ParentTaskTransferService {
     parentTask.setTotalBytes(totalBytes);
     parentTask.setStatus(TransferTaskStatus.STAGED);
     parentTask = dao.updateTransferTaskParent(parentTask);
-    dao.bulkInsertChildTasks(children);
-    children = dao.getAllChildren(parentTask);
-    transfersService.publishBulkChildMessages(children);
+    // Children are published batch by batch once all are inserted, no need to read them back from the DB.
+    dao.bulkInsertChildTasks(children, transfersService::publishBulkChildMessages);
   }
 
   private void handleNonTapisTransfer(TransferTaskParent parentTask) throws ServiceException, DAOException {
@@ -589,12 +589,37 @@ public class ParentTaskTransferService {
     task.setStatus(TransferTaskStatus.ACCEPTED);
     task.setTenantId(parentTask.getTenantId());
     task.setUsername(parentTask.getUsername());
+    // Record the size so progress can be reported. Large files are fetched in parallel ranges by the child.
+    long totalBytes = getSizeOfUrl(parentTask);
+    if (totalBytes > 0) {
+      task.setTotalBytes(totalBytes);
+      parentTask.setTotalBytes(totalBytes);
+    }
     task = dao.insertChildTask(task);
     transfersService.publishChildMessage(task);
     parentTask.setStatus(TransferTaskStatus.STAGED);
     dao.updateTransferTaskParent(parentTask);
   }
 
+  /*
+   * Size of the source URL of a non-tapis transfer from a HEAD request, or -1 if not known.
+   * Failures are only logged, the child transfer reports any real problem with the URL.
+   * The request is cut off after TAPIS_HTTP_HEAD_TIMEOUT_SECONDS so a slow server does not hold up the parent.
+   */
+  private long getSizeOfUrl(TransferTaskParent parentTask) {
+    String srcUrl = parentTask.getSourceURI().toString();
+    HTTPClient client = new HTTPClient(parentTask.getTenantId(), parentTask.getUsername(), srcUrl,
+                                       parentTask.getDestinationURI().toString());
+    try {
+      FileInfo fileInfo = client.getFileInfo(srcUrl, true);
+      return (fileInfo == null) ? -1 : fileInfo.getSize();
+    } catch (IOException | RuntimeException e) {
+      log.warn(LibUtils.getMsg("FILES_TXFR_HTTP_SIZE_ERR", parentTask.getTenantId(), parentTask.getUsername(),
+                               parentTask.getId(), parentTask.getUuid(), srcUrl, e.getMessage()));
+      return -1;
+    }
+  }
+
 
   /**
    * This method handles exceptions/errors if the parent task failed.
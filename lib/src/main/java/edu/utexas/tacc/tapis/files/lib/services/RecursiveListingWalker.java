@@ -0,0 +1,325 @@
+package edu.utexas.tacc.tapis.files.lib.services;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.utexas.tacc.tapis.files.lib.clients.IRemoteDataClient;
+import edu.utexas.tacc.tapis.files.lib.config.IRuntimeConfig;
+import edu.utexas.tacc.tapis.files.lib.config.RuntimeSettings;
+import edu.utexas.tacc.tapis.files.lib.exceptions.ServiceException;
+import edu.utexas.tacc.tapis.files.lib.models.FileInfo;
+import edu.utexas.tacc.tapis.files.lib.utils.LibUtils;
+import edu.utexas.tacc.tapis.systems.client.gen.model.SystemTypeEnum;
+import edu.utexas.tacc.tapis.systems.client.gen.model.TapisSystem;
+
+/*
+ * Walks a directory tree on a remote system, reading directories in parallel.
+ *
+ * Directory reads run on a work stealing pool shared by all walks. The calling thread coordinates: it hands
+ *   pending directories to the pool, collects the listings as they complete, passes them to the consumer and
+ *   queues any sub-directories found. Because the consumer is always called on the calling thread it does not
+ *   need to be thread safe, and a directory is always delivered before anything under it.
+ * Each listing is sorted by name and sub-directories are started in name order, but reads that run in parallel
+ *   are delivered in the order they complete. Callers that need a stable order across directories must sort.
+ * The number of reads in flight against a single host, across all walks, is capped by a per host semaphore.
+ *   Permits are taken by the calling thread, never by pool threads, so a busy host cannot starve walks
+ *   against other hosts. A permit is returned when its read finishes. If the walk stops early, reads that have
+ *   not started are cancelled and the walk waits for the ones already running.
+ * Only system types whose clients borrow a connection per operation are read in parallel. For other types the
+ *   tree is walked depth first on the calling thread.
+ */
+public class RecursiveListingWalker
+{
+  private static final Logger log = LoggerFactory.getLogger(RecursiveListingWalker.class);
+
+  private static final IRuntimeConfig runtimeConfig = RuntimeSettings.get();
+  private static final int MAX_CONCURRENCY_PER_HOST = Math.max(1, runtimeConfig.getListingMaxConcurrencyPerHost());
+  private static final ExecutorService executor =
+          Executors.newWorkStealingPool(Math.max(1, runtimeConfig.getListingThreadPoolSize()));
+  private static final ConcurrentMap<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+  /*
+   * Reads a single directory. Used so the walker can share the listing logic of FileOpsService.
+   */
+  @FunctionalInterface
+  public interface DirectoryReader
+  {
+    List<FileInfo> read(IRemoteDataClient client, String path) throws ServiceException;
+  }
+
+  private final IRemoteDataClient client;
+  private final DirectoryReader reader;
+  private final boolean followLinks;
+  private final int recursionLimit;
+
+  /**
+   * @param client - Remote data client
+   * @param reader - reads one directory
+   * @param followLinks - if true, symlinks are resolved to decide whether they point at a directory
+   * @param recursionLimit - maximum depth for recursion
+   */
+  public RecursiveListingWalker(IRemoteDataClient client, DirectoryReader reader, boolean followLinks,
+                                int recursionLimit)
+  {
+    this.client = client;
+    this.reader = reader;
+    this.followLinks = followLinks;
+    this.recursionLimit = recursionLimit;
+  }
+
+  /**
+   * Walk the tree starting at basePath, passing the listing of each directory to the consumer as it arrives.
+   * If a directory cannot be read the walk stops and the error is thrown once outstanding reads are done.
+   *
+   * @param basePath - normalized path on system relative to system rootDir
+   * @param consumer - receives the listing of each directory, on the calling thread
+   * @throws ServiceException - general error
+   */
+  public void walk(String basePath, Consumer<List<FileInfo>> consumer) throws ServiceException
+  {
+    // S3 has no directories, the first listing has everything
+    if (SystemTypeEnum.S3.equals(client.getSystemType()))
+    {
+      consumer.accept(reader.read(client, basePath));
+      return;
+    }
+    if (SystemTypeEnum.LINUX.equals(client.getSystemType()) || SystemTypeEnum.IRODS.equals(client.getSystemType()))
+    {
+      walkParallel(basePath, consumer);
+    }
+    else
+    {
+      walkSerial(basePath, 0, consumer);
+    }
+  }
+
+  /*
+   * Depth first walk on the calling thread.
+   */
+  private void walkSerial(String path, int depth, Consumer<List<FileInfo>> consumer) throws ServiceException
+  {
+    DirectoryResult result = readDirectory(new PendingDirectory(path, depth));
+    consumer.accept(result.listing);
+    for (String subDir : result.subDirs) walkSerial(subDir, depth + 1, consumer);
+  }
+
+  private void walkParallel(String basePath, Consumer<List<FileInfo>> consumer) throws ServiceException
+  {
+    Semaphore permits = hostPermits.computeIfAbsent(getHostKey(), k -> new Semaphore(MAX_CONCURRENCY_PER_HOST));
+    CompletionService<DirectoryResult> completionService = new ExecutorCompletionService<>(executor);
+    // Used as a stack so the walk stays roughly depth first and the number of pending directories stays small
+    Deque<PendingDirectory> pending = new ArrayDeque<>();
+    pending.push(new PendingDirectory(basePath, 0));
+    Map<Future<DirectoryResult>, DirectoryTask> inFlight = new HashMap<>();
+    ServiceException failure = null;
+    try
+    {
+      while (failure == null && (!pending.isEmpty() || !inFlight.isEmpty()))
+      {
+        // Start as many reads as we can get permits for. If nothing is running, wait for a permit.
+        while (!pending.isEmpty() && (permits.tryAcquire() || (inFlight.isEmpty() && acquire(permits))))
+        {
+          DirectoryTask task = new DirectoryTask(pending.pop(), permits);
+          try
+          {
+            inFlight.put(completionService.submit(task), task);
+          }
+          catch (RuntimeException e)
+          {
+            permits.release();
+            throw e;
+          }
+        }
+
+        Future<DirectoryResult> done = completionService.take();
+        inFlight.remove(done);
+        try
+        {
+          DirectoryResult result = done.get();
+          consumer.accept(result.listing);
+          // Pushed in reverse so sub-directories are popped in name order
+          for (int i = result.subDirs.size() - 1; i >= 0; i--)
+          {
+            pending.push(new PendingDirectory(result.subDirs.get(i), result.depth + 1));
+          }
+        }
+        catch (ExecutionException e)
+        {
+          failure = (e.getCause() instanceof ServiceException) ? (ServiceException) e.getCause()
+                  : new ServiceException(getErrorMessage(basePath, e.getCause()), e.getCause());
+        }
+      }
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      failure = new ServiceException(getErrorMessage(basePath, e), e);
+    }
+    finally
+    {
+      // Reads that have not started are cancelled and their permits returned. Reads already running return their
+      //   own permits; wait for them so nothing is still using the client once the walk is over.
+      for (Map.Entry<Future<DirectoryResult>, DirectoryTask> entry : inFlight.entrySet())
+      {
+        if (entry.getValue().claim())
+        {
+          entry.getKey().cancel(false);
+          permits.release();
+        }
+        else
+        {
+          try { Uninterruptibles.getUninterruptibly(entry.getKey()); }
+          catch (ExecutionException | CancellationException e) { /* Walk has already failed or finished */ }
+        }
+      }
+    }
+    if (failure != null) throw failure;
+  }
+
+  /*
+   * Read of one directory, holding one of the host permits. The permit is released when the read finishes, or by
+   *   the walker if it claims the task first because the walk ended before the read started.
+   */
+  private class DirectoryTask implements Callable<DirectoryResult>
+  {
+    private final PendingDirectory dir;
+    private final Semaphore permits;
+    private final AtomicBoolean claimed = new AtomicBoolean();
+
+    DirectoryTask(PendingDirectory dir, Semaphore permits)
+    {
+      this.dir = dir;
+      this.permits = permits;
+    }
+
+    boolean claim() { return claimed.compareAndSet(false, true); }
+
+    @Override
+    public DirectoryResult call() throws ServiceException
+    {
+      if (!claim()) throw new CancellationException();
+      try
+      {
+        return readDirectory(dir);
+      }
+      finally
+      {
+        permits.release();
+      }
+    }
+  }
+
+  /*
+   * Read one directory and work out which entries should be walked next.
+   */
+  private DirectoryResult readDirectory(PendingDirectory dir) throws ServiceException
+  {
+    List<FileInfo> listing = new ArrayList<>(reader.read(client, dir.path));
+    listing.sort(Comparator.comparing(FileInfo::getName, IRemoteDataClient.LISTING_NAME_ORDER));
+    List<String> subDirs = new ArrayList<>();
+    if (dir.depth < recursionLimit)
+    {
+      List<String> linkPaths = new ArrayList<>();
+      for (FileInfo fileInfo : listing)
+      {
+        if (followLinks && fileInfo.isSymLink()) linkPaths.add(fileInfo.getPath());
+        else if (fileInfo.isDir()) subDirs.add(fileInfo.getPath());
+      }
+      // Resolve all links in the directory in one batch. Links that could not be looked up come back as null and
+      //   are skipped.
+      if (!linkPaths.isEmpty())
+      {
+        List<FileInfo> linkTargets;
+        try
+        {
+          linkTargets = client.getFileInfos(linkPaths, true);
+        }
+        catch (IOException e)
+        {
+          log.error("Could not get file info for links in path:" + dir.path, e);
+          linkTargets = new ArrayList<>();
+        }
+        for (int i = 0; i < linkTargets.size(); i++)
+        {
+          FileInfo tmpInfo = linkTargets.get(i);
+          if (tmpInfo == null)
+          {
+            log.warn("Could not get file info for path:" + linkPaths.get(i));
+            continue;
+          }
+          if (tmpInfo.isDir()) subDirs.add(linkPaths.get(i));
+        }
+      }
+    }
+    subDirs.sort(IRemoteDataClient.LISTING_NAME_ORDER);
+    return new DirectoryResult(dir.depth, listing, subDirs);
+  }
+
+  private static boolean acquire(Semaphore permits) throws InterruptedException
+  {
+    permits.acquire();
+    return true;
+  }
+
+  private String getHostKey()
+  {
+    TapisSystem system = client.getSystem();
+    String host = (system == null) ? null : system.getHost();
+    return (host == null) ? client.getOboTenant() + "/" + client.getSystemId() : host;
+  }
+
+  private String getErrorMessage(String path, Throwable cause)
+  {
+    return LibUtils.getMsg("FILES_OPSC_ERR", client.getOboTenant(), client.getOboUser(), "lsRecursive",
+                           client.getSystemId(), path, cause == null ? null : cause.getMessage());
+  }
+
+  private static class PendingDirectory
+  {
+    final String path;
+    final int depth;
+
+    PendingDirectory(String path, int depth)
+    {
+      this.path = path;
+      this.depth = depth;
+    }
+  }
+
+  private static class DirectoryResult
+  {
+    final int depth;
+    final List<FileInfo> listing;
+    final List<String> subDirs;
+
+    DirectoryResult(int depth, List<FileInfo> listing, List<String> subDirs)
+    {
+      this.depth = depth;
+      this.listing = listing;
+      this.subDirs = subDirs;
+    }
+  }
+}
@@ -3,7 +3,9 @@ package edu.utexas.tacc.tapis.files.lib.services;
 import java.io.IOException;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.TimeoutException;
 import javax.inject.Inject;
@@ -59,6 +61,10 @@ public class TransfersService
   private static final String impersonationIdNull = null;
   private static final boolean includeSummaryFalse = false;
   private static final boolean includeSummaryTrue = true;
+  // Maximum number of children returned by a single call to getTransferTaskDetails when a limit is given
+  public static final int MAX_CHILDREN_PAGE_SIZE = 1000;
+  // Maximum number of children returned by getTransferTaskDetails when no limit is given. Larger tasks must be paged.
+  public static final int MAX_UNPAGED_CHILDREN = 10000;
 
   private static final String TRANSFERS_EXCHANGE = "tapis.files";
   private static String PARENT_QUEUE = "tapis.files.transfers.parent";
@@ -133,14 +139,19 @@ public class TransfersService
   /**
    * Fetch detailed information given transfer task UUID
    * Include list of parents and children.
+   * If a limit is given only one page of children is included, otherwise up to MAX_UNPAGED_CHILDREN. Children are
+   * paged by id across all parents of the task. To fetch the next page pass the largest child id from the current
+   * page as afterId.
    * Support impersonation.
    *
    * @param uuidStr uuid of transfer task.
    * @param impersonationId - use provided Tapis username instead of oboUser when checking auth, getSystem (effUserId)
+   * @param limit - maximum number of children to include, null for up to MAX_UNPAGED_CHILDREN
+   * @param afterId - only include children with an id greater than this
    * @return response containing all transfer task details.
    */
     public TransferTask getTransferTaskDetails(@NotNull ResourceRequestUser rUser, @NotNull String uuidStr,
-                                               String impersonationId)
+                                               String impersonationId, Integer limit, int afterId)
             throws ServiceException, NotFoundException
     {
       String opName = "getTransferTaskDetails";
@@ -161,13 +172,23 @@ public class TransfersService
             // Do a final permission check based on calling user/tenant and task user/tenant
             isUserPermitted(rUser, task, oboOrImpersonatedUser, rUser.getOboTenantId(), opName);
 
-            // Fetch and fill in parents and children
+            // Fetch and fill in parents and the requested children
             List<TransferTaskParent> parents = dao.getAllParentsForTaskByID(task.getId());
             task.setParentTasks(parents);
+            int maxChildren = (limit == null) ? MAX_UNPAGED_CHILDREN : Math.min(Math.max(0, limit), MAX_CHILDREN_PAGE_SIZE);
+            afterId = Math.max(0, afterId);
+            Map<Integer, TransferTaskParent> parentsById = new HashMap<>();
             for (TransferTaskParent parent : parents) {
-                List<TransferTaskChild> children = dao.getAllChildren(parent);
-                parent.setChildren(children);
+                parent.setChildren(new ArrayList<>());
+                parentsById.put(parent.getId(), parent);
             }
+            // Children are attached as rows are read, so only the children returned are held in memory
+            int childCount = dao.readChildrenPage(task, afterId, maxChildren, child -> {
+                TransferTaskParent parent = parentsById.get(child.getParentTaskId());
+                if (parent != null) parent.getChildren().add(child);
+            });
+            if (limit == null && childCount >= MAX_UNPAGED_CHILDREN)
+              log.warn(LibUtils.getMsgAuthR("FILES_TXFR_SVC_CHILDREN_CAPPED", rUser, opName, taskUuid, MAX_UNPAGED_CHILDREN));
             return task;
         }
         catch (DAOException ex)
@@ -0,0 +1,154 @@
+package edu.utexas.tacc.tapis.files.lib.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/*
+   Utility class for guessing the mime type of a file from its name.
+   Remote files are not available locally, so the type is based on the file extension only.
+   Common extensions are looked up in a fixed table. Other extensions are resolved once using
+     Files.probeContentType and remembered in a bounded cache, so the installed FileTypeDetectors are
+     consulted at most once per extension rather than once per file.
+   This class is non-instantiable
+ */
+public class MimeTypes
+{
+  // Private constructor to make it non-instantiable
+  private MimeTypes() { throw new AssertionError(); }
+
+  /* ********************************************************************** */
+  /*                               Constants                                */
+  /* ********************************************************************** */
+  private static final int MAX_CACHED_EXTENSIONS = 10000;
+  // Longer "extensions" are almost certainly not real ones, do not cache them
+  private static final int MAX_EXTENSION_LENGTH = 16;
+
+  private static final Map<String, String> KNOWN_TYPES = new HashMap<>();
+  static
+  {
+    // Text and documents
+    KNOWN_TYPES.put("txt", "text/plain");
+    KNOWN_TYPES.put("log", "text/plain");
+    KNOWN_TYPES.put("out", "text/plain");
+    KNOWN_TYPES.put("err", "text/plain");
+    KNOWN_TYPES.put("csv", "text/csv");
+    KNOWN_TYPES.put("tsv", "text/tab-separated-values");
+    KNOWN_TYPES.put("htm", "text/html");
+    KNOWN_TYPES.put("html", "text/html");
+    KNOWN_TYPES.put("css", "text/css");
+    KNOWN_TYPES.put("md", "text/markdown");
+    KNOWN_TYPES.put("js", "text/javascript");
+    KNOWN_TYPES.put("json", "application/json");
+    KNOWN_TYPES.put("xml", "application/xml");
+    KNOWN_TYPES.put("yaml", "application/yaml");
+    KNOWN_TYPES.put("yml", "application/yaml");
+    KNOWN_TYPES.put("pdf", "application/pdf");
+    KNOWN_TYPES.put("ps", "application/postscript");
+    KNOWN_TYPES.put("rtf", "application/rtf");
+    KNOWN_TYPES.put("doc", "application/msword");
+    KNOWN_TYPES.put("docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+    KNOWN_TYPES.put("xls", "application/vnd.ms-excel");
+    KNOWN_TYPES.put("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+    KNOWN_TYPES.put("ppt", "application/vnd.ms-powerpoint");
+    KNOWN_TYPES.put("pptx", "application/vnd.openxmlformats-officedocument.presentationml.presentation");
+    // Source code and scripts
+    KNOWN_TYPES.put("sh", "application/x-sh");
+    KNOWN_TYPES.put("py", "text/x-python");
+    KNOWN_TYPES.put("c", "text/x-csrc");
+    KNOWN_TYPES.put("h", "text/x-chdr");
+    KNOWN_TYPES.put("cpp", "text/x-c++src");
+    KNOWN_TYPES.put("java", "text/x-java");
+    KNOWN_TYPES.put("f90", "text/x-fortran");
+    // Archives and compressed data
+    KNOWN_TYPES.put("zip", "application/zip");
+    KNOWN_TYPES.put("gz", "application/gzip");
+    KNOWN_TYPES.put("tgz", "application/gzip");
+    KNOWN_TYPES.put("tar", "application/x-tar");
+    KNOWN_TYPES.put("bz2", "application/x-bzip2");
+    KNOWN_TYPES.put("xz", "application/x-xz");
+    KNOWN_TYPES.put("7z", "application/x-7z-compressed");
+    // Scientific data
+    KNOWN_TYPES.put("nc", "application/x-netcdf");
+    KNOWN_TYPES.put("h5", "application/x-hdf5");
+    KNOWN_TYPES.put("hdf5", "application/x-hdf5");
+    // Images, audio and video
+    KNOWN_TYPES.put("png", "image/png");
+    KNOWN_TYPES.put("jpg", "image/jpeg");
+    KNOWN_TYPES.put("jpeg", "image/jpeg");
+    KNOWN_TYPES.put("gif", "image/gif");
+    KNOWN_TYPES.put("bmp", "image/bmp");
+    KNOWN_TYPES.put("svg", "image/svg+xml");
+    KNOWN_TYPES.put("tif", "image/tiff");
+    KNOWN_TYPES.put("tiff", "image/tiff");
+    KNOWN_TYPES.put("mp3", "audio/mpeg");
+    KNOWN_TYPES.put("wav", "audio/x-wav");
+    KNOWN_TYPES.put("mp4", "video/mp4");
+    KNOWN_TYPES.put("mov", "video/quicktime");
+    KNOWN_TYPES.put("avi", "video/x-msvideo");
+  }
+
+  // Types resolved by probing, keyed by lower case extension. Empty if the probe found nothing.
+  private static final Cache<String, Optional<String>> probedTypes =
+          CacheBuilder.newBuilder().maximumSize(MAX_CACHED_EXTENSIONS).build();
+
+  /* **************************************************************************** */
+  /*                                Public Methods                                */
+  /* **************************************************************************** */
+
+  /**
+   * Guess the mime type of a file from its name or path.
+   * @param fileName file name or path, only the extension is used
+   * @return mime type or null if it cannot be determined
+   */
+  public static String getMimeType(String fileName)
+  {
+    String ext = getExtension(fileName);
+    if (ext == null) return null;
+    String mimeType = KNOWN_TYPES.get(ext);
+    if (mimeType != null) return mimeType;
+    if (ext.length() > MAX_EXTENSION_LENGTH) return probe(ext).orElse(null);
+    try
+    {
+      return probedTypes.get(ext, () -> probe(ext)).orElse(null);
+    }
+    catch (ExecutionException e)
+    {
+      return null;
+    }
+  }
+
+  /* **************************************************************************** */
+  /*                                Private Methods                               */
+  /* **************************************************************************** */
+
+  /*
+   * Lower case extension of the last element of a path, or null if there is none
+   */
+  private static String getExtension(String fileName)
+  {
+    if (fileName == null) return null;
+    int nameStart = fileName.lastIndexOf('/') + 1;
+    int dot = fileName.lastIndexOf('.');
+    // No extension, or name is something like ".bashrc"
+    if (dot <= nameStart || dot == fileName.length() - 1) return null;
+    return fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+  }
+
+  /*
+   * Ask the installed FileTypeDetectors about a file with the given extension
+   */
+  private static Optional<String> probe(String ext)
+  {
+    try { return Optional.ofNullable(Files.probeContentType(Paths.get("file." + ext))); }
+    catch (IOException | RuntimeException e) { return Optional.empty(); }
+  }
+}
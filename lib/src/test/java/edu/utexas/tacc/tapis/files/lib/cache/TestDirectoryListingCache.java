@@ -0,0 +1,75 @@
+package edu.utexas.tacc.tapis.files.lib.cache;
+
+import edu.utexas.tacc.tapis.files.lib.caches.DirectoryListingCache;
+import edu.utexas.tacc.tapis.files.lib.caches.DirectoryListingCache.ListingCacheKey;
+import edu.utexas.tacc.tapis.files.lib.models.FileInfo;
+import edu.utexas.tacc.tapis.files.lib.services.FileListingOpts;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+@Test(groups = "integration")
+public class TestDirectoryListingCache
+{
+    private static final FileListingOpts opts = new FileListingOpts.Builder().build();
+
+    private static ListingCacheKey key(String path) {
+        return new ListingCacheKey("dev", "testSystem", "testuser", path, opts);
+    }
+
+    private static List<FileInfo> listing(String name) {
+        FileInfo fileInfo = new FileInfo();
+        fileInfo.setName(name);
+        return List.of(fileInfo);
+    }
+
+    @Test
+    public void testRevalidation() {
+        DirectoryListingCache cache = new DirectoryListingCache(100, 60);
+        Instant mtime = Instant.now().minusSeconds(10);
+        cache.put(key("a/b"), mtime, Instant.now(), listing("1.txt"));
+
+        Assert.assertEquals(cache.get(key("a/b"), mtime).size(), 1);
+        Assert.assertEquals(cache.get(key("/a/b/"), mtime).size(), 1);
+        // Directory modified since listing
+        Assert.assertNull(cache.get(key("a/b"), mtime.plusSeconds(1)));
+        Assert.assertNull(cache.get(key("a/b"), mtime));
+    }
+
+    @Test
+    public void testRecentlyModifiedNotCached() {
+        DirectoryListingCache cache = new DirectoryListingCache(100, 60);
+        Instant now = Instant.now();
+        cache.put(key("a"), now, now, listing("1.txt"));
+        Assert.assertNull(cache.get(key("a"), now));
+    }
+
+    @Test
+    public void testInvalidatePath() {
+        DirectoryListingCache cache = new DirectoryListingCache(100, 60);
+        Instant mtime = Instant.now().minusSeconds(10);
+        for (String path : List.of("", "a", "a/b", "a/b/c", "a/bc", "d")) {
+            cache.put(key(path), mtime, Instant.now(), listing("x"));
+        }
+        cache.invalidatePath("dev", "testSystem", "a/b");
+        // The path, its ancestors and its descendants are invalidated
+        Assert.assertNull(cache.get(key(""), mtime));
+        Assert.assertNull(cache.get(key("a"), mtime));
+        Assert.assertNull(cache.get(key("a/b"), mtime));
+        Assert.assertNull(cache.get(key("a/b/c"), mtime));
+        // Siblings are not
+        Assert.assertNotNull(cache.get(key("a/bc"), mtime));
+        Assert.assertNotNull(cache.get(key("d"), mtime));
+    }
+
+    @Test
+    public void testDisabled() {
+        DirectoryListingCache cache = new DirectoryListingCache(0, 60);
+        Instant mtime = Instant.now().minusSeconds(10);
+        cache.put(key("a"), mtime, Instant.now(), listing("1.txt"));
+        Assert.assertFalse(cache.isEnabled());
+        Assert.assertNull(cache.get(key("a"), mtime));
+    }
+}
@@ -0,0 +1,76 @@
+package edu.utexas.tacc.tapis.files.lib.cache;
+
+import edu.utexas.tacc.tapis.files.lib.caches.KnownDirectoryCache;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test(groups = "integration")
+public class TestKnownDirectoryCache
+{
+    @Test
+    public void testAddAndLookup() {
+        KnownDirectoryCache cache = new KnownDirectoryCache(100, 60);
+        cache.add("host1", "user1", "/data/a");
+
+        Assert.assertTrue(cache.isKnown("host1", "user1", "/data/a"));
+        // Known for the user that saw it only
+        Assert.assertFalse(cache.isKnown("host1", "user2", "/data/a"));
+        Assert.assertFalse(cache.isKnown("host2", "user1", "/data/a"));
+        Assert.assertFalse(cache.isKnown("host1", "user1", "/data/a/b"));
+    }
+
+    @Test
+    public void testInvalidatePath() {
+        KnownDirectoryCache cache = new KnownDirectoryCache(100, 60);
+        cache.add("host1", "user1", "/data/a");
+        cache.add("host1", "user2", "/data/a/b");
+        cache.add("host1", "user1", "/data/ab");
+        cache.add("host2", "user1", "/data/a");
+
+        cache.invalidatePath("host1", "/data/a");
+
+        Assert.assertFalse(cache.isKnown("host1", "user1", "/data/a"));
+        Assert.assertFalse(cache.isKnown("host1", "user2", "/data/a/b"));
+        // Sibling with a common prefix and other hosts are not affected
+        Assert.assertTrue(cache.isKnown("host1", "user1", "/data/ab"));
+        Assert.assertTrue(cache.isKnown("host2", "user1", "/data/a"));
+    }
+
+    @Test
+    public void testInvalidatePathSiblings() {
+        KnownDirectoryCache cache = new KnownDirectoryCache(100, 60);
+        // Characters sorting just before and after '/' must not be taken for the subtree
+        cache.add("host1", "user1", "/data/a-b");
+        cache.add("host1", "user1", "/data/a0");
+        cache.add("host1", "user1", "/data/a/b/c");
+        cache.add("host1", "user1", "/data");
+
+        cache.invalidatePath("host1", "/data/a/");
+
+        Assert.assertFalse(cache.isKnown("host1", "user1", "/data/a/b/c"));
+        Assert.assertTrue(cache.isKnown("host1", "user1", "/data/a-b"));
+        Assert.assertTrue(cache.isKnown("host1", "user1", "/data/a0"));
+        Assert.assertTrue(cache.isKnown("host1", "user1", "/data"));
+    }
+
+    @Test
+    public void testAddAfterInvalidate() {
+        KnownDirectoryCache cache = new KnownDirectoryCache(100, 60);
+        cache.add("host1", "user1", "/data/a");
+        cache.add("host1", "user1", "/data/a");
+        cache.invalidatePath("host1", "/data");
+        cache.add("host1", "user1", "/data/a");
+        Assert.assertTrue(cache.isKnown("host1", "user1", "/data/a"));
+
+        // Entry added again must still be found by a later invalidate
+        cache.invalidatePath("host1", "/data/a");
+        Assert.assertFalse(cache.isKnown("host1", "user1", "/data/a"));
+    }
+
+    @Test
+    public void testDisabled() {
+        KnownDirectoryCache cache = new KnownDirectoryCache(0, 60);
+        cache.add("host1", "user1", "/data/a");
+        Assert.assertFalse(cache.isKnown("host1", "user1", "/data/a"));
+    }
+}
@@ -138,6 +138,82 @@ abstract public class BaseDataClientTests<T extends IRemoteDataClient> {
         Assert.assertEquals(downloadHash, uploadHash);
     }
 
+    @Test
+    public void testLsStartAfter() throws Exception {
+        T dataClient = configureTestClient(testTenant, testUser, configSection);
+        List<String> fileNames = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            String fileName = "file" + i + ".txt";
+            fileNames.add(fileName);
+            dataClient.upload(testRootPath.resolve(fileName).toString(), new RandomByteInputStream(10, SizeUnit.BYTES, true));
+        }
+
+        // Page through the listing using the name of the last item of each page as the continuation token
+        List<String> listedNames = new ArrayList<>();
+        String startAfter = null;
+        List<FileInfo> page;
+        do {
+            page = dataClient.ls(testRootPath.toString(), 2, 0, null, startAfter);
+            Assert.assertTrue(page.size() <= 2);
+            page.forEach(fileInfo -> listedNames.add(fileInfo.getName()));
+            if (!page.isEmpty()) startAfter = page.get(page.size() - 1).getName();
+        } while (!page.isEmpty());
+
+        Assert.assertEquals(listedNames, fileNames);
+    }
+
+    @Test
+    public void testDeleteTree() throws Exception {
+        T dataClient = configureTestClient(testTenant, testUser, configSection);
+        Path treeRoot = testRootPath.resolve(UUID.randomUUID().toString());
+        for (int i = 0; i < 3; i++) {
+            Path dir = treeRoot.resolve("dir" + i).resolve("subdir");
+            for (int j = 0; j < 3; j++) {
+                dataClient.upload(dir.resolve("file" + j + ".txt").toString(), new RandomByteInputStream(10, SizeUnit.BYTES, true));
+            }
+        }
+
+        dataClient.delete(treeRoot.toString());
+
+        List<String> remainingPaths = dataClient.ls(testRootPath.toString()).stream().map(FileInfo::getPath).toList();
+        Assert.assertFalse(remainingPaths.stream().anyMatch(p -> Path.of(p).equals(treeRoot)));
+    }
+
+    @Test
+    public void testGetFileInfos() throws Exception {
+        T dataClient = configureTestClient(testTenant, testUser, configSection);
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            String pathString = testRootPath.resolve("file" + i + ".txt").toString();
+            paths.add(pathString);
+            dataClient.upload(pathString, new RandomByteInputStream(10 + i, SizeUnit.BYTES, true));
+        }
+        String missingPath = testRootPath.resolve(UUID.randomUUID().toString()).toString();
+        paths.add(5, missingPath);
+
+        List<FileInfo> fileInfos = dataClient.getFileInfos(paths, true);
+
+        // One entry per path, in order, with null for the missing path
+        Assert.assertEquals(fileInfos.size(), paths.size());
+        Assert.assertNull(fileInfos.get(5));
+        for (int i = 0; i < paths.size(); i++) {
+            if (i == 5) continue;
+            Assert.assertEquals(Path.of(fileInfos.get(i).getPath()), Path.of(paths.get(i)));
+            Assert.assertEquals(fileInfos.get(i).getSize(), dataClient.getFileInfo(paths.get(i), true).getSize());
+        }
+    }
+
+    @Test
+    public void testGetFileInfoExactPath() throws Exception {
+        T dataClient = configureTestClient(testTenant, testUser, configSection);
+        String pathString = testRootPath.resolve("foo2").toString();
+        dataClient.upload(pathString, new RandomByteInputStream(10, SizeUnit.BYTES, true));
+
+        // A sibling sharing the name as a prefix must not be reported for the path
+        Assert.assertNull(dataClient.getFileInfo(testRootPath.resolve("foo").toString(), true));
+        Assert.assertEquals(dataClient.getFileInfo(pathString, true).getSize(), 10);
+    }
+
     abstract protected String getConfigSection();
 
     public List<FileInfo> lsRecursive(IRemoteDataClient dataClient, String pathString, int maxRecursion)
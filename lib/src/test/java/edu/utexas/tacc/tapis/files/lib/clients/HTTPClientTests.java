@@ -1,13 +1,116 @@
 package edu.utexas.tacc.tapis.files.lib.clients;
 
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import edu.utexas.tacc.tapis.files.lib.models.FileInfo;
 import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Test(groups={"integration"})
 public class HTTPClientTests
 {
+  private static final byte[] CONTENT = new byte[100_000];
+  // Large enough to be split into several parts by getStreamParallel
+  private static final byte[] LARGE_CONTENT = new byte[40 * 1024 * 1024];
+  private HttpServer server;
+  private ExecutorService serverExecutor;
+  private String baseUrl;
+  // Requests to /flaky that are cut off part way through
+  private final AtomicInteger flakyFailures = new AtomicInteger();
+  // Ranged requests made to /large
+  private final AtomicInteger largeRangeRequests = new AtomicInteger();
+
+  @BeforeClass
+  public void startServer() throws IOException
+  {
+    new Random(1).nextBytes(CONTENT);
+    new Random(2).nextBytes(LARGE_CONTENT);
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    // Requests are served on several threads, as parallel downloads need
+    serverExecutor = Executors.newFixedThreadPool(8);
+    server.setExecutor(serverExecutor);
+    server.createContext("/file", exchange -> serve(exchange, CONTENT, false));
+    server.createContext("/flaky", exchange -> serve(exchange, CONTENT, flakyFailures.getAndDecrement() > 0));
+    server.createContext("/large", exchange -> {
+      if (exchange.getRequestHeaders().containsKey("Range")) largeRangeRequests.incrementAndGet();
+      serve(exchange, LARGE_CONTENT, false);
+    });
+    // Only allows GET, like a presigned URL
+    server.createContext("/gets", exchange -> {
+      if ("HEAD".equals(exchange.getRequestMethod()))
+      {
+        exchange.sendResponseHeaders(405, -1);
+        exchange.close();
+        return;
+      }
+      serve(exchange, LARGE_CONTENT, false);
+    });
+    server.start();
+    baseUrl = "http://localhost:" + server.getAddress().getPort();
+  }
+
+  @AfterClass
+  public void stopServer()
+  {
+    server.stop(0);
+    serverExecutor.shutdownNow();
+  }
+
+  /*
+   * Serve content, honoring a "bytes=start-[end]" range. If cutOff only half the body is sent.
+   */
+  private static void serve(HttpExchange exchange, byte[] content, boolean cutOff) throws IOException
+  {
+    int start = 0;
+    int end = content.length;
+    String range = exchange.getRequestHeaders().getFirst("Range");
+    exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+    exchange.getResponseHeaders().add("ETag", "\"v1\"");
+    if ("HEAD".equals(exchange.getRequestMethod()))
+    {
+      // The server only sends a Content-Length for HEAD when set directly
+      exchange.getResponseHeaders().set("Content-Length", String.valueOf(content.length));
+      exchange.sendResponseHeaders(200, -1);
+      exchange.close();
+      return;
+    }
+    if (range != null)
+    {
+      String[] parts = range.substring("bytes=".length()).split("-", -1);
+      start = Integer.parseInt(parts[0]);
+      if (!parts[1].isEmpty()) end = Math.min(end, Integer.parseInt(parts[1]) + 1);
+      if (start >= content.length)
+      {
+        exchange.sendResponseHeaders(416, -1);
+        exchange.close();
+        return;
+      }
+      exchange.getResponseHeaders().add("Content-Range",
+                                        String.format("bytes %d-%d/%d", start, end - 1, content.length));
+    }
+    exchange.sendResponseHeaders(range == null ? 200 : 206, end - start);
+    try (OutputStream out = exchange.getResponseBody())
+    {
+      out.write(content, start, cutOff ? (end - start) / 2 : end - start);
+    }
+    catch (IOException e)
+    {
+      // Expected when cut off
+    }
+  }
+
   @Test
   public void testGetFile() throws Exception
   {
@@ -17,4 +120,81 @@ public class HTTPClientTests
     InputStream stream = client.getStream(sourceUri);
     Assert.assertNotNull(stream);
   }
+
+  @Test
+  public void testGetBytesByRange() throws Exception
+  {
+    String url = baseUrl + "/file";
+    HTTPClient client = new HTTPClient("testTenant", "testUser", url, url);
+    try (InputStream in = client.getBytesByRange(url, 1000, 5000))
+    {
+      Assert.assertEquals(in.readAllBytes(), Arrays.copyOfRange(CONTENT, 1000, 6000));
+    }
+    // Cut short at the end, and empty past the end
+    try (InputStream in = client.getBytesByRange(url, 99_000, 5000))
+    {
+      Assert.assertEquals(in.readAllBytes(), Arrays.copyOfRange(CONTENT, 99_000, 100_000));
+    }
+    try (InputStream in = client.getBytesByRange(url, 200_000, 5000))
+    {
+      Assert.assertEquals(in.readAllBytes().length, 0);
+    }
+  }
+
+  @Test
+  public void testResume() throws Exception
+  {
+    String url = baseUrl + "/flaky";
+    HTTPClient client = new HTTPClient("testTenant", "testUser", url, url);
+    // The first request and the first resume are both cut off
+    flakyFailures.set(2);
+    try (InputStream in = client.getStream(url))
+    {
+      Assert.assertEquals(in.readAllBytes(), CONTENT);
+    }
+  }
+
+  @Test
+  public void testGetFileInfo() throws Exception
+  {
+    String url = baseUrl + "/file";
+    HTTPClient client = new HTTPClient("testTenant", "testUser", url, url);
+    FileInfo fileInfo = client.getFileInfo(url, true);
+    Assert.assertEquals(fileInfo.getSize(), CONTENT.length);
+    Assert.assertEquals(fileInfo.getName(), "file");
+    Assert.assertNull(client.getFileInfo(baseUrl + "/missing", true));
+  }
+
+  @Test
+  public void testGetStreamParallel() throws Exception
+  {
+    String url = baseUrl + "/large";
+    HTTPClient client = new HTTPClient("testTenant", "testUser", url, url);
+    largeRangeRequests.set(0);
+    try (InputStream in = client.getStreamParallel(url, 4, 0))
+    {
+      Assert.assertEquals(in.readAllBytes(), LARGE_CONTENT);
+    }
+    Assert.assertTrue(largeRangeRequests.get() > 1);
+
+    // Below the threshold it is a single plain GET
+    largeRangeRequests.set(0);
+    try (InputStream in = client.getStreamParallel(url, 4, LARGE_CONTENT.length + 1))
+    {
+      Assert.assertEquals(in.readAllBytes(), LARGE_CONTENT);
+    }
+    Assert.assertEquals(largeRangeRequests.get(), 0);
+  }
+
+  // A failed HEAD request falls back to a single GET
+  @Test
+  public void testGetStreamParallelNoHead() throws Exception
+  {
+    String url = baseUrl + "/gets";
+    HTTPClient client = new HTTPClient("testTenant", "testUser", url, url);
+    try (InputStream in = client.getStreamParallel(url, 4, 0))
+    {
+      Assert.assertEquals(in.readAllBytes(), LARGE_CONTENT);
+    }
+  }
 }
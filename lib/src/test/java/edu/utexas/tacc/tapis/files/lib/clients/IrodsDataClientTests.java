@@ -281,6 +281,24 @@ public class IrodsDataClientTests extends BaseDataClientTests<IrodsDataClient> {
             Assert.assertEquals(output, Arrays.copyOfRange(input, 50, 100));
         }
     }
+
+    @Test
+    public void testParallelDownload() throws Exception
+    {
+        TapisSystem system = TestUtils.readSystem(JSON_TEST_PATH, getConfigSection());
+        // Large enough to be split into several parts
+        int fileSize = 40 * 1024 * 1024;
+        IrodsDataClient client = new IrodsDataClient("dev", "dev", system);
+        byte[] input = Utils.makeFakeFile(fileSize).readAllBytes();
+        client.upload("/a/b/c/parallel.dat", new ByteArrayInputStream(input));
+        try (InputStream stream = client.getStreamParallel("/a/b/c/parallel.dat", 4))
+        {
+            byte[] output = IOUtils.toByteArray(stream);
+            Assert.assertEquals(output.length, fileSize);
+            Assert.assertEquals(output, input);
+        }
+    }
+
     @Override
     protected String getConfigSection() {
         return "irods_system";
@@ -0,0 +1,97 @@
+package edu.utexas.tacc.tapis.files.lib.clients;
+
+import edu.utexas.tacc.tapis.files.test.TestUtils;
+import edu.utexas.tacc.tapis.systems.client.gen.model.TapisSystem;
+import org.apache.commons.io.input.NullInputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.InputStream;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Benchmark of iRODS upload throughput and of single stream and parallel download throughput, against the
+ * irods_system in TestSystems.json (the iRODS container used by the integration tests). A thread count of 1 uses
+ * getStream. Uploads are always a single stream.
+ * Not run as part of the test suite. Run with main() from the IDE or test classpath with the iRODS container running.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class IrodsTransferBenchmark
+{
+  private static final String JSON_TEST_PATH = "edu/utexas/tacc/tapis/files/lib/clients/TestSystems.json";
+
+  @Param({"1", "4", "8"})
+  private int threads;
+
+  @Param({"512"})
+  private int fileSizeMB;
+
+  private IrodsDataClient client;
+  private String benchmarkDir;
+  private String uploadPath;
+  private String downloadPath;
+  private long fileSize;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception
+  {
+    TapisSystem system = TestUtils.readSystem(JSON_TEST_PATH, "irods_system");
+    client = new IrodsDataClient("dev", "testuser", system);
+    fileSize = fileSizeMB * 1024L * 1024L;
+    benchmarkDir = "benchmark-" + UUID.randomUUID();
+    uploadPath = benchmarkDir + "/upload.dat";
+    downloadPath = benchmarkDir + "/download.dat";
+    client.upload(downloadPath, new NullInputStream(fileSize));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception
+  {
+    client.delete(benchmarkDir);
+  }
+
+  @Benchmark
+  public void upload() throws Exception
+  {
+    client.upload(uploadPath, new NullInputStream(fileSize));
+  }
+
+  @Benchmark
+  public void download(Blackhole bh) throws Exception
+  {
+    byte[] buffer = new byte[1024 * 1024];
+    try (InputStream in = (threads > 1) ? client.getStreamParallel(downloadPath, threads)
+                                        : client.getStream(downloadPath))
+    {
+      int count;
+      while ((count = in.read(buffer)) != -1) bh.consume(count);
+    }
+  }
+
+  public static void main(String[] args) throws Exception
+  {
+    Options opt = new OptionsBuilder().include(IrodsTransferBenchmark.class.getSimpleName()).build();
+    new Runner(opt).run();
+  }
+}
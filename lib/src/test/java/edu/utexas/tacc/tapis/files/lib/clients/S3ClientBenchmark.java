@@ -0,0 +1,122 @@
+package edu.utexas.tacc.tapis.files.lib.clients;
+
+import edu.utexas.tacc.tapis.files.test.TestUtils;
+import edu.utexas.tacc.tapis.systems.client.gen.model.TapisSystem;
+import org.apache.commons.io.input.NullInputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Benchmark of S3 upload and download throughput for the synchronous S3DataClient and the CRT based
+ * S3CrtDataClient, against the s3_system in TestSystems.json (the MinIO instance used by the integration tests).
+ * Besides the time per operation, the process CPU time per GB moved is printed after each iteration.
+ * Not run as part of the test suite. Run with main() from the IDE or test classpath with MinIO running.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class S3ClientBenchmark
+{
+  private static final String JSON_TEST_PATH = "edu/utexas/tacc/tapis/files/lib/clients/TestSystems.json";
+  private static final double BYTES_PER_GB = 1024.0 * 1024.0 * 1024.0;
+
+  @Param({"sync", "crt"})
+  private String backend;
+
+  @Param({"1024"})
+  private int objectSizeMB;
+
+  private S3DataClient client;
+  private String uploadPath;
+  private String downloadPath;
+  private long objectSize;
+  private long cpuTimeAtStart;
+  private long bytesMoved;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception
+  {
+    TapisSystem system = TestUtils.readSystem(JSON_TEST_PATH, "s3_system");
+    client = "crt".equals(backend) ? new S3CrtDataClient("dev", "testuser", system)
+                                   : new S3DataClient("dev", "testuser", system);
+    objectSize = objectSizeMB * 1024L * 1024L;
+    String benchmarkDir = "benchmark-" + UUID.randomUUID();
+    uploadPath = benchmarkDir + "/upload.dat";
+    downloadPath = benchmarkDir + "/download.dat";
+    client.upload(downloadPath, new NullInputStream(objectSize));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception
+  {
+    client.delete(uploadPath);
+    client.delete(downloadPath);
+  }
+
+  @Setup(Level.Iteration)
+  public void startIteration()
+  {
+    cpuTimeAtStart = processCpuTime();
+    bytesMoved = 0;
+  }
+
+  @TearDown(Level.Iteration)
+  public void endIteration()
+  {
+    double cpuSeconds = (processCpuTime() - cpuTimeAtStart) / 1e9;
+    System.out.printf("%n%s: %.2f CPU seconds per GB%n", backend, cpuSeconds / (bytesMoved / BYTES_PER_GB));
+  }
+
+  @Benchmark
+  public void upload() throws Exception
+  {
+    client.upload(uploadPath, new NullInputStream(objectSize));
+    bytesMoved += objectSize;
+  }
+
+  @Benchmark
+  public void download(Blackhole bh) throws Exception
+  {
+    byte[] buffer = new byte[1024 * 1024];
+    try (InputStream in = client.getStream(downloadPath))
+    {
+      int count;
+      while ((count = in.read(buffer)) != -1) bh.consume(count);
+    }
+    bytesMoved += objectSize;
+  }
+
+  private static long processCpuTime()
+  {
+    return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+  }
+
+  public static void main(String[] args) throws Exception
+  {
+    Options opt = new OptionsBuilder().include(S3ClientBenchmark.class.getSimpleName()).build();
+    new Runner(opt).run();
+  }
+}
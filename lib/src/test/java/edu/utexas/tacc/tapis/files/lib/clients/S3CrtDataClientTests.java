@@ -0,0 +1,118 @@
+package edu.utexas.tacc.tapis.files.lib.clients;
+
+import edu.utexas.tacc.tapis.files.lib.caches.SystemsCache;
+import edu.utexas.tacc.tapis.files.test.RandomByteInputStream;
+import edu.utexas.tacc.tapis.files.test.RandomByteInputStream.SizeUnit;
+import edu.utexas.tacc.tapis.files.test.TestUtils;
+import edu.utexas.tacc.tapis.systems.client.gen.model.TapisSystem;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.transfer.s3.S3TransferManager;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.UUID;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+// Runs the common data client tests through the CRT client, against the same system as S3DataClientTests
+@Test(groups = "integration")
+public class S3CrtDataClientTests extends BaseDataClientTests<S3DataClient> {
+    private static final String JSON_TEST_PATH="edu/utexas/tacc/tapis/files/lib/clients/TestSystems.json";
+
+    public S3CrtDataClientTests() {
+        super(S3CrtDataClientTests.JSON_TEST_PATH);
+    }
+
+    // Large enough to be sent and fetched as several parts
+    @Test
+    public void testMultipartUploadAndDownload() throws Exception {
+        S3DataClient dataClient = configureTestClient("dev", "testuser", getConfigSection());
+        String path = UUID.randomUUID().toString();
+        try {
+            MessageDigest uploadDigest = MessageDigest.getInstance("SHA-256");
+            DigestInputStream uploadStream = new DigestInputStream(
+                    new RandomByteInputStream(40, SizeUnit.MEGABYTES, true), uploadDigest);
+            dataClient.upload(path, uploadStream);
+            uploadStream.close();
+
+            MessageDigest downloadDigest = MessageDigest.getInstance("SHA-256");
+            try (DigestInputStream downloadStream = new DigestInputStream(dataClient.getStream(path), downloadDigest)) {
+                downloadStream.transferTo(OutputStream.nullOutputStream());
+                Assert.assertEquals(TestUtils.hashAsHex(downloadStream), TestUtils.hashAsHex(uploadStream));
+            }
+        } finally {
+            dataClient.delete(path);
+        }
+    }
+
+    // Streams from several data clients for the same system share one client, and stay readable after others close
+    @Test
+    public void testConcurrentStreams() throws Exception {
+        S3DataClient dataClient = configureTestClient("dev", "testuser", getConfigSection());
+        String path = UUID.randomUUID().toString();
+        try {
+            dataClient.upload(path, new RandomByteInputStream(1000, SizeUnit.BYTES, true));
+            InputStream first = dataClient.getStream(path);
+            InputStream second = configureTestClient("dev", "testuser", getConfigSection()).getStream(path);
+            Assert.assertEquals(first.readAllBytes().length, 1000);
+            first.close();
+            Assert.assertEquals(second.readAllBytes().length, 1000);
+            second.close();
+        } finally {
+            dataClient.delete(path);
+        }
+    }
+
+    // A retired client is closed once the last transfer using it is done, not before
+    @Test
+    public void testRetiredClientsClosedAfterLastRelease() {
+        S3AsyncClient asyncClient = Mockito.mock(S3AsyncClient.class);
+        S3TransferManager transferManager = Mockito.mock(S3TransferManager.class);
+        S3CrtDataClient.CrtClients clients = new S3CrtDataClient.CrtClients(asyncClient, transferManager);
+
+        Assert.assertTrue(clients.acquire());
+        Assert.assertTrue(clients.acquire());
+        clients.retire();
+        Assert.assertFalse(clients.acquire());
+        clients.release();
+        Assert.assertFalse(clients.isClosed());
+        verify(asyncClient, never()).close();
+        clients.release();
+        Assert.assertTrue(clients.isClosed());
+        verify(transferManager).close();
+        verify(asyncClient).close();
+    }
+
+    // A client not in use is closed as soon as it is retired, and only once
+    @Test
+    public void testIdleClientsClosedOnRetire() {
+        S3AsyncClient asyncClient = Mockito.mock(S3AsyncClient.class);
+        S3TransferManager transferManager = Mockito.mock(S3TransferManager.class);
+        S3CrtDataClient.CrtClients clients = new S3CrtDataClient.CrtClients(asyncClient, transferManager);
+
+        Assert.assertTrue(clients.acquire());
+        clients.release();
+        Assert.assertFalse(clients.isClosed());
+        clients.retire();
+        clients.retire();
+        Assert.assertTrue(clients.isClosed());
+        verify(asyncClient).close();
+    }
+
+    @Override
+    protected String getConfigSection() {
+        return "s3_system";
+    }
+
+    @Override
+    public S3DataClient createDataClient(String tenantName, String userName, TapisSystem system, SystemsCache systemsCache,
+                                         String impersonationId, String sharedCtxGrantor) throws Exception {
+        return new S3CrtDataClient(tenantName, userName, system);
+    }
+}
@@ -1,12 +1,38 @@
 package edu.utexas.tacc.tapis.files.lib.clients;
 
 import edu.utexas.tacc.tapis.files.lib.caches.SystemsCache;
+import edu.utexas.tacc.tapis.files.lib.models.FileInfo;
+import edu.utexas.tacc.tapis.files.lib.models.FileInfo.FileType;
 import edu.utexas.tacc.tapis.systems.client.gen.model.Credential;
 import edu.utexas.tacc.tapis.systems.client.gen.model.TapisSystem;
+import edu.utexas.tacc.tapis.files.test.RandomByteInputStream;
+import edu.utexas.tacc.tapis.files.test.RandomByteInputStream.SizeUnit;
+import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.Test;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.S3Error;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.paginators.ListObjectsV2Iterable;
 
+import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
 
 @Test(groups = "integration")
 public class S3DataClientTests extends BaseDataClientTests<S3DataClient> {
@@ -67,6 +93,189 @@ public class S3DataClientTests extends BaseDataClientTests<S3DataClient> {
         Assert.assertEquals(tmpURI.toString(), "https://test.tacc.io:9000");
     }
 
+    // Keys are deleted in requests of at most 1000, covering every listed key once
+    @Test
+    public void testDeleteMoreThanOneBatch() throws Exception {
+        S3Client s3 = mockS3Client(2500);
+        List<DeleteObjectsRequest> requests = Collections.synchronizedList(new ArrayList<>());
+        when(s3.deleteObjects(any(DeleteObjectsRequest.class))).thenAnswer(inv -> {
+            requests.add(inv.getArgument(0));
+            return DeleteObjectsResponse.builder().build();
+        });
+
+        new S3DataClient("oboTenant", "oboUser", mockSystem(), s3).delete("dir");
+
+        List<Integer> batchSizes = requests.stream().map(r -> r.delete().objects().size()).sorted().toList();
+        Assert.assertEquals(batchSizes, List.of(500, 1000, 1000));
+        Set<String> deletedKeys = requests.stream().flatMap(r -> r.delete().objects().stream())
+                                          .map(ObjectIdentifier::key).collect(Collectors.toSet());
+        Assert.assertEquals(deletedKeys.size(), 2500);
+    }
+
+    // Keys reported as not deleted fail the delete once every batch has been tried
+    @Test
+    public void testDeletePartialErrors() throws Exception {
+        S3Client s3 = mockS3Client(2500);
+        AtomicInteger requestCount = new AtomicInteger();
+        when(s3.deleteObjects(any(DeleteObjectsRequest.class))).thenAnswer(inv -> {
+            requestCount.incrementAndGet();
+            DeleteObjectsRequest req = inv.getArgument(0);
+            List<S3Error> errors = req.delete().objects().stream().limit(2)
+                    .map(o -> S3Error.builder().key(o.key()).code("AccessDenied").message("Access Denied").build())
+                    .toList();
+            return DeleteObjectsResponse.builder().errors(errors).build();
+        });
+
+        S3DataClient client = new S3DataClient("oboTenant", "oboUser", mockSystem(), s3);
+        IOException ex = Assert.expectThrows(IOException.class, () -> client.delete("dir"));
+        Assert.assertTrue(ex.getMessage().contains("FILES_CLIENT_S3_DELETE_ERRS"));
+        Assert.assertTrue(ex.getMessage().contains("FailedCount: 6"));
+        Assert.assertTrue(ex.getMessage().contains("AccessDenied"));
+        Assert.assertEquals(requestCount.get(), 3);
+    }
+
+    // Deleting a/b must leave a/bc alone
+    @Test
+    public void testDeleteSiblingPrefix() throws Exception {
+        S3DataClient dataClient = configureTestClient("dev", "testuser", getConfigSection());
+        String root = UUID.randomUUID().toString();
+        try {
+            dataClient.upload(root + "/a/b/file1.txt", new RandomByteInputStream(10, SizeUnit.BYTES, true));
+            dataClient.upload(root + "/a/b", new RandomByteInputStream(10, SizeUnit.BYTES, true));
+            dataClient.upload(root + "/a/bc/file2.txt", new RandomByteInputStream(10, SizeUnit.BYTES, true));
+
+            dataClient.delete(root + "/a/b");
+
+            Assert.assertNull(dataClient.getFileInfo(root + "/a/b", true));
+            Assert.assertNull(dataClient.getFileInfo(root + "/a/b/file1.txt", true));
+            Assert.assertNotNull(dataClient.getFileInfo(root + "/a/bc/file2.txt", true));
+        } finally {
+            dataClient.delete(root);
+        }
+    }
+
+    // Objects and common prefixes come back as separate lists and are merged in key order
+    @Test
+    public void testLsOneLevelCommonPrefixes() throws Exception {
+        S3Client s3 = Mockito.mock(S3Client.class);
+        mockPages(s3, ListObjectsV2Response.builder()
+                .contents(object("p/a.txt"), object("p/c.txt"))
+                .commonPrefixes(prefix("p/b/"), prefix("p/d/")).build());
+
+        List<FileInfo> listing = new S3DataClient("oboTenant", "oboUser", mockSystem(), s3)
+                .lsOneLevel("p", Long.MAX_VALUE, 0, null, null);
+
+        Assert.assertEquals(listing.stream().map(FileInfo::getName).toList(), List.of("a.txt", "b", "c.txt", "d"));
+        Assert.assertEquals(listing.stream().map(FileInfo::getType).toList(),
+                            List.of(FileType.FILE, FileType.DIR, FileType.FILE, FileType.DIR));
+        Assert.assertEquals(listing.get(1).getPath(), "p/b");
+    }
+
+    // Pages are followed until offset + limit entries are seen, with prefixes counted like objects
+    @Test
+    public void testLsOneLevelPagination() throws Exception {
+        S3Client s3 = Mockito.mock(S3Client.class);
+        List<ListObjectsV2Request> requests = mockPages(s3,
+                ListObjectsV2Response.builder().contents(object("p/a")).commonPrefixes(prefix("p/b/")).build(),
+                ListObjectsV2Response.builder().commonPrefixes(prefix("p/c/"), prefix("p/d/")).build(),
+                ListObjectsV2Response.builder().contents(object("p/e")).build());
+
+        List<FileInfo> listing = new S3DataClient("oboTenant", "oboUser", mockSystem(), s3)
+                .lsOneLevel("p", 3, 1, null, null);
+
+        Assert.assertEquals(listing.stream().map(FileInfo::getName).toList(), List.of("b", "c", "d"));
+        // The last page is not needed
+        Assert.assertEquals(requests.size(), 2);
+        Assert.assertTrue(requests.stream().allMatch(r -> "p/".equals(r.prefix()) && "/".equals(r.delimiter())));
+        Assert.assertEquals(requests.get(0).maxKeys().intValue(), 4);
+    }
+
+    // The pattern is applied to the names of objects and prefixes alike
+    @Test
+    public void testLsOneLevelPattern() throws Exception {
+        S3Client s3 = Mockito.mock(S3Client.class);
+        mockPages(s3, ListObjectsV2Response.builder()
+                .contents(object("p/a.txt"), object("p/c.dat"))
+                .commonPrefixes(prefix("p/b.txt/"), prefix("p/d/")).build());
+        S3DataClient dataClient = new S3DataClient("oboTenant", "oboUser", mockSystem(), s3);
+
+        List<FileInfo> listing = dataClient.lsOneLevel("p", Long.MAX_VALUE, 0, "*.txt", null);
+        Assert.assertEquals(listing.stream().map(FileInfo::getName).toList(), List.of("a.txt", "b.txt"));
+        listing = dataClient.lsOneLevel("p", Long.MAX_VALUE, 0, "regex:^[cd]", null);
+        Assert.assertEquals(listing.stream().map(FileInfo::getName).toList(), List.of("c.dat", "d"));
+    }
+
+    // An empty object marking a directory is not listed as an entry of that directory
+    @Test
+    public void testLsOneLevelDirectoryMarkers() throws Exception {
+        S3Client s3 = Mockito.mock(S3Client.class);
+        mockPages(s3, ListObjectsV2Response.builder().contents(object("p/"), object("p/x"))
+                                           .commonPrefixes(prefix("p/empty/")).build());
+        List<FileInfo> listing = new S3DataClient("oboTenant", "oboUser", mockSystem(), s3)
+                .lsOneLevel("p", Long.MAX_VALUE, 0, null, null);
+        Assert.assertEquals(listing.stream().map(FileInfo::getName).toList(), List.of("empty", "x"));
+
+        // A directory holding only its marker is empty rather than not found
+        S3Client s3Empty = Mockito.mock(S3Client.class);
+        mockPages(s3Empty, ListObjectsV2Response.builder().contents(object("p/")).build());
+        listing = new S3DataClient("oboTenant", "oboUser", mockSystem(), s3Empty)
+                .lsOneLevel("p", Long.MAX_VALUE, 0, null, null);
+        Assert.assertTrue(listing.isEmpty());
+    }
+
+    /*
+     * Answer list requests with the given pages in turn, linked by continuation tokens. Returns the requests made.
+     */
+    private static List<ListObjectsV2Request> mockPages(S3Client s3, ListObjectsV2Response... pages) {
+        List<ListObjectsV2Request> requests = Collections.synchronizedList(new ArrayList<>());
+        when(s3.listObjectsV2(any(ListObjectsV2Request.class))).thenAnswer(inv -> {
+            ListObjectsV2Request req = inv.getArgument(0);
+            requests.add(req);
+            int page = (req.continuationToken() == null) ? 0 : Integer.parseInt(req.continuationToken());
+            boolean truncated = page + 1 < pages.length;
+            ListObjectsV2Response.Builder resp = pages[page].toBuilder().isTruncated(truncated);
+            if (truncated) resp.nextContinuationToken(String.valueOf(page + 1));
+            return resp.build();
+        });
+        return requests;
+    }
+
+    private static S3Object object(String key) {
+        return S3Object.builder().key(key).size(0L).build();
+    }
+
+    private static CommonPrefix prefix(String prefix) {
+        return CommonPrefix.builder().prefix(prefix).build();
+    }
+
+    /*
+     * S3 client listing keyCount keys under dir/, in pages of 1000
+     */
+    private static S3Client mockS3Client(int keyCount) {
+        S3Client s3 = Mockito.mock(S3Client.class);
+        when(s3.listObjectsV2Paginator(any(ListObjectsV2Request.class)))
+                .thenAnswer(inv -> new ListObjectsV2Iterable(s3, inv.getArgument(0)));
+        when(s3.listObjectsV2(any(ListObjectsV2Request.class))).thenAnswer(inv -> {
+            ListObjectsV2Request req = inv.getArgument(0);
+            int start = (req.continuationToken() == null) ? 0 : Integer.parseInt(req.continuationToken());
+            int end = Math.min(start + 1000, keyCount);
+            List<S3Object> objects = new ArrayList<>();
+            for (int i = start; i < end; i++) objects.add(S3Object.builder().key("dir/file" + i).build());
+            ListObjectsV2Response.Builder resp = ListObjectsV2Response.builder().contents(objects)
+                                                                      .isTruncated(end < keyCount);
+            if (end < keyCount) resp.nextContinuationToken(String.valueOf(end));
+            return resp.build();
+        });
+        return s3;
+    }
+
+    private static TapisSystem mockSystem() {
+        TapisSystem sys = new TapisSystem();
+        sys.setId("testSystem");
+        sys.setBucketName("testBucket");
+        return sys;
+    }
+
     @Override
     protected String getConfigSection() {
         return "s3_system";
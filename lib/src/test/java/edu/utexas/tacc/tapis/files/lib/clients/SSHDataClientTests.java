@@ -1,12 +1,19 @@
 package edu.utexas.tacc.tapis.files.lib.clients;
 
 import edu.utexas.tacc.tapis.files.lib.caches.SystemsCache;
+import edu.utexas.tacc.tapis.files.test.RandomByteInputStream;
+import edu.utexas.tacc.tapis.files.test.RandomByteInputStream.SizeUnit;
 import edu.utexas.tacc.tapis.shared.ssh.SshSessionPool;
 import edu.utexas.tacc.tapis.systems.client.gen.model.TapisSystem;
 
+import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import javax.ws.rs.ForbiddenException;
+import java.nio.file.Path;
+import java.util.UUID;
+
 @Test(groups = "integration")
 public class SSHDataClientTests extends BaseDataClientTests<SSHDataClient> {
 
@@ -28,6 +35,80 @@ public class SSHDataClientTests extends BaseDataClientTests<SSHDataClient> {
         System.out.println("Put some tests in this class to that are ssh specific");
     }
 
+    @Test
+    public void testDeleteDeepTree() throws Exception {
+        SSHDataClient dataClient = configureTestClient("dev", "testuser", getConfigSection());
+        String treeRoot = UUID.randomUUID().toString();
+        try {
+            Path dir = Path.of(treeRoot);
+            for (int i = 0; i < 40; i++) {
+                dir = dir.resolve("d" + i);
+                upload(dataClient, dir.resolve("file.txt").toString());
+            }
+
+            dataClient.delete(treeRoot);
+
+            Assert.assertNull(dataClient.getFileInfo(treeRoot, false));
+        } finally {
+            cleanup(dataClient, treeRoot);
+        }
+    }
+
+    // Enough files in one directory that the removes are spread over several sessions
+    @Test
+    public void testDeleteWideTree() throws Exception {
+        SSHDataClient dataClient = configureTestClient("dev", "testuser", getConfigSection());
+        String treeRoot = UUID.randomUUID().toString();
+        try {
+            for (int i = 0; i < 300; i++) upload(dataClient, treeRoot + "/file" + i + ".txt");
+            for (int i = 0; i < 10; i++) {
+                for (int j = 0; j < 5; j++) upload(dataClient, treeRoot + "/dir" + i + "/file" + j + ".txt");
+            }
+
+            dataClient.delete(treeRoot);
+
+            Assert.assertNull(dataClient.getFileInfo(treeRoot, false));
+        } finally {
+            cleanup(dataClient, treeRoot);
+        }
+    }
+
+    // Sub-directories are deleted in name order. A failure in one stops the delete, leaving later ones in place.
+    @Test
+    public void testDeleteFailsPartWay() throws Exception {
+        SSHDataClient dataClient = configureTestClient("dev", "testuser", getConfigSection());
+        String treeRoot = UUID.randomUUID().toString();
+        try {
+            upload(dataClient, treeRoot + "/a/file.txt");
+            upload(dataClient, treeRoot + "/b/file.txt");
+            upload(dataClient, treeRoot + "/c/file.txt");
+            // Files in b cannot be removed
+            dataClient.linuxChmod(treeRoot + "/b", "555", false);
+
+            Assert.assertThrows(ForbiddenException.class, () -> dataClient.delete(treeRoot));
+
+            Assert.assertNull(dataClient.getFileInfo(treeRoot + "/a", false));
+            Assert.assertNotNull(dataClient.getFileInfo(treeRoot + "/b/file.txt", false));
+            Assert.assertNotNull(dataClient.getFileInfo(treeRoot + "/c/file.txt", false));
+        } finally {
+            cleanup(dataClient, treeRoot);
+        }
+    }
+
+    private static void upload(SSHDataClient dataClient, String path) throws Exception {
+        dataClient.upload(path, new RandomByteInputStream(10, SizeUnit.BYTES, true));
+    }
+
+    private static void cleanup(SSHDataClient dataClient, String treeRoot) {
+        try {
+            if (dataClient.getFileInfo(treeRoot, false) == null) return;
+            dataClient.linuxChmod(treeRoot, "755", true);
+            dataClient.delete(treeRoot);
+        } catch (Exception e) {
+            // ignore, the test has already failed
+        }
+    }
+
     @Override
     protected String getConfigSection() {
         return "ssh_system";
@@ -0,0 +1,136 @@
+package edu.utexas.tacc.tapis.files.lib.clients;
+
+import edu.utexas.tacc.tapis.files.lib.models.FileInfo;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Test(groups = "integration")
+public class TestFindOutputParser
+{
+    private static final String ROOT_DIR = "/data/home/testuser";
+
+    private static byte[] records(String... records) {
+        StringBuilder sb = new StringBuilder();
+        for (String r : records) sb.append(r).append('\0');
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<FileInfo> flatten(List<List<FileInfo>> batches) {
+        return batches.stream().flatMap(List::stream).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testParse() throws Exception {
+        List<List<FileInfo>> batches = new ArrayList<>();
+        FindOutputParser parser = new FindOutputParser(ROOT_DIR, "testSystem", 1000, batches::add);
+        parser.write(records("d 4096 1700000000.1234567890 755 testuser testgroup /data/home/testuser/a",
+                             "f 12 1700000001.5 644 testuser testgroup /data/home/testuser/a/file.txt",
+                             "l 7 1700000002 777 testuser testgroup /data/home/testuser/a/link"));
+        parser.close();
+
+        List<FileInfo> entries = flatten(batches);
+        Assert.assertEquals(parser.getEntryCount(), 3);
+        Assert.assertEquals(parser.getMalformedCount(), 0);
+        Assert.assertEquals(entries.size(), 3);
+        FileInfo dir = entries.get(0);
+        Assert.assertTrue(dir.isDir());
+        Assert.assertEquals(dir.getName(), "a");
+        Assert.assertEquals(dir.getPath(), "a");
+        Assert.assertEquals(dir.getLastModified(), Instant.ofEpochSecond(1700000000));
+        FileInfo file = entries.get(1);
+        Assert.assertEquals(file.getType(), FileInfo.FileType.FILE);
+        Assert.assertEquals(file.getSize(), 12);
+        Assert.assertEquals(file.getPath(), "a/file.txt");
+        Assert.assertEquals(file.getOwner(), "testuser");
+        Assert.assertEquals(file.getGroup(), "testgroup");
+        Assert.assertEquals(file.getNativePermissions(), "rw-r--r--");
+        Assert.assertEquals(file.getMimeType(), "text/plain");
+        Assert.assertTrue(entries.get(2).isSymLink());
+    }
+
+    // Records are NUL terminated, so names may contain the field separator and newlines
+    @Test
+    public void testNamesWithSeparatorsAndNewlines() throws Exception {
+        List<List<FileInfo>> batches = new ArrayList<>();
+        FindOutputParser parser = new FindOutputParser(ROOT_DIR, "testSystem", 1000, batches::add);
+        parser.write(records("f 1 1700000000 644 u g /data/home/testuser/a b/c  d.txt",
+                             "f 1 1700000000 644 u g /data/home/testuser/line1\nline2",
+                             "d 1 1700000000 755 u g /data/home/testuser/\n"));
+        parser.close();
+
+        List<FileInfo> entries = flatten(batches);
+        Assert.assertEquals(parser.getMalformedCount(), 0);
+        Assert.assertEquals(entries.size(), 3);
+        Assert.assertEquals(entries.get(0).getName(), "c  d.txt");
+        Assert.assertEquals(entries.get(0).getPath(), "a b/c  d.txt");
+        Assert.assertEquals(entries.get(1).getName(), "line1\nline2");
+        Assert.assertEquals(entries.get(2).getName(), "\n");
+    }
+
+    @Test
+    public void testMalformedRecordsSkippedAndCounted() throws Exception {
+        List<List<FileInfo>> batches = new ArrayList<>();
+        FindOutputParser parser = new FindOutputParser(ROOT_DIR, "testSystem", 1000, batches::add);
+        parser.write(records("f 12 1700000000 644 u g /data/home/testuser/good1",
+                             "f 12 1700000000 644 u g",                                // no path
+                             "f 12 1700000000 644 u g ",                               // empty path
+                             "f twelve 1700000000 644 u g /data/home/testuser/bad",    // size not a number
+                             "f 12 yesterday 644 u g /data/home/testuser/bad",         // mtime not a number
+                             "f 12 1700000000 rw-r--r-- u g /data/home/testuser/bad",  // perms not octal
+                             "",
+                             "f 12 1700000000 644 u g /data/home/testuser/good2"));
+        parser.close();
+
+        Assert.assertEquals(parser.getEntryCount(), 2);
+        Assert.assertEquals(parser.getMalformedCount(), 6);
+        Assert.assertEquals(flatten(batches).stream().map(FileInfo::getName).collect(Collectors.toList()),
+                            List.of("good1", "good2"));
+    }
+
+    // Output cut off part way through a record, e.g. when find is killed
+    @Test
+    public void testPartialOutput() throws Exception {
+        List<List<FileInfo>> batches = new ArrayList<>();
+        FindOutputParser parser = new FindOutputParser(ROOT_DIR, "testSystem", 1000, batches::add);
+        parser.write(records("f 12 1700000000 644 u g /data/home/testuser/good"));
+        parser.write("f 12 17000".getBytes(StandardCharsets.UTF_8));
+        parser.close();
+        Assert.assertEquals(parser.getEntryCount(), 1);
+        Assert.assertEquals(parser.getMalformedCount(), 1);
+        Assert.assertEquals(flatten(batches).size(), 1);
+
+        // A complete last record without its terminator still counts
+        batches.clear();
+        parser = new FindOutputParser(ROOT_DIR, "testSystem", 1000, batches::add);
+        parser.write("f 12 1700000000 644 u g /data/home/testuser/last".getBytes(StandardCharsets.UTF_8));
+        parser.close();
+        Assert.assertEquals(parser.getEntryCount(), 1);
+        Assert.assertEquals(parser.getMalformedCount(), 0);
+    }
+
+    // Records split across writes, including a byte at a time, and delivered in batches
+    @Test
+    public void testSplitWritesAndBatches() throws Exception {
+        byte[] output = records("f 1 1700000000 644 u g /data/home/testuser/f1",
+                                "f 1 1700000000 644 u g /data/home/testuser/f2",
+                                "f 1 1700000000 644 u g /data/home/testuser/f3",
+                                "f 1 1700000000 644 u g /data/home/testuser/f4",
+                                "f 1 1700000000 644 u g /data/home/testuser/f5");
+        List<List<FileInfo>> batches = new ArrayList<>();
+        FindOutputParser parser = new FindOutputParser(ROOT_DIR, "testSystem", 2, batches::add);
+        parser.write(output, 0, 30);
+        for (int i = 30; i < 60; i++) parser.write(output[i]);
+        parser.write(output, 60, output.length - 60);
+        parser.close();
+
+        Assert.assertEquals(batches.stream().map(List::size).collect(Collectors.toList()), List.of(2, 2, 1));
+        Assert.assertEquals(flatten(batches).stream().map(FileInfo::getName).collect(Collectors.toList()),
+                            List.of("f1", "f2", "f3", "f4", "f5"));
+    }
+}
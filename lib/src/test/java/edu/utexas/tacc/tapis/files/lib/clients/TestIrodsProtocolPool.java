@@ -0,0 +1,178 @@
+package edu.utexas.tacc.tapis.files.lib.clients;
+
+import org.irods.jargon.core.connection.AbstractIRODSMidLevelProtocol;
+import org.irods.jargon.core.connection.IRODSAccount;
+import org.irods.jargon.core.connection.IRODSSession;
+import org.irods.jargon.core.connection.PipelineConfiguration;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Test(groups = "integration")
+public class TestIrodsProtocolPool
+{
+    /*
+     * Pool that hands out mock connections instead of connecting.
+     */
+    private static class TestPool extends IrodsProtocolPool {
+        final List<AbstractIRODSMidLevelProtocol> disconnected = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger checkCount = new AtomicInteger();
+        volatile boolean responding = true;
+
+        TestPool(int maxIdlePerKey, int idleSeconds, int maxLifetimeSeconds) {
+            super(maxIdlePerKey, idleSeconds, maxLifetimeSeconds);
+        }
+
+        TestPool(int maxIdlePerKey, int idleSeconds, int maxLifetimeSeconds, long validateAfterIdleMillis) {
+            super(maxIdlePerKey, idleSeconds, maxLifetimeSeconds, validateAfterIdleMillis);
+        }
+
+        @Override
+        protected AbstractIRODSMidLevelProtocol createProtocol(IRODSAccount account, PipelineConfiguration config,
+                                                               IRODSSession session) {
+            AbstractIRODSMidLevelProtocol protocol = mock(AbstractIRODSMidLevelProtocol.class);
+            when(protocol.getIrodsAccount()).thenReturn(account);
+            when(protocol.isConnected()).thenReturn(true);
+            return protocol;
+        }
+
+        @Override
+        protected void disconnect(AbstractIRODSMidLevelProtocol protocol) {
+            disconnected.add(protocol);
+        }
+
+        @Override
+        protected boolean isResponding(AbstractIRODSMidLevelProtocol protocol) {
+            checkCount.incrementAndGet();
+            return responding;
+        }
+    }
+
+    private static IRODSAccount account(String password) throws Exception {
+        return IRODSAccount.instance("irods.test", 1247, "testuser", password, "/tempZone/home/testuser", "tempZone", "");
+    }
+
+    @Test
+    public void testReuse() throws Exception {
+        TestPool pool = new TestPool(2, 60, 600);
+        AbstractIRODSMidLevelProtocol first = pool.getIRODSProtocol(account("pw"), null, null);
+        pool.returnIRODSProtocol(first);
+
+        Assert.assertSame(pool.getIRODSProtocol(account("pw"), null, null), first);
+        // Never handed to an account with other credentials
+        Assert.assertNotSame(pool.getIRODSProtocol(account("other"), null, null), first);
+        Assert.assertEquals(pool.getCreateCount(), 2);
+        Assert.assertEquals(pool.getBorrowCount(), 3);
+    }
+
+    @Test
+    public void testMaxIdle() throws Exception {
+        TestPool pool = new TestPool(1, 60, 600);
+        AbstractIRODSMidLevelProtocol first = pool.getIRODSProtocol(account("pw"), null, null);
+        AbstractIRODSMidLevelProtocol second = pool.getIRODSProtocol(account("pw"), null, null);
+        pool.returnIRODSProtocol(first);
+        pool.returnIRODSProtocol(second);
+
+        Assert.assertEquals(pool.getIdleCount(), 1);
+        Assert.assertEquals(pool.disconnected, List.of(second));
+    }
+
+    // Returns racing for the last idle slot never keep more than the cap
+    @Test
+    public void testMaxIdleConcurrentReturns() throws Exception {
+        int threads = 16;
+        TestPool pool = new TestPool(4, 60, 600);
+        List<AbstractIRODSMidLevelProtocol> protocols = new ArrayList<>();
+        for (int i = 0; i < threads; i++) protocols.add(pool.getIRODSProtocol(account("pw"), null, null));
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        try {
+            List<Future<?>> returns = new ArrayList<>();
+            for (AbstractIRODSMidLevelProtocol protocol : protocols) {
+                returns.add(executor.submit(() -> {
+                    barrier.await(10, TimeUnit.SECONDS);
+                    pool.returnIRODSProtocol(protocol);
+                    return null;
+                }));
+            }
+            for (Future<?> f : returns) f.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals(pool.getIdleCount(), 4);
+        Assert.assertEquals(pool.disconnected.size(), threads - 4);
+        // Taking one frees a slot for the next return
+        AbstractIRODSMidLevelProtocol reused = pool.getIRODSProtocol(account("pw"), null, null);
+        pool.returnIRODSProtocol(reused);
+        Assert.assertEquals(pool.getIdleCount(), 4);
+        Assert.assertEquals(pool.disconnected.size(), threads - 4);
+    }
+
+    // Connections idle past the check time are reused only if the server answers
+    @Test
+    public void testIdleConnectionChecked() throws Exception {
+        TestPool pool = new TestPool(2, 60, 600, 0);
+        AbstractIRODSMidLevelProtocol protocol = pool.getIRODSProtocol(account("pw"), null, null);
+        pool.returnIRODSProtocol(protocol);
+        Assert.assertSame(pool.getIRODSProtocol(account("pw"), null, null), protocol);
+        Assert.assertEquals(pool.checkCount.get(), 1);
+
+        pool.returnIRODSProtocol(protocol);
+        pool.responding = false;
+        Assert.assertNotSame(pool.getIRODSProtocol(account("pw"), null, null), protocol);
+        Assert.assertEquals(pool.disconnected, List.of(protocol));
+
+        // Recently returned connections are not checked
+        TestPool recentPool = new TestPool(2, 60, 600, 60_000);
+        AbstractIRODSMidLevelProtocol recent = recentPool.getIRODSProtocol(account("pw"), null, null);
+        recentPool.returnIRODSProtocol(recent);
+        Assert.assertSame(recentPool.getIRODSProtocol(account("pw"), null, null), recent);
+        Assert.assertEquals(recentPool.checkCount.get(), 0);
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        TestPool pool = new TestPool(2, 0, 600);
+        AbstractIRODSMidLevelProtocol protocol = pool.getIRODSProtocol(account("pw"), null, null);
+        pool.returnIRODSProtocol(protocol);
+        pool.evictIdle();
+
+        Assert.assertEquals(pool.getIdleCount(), 0);
+        Assert.assertEquals(pool.disconnected, List.of(protocol));
+    }
+
+    @Test
+    public void testDisconnectedNotReused() throws Exception {
+        TestPool pool = new TestPool(2, 60, 600);
+        AbstractIRODSMidLevelProtocol protocol = pool.getIRODSProtocol(account("pw"), null, null);
+        pool.returnIRODSProtocol(protocol);
+        when(protocol.isConnected()).thenReturn(false);
+
+        Assert.assertNotSame(pool.getIRODSProtocol(account("pw"), null, null), protocol);
+        Assert.assertEquals(pool.disconnected, List.of(protocol));
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        TestPool pool = new TestPool(0, 60, 600);
+        AbstractIRODSMidLevelProtocol protocol = pool.getIRODSProtocol(account("pw"), null, null);
+        pool.returnIRODSProtocol(protocol);
+
+        Assert.assertEquals(pool.disconnected, List.of(protocol));
+        Assert.assertNotSame(pool.getIRODSProtocol(account("pw"), null, null), protocol);
+    }
+}
@@ -0,0 +1,147 @@
+package edu.utexas.tacc.tapis.files.lib.clients;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Test(groups = "integration")
+public class TestParallelRangeInputStream
+{
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static ParallelRangeInputStream.RangeReader reader(byte[] remoteObject) {
+        return (offset, buffer, bufferOffset, length) -> {
+            int count = (int) Math.max(0, Math.min(length, remoteObject.length - offset));
+            System.arraycopy(remoteObject, (int) offset, buffer, bufferOffset, count);
+            return count;
+        };
+    }
+
+    @Test
+    public void testRead() throws Exception {
+        for (int size : new int[] { 0, 1, 1024, 1025, 100_000 }) {
+            byte[] data = randomBytes(size);
+            byte[] readData;
+            try (InputStream in = new ParallelRangeInputStream(reader(data), 0, size, 1024, 4)) {
+                readData = in.readAllBytes();
+                Assert.assertEquals(in.read(), -1);
+            }
+            Assert.assertTrue(Arrays.equals(readData, data));
+        }
+    }
+
+    @Test
+    public void testReadFromOffset() throws Exception {
+        byte[] data = randomBytes(10_000);
+        try (InputStream in = new ParallelRangeInputStream(reader(data), 3000, 10_000, 700, 3)) {
+            Assert.assertTrue(Arrays.equals(in.readAllBytes(), Arrays.copyOfRange(data, 3000, 10_000)));
+        }
+    }
+
+    @Test
+    public void testSingleByteReads() throws Exception {
+        byte[] data = randomBytes(3000);
+        try (InputStream in = new ParallelRangeInputStream(reader(data), 0, data.length, 1024, 2)) {
+            for (byte b : data) Assert.assertEquals(in.read(), b & 0xff);
+            Assert.assertEquals(in.read(), -1);
+        }
+    }
+
+    @Test
+    public void testRetryThenFailure() throws Exception {
+        byte[] data = randomBytes(4096);
+        // First attempt at each part fails, the retry succeeds
+        AtomicInteger calls = new AtomicInteger();
+        ParallelRangeInputStream.RangeReader flaky = (offset, buffer, bufferOffset, length) -> {
+            if (calls.incrementAndGet() % 2 == 1) throw new IOException("connection reset");
+            System.arraycopy(data, (int) offset, buffer, bufferOffset, length);
+            return length;
+        };
+        try (InputStream in = new ParallelRangeInputStream(flaky, 0, data.length, 4096, 1)) {
+            Assert.assertTrue(Arrays.equals(in.readAllBytes(), data));
+        }
+
+        ParallelRangeInputStream.RangeReader failing = (offset, buffer, bufferOffset, length) -> {
+            throw new IOException("failed");
+        };
+        InputStream in = new ParallelRangeInputStream(failing, 0, data.length, 1024, 4);
+        Assert.assertThrows(IOException.class, in::read);
+        in.close();
+    }
+
+    // Reads returning less than asked for are continued, the data ends where a read returns nothing
+    @Test
+    public void testShortReads() throws Exception {
+        byte[] data = randomBytes(10_000);
+        ParallelRangeInputStream.RangeReader partial = (offset, buffer, bufferOffset, length) ->
+                reader(data).read(offset, buffer, bufferOffset, Math.min(length, 100));
+        try (InputStream in = new ParallelRangeInputStream(partial, 0, data.length, 1024, 4)) {
+            Assert.assertTrue(Arrays.equals(in.readAllBytes(), data));
+        }
+        try (InputStream in = new ParallelRangeInputStream(partial, 0, ParallelRangeInputStream.UNKNOWN_END, 1024, 4)) {
+            Assert.assertTrue(Arrays.equals(in.readAllBytes(), data));
+        }
+    }
+
+    // Data ending before a known end is an error, not a short stream
+    @Test
+    public void testTruncatedData() throws Exception {
+        byte[] data = randomBytes(3000);
+        try (InputStream in = new ParallelRangeInputStream(reader(data), 0, 4000, 1024, 4)) {
+            Assert.assertThrows(IOException.class, in::readAllBytes);
+        }
+    }
+
+    // Streams only take buffers while the budget allows, but each always gets one. All go back at the end or on close.
+    @Test
+    public void testBufferBudget() throws Exception {
+        byte[] data = randomBytes(100_000);
+        ParallelRangeInputStream.BufferBudget budget = new ParallelRangeInputStream.BufferBudget(2048);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        ParallelRangeInputStream.RangeReader counting = (offset, buffer, bufferOffset, length) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(1);
+                return reader(data).read(offset, buffer, bufferOffset, length);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            InputStream first = new ParallelRangeInputStream(counting, 0, data.length, 1024, 8, executor, null, budget);
+            InputStream second = new ParallelRangeInputStream(counting, 0, data.length, 1024, 8, executor, null, budget);
+            Assert.assertEquals(budget.getBytesInUse(), 2048);
+            Assert.assertTrue(Arrays.equals(first.readAllBytes(), data));
+            Assert.assertTrue(Arrays.equals(second.readNBytes(5000), Arrays.copyOf(data, 5000)));
+            Assert.assertTrue(maxInFlight.get() <= 3);
+            Assert.assertTrue(budget.getBytesInUse() <= 2048);
+            first.close();
+            second.close();
+            Assert.assertEquals(budget.getBytesInUse(), 0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testChoosePartSize() {
+        Assert.assertEquals(ParallelRangeInputStream.choosePartSize(1000, 4, 100, 200), 100);
+        Assert.assertEquals(ParallelRangeInputStream.choosePartSize(2400, 4, 100, 200), 150);
+        Assert.assertEquals(ParallelRangeInputStream.choosePartSize(1_000_000, 4, 100, 200), 200);
+    }
+}
@@ -0,0 +1,75 @@
+package edu.utexas.tacc.tapis.files.lib.clients;
+
+import edu.utexas.tacc.tapis.shared.ssh.apache.SSHSftpClient;
+import org.apache.sshd.sftp.client.SftpClient.Handle;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Random;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@Test(groups = "integration")
+public class TestSftpPipelinedWriter
+{
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static SSHSftpClient mockClient(Handle handle, byte[] remoteFile) throws IOException {
+        SSHSftpClient sftpClient = mock(SSHSftpClient.class);
+        when(sftpClient.open(anyString(), any(Collection.class))).thenReturn(handle);
+        doAnswer(invocation -> {
+            long offset = invocation.getArgument(1);
+            byte[] src = invocation.getArgument(2);
+            int srcOffset = invocation.getArgument(3);
+            int len = invocation.getArgument(4);
+            System.arraycopy(src, srcOffset, remoteFile, (int) offset, len);
+            return null;
+        }).when(sftpClient).write(any(Handle.class), anyLong(), any(byte[].class), anyInt(), anyInt());
+        return sftpClient;
+    }
+
+    @Test
+    public void testWrite() throws Exception {
+        // Sizes around the packet size, plus one spanning many packets with a partial last packet
+        for (int size : new int[] { 0, 1, 1024, 1025, 100_000 }) {
+            byte[] data = randomBytes(size);
+            byte[] remoteFile = new byte[size];
+            Handle handle = mock(Handle.class);
+            SSHSftpClient sftpClient = mockClient(handle, remoteFile);
+
+            long written = new SftpPipelinedWriter(sftpClient, 1024, 4).write("/tmp/file", new ByteArrayInputStream(data));
+
+            Assert.assertEquals(written, size);
+            Assert.assertTrue(Arrays.equals(remoteFile, data));
+            verify(sftpClient).close(handle);
+        }
+    }
+
+    @Test
+    public void testWriteFailure() throws Exception {
+        Handle handle = mock(Handle.class);
+        SSHSftpClient sftpClient = mock(SSHSftpClient.class);
+        when(sftpClient.open(anyString(), any(Collection.class))).thenReturn(handle);
+        doThrow(new IOException("write failed")).when(sftpClient).write(any(Handle.class), anyLong(), any(byte[].class), anyInt(), anyInt());
+
+        SftpPipelinedWriter writer = new SftpPipelinedWriter(sftpClient, 1024, 4);
+        Assert.assertThrows(IOException.class, () -> writer.write("/tmp/file", new ByteArrayInputStream(randomBytes(100_000))));
+        verify(sftpClient).close(handle);
+    }
+}
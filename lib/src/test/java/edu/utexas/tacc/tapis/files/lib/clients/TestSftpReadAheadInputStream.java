@@ -0,0 +1,94 @@
+package edu.utexas.tacc.tapis.files.lib.clients;
+
+import edu.utexas.tacc.tapis.shared.ssh.apache.SSHSftpClient;
+import org.apache.sshd.sftp.client.SftpClient.Handle;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Random;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// SFTP read ahead, see SSHDataClient.openReadAhead
+@Test(groups = "integration")
+public class TestSftpReadAheadInputStream
+{
+    // Servers may return less than requested, the mock never returns more than this
+    private static final int MAX_REPLY_SIZE = 700;
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static SSHSftpClient mockClient(Handle handle, byte[] remoteFile) throws IOException {
+        SSHSftpClient sftpClient = mock(SSHSftpClient.class);
+        when(sftpClient.open(anyString(), any(Collection.class))).thenReturn(handle);
+        doAnswer(invocation -> {
+            long offset = invocation.getArgument(1);
+            byte[] dst = invocation.getArgument(2);
+            int dstOffset = invocation.getArgument(3);
+            int len = invocation.getArgument(4);
+            if (offset >= remoteFile.length) return -1;
+            int count = Math.min(Math.min(len, MAX_REPLY_SIZE), remoteFile.length - (int) offset);
+            System.arraycopy(remoteFile, (int) offset, dst, dstOffset, count);
+            return count;
+        }).when(sftpClient).read(any(Handle.class), anyLong(), any(byte[].class), anyInt(), anyInt());
+        return sftpClient;
+    }
+
+    @Test
+    public void testRead() throws Exception {
+        for (int size : new int[] { 0, 1, 1024, 1025, 100_000 }) {
+            byte[] data = randomBytes(size);
+            Handle handle = mock(Handle.class);
+            SSHSftpClient sftpClient = mockClient(handle, data);
+
+            byte[] readData;
+            try (InputStream in = SSHDataClient.openReadAhead(sftpClient, "/tmp/file", 1024, 4)) {
+                readData = in.readAllBytes();
+                Assert.assertEquals(in.read(), -1);
+            }
+
+            Assert.assertTrue(Arrays.equals(readData, data));
+            verify(sftpClient).close(handle);
+        }
+    }
+
+    @Test
+    public void testSingleByteReads() throws Exception {
+        byte[] data = randomBytes(3000);
+        SSHSftpClient sftpClient = mockClient(mock(Handle.class), data);
+
+        try (InputStream in = SSHDataClient.openReadAhead(sftpClient, "/tmp/file", 1024, 2)) {
+            for (byte b : data) Assert.assertEquals(in.read(), b & 0xff);
+            Assert.assertEquals(in.read(), -1);
+        }
+    }
+
+    @Test
+    public void testReadFailure() throws Exception {
+        Handle handle = mock(Handle.class);
+        SSHSftpClient sftpClient = mock(SSHSftpClient.class);
+        when(sftpClient.open(anyString(), any(Collection.class))).thenReturn(handle);
+        when(sftpClient.read(any(Handle.class), anyLong(), any(byte[].class), anyInt(), anyInt()))
+                .thenThrow(new IOException("read failed"));
+
+        InputStream in = SSHDataClient.openReadAhead(sftpClient, "/tmp/file", 1024, 4);
+        Assert.assertThrows(IOException.class, in::read);
+        in.close();
+        verify(sftpClient).close(handle);
+    }
+}
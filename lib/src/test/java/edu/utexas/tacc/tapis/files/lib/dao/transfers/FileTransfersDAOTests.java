@@ -1,6 +1,7 @@
 package edu.utexas.tacc.tapis.files.lib.dao.transfers;
 
 import edu.utexas.tacc.tapis.files.lib.BaseDatabaseIntegrationTest;
+import edu.utexas.tacc.tapis.files.lib.database.HikariConnectionPool;
 import edu.utexas.tacc.tapis.files.lib.exceptions.DAOException;
 import edu.utexas.tacc.tapis.files.lib.models.FileInfo;
 import edu.utexas.tacc.tapis.files.lib.models.TransferTask;
@@ -13,9 +14,16 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 @Test(groups={"integration"})
 public class FileTransfersDAOTests extends BaseDatabaseIntegrationTest
@@ -113,6 +121,179 @@ public class FileTransfersDAOTests extends BaseDatabaseIntegrationTest
     Assert.assertNotNull(child.getEndTime());
   }
 
+  @Test
+  public void testGetChildrenPage() throws Exception
+  {
+    TransferTask t1 = createTransferTask(testUser1);
+    TransferTaskParent parent = t1.getParentTasks().get(0);
+    List<TransferTaskChild> children = new ArrayList<>();
+    for (int i = 0; i < 5; i++)
+    {
+      FileInfo fileInfo = new FileInfo();
+      fileInfo.setPath("/a/b/file" + i + ".txt");
+      fileInfo.setSize(1000);
+      fileInfo.setType(FileInfo.FileType.FILE);
+      children.add(new TransferTaskChild(parent, fileInfo, null));
+    }
+    List<TransferTaskChild> inserted = new ArrayList<>();
+    dao.bulkInsertChildTasks(children, inserted::addAll);
+    Assert.assertEquals(inserted.size(), 5);
+
+    List<TransferTaskChild> page1 = dao.getChildrenPage(t1, 0, 3);
+    Assert.assertEquals(page1.size(), 3);
+    int lastId = page1.get(page1.size() - 1).getId();
+    List<TransferTaskChild> page2 = dao.getChildrenPage(t1, lastId, 3);
+    Assert.assertEquals(page2.size(), 2);
+    Assert.assertTrue(page2.get(0).getId() > lastId);
+
+    // Children are passed on as they are read
+    List<Integer> readIds = new ArrayList<>();
+    Assert.assertEquals(dao.readChildrenPage(t1, 0, 10, child -> readIds.add(child.getId())), 5);
+    Assert.assertEquals(readIds.size(), 5);
+    Assert.assertEquals(dao.readChildrenPage(t1, lastId, 10, child -> {}), 2);
+  }
+
+  @Test
+  public void testBulkInsertRollsBackAllBatches() throws Exception
+  {
+    TransferTask t1 = createTransferTask(testUser1);
+    TransferTaskParent parent = t1.getParentTasks().get(0);
+    // More than one batch, with a bad parent id in the last row so the last batch fails
+    List<TransferTaskChild> children = new ArrayList<>();
+    for (int i = 0; i < 5001; i++)
+    {
+      FileInfo fileInfo = new FileInfo();
+      fileInfo.setPath("/a/b/file" + i + ".txt");
+      fileInfo.setSize(1000);
+      fileInfo.setType(FileInfo.FileType.FILE);
+      children.add(new TransferTaskChild(parent, fileInfo, null));
+    }
+    children.get(5000).setParentTaskId(Integer.MAX_VALUE);
+    List<TransferTaskChild> handled = new ArrayList<>();
+    Assert.assertThrows(DAOException.class, () -> dao.bulkInsertChildTasks(children, handled::addAll));
+
+    // Nothing inserted and nothing handed on for publishing
+    Assert.assertTrue(handled.isEmpty());
+    Assert.assertTrue(dao.getAllChildren(parent).isEmpty());
+  }
+
+  @Test
+  public void testCancelTransferSkipsLockedChildren() throws Exception
+  {
+    TransferTask t1 = createTransferTask(testUser1);
+    TransferTaskParent parent = t1.getParentTasks().get(0);
+    List<TransferTaskChild> children = new ArrayList<>();
+    for (int i = 0; i < 3; i++)
+    {
+      FileInfo fileInfo = new FileInfo();
+      fileInfo.setPath("/a/b/file" + i + ".txt");
+      fileInfo.setSize(1000);
+      fileInfo.setType(FileInfo.FileType.FILE);
+      children.add(new TransferTaskChild(parent, fileInfo, null));
+    }
+    List<TransferTaskChild> inserted = new ArrayList<>();
+    dao.bulkInsertChildTasks(children, inserted::addAll);
+    TransferTaskChild completed = inserted.get(0);
+    completed.setStatus(TransferTaskStatus.COMPLETED);
+    dao.updateTransferTaskChild(completed);
+    TransferTaskChild locked = inserted.get(1);
+    TransferTaskChild free = inserted.get(2);
+
+    // Hold a row lock on one child the way a worker updating it would
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try (Connection lockConnection = HikariConnectionPool.getConnection())
+    {
+      lockConnection.setAutoCommit(false);
+      try (PreparedStatement stmt = lockConnection.prepareStatement("SELECT id FROM transfer_tasks_child WHERE id = ? FOR UPDATE"))
+      {
+        stmt.setInt(1, locked.getId());
+        stmt.executeQuery().close();
+      }
+      // Must not wait for the lock
+      Future<?> cancel = executor.submit(() -> { dao.cancelTransfer(t1); return null; });
+      cancel.get(30, TimeUnit.SECONDS);
+      lockConnection.rollback();
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+
+    Assert.assertEquals(dao.getTransferTaskByID(t1.getId()).getStatus(), TransferTaskStatus.CANCELLED);
+    Assert.assertEquals(dao.getTransferTaskParentById(parent.getId()).getStatus(), TransferTaskStatus.CANCELLED);
+    Assert.assertEquals(dao.getTransferTaskChild(free.getUuid()).getStatus(), TransferTaskStatus.CANCELLED);
+    // Terminal children are left alone, a locked one is left for its worker
+    Assert.assertEquals(dao.getTransferTaskChild(completed.getUuid()).getStatus(), TransferTaskStatus.COMPLETED);
+    Assert.assertEquals(dao.getTransferTaskChild(locked.getUuid()).getStatus(), TransferTaskStatus.ACCEPTED);
+  }
+
+  @Test
+  public void testChildMappingMatchesByLabel() throws Exception
+  {
+    TransferTask t1 = createTransferTask(testUser1);
+    TransferTaskParent parent = t1.getParentTasks().get(0);
+    // One child with every nullable column left null, one with every column set
+    FileInfo fileInfo = new FileInfo();
+    fileInfo.setPath("/a/b/file.txt");
+    fileInfo.setSize(1000);
+    fileInfo.setType(FileInfo.FileType.FILE);
+    dao.insertChildTask(new TransferTaskChild(parent, fileInfo, null));
+    fileInfo = new FileInfo();
+    fileInfo.setPath("/a/b/dir");
+    fileInfo.setSize(0);
+    fileInfo.setType(FileInfo.FileType.DIR);
+    TransferTaskChild full = dao.insertChildTask(new TransferTaskChild(parent, fileInfo, null));
+    full.setStatus(TransferTaskStatus.FAILED);
+    full.setRetries(3);
+    full.setBytesTransferred(500);
+    full.setStartTime(Instant.now());
+    full.setEndTime(Instant.now());
+    full.setErrorMessage("error");
+    full.setExternalTaskId("external");
+    dao.updateTransferTaskChild(full);
+
+    List<TransferTaskChild> byIndex;
+    List<TransferTaskChild> byLabel;
+    String query = "SELECT * FROM transfer_tasks_child WHERE task_id = ? ORDER BY id";
+    try (Connection connection = HikariConnectionPool.getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query))
+    {
+      stmt.setInt(1, t1.getId());
+      try (ResultSet rs = stmt.executeQuery()) { byIndex = FileTransfersDAO.CHILD_ROW_PROCESSOR.toBeanList(rs, TransferTaskChild.class); }
+      try (ResultSet rs = stmt.executeQuery()) { byLabel = ChildByLabelMapping.map(rs); }
+    }
+
+    Assert.assertEquals(byIndex.size(), 2);
+    Assert.assertEquals(byLabel.size(), 2);
+    Assert.assertNull(byIndex.get(0).getErrorMessage());
+    Assert.assertNull(byIndex.get(0).getStartTime());
+    Assert.assertEquals(byIndex.get(1).getErrorMessage(), "error");
+    Assert.assertTrue(byIndex.get(1).isDir());
+    for (int i = 0; i < byIndex.size(); i++)
+    {
+      TransferTaskChild a = byIndex.get(i);
+      TransferTaskChild b = byLabel.get(i);
+      Assert.assertEquals(a.getId(), b.getId());
+      Assert.assertEquals(a.getTaskId(), b.getTaskId());
+      Assert.assertEquals(a.getParentTaskId(), b.getParentTaskId());
+      Assert.assertEquals(a.getUsername(), b.getUsername());
+      Assert.assertEquals(a.getTenantId(), b.getTenantId());
+      Assert.assertEquals(a.getSourceURI().toString(), b.getSourceURI().toString());
+      Assert.assertEquals(a.getDestinationURI().toString(), b.getDestinationURI().toString());
+      Assert.assertEquals(a.getCreated(), b.getCreated());
+      Assert.assertEquals(a.getRetries(), b.getRetries());
+      Assert.assertEquals(a.getUuid(), b.getUuid());
+      Assert.assertEquals(a.getStatus(), b.getStatus());
+      Assert.assertEquals(a.isDir(), b.isDir());
+      Assert.assertEquals(a.getTotalBytes(), b.getTotalBytes());
+      Assert.assertEquals(a.getBytesTransferred(), b.getBytesTransferred());
+      Assert.assertEquals(a.getErrorMessage(), b.getErrorMessage());
+      Assert.assertEquals(a.getExternalTaskId(), b.getExternalTaskId());
+      Assert.assertEquals(a.getStartTime(), b.getStartTime());
+      Assert.assertEquals(a.getEndTime(), b.getEndTime());
+    }
+  }
+
   /*
    * Create a single transfer task for given userName
    */
@@ -0,0 +1,126 @@
+package edu.utexas.tacc.tapis.files.lib.dao.transfers;
+
+import edu.utexas.tacc.tapis.files.lib.database.HikariConnectionPool;
+import edu.utexas.tacc.tapis.files.lib.models.FileInfo;
+import edu.utexas.tacc.tapis.files.lib.models.TransferTask;
+import edu.utexas.tacc.tapis.files.lib.models.TransferTaskChild;
+import edu.utexas.tacc.tapis.files.lib.models.TransferTaskParent;
+import edu.utexas.tacc.tapis.files.lib.models.TransferTaskRequestElement;
+import edu.utexas.tacc.tapis.files.lib.models.TransferTaskStatus;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Benchmark comparing the original by-label child task mapping (URIs parsed eagerly) with the index based
+ *   TransferTaskChildRowProcessor used by FileTransfersDAO, reading the children of one task from the test
+ *   database used by the integration tests (jdbc:postgresql://localhost:5432/test).
+ * Not run as part of the test suite. Run with main() from the IDE or test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferTaskChildMappingBenchmark
+{
+  private static final String TENANT = "testTenant";
+  private static final String USER = "testChildMappingBenchUser";
+  private static final String QUERY = "SELECT * FROM transfer_tasks_child WHERE task_id = ? ORDER BY id";
+
+  @Param({"1000", "10000"})
+  public int rowCount;
+
+  private final FileTransfersDAO dao = new FileTransfersDAO();
+  private int taskId;
+
+  @Setup
+  public void setup() throws Exception
+  {
+    Flyway.configure().dataSource("jdbc:postgresql://localhost:5432/test", "test", "test").load().migrate();
+    dao.deleteAllTasksForUser(TENANT, USER);
+
+    TransferTask task = new TransferTask();
+    task.setTag("bench");
+    task.setTenantId(TENANT);
+    task.setUsername(USER);
+    task.setStatus(TransferTaskStatus.ACCEPTED.name());
+    TransferTaskRequestElement element = new TransferTaskRequestElement();
+    element.setSourceURI("tapis://sourceSystem/a/b/c");
+    element.setDestinationURI("tapis://destSystem/x/y/z");
+    element.setTag("bench");
+    task = dao.createTransferTask(task, List.of(element));
+    taskId = task.getId();
+
+    TransferTaskParent parent = task.getParentTasks().get(0);
+    List<TransferTaskChild> children = new ArrayList<>();
+    for (int i = 0; i < rowCount; i++)
+    {
+      FileInfo fileInfo = new FileInfo();
+      fileInfo.setPath("/a/b/c/file" + i + ".txt");
+      fileInfo.setSize(1024);
+      fileInfo.setType(FileInfo.FileType.FILE);
+      children.add(new TransferTaskChild(parent, fileInfo, null));
+    }
+    dao.bulkInsertChildTasks(children);
+  }
+
+  @TearDown
+  public void tearDown() throws Exception
+  {
+    dao.deleteAllTasksForUser(TENANT, USER);
+  }
+
+  @Benchmark
+  public void byLabel(Blackhole bh) throws Exception
+  {
+    try (Connection connection = HikariConnectionPool.getConnection();
+         PreparedStatement stmt = connection.prepareStatement(QUERY))
+    {
+      stmt.setInt(1, taskId);
+      try (ResultSet rs = stmt.executeQuery()) { bh.consume(ChildByLabelMapping.map(rs)); }
+    }
+  }
+
+  @Benchmark
+  public void byIndex(Blackhole bh) throws Exception
+  {
+    try (Connection connection = HikariConnectionPool.getConnection();
+         PreparedStatement stmt = connection.prepareStatement(QUERY))
+    {
+      stmt.setInt(1, taskId);
+      try (ResultSet rs = stmt.executeQuery())
+      {
+        bh.consume(FileTransfersDAO.CHILD_ROW_PROCESSOR.toBeanList(rs, TransferTaskChild.class));
+      }
+    }
+  }
+
+  public static void main(String[] args) throws Exception
+  {
+    Options opt = new OptionsBuilder().include(TransferTaskChildMappingBenchmark.class.getSimpleName()).build();
+    new Runner(opt).run();
+  }
+}
@@ -0,0 +1,94 @@
+package edu.utexas.tacc.tapis.files.lib.database;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Test(groups = "integration")
+public class TestQueryMetrics
+{
+  // Statements class for the InstrumentedQueryRunner test
+  public static class TestStatements
+  {
+    public static final String TEST_UPDATE = "UPDATE test_table SET a = 1 /* " + UUID.randomUUID() + " */";
+  }
+
+  @Test
+  public void testRecord()
+  {
+    // Names are unique to this test since the statistics are shared by the whole process
+    String name = "TEST_RECORD_" + UUID.randomUUID();
+    QueryMetrics.record(name, TimeUnit.MILLISECONDS.toNanos(3), 10);
+    QueryMetrics.record(name, TimeUnit.MILLISECONDS.toNanos(40), 5);
+    QueryMetrics.record(name, TimeUnit.SECONDS.toNanos(10), 0);
+
+    QueryMetrics.StatementStats stats = QueryMetrics.getStats().get(name);
+    Assert.assertNotNull(stats);
+    Assert.assertEquals(stats.getCount(), 3);
+    Assert.assertEquals(stats.getTotalRows(), 15);
+    Assert.assertEquals(stats.getTotalMillis(), 10043);
+    Assert.assertEquals(stats.getMaxMillis(), 10000);
+
+    Map<Long, Long> histogram = stats.getHistogram();
+    Assert.assertEquals(histogram.get(5L).longValue(), 1);
+    Assert.assertEquals(histogram.get(50L).longValue(), 1);
+    Assert.assertEquals(histogram.get(Long.MAX_VALUE).longValue(), 1);
+    Assert.assertEquals(histogram.values().stream().mapToLong(Long::longValue).sum(), 3);
+  }
+
+  @Test
+  public void testSnapshotIsSortedAndUnmodifiable()
+  {
+    String prefix = "TEST_SNAPSHOT_" + UUID.randomUUID();
+    QueryMetrics.record(prefix + "_B", 1000, 1);
+    QueryMetrics.record(prefix + "_A", 1000, 1);
+    Map<String, QueryMetrics.StatementStats> snapshot = QueryMetrics.getStats();
+    Assert.assertTrue(snapshot.keySet().stream().toList().indexOf(prefix + "_A") <
+                      snapshot.keySet().stream().toList().indexOf(prefix + "_B"));
+    Assert.assertThrows(UnsupportedOperationException.class, () -> snapshot.remove(prefix + "_A"));
+  }
+
+  @Test
+  public void testInstrumentedQueryRunner() throws Exception
+  {
+    PreparedStatement stmt = mock(PreparedStatement.class);
+    ParameterMetaData pmd = mock(ParameterMetaData.class);
+    when(pmd.getParameterCount()).thenReturn(0);
+    when(stmt.getParameterMetaData()).thenReturn(pmd);
+    when(stmt.executeUpdate()).thenReturn(7);
+    Connection connection = mock(Connection.class);
+    when(connection.prepareStatement(anyString())).thenReturn(stmt);
+
+    InstrumentedQueryRunner runner = new InstrumentedQueryRunner(TestStatements.class);
+    Assert.assertEquals(runner.getStatementName(TestStatements.TEST_UPDATE), "TEST_UPDATE");
+    Assert.assertEquals(runner.getStatementName("SELECT 1"), InstrumentedQueryRunner.UNKNOWN_STATEMENT);
+
+    long countBefore = countOf("TEST_UPDATE");
+    long rowsBefore = rowsOf("TEST_UPDATE");
+    Assert.assertEquals(runner.update(connection, TestStatements.TEST_UPDATE), 7);
+    Assert.assertEquals(countOf("TEST_UPDATE"), countBefore + 1);
+    Assert.assertEquals(rowsOf("TEST_UPDATE"), rowsBefore + 7);
+  }
+
+  private static long countOf(String name)
+  {
+    QueryMetrics.StatementStats stats = QueryMetrics.getStats().get(name);
+    return (stats == null) ? 0 : stats.getCount();
+  }
+
+  private static long rowsOf(String name)
+  {
+    QueryMetrics.StatementStats stats = QueryMetrics.getStats().get(name);
+    return (stats == null) ? 0 : stats.getTotalRows();
+  }
+}
@@ -38,6 +38,7 @@ import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -874,6 +875,38 @@ public class FileOpsServiceTests {
         else Assert.assertEquals(listing.size(), 6);
     }
 
+    // startAfter only applies to the top level of a recursive listing
+    // S3 has no directories to recurse into, so it is not included
+    @Test(dataProvider = "testSystemsNoS3")
+    public void testListingRecursiveStartAfter(TapisSystem testSystem) throws Exception
+    {
+        ServiceLocator locator = new AbstractBinderBuilder()
+                .mockPerms(TestUtils.permsMock_AllowModifyForSystem(devTenant, testuser, testSystem.getId()))
+                .mockSystemsCache(TestUtils.systemCacheMock_GetSystem(devTenant, testuser, testSystem))
+                .mockSystemsCacheNoAuth(TestUtils.systemCacheNoAuthMock_GetSystem(devTenant, testuser, testSystem))
+                .buildAsServiceLocator();
+
+        // get service to test
+        FileOpsService fileOpsService = locator.getService(FileOpsService.class);
+
+        RemoteDataClientFactory remoteDataClientFactory = locator.getService(RemoteDataClientFactory.class);
+        IRemoteDataClient client = remoteDataClientFactory.getRemoteDataClient(devTenant, testuser, testSystem,
+                IRemoteDataClientFactory.IMPERSONATION_ID_NULL, IRemoteDataClientFactory.SHARED_CTX_GRANTOR_NULL);
+
+        client.delete("/");
+        fileOpsService.upload(client,"/1.txt", Utils.makeFakeFile(10*1024));
+        fileOpsService.upload(client,"/a/2.txt", Utils.makeFakeFile(10*1024));
+        fileOpsService.upload(client,"/c/1.txt", Utils.makeFakeFile(10*1024));
+        fileOpsService.upload(client,"/c/d/3.txt", Utils.makeFakeFile(10*1024));
+
+        // Top level skips 1.txt and a, everything under c is listed including c/1.txt
+        List<FileInfo> listing = fileOpsService.lsRecursive(client, "/", false,
+                                                            new FileListingOpts.Builder().setStartAfter("b").build());
+        for (FileInfo fi : listing) { log.info("Found: " + fi.getPath()); }
+        List<String> paths = listing.stream().map(FileInfo::getPath).sorted().collect(Collectors.toList());
+        Assert.assertEquals(paths, List.of("c", "c/1.txt", "c/d", "c/d/3.txt"));
+    }
+
     @Test(dataProvider = "testSystems")
     public void testZeroByteInsert(TapisSystem testSystem) throws Exception {
         ServiceLocator locator = new AbstractBinderBuilder()
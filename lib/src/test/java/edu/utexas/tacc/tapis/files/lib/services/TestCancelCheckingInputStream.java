@@ -0,0 +1,33 @@
+package edu.utexas.tacc.tapis.files.lib.services;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Test(groups = "integration")
+public class TestCancelCheckingInputStream {
+
+    @Test
+    public void testReadsUntilCancelled() throws Exception {
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        InputStream in = new CancelCheckingInputStream(new ByteArrayInputStream(new byte[100]), cancelled::get);
+        byte[] buffer = new byte[10];
+        Assert.assertEquals(in.read(buffer), 10);
+        Assert.assertEquals(in.read(), 0);
+
+        cancelled.set(true);
+        Assert.assertThrows(IOException.class, () -> in.read(buffer));
+        Assert.assertThrows(IOException.class, in::read);
+        Assert.assertThrows(IOException.class, () -> in.skip(10));
+    }
+
+    @Test
+    public void testReadsAllWhenNotCancelled() throws Exception {
+        InputStream in = new CancelCheckingInputStream(new ByteArrayInputStream(new byte[100]), () -> false);
+        Assert.assertEquals(in.readAllBytes().length, 100);
+    }
+}
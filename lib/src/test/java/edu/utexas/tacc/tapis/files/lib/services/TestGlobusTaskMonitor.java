@@ -0,0 +1,253 @@
+package edu.utexas.tacc.tapis.files.lib.services;
+
+import edu.utexas.tacc.tapis.files.lib.clients.GlobusDataClient;
+import edu.utexas.tacc.tapis.files.lib.dao.transfers.FileTransfersDAO;
+import edu.utexas.tacc.tapis.files.lib.models.TransferTaskChild;
+import edu.utexas.tacc.tapis.files.lib.models.TransferTaskStatus;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@Test(groups = "integration")
+public class TestGlobusTaskMonitor
+{
+  private FileTransfersDAO dao;
+  private GlobusDataClient client;
+  private final List<TransferTaskChild> finished = new ArrayList<>();
+  private final List<TransferTaskChild> failed = new ArrayList<>();
+  private boolean cancelRequested;
+
+  private final GlobusTaskMonitor.Listener listener = new GlobusTaskMonitor.Listener() {
+    @Override
+    public GlobusDataClient getClient(TransferTaskChild child) { return client; }
+
+    @Override
+    public boolean isCancelRequested(TransferTaskChild child) { return cancelRequested; }
+
+    @Override
+    public void onFinished(TransferTaskChild child) { finished.add(child); }
+
+    @Override
+    public void onError(TransferTaskChild child, Exception cause) { failed.add(child); }
+  };
+
+  @BeforeMethod
+  public void setup() throws Exception
+  {
+    dao = mock(FileTransfersDAO.class);
+    client = mock(GlobusDataClient.class);
+    // Leases are granted and final statuses recorded unless a test says otherwise
+    when(dao.claimMonitorChildTask(any(), anyString(), any())).thenAnswer(inv -> child(inv.getArgument(0), "any"));
+    when(dao.finishMonitorChildTask(any(), anyString())).thenAnswer(inv -> inv.getArgument(0));
+    when(dao.claimMonitorChildTasks(anyString(), any(), anyInt())).thenReturn(List.of());
+    finished.clear();
+    failed.clear();
+    cancelRequested = false;
+  }
+
+  private static TransferTaskChild child(String externalTaskId)
+  {
+    return child(UUID.randomUUID(), externalTaskId);
+  }
+
+  private static TransferTaskChild child(UUID uuid, String externalTaskId)
+  {
+    TransferTaskChild child = new TransferTaskChild();
+    child.setUuid(uuid);
+    child.setStatus(TransferTaskStatus.IN_PROGRESS);
+    child.setExternalTaskId(externalTaskId);
+    return child;
+  }
+
+  @Test
+  public void testBatchCompletes() throws Exception
+  {
+    TransferTaskChild running = child("running");
+    TransferTaskChild succeeded = child("succeeded");
+    TransferTaskChild failedTask = child("failed");
+    when(dao.getChildTasksByUUIDs(anyList())).thenReturn(List.of(running, succeeded, failedTask));
+    when(client.getGlobusTransferTaskStatus("running")).thenReturn("ACTIVE");
+    when(client.getGlobusTransferTaskStatus("succeeded")).thenReturn("SUCCEEDED");
+    when(client.getGlobusTransferTaskStatus("failed")).thenReturn("FAILED");
+
+    GlobusTaskMonitor monitor = new GlobusTaskMonitor(dao, listener, 0, 0);
+    for (TransferTaskChild child : List.of(running, succeeded, failedTask)) Assert.assertTrue(monitor.track(child));
+    monitor.pollDue();
+
+    // One DB read for the batch
+    verify(dao, times(1)).getChildTasksByUUIDs(anyList());
+    verify(dao, times(2)).finishMonitorChildTask(any(), anyString());
+    Assert.assertEquals(monitor.getTrackedCount(), 1);
+    Assert.assertEquals(finished.size(), 2);
+    Assert.assertEquals(succeeded.getStatus(), TransferTaskStatus.COMPLETED);
+    Assert.assertEquals(failedTask.getStatus(), TransferTaskStatus.FAILED);
+    Assert.assertEquals(running.getStatus(), TransferTaskStatus.IN_PROGRESS);
+  }
+
+  @Test
+  public void testBackoff() throws Exception
+  {
+    TransferTaskChild running = child("running");
+    when(dao.getChildTasksByUUIDs(anyList())).thenReturn(List.of(running));
+    when(client.getGlobusTransferTaskStatus("running")).thenReturn("ACTIVE");
+
+    GlobusTaskMonitor monitor = new GlobusTaskMonitor(dao, listener, 60_000, 600_000);
+    monitor.track(running);
+    // Not due yet
+    monitor.pollDue();
+    verify(client, never()).getGlobusTransferTaskStatus(any());
+  }
+
+  @Test
+  public void testCancel() throws Exception
+  {
+    TransferTaskChild running = child("running");
+    when(dao.getChildTasksByUUIDs(anyList())).thenReturn(List.of(running));
+    cancelRequested = true;
+
+    GlobusTaskMonitor monitor = new GlobusTaskMonitor(dao, listener, 0, 0);
+    monitor.track(running);
+    monitor.pollDue();
+
+    verify(client).cancelGlobusTransferTask("running");
+    Assert.assertEquals(running.getStatus(), TransferTaskStatus.CANCELLED);
+    Assert.assertEquals(finished, List.of(running));
+    Assert.assertEquals(monitor.getTrackedCount(), 0);
+  }
+
+  @Test
+  public void testErrorsFailChild() throws Exception
+  {
+    TransferTaskChild running = child("running");
+    when(dao.getChildTasksByUUIDs(anyList())).thenReturn(List.of(running));
+    when(client.getGlobusTransferTaskStatus("running")).thenThrow(new RuntimeException("proxy down"));
+
+    GlobusTaskMonitor monitor = new GlobusTaskMonitor(dao, listener, 0, 0);
+    monitor.track(running);
+    // Retried until the error limit
+    for (int i = 0; i < 10 && monitor.getTrackedCount() > 0; i++) monitor.pollDue();
+
+    Assert.assertEquals(failed, List.of(running));
+    Assert.assertTrue(finished.isEmpty());
+    Assert.assertEquals(monitor.getTrackedCount(), 0);
+  }
+
+  @Test
+  public void testTrackTwice() throws Exception
+  {
+    TransferTaskChild running = child("running");
+    when(dao.getChildTasksByUUIDs(anyList())).thenReturn(List.of(running));
+    when(client.getGlobusTransferTaskStatus("running")).thenReturn("SUCCEEDED");
+
+    GlobusTaskMonitor monitor = new GlobusTaskMonitor(dao, listener, 0, 0);
+    Assert.assertTrue(monitor.track(running));
+    // Redelivered message, the lease is already ours
+    Assert.assertTrue(monitor.track(running));
+    Assert.assertEquals(monitor.getTrackedCount(), 1);
+    monitor.pollDue();
+
+    Assert.assertEquals(finished.size(), 1);
+  }
+
+  // A child whose lease is held by another instance is left to it
+  @Test
+  public void testTrackHeldElsewhere() throws Exception
+  {
+    when(dao.claimMonitorChildTask(any(), anyString(), any())).thenReturn(null);
+
+    GlobusTaskMonitor monitor = new GlobusTaskMonitor(dao, listener, 0, 0);
+    Assert.assertFalse(monitor.track(child("running")));
+    Assert.assertEquals(monitor.getTrackedCount(), 0);
+  }
+
+  // Once the lease is lost the final status is left to the new holder and the remaining steps are not run here
+  @Test
+  public void testLeaseLostAtFinish() throws Exception
+  {
+    TransferTaskChild succeeded = child("succeeded");
+    when(dao.getChildTasksByUUIDs(anyList())).thenReturn(List.of(succeeded));
+    when(client.getGlobusTransferTaskStatus("succeeded")).thenReturn("SUCCEEDED");
+    when(dao.finishMonitorChildTask(any(), anyString())).thenReturn(null);
+
+    GlobusTaskMonitor monitor = new GlobusTaskMonitor(dao, listener, 0, 0);
+    monitor.track(succeeded);
+    monitor.pollDue();
+
+    Assert.assertTrue(finished.isEmpty());
+    Assert.assertEquals(monitor.getTrackedCount(), 0);
+  }
+
+  // Children whose lease was not renewed are dropped, children no instance follows are taken over
+  @Test
+  public void testMaintainLeases() throws Exception
+  {
+    TransferTaskChild kept = child("kept");
+    TransferTaskChild lost = child("lost");
+    TransferTaskChild unfollowed = child("unfollowed");
+    when(dao.renewMonitorLeases(anyList(), anyString(), any())).thenReturn(List.of(kept.getUuid()));
+    when(dao.claimMonitorChildTasks(anyString(), any(), anyInt())).thenReturn(List.of(unfollowed));
+
+    GlobusTaskMonitor monitor = new GlobusTaskMonitor(dao, listener, 0, 0);
+    monitor.track(kept);
+    monitor.track(lost);
+    monitor.maintainLeases();
+    Assert.assertEquals(monitor.getTrackedCount(), 2);
+
+    // Not due again yet
+    monitor.maintainLeases();
+    verify(dao, times(1)).renewMonitorLeases(anyList(), anyString(), any());
+    verify(dao, times(1)).claimMonitorChildTasks(anyString(), any(), anyInt());
+  }
+
+  // When the remaining steps fail after the final status is recorded only those steps are retried
+  @Test
+  public void testFinishRetried() throws Exception
+  {
+    TransferTaskChild succeeded = child("succeeded");
+    when(dao.getChildTasksByUUIDs(anyList())).thenReturn(List.of(succeeded));
+    when(client.getGlobusTransferTaskStatus("succeeded")).thenReturn("SUCCEEDED");
+    AtomicInteger attempts = new AtomicInteger();
+    GlobusTaskMonitor.Listener flaky = new GlobusTaskMonitor.Listener() {
+      @Override
+      public GlobusDataClient getClient(TransferTaskChild child) { return client; }
+
+      @Override
+      public boolean isCancelRequested(TransferTaskChild child) { return false; }
+
+      @Override
+      public void onFinished(TransferTaskChild child) throws Exception
+      {
+        if (attempts.incrementAndGet() == 1) throw new Exception("DB down");
+        finished.add(child);
+      }
+
+      @Override
+      public void onError(TransferTaskChild child, Exception cause) { failed.add(child); }
+    };
+
+    GlobusTaskMonitor monitor = new GlobusTaskMonitor(dao, flaky, 0, 0);
+    monitor.track(succeeded);
+    monitor.pollDue();
+    Assert.assertEquals(monitor.getTrackedCount(), 1);
+    monitor.pollDue();
+
+    verify(dao, times(1)).finishMonitorChildTask(any(), anyString());
+    Assert.assertEquals(finished, List.of(succeeded));
+    Assert.assertEquals(monitor.getTrackedCount(), 0);
+  }
+}
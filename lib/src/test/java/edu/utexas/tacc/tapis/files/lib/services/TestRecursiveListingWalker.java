@@ -0,0 +1,225 @@
+package edu.utexas.tacc.tapis.files.lib.services;
+
+import edu.utexas.tacc.tapis.files.lib.clients.IRemoteDataClient;
+import edu.utexas.tacc.tapis.files.lib.config.RuntimeSettings;
+import edu.utexas.tacc.tapis.files.lib.exceptions.ServiceException;
+import edu.utexas.tacc.tapis.files.lib.models.FileInfo;
+import edu.utexas.tacc.tapis.systems.client.gen.model.SystemTypeEnum;
+import edu.utexas.tacc.tapis.systems.client.gen.model.TapisSystem;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.mockito.Mockito.when;
+
+@Test(groups = "integration")
+public class TestRecursiveListingWalker {
+
+    private static final int MAX_PER_HOST = Math.max(1, RuntimeSettings.get().getListingMaxConcurrencyPerHost());
+
+    @Test
+    public void testListingsSortedAndParentsFirst() throws Exception {
+        IRemoteDataClient client = mockClient("order-host");
+        RecursiveListingWalker walker = new RecursiveListingWalker(client, (c, path) -> {
+            switch (path) {
+                case "root": return List.of(dir("root/c"), file("root/a"), dir("root/B"));
+                case "root/B": return List.of(file("root/B/z"), file("root/B/y"));
+                case "root/c": return List.of(file("root/c/x"));
+                default: return List.of();
+            }
+        }, false, 10);
+
+        List<List<FileInfo>> listings = new ArrayList<>();
+        walker.walk("root", listings::add);
+
+        Assert.assertEquals(listings.size(), 3);
+        Assert.assertEquals(names(listings.get(0)), List.of("a", "B", "c"));
+        for (List<FileInfo> listing : listings) {
+            List<String> sorted = new ArrayList<>(names(listing));
+            sorted.sort(IRemoteDataClient.LISTING_NAME_ORDER);
+            Assert.assertEquals(names(listing), sorted);
+        }
+    }
+
+    @Test
+    public void testCompareWalkOrder() {
+        List<String> paths = new ArrayList<>(List.of("b", "a/x", "A-c", "a", "a/b/c"));
+        paths.sort(FileOpsService::compareWalkOrder);
+        Assert.assertEquals(paths, List.of("a", "a/b/c", "a/x", "A-c", "b"));
+    }
+
+    // An interrupted walk must not return while reads are still running, and must return every permit
+    @Test
+    public void testInterruptWaitsForRunningReads() throws Exception {
+        String host = "interrupt-host";
+        IRemoteDataClient client = mockClient(host);
+        AtomicInteger running = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        RecursiveListingWalker walker = new RecursiveListingWalker(client, (c, path) -> {
+            if ("root".equals(path)) return subDirs(MAX_PER_HOST * 2);
+            running.incrementAndGet();
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+            return List.of();
+        }, false, 10);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AtomicInteger runningAtReturn = new AtomicInteger(-1);
+        CountDownLatch walkDone = new CountDownLatch(1);
+        try {
+            Future<?> walk = executor.submit(() -> {
+                try {
+                    walker.walk("root", listing -> { });
+                } catch (ServiceException e) {
+                    // Expected, the walk was interrupted
+                } finally {
+                    runningAtReturn.set(running.get());
+                    walkDone.countDown();
+                }
+            });
+            waitFor(() -> running.get() == MAX_PER_HOST);
+            walk.cancel(true);
+
+            // Still waiting on the reads in progress
+            Assert.assertFalse(walkDone.await(500, TimeUnit.MILLISECONDS));
+            release.countDown();
+            Assert.assertTrue(walkDone.await(30, TimeUnit.SECONDS));
+            Assert.assertEquals(runningAtReturn.get(), 0);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertAllPermitsFree(host);
+    }
+
+    // A failed read stops the walk, and the walk waits for the other reads before throwing
+    @Test
+    public void testFailureWaitsForRunningReads() throws Exception {
+        String host = "failure-host";
+        IRemoteDataClient client = mockClient(host);
+        AtomicInteger running = new AtomicInteger();
+        RecursiveListingWalker walker = new RecursiveListingWalker(client, (c, path) -> {
+            if ("root".equals(path)) return subDirs(MAX_PER_HOST * 2);
+            if ("root/d0".equals(path)) throw new ServiceException("read failed");
+            running.incrementAndGet();
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+            return List.of();
+        }, false, 10);
+
+        Assert.assertThrows(ServiceException.class, () -> walker.walk("root", listing -> { }));
+        Assert.assertEquals(running.get(), 0);
+        assertAllPermitsFree(host);
+    }
+
+    // A link that cannot be looked up is skipped, the other links in the directory are still followed
+    @Test
+    public void testFailedLinkLookupSkipsOnlyThatLink() throws Exception {
+        IRemoteDataClient client = mockClient("link-host");
+        when(client.getFileInfos(Mockito.anyList(), Mockito.eq(true))).thenCallRealMethod();
+        when(client.getFileInfo("root/bad", true)).thenThrow(new IOException("Permission denied"));
+        when(client.getFileInfo("root/good", true)).thenReturn(dir("root/good"));
+        RecursiveListingWalker walker = new RecursiveListingWalker(client, (c, path) -> {
+            switch (path) {
+                case "root": return List.of(link("root/bad"), link("root/good"));
+                case "root/good": return List.of(file("root/good/x"));
+                default: return List.of();
+            }
+        }, true, 10);
+
+        List<List<FileInfo>> listings = new ArrayList<>();
+        walker.walk("root", listings::add);
+
+        Assert.assertEquals(listings.size(), 2);
+        Assert.assertEquals(names(listings.get(1)), List.of("x"));
+    }
+
+    /*
+     * Every permit for the host is free if that many reads can run at the same time.
+     */
+    private static void assertAllPermitsFree(String host) throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(MAX_PER_HOST);
+        RecursiveListingWalker walker = new RecursiveListingWalker(mockClient(host), (c, path) -> {
+            if ("root".equals(path)) return subDirs(MAX_PER_HOST);
+            try {
+                barrier.await(10, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new ServiceException("Not all permits available", e);
+            }
+            return List.of();
+        }, false, 10);
+        walker.walk("root", listing -> { });
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30000;
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting");
+            Thread.sleep(10);
+        }
+    }
+
+    private static IRemoteDataClient mockClient(String host) {
+        IRemoteDataClient client = Mockito.mock(IRemoteDataClient.class);
+        TapisSystem system = new TapisSystem();
+        system.setHost(host);
+        when(client.getSystemType()).thenReturn(SystemTypeEnum.LINUX);
+        when(client.getSystem()).thenReturn(system);
+        when(client.getOboTenant()).thenReturn("dev");
+        when(client.getOboUser()).thenReturn("testuser");
+        when(client.getSystemId()).thenReturn("testSystem");
+        return client;
+    }
+
+    private static List<FileInfo> subDirs(int count) {
+        List<FileInfo> listing = new ArrayList<>();
+        for (int i = 0; i < count; i++) listing.add(dir("root/d" + i));
+        return listing;
+    }
+
+    private static FileInfo dir(String path) {
+        FileInfo fileInfo = file(path);
+        fileInfo.setType(FileInfo.FileType.DIR);
+        return fileInfo;
+    }
+
+    private static FileInfo link(String path) {
+        FileInfo fileInfo = file(path);
+        fileInfo.setType(FileInfo.FileType.SYMBOLIC_LINK);
+        return fileInfo;
+    }
+
+    private static FileInfo file(String path) {
+        FileInfo fileInfo = new FileInfo();
+        fileInfo.setPath(path);
+        fileInfo.setName(path.substring(path.lastIndexOf('/') + 1));
+        fileInfo.setType(FileInfo.FileType.FILE);
+        return fileInfo;
+    }
+
+    private static List<String> names(List<FileInfo> listing) {
+        return listing.stream().map(FileInfo::getName).collect(Collectors.toList());
+    }
+}
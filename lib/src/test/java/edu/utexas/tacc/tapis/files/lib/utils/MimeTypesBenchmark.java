@@ -0,0 +1,69 @@
+package edu.utexas.tacc.tapis.files.lib.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Micro benchmark of mime type detection for a 100k entry listing, comparing Files.probeContentType
+ * on each (non-existent) path with MimeTypes.getMimeType.
+ * Not run as part of the test suite. Run with main() from the IDE or test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MimeTypesBenchmark
+{
+  private static final int ENTRY_COUNT = 100_000;
+  private static final String[] EXTENSIONS = {"txt", "csv", "json", "png", "tar.gz", "h5", "out", "py", "dat", ""};
+
+  private String[] fileNames;
+
+  @Setup
+  public void setup()
+  {
+    fileNames = new String[ENTRY_COUNT];
+    for (int i = 0; i < ENTRY_COUNT; i++)
+    {
+      String ext = EXTENSIONS[i % EXTENSIONS.length];
+      fileNames[i] = "/data/run1/output_" + i + (ext.isEmpty() ? "" : "." + ext);
+    }
+  }
+
+  @Benchmark
+  public void probeContentType(Blackhole bh) throws IOException
+  {
+    for (String fileName : fileNames) bh.consume(Files.probeContentType(Paths.get(fileName)));
+  }
+
+  @Benchmark
+  public void mimeTypes(Blackhole bh)
+  {
+    for (String fileName : fileNames) bh.consume(MimeTypes.getMimeType(fileName));
+  }
+
+  public static void main(String[] args) throws Exception
+  {
+    Options opt = new OptionsBuilder().include(MimeTypesBenchmark.class.getSimpleName()).build();
+    new Runner(opt).run();
+  }
+}
@@ -0,0 +1,22 @@
+package edu.utexas.tacc.tapis.files.lib.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test(groups = "integration")
+public class MimeTypesTest {
+
+    @Test
+    public void testGetMimeType() {
+        Assert.assertEquals(MimeTypes.getMimeType("file.txt"), "text/plain");
+        Assert.assertEquals(MimeTypes.getMimeType("FILE.PNG"), "image/png");
+        Assert.assertEquals(MimeTypes.getMimeType("a/b.dir/c/archive.tar.gz"), "application/gzip");
+        Assert.assertNull(MimeTypes.getMimeType("noextension"));
+        Assert.assertNull(MimeTypes.getMimeType("a/b.dir/noextension"));
+        Assert.assertNull(MimeTypes.getMimeType(".bashrc"));
+        Assert.assertNull(MimeTypes.getMimeType("trailingdot."));
+        Assert.assertNull(MimeTypes.getMimeType(null));
+        // Not in the table, resolved by probing. Result depends on the platform but must be stable.
+        Assert.assertEquals(MimeTypes.getMimeType("x.unusualext"), MimeTypes.getMimeType("y.unusualext"));
+    }
+}
@@ -0,0 +1,4 @@
+-- ------------------------------------------------------------------------------------------------------
+-- Add index supporting keyset paging of child transfer tasks by task id, ordered by id.
+-- ------------------------------------------------------------------------------------------------------
+CREATE INDEX IF NOT EXISTS transfer_tasks_child_task_id_id_idx ON transfer_tasks_child (task_id, id);
@@ -0,0 +1,8 @@
+-- ------------------------------------------------------------------------------------------------------
+-- Add columns recording which service instance follows the external Globus task of a child, and until when.
+-- Add index supporting the search for children with an external task that no instance is following.
+-- ------------------------------------------------------------------------------------------------------
+ALTER TABLE transfer_tasks_child ADD COLUMN IF NOT EXISTS monitor_owner TEXT DEFAULT NULL;
+ALTER TABLE transfer_tasks_child ADD COLUMN IF NOT EXISTS monitor_lease_expires TIMESTAMP WITH TIME ZONE DEFAULT NULL;
+CREATE INDEX IF NOT EXISTS transfer_tasks_child_monitor_lease_idx ON transfer_tasks_child (monitor_lease_expires)
+    WHERE external_task_id IS NOT NULL AND end_time IS NULL;